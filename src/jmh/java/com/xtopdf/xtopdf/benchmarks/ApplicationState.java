@@ -0,0 +1,59 @@
+package com.xtopdf.xtopdf.benchmarks;
+
+import com.xtopdf.xtopdf.XtopdfApplication;
+import com.xtopdf.xtopdf.converters.ConverterRegistry;
+import com.xtopdf.xtopdf.converters.FileConverter;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+
+/**
+ * Starts the application context once per benchmark trial, without the web server, so
+ * converters are wired exactly as in production.
+ */
+@State(Scope.Benchmark)
+public class ApplicationState {
+
+    private ConfigurableApplicationContext context;
+
+    @Setup
+    public void start() {
+        context = SpringApplication.run(XtopdfApplication.class,
+                "--spring.main.web-application-type=none",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                "--management.tracing.sampling.probability=0");
+    }
+
+    @TearDown
+    public void stop() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    /**
+     * Returns the registered converter for a format (extension without the dot).
+     */
+    FileConverter converter(String format) throws Exception {
+        return context.getBean(ConverterRegistry.class).getConverter("." + format);
+    }
+
+    /**
+     * Runs one conversion up front, so a converter that rejects the generated input fails the
+     * trial instead of silently benchmarking its error path.
+     */
+    void verify(FileConverter converter, MultipartFile input, File output) throws Exception {
+        converter.convertToPDF(input, output.getPath(), false);
+        if (output.length() == 0) {
+            throw new IllegalStateException(converter.getClass().getSimpleName()
+                    + " produced no output for " + input.getOriginalFilename());
+        }
+    }
+}
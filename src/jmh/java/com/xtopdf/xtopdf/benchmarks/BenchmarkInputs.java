@@ -0,0 +1,607 @@
+package com.xtopdf.xtopdf.benchmarks;
+
+import org.apache.poi.hslf.usermodel.HSLFSlide;
+import org.apache.poi.hslf.usermodel.HSLFSlideShow;
+import org.apache.poi.hslf.usermodel.HSLFTextBox;
+import org.apache.poi.hssf.usermodel.HSSFRow;
+import org.apache.poi.hssf.usermodel.HSSFSheet;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xslf.usermodel.XMLSlideShow;
+import org.apache.poi.xslf.usermodel.XSLFSlide;
+import org.apache.poi.xslf.usermodel.XSLFTextBox;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.apache.poi.xwpf.usermodel.XWPFTableRow;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Generates benchmark inputs for every converter, in the spirit of {@code TestFileGenerator}
+ * but sized for measurement rather than correctness.
+ *
+ * <p>Inputs are deterministic (fixed random seed), so results from different runs and
+ * releases are comparable. Formats that cannot be produced with the libraries on the
+ * classpath (ODF, DWG/DWT) are read from {@code src/test/resources/test-files}; see
+ * {@link #fixture(String)}.</p>
+ */
+final class BenchmarkInputs {
+
+    /**
+     * Input size classes. {@code units} is the number of rows, lines, records, shapes or
+     * entities the generator emits, depending on the format.
+     */
+    enum Size {
+        SMALL(100),
+        MEDIUM(2_000),
+        LARGE(20_000);
+
+        final int units;
+
+        Size(int units) {
+            this.units = units;
+        }
+    }
+
+    private static final String[] WORDS = {
+            "lorem", "ipsum", "dolor", "sit", "amet", "consectetur", "adipiscing", "elit",
+            "sed", "do", "eiusmod", "tempor", "incididunt", "ut", "labore", "et", "dolore",
+            "magna", "aliqua", "conversion", "document", "throughput", "latency", "heap"
+    };
+    private static final int COLUMNS = 8;
+
+    private BenchmarkInputs() {
+    }
+
+    /**
+     * Returns the generated content for a format (extension without the dot).
+     *
+     * @throws IllegalArgumentException if no generator exists for the format
+     */
+    static byte[] generate(String format, Size size) {
+        int n = size.units;
+        try {
+            return switch (format.toLowerCase(Locale.ROOT)) {
+                case "txt" -> text(n);
+                case "csv" -> delimited(n, ',');
+                case "tsv" -> delimited(n, '\t');
+                case "json" -> json(n);
+                case "xml" -> xml(n);
+                case "md" -> markdown(n);
+                case "html" -> html(n);
+                case "rtf" -> rtf(n);
+                case "svg" -> svg(n);
+                case "docx" -> docx(n);
+                case "xlsx" -> xlsx(n);
+                case "xls" -> xls(n);
+                case "pptx" -> pptx(n);
+                case "ppt" -> ppt(n);
+                case "png", "jpg", "jpeg", "bmp", "gif", "tiff" -> image(format, n);
+                case "dxf" -> dxf(n);
+                case "plt", "hpgl" -> hpgl(n);
+                case "stl" -> stl(n);
+                case "obj" -> obj(n);
+                case "wrl" -> wrl(n);
+                case "x3d" -> x3d(n);
+                case "3mf" -> threeMf(n);
+                case "step", "stp" -> step(n);
+                case "iges", "igs" -> iges(n);
+                case "dwf", "dwfx" -> dwf(n);
+                default -> throw new IllegalArgumentException("No benchmark input generator for " + format);
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads a checked-in test fixture from the test classpath.
+     *
+     * @param name the file name under {@code test-files/}
+     */
+    static byte[] fixture(String name) {
+        try (InputStream in = BenchmarkInputs.class.getResourceAsStream("/test-files/" + name)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Missing benchmark fixture test-files/" + name);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns a paragraph of roughly {@code words} words.
+     */
+    static String sentence(Random random, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns a {@code rows} x {@link #COLUMNS} table of short cell values.
+     */
+    static String[][] table(int rows) {
+        Random random = new Random(rows);
+        String[][] data = new String[rows][COLUMNS];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < COLUMNS; c++) {
+                data[r][c] = r == 0 ? "Column " + c : cellValue(random, r, c);
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Returns a PNG of a simple drawing, {@code width} x {@code height} pixels.
+     */
+    static byte[] png(int width, int height) {
+        try {
+            return encode(drawing(width, height), "png");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String cellValue(Random random, int row, int column) {
+        return switch (column % 4) {
+            case 0 -> "Item " + row;
+            case 1 -> Integer.toString(random.nextInt(100_000));
+            case 2 -> String.format(Locale.ROOT, "%.2f", random.nextDouble() * 1000);
+            default -> sentence(random, 1 + random.nextInt(4));
+        };
+    }
+
+    private static byte[] text(int lines) {
+        Random random = new Random(1);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            sb.append(sentence(random, 5 + random.nextInt(20))).append('\n');
+        }
+        return utf8(sb);
+    }
+
+    private static byte[] delimited(int rows, char delimiter) {
+        Random random = new Random(2);
+        StringBuilder sb = new StringBuilder();
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < COLUMNS; c++) {
+                if (c > 0) {
+                    sb.append(delimiter);
+                }
+                String value = r == 0 ? "Column " + c : cellValue(random, r, c);
+                if (c == COLUMNS - 1 && r % 10 == 0) {
+                    // Exercise the quoted-field path, including an embedded delimiter and quote
+                    sb.append('"').append(value).append(delimiter).append(" \"\"quoted\"\"").append('"');
+                } else {
+                    sb.append(value);
+                }
+            }
+            sb.append('\n');
+        }
+        return utf8(sb);
+    }
+
+    private static byte[] json(int records) {
+        Random random = new Random(3);
+        StringBuilder sb = new StringBuilder("[\n");
+        for (int i = 0; i < records; i++) {
+            sb.append("  {\"id\": ").append(i)
+                    .append(", \"name\": \"").append(sentence(random, 2))
+                    .append("\", \"value\": ").append(random.nextInt(10_000))
+                    .append(", \"active\": ").append(random.nextBoolean())
+                    .append(", \"tags\": [\"").append(sentence(random, 1)).append("\", \"")
+                    .append(sentence(random, 1)).append("\"]")
+                    .append(", \"nested\": {\"description\": \"").append(sentence(random, 8)).append("\"}}")
+                    .append(i < records - 1 ? ",\n" : "\n");
+        }
+        return utf8(sb.append("]\n"));
+    }
+
+    private static byte[] xml(int records) {
+        Random random = new Random(4);
+        StringBuilder sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<records>\n");
+        for (int i = 0; i < records; i++) {
+            sb.append("  <record id=\"").append(i).append("\">\n")
+                    .append("    <name>").append(sentence(random, 2)).append("</name>\n")
+                    .append("    <value>").append(random.nextInt(10_000)).append("</value>\n")
+                    .append("    <description>").append(sentence(random, 10)).append("</description>\n")
+                    .append("  </record>\n");
+        }
+        return utf8(sb.append("</records>\n"));
+    }
+
+    private static byte[] markdown(int blocks) {
+        Random random = new Random(5);
+        StringBuilder sb = new StringBuilder("# Benchmark document\n\n");
+        for (int i = 0; i < blocks; i++) {
+            switch (i % 5) {
+                case 0 -> sb.append("## Section ").append(i).append("\n\n");
+                case 1 -> sb.append(sentence(random, 40)).append(" **bold** and *italic*.\n\n");
+                case 2 -> sb.append("- ").append(sentence(random, 6)).append("\n- ")
+                        .append(sentence(random, 6)).append("\n\n");
+                case 3 -> sb.append("| A | B | C |\n|---|---|---|\n| ").append(i).append(" | ")
+                        .append(sentence(random, 2)).append(" | ").append(random.nextInt(100)).append(" |\n\n");
+                default -> sb.append("```\n").append(sentence(random, 8)).append("\n```\n\n");
+            }
+        }
+        return utf8(sb);
+    }
+
+    private static byte[] html(int blocks) {
+        Random random = new Random(6);
+        StringBuilder sb = new StringBuilder("<!DOCTYPE html>\n<html><head><title>Benchmark</title>"
+                + "<style>td { border: 1px solid #999; padding: 2px; }</style></head><body>\n");
+        sb.append("<h1>Benchmark document</h1>\n");
+        for (int i = 0; i < blocks / 2; i++) {
+            sb.append("<p>").append(sentence(random, 40)).append(" <b>bold</b> <i>italic</i></p>\n");
+        }
+        sb.append("<table>\n");
+        for (int r = 0; r < blocks / 2; r++) {
+            sb.append("<tr>");
+            for (int c = 0; c < 4; c++) {
+                sb.append("<td>").append(cellValue(random, r, c)).append("</td>");
+            }
+            sb.append("</tr>\n");
+        }
+        return utf8(sb.append("</table>\n</body></html>\n"));
+    }
+
+    private static byte[] rtf(int paragraphs) {
+        Random random = new Random(7);
+        StringBuilder sb = new StringBuilder("{\\rtf1\\ansi\\deff0\n{\\fonttbl{\\f0\\froman\\fcharset0 Times;}}\n\\f0\\fs24\n");
+        for (int i = 0; i < paragraphs; i++) {
+            if (i % 10 == 0) {
+                sb.append("{\\b Section ").append(i).append("}\\par\n");
+            }
+            sb.append(sentence(random, 30)).append("\\par\n");
+        }
+        return utf8(sb.append('}'));
+    }
+
+    private static byte[] svg(int shapes) {
+        Random random = new Random(8);
+        StringBuilder sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"1000\" height=\"1000\" viewBox=\"0 0 1000 1000\">\n");
+        for (int i = 0; i < shapes; i++) {
+            int x = random.nextInt(1000);
+            int y = random.nextInt(1000);
+            String color = String.format("#%06x", random.nextInt(0x1000000));
+            switch (i % 5) {
+                case 0 -> sb.append("<rect x=\"").append(x).append("\" y=\"").append(y)
+                        .append("\" width=\"40\" height=\"20\" fill=\"").append(color).append("\"/>\n");
+                case 1 -> sb.append("<circle cx=\"").append(x).append("\" cy=\"").append(y)
+                        .append("\" r=\"15\" stroke=\"").append(color).append("\" fill=\"none\"/>\n");
+                case 2 -> sb.append("<line x1=\"").append(x).append("\" y1=\"").append(y).append("\" x2=\"")
+                        .append(random.nextInt(1000)).append("\" y2=\"").append(random.nextInt(1000))
+                        .append("\" stroke=\"").append(color).append("\"/>\n");
+                case 3 -> sb.append("<path d=\"M").append(x).append(' ').append(y).append(" q 20 -40 40 0 t 40 0\" stroke=\"")
+                        .append(color).append("\" fill=\"none\"/>\n");
+                default -> sb.append("<text x=\"").append(x).append("\" y=\"").append(y).append("\" font-size=\"10\">")
+                        .append(sentence(random, 2)).append("</text>\n");
+            }
+        }
+        return utf8(sb.append("</svg>\n"));
+    }
+
+    private static byte[] docx(int paragraphs) throws IOException {
+        Random random = new Random(9);
+        try (XWPFDocument document = new XWPFDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            for (int i = 0; i < paragraphs; i++) {
+                XWPFParagraph paragraph = document.createParagraph();
+                if (i % 10 == 0) {
+                    paragraph.createRun().setBold(true);
+                }
+                paragraph.createRun().setText(sentence(random, 30));
+            }
+            int rows = Math.max(2, paragraphs / 20);
+            XWPFTable table = document.createTable(rows, 4);
+            for (int r = 0; r < rows; r++) {
+                XWPFTableRow row = table.getRow(r);
+                for (int c = 0; c < 4; c++) {
+                    row.getCell(c).setText(cellValue(random, r, c));
+                }
+            }
+            document.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    private static byte[] xlsx(int rows) throws IOException {
+        // Streaming writer with a shared strings table, like files saved by Excel
+        SXSSFWorkbook workbook = new SXSSFWorkbook(new XSSFWorkbook(), 100, false, true);
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            fillSheet(workbook.createSheet("Data"), rows);
+            workbook.write(out);
+            return out.toByteArray();
+        } finally {
+            workbook.close();
+        }
+    }
+
+    private static byte[] xls(int rows) throws IOException {
+        try (HSSFWorkbook workbook = new HSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            HSSFSheet sheet = workbook.createSheet("Data");
+            fillSheet(sheet, rows);
+            HSSFRow total = sheet.createRow(rows);
+            total.createCell(1).setCellFormula("SUM(B2:B" + rows + ")");
+            workbook.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    private static void fillSheet(Sheet sheet, int rows) {
+        Random random = new Random(10);
+        for (int r = 0; r < rows; r++) {
+            Row row = sheet.createRow(r);
+            for (int c = 0; c < COLUMNS; c++) {
+                if (r > 0 && (c == 1 || c == 2)) {
+                    row.createCell(c).setCellValue(random.nextInt(100_000));
+                } else {
+                    row.createCell(c).setCellValue(r == 0 ? "Column " + c : cellValue(random, r, c));
+                }
+            }
+        }
+    }
+
+    private static byte[] pptx(int units) throws IOException {
+        Random random = new Random(11);
+        try (XMLSlideShow slideShow = new XMLSlideShow(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            for (int i = 0; i < slideCount(units); i++) {
+                XSLFSlide slide = slideShow.createSlide();
+                XSLFTextBox title = slide.createTextBox();
+                title.setText("Slide " + (i + 1));
+                title.setAnchor(new Rectangle2D.Double(50, 30, 600, 60));
+                XSLFTextBox body = slide.createTextBox();
+                body.setText(sentence(random, 40));
+                body.setAnchor(new Rectangle2D.Double(50, 120, 600, 300));
+            }
+            slideShow.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    private static byte[] ppt(int units) throws IOException {
+        Random random = new Random(12);
+        try (HSLFSlideShow slideShow = new HSLFSlideShow(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            for (int i = 0; i < slideCount(units); i++) {
+                HSLFSlide slide = slideShow.createSlide();
+                HSLFTextBox title = slide.createTextBox();
+                title.setText("Slide " + (i + 1));
+                title.setAnchor(new Rectangle2D.Double(50, 30, 600, 60));
+                HSLFTextBox body = slide.createTextBox();
+                body.setText(sentence(random, 40));
+                body.setAnchor(new Rectangle2D.Double(50, 120, 600, 300));
+            }
+            slideShow.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    private static int slideCount(int units) {
+        return Math.max(1, units / 20);
+    }
+
+    private static byte[] image(String format, int units) throws IOException {
+        // SMALL 640x400, MEDIUM 2862x1788, LARGE capped at 4096x2560 pixels
+        int width = Math.min(4096, (int) (64 * Math.sqrt(units)));
+        int height = width * 5 / 8;
+        return encode(drawing(width, height), "jpg".equals(format) ? "jpeg" : format);
+    }
+
+    private static BufferedImage drawing(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            Random random = new Random(13);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            for (int i = 0; i < 200; i++) {
+                g.setColor(new Color(random.nextInt(0x1000000)));
+                g.fillOval(random.nextInt(width), random.nextInt(height), width / 10, height / 10);
+            }
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!ImageIO.write(image, format, out)) {
+            throw new IOException("No ImageIO writer for " + format);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] dxf(int entities) {
+        Random random = new Random(14);
+        StringBuilder sb = new StringBuilder("0\nSECTION\n2\nENTITIES\n");
+        for (int i = 0; i < entities; i++) {
+            double x = random.nextDouble() * 1000;
+            double y = random.nextDouble() * 1000;
+            switch (i % 4) {
+                case 0 -> sb.append("0\nLINE\n8\n0\n10\n").append(x).append("\n20\n").append(y)
+                        .append("\n11\n").append(x + 25).append("\n21\n").append(y + 10).append('\n');
+                case 1 -> sb.append("0\nCIRCLE\n8\n0\n10\n").append(x).append("\n20\n").append(y)
+                        .append("\n40\n").append(5 + random.nextInt(20)).append('\n');
+                case 2 -> sb.append("0\nARC\n8\n0\n10\n").append(x).append("\n20\n").append(y)
+                        .append("\n40\n12\n50\n0\n51\n135\n");
+                default -> {
+                    sb.append("0\nLWPOLYLINE\n8\n0\n90\n6\n70\n0\n");
+                    for (int v = 0; v < 6; v++) {
+                        sb.append("10\n").append(x + v * 8).append("\n20\n").append(y + (v % 2) * 8).append('\n');
+                    }
+                }
+            }
+        }
+        return utf8(sb.append("0\nENDSEC\n0\nEOF\n"));
+    }
+
+    private static byte[] hpgl(int strokes) {
+        Random random = new Random(15);
+        StringBuilder sb = new StringBuilder("IN;SP1;");
+        for (int i = 0; i < strokes; i++) {
+            sb.append("PU").append(random.nextInt(10_000)).append(',').append(random.nextInt(10_000)).append(';')
+                    .append("PD").append(random.nextInt(10_000)).append(',').append(random.nextInt(10_000)).append(',')
+                    .append(random.nextInt(10_000)).append(',').append(random.nextInt(10_000)).append(';');
+            if (i % 50 == 0) {
+                sb.append("CI").append(50 + random.nextInt(200)).append(';');
+            }
+        }
+        return utf8(sb.append("PU;SP0;"));
+    }
+
+    private static byte[] stl(int facets) {
+        Random random = new Random(16);
+        StringBuilder sb = new StringBuilder("solid benchmark\n");
+        for (int i = 0; i < facets; i++) {
+            sb.append("facet normal 0 0 1\nouter loop\n");
+            for (int v = 0; v < 3; v++) {
+                sb.append("vertex ").append(random.nextFloat() * 100).append(' ')
+                        .append(random.nextFloat() * 100).append(' ').append(random.nextFloat() * 100).append('\n');
+            }
+            sb.append("endloop\nendfacet\n");
+        }
+        return utf8(sb.append("endsolid benchmark\n"));
+    }
+
+    private static byte[] obj(int faces) {
+        Random random = new Random(17);
+        StringBuilder sb = new StringBuilder("# benchmark mesh\n");
+        for (int i = 0; i < faces * 3; i++) {
+            sb.append("v ").append(random.nextFloat() * 100).append(' ')
+                    .append(random.nextFloat() * 100).append(' ').append(random.nextFloat() * 100).append('\n');
+        }
+        for (int i = 0; i < faces; i++) {
+            sb.append("f ").append(3 * i + 1).append(' ').append(3 * i + 2).append(' ').append(3 * i + 3).append('\n');
+        }
+        return utf8(sb);
+    }
+
+    private static byte[] wrl(int shapes) {
+        StringBuilder sb = new StringBuilder("#VRML V2.0 utf8\n");
+        for (int i = 0; i < shapes; i++) {
+            sb.append("Transform {\n  translation ").append(i % 50).append(' ').append(i / 50).append(" 0\n")
+                    .append("  children [\n    Shape {\n      appearance Appearance { material Material { diffuseColor 1 0 0 } }\n")
+                    .append(i % 2 == 0 ? "      geometry Box { size 1 1 1 }\n" : "      geometry Sphere { radius 0.5 }\n")
+                    .append("    }\n  ]\n}\n");
+        }
+        return utf8(sb);
+    }
+
+    private static byte[] x3d(int shapes) {
+        StringBuilder sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<X3D version=\"3.0\">\n  <Scene>\n");
+        for (int i = 0; i < shapes; i++) {
+            sb.append("    <Transform translation=\"").append(i % 50).append(' ').append(i / 50).append(" 0\">\n")
+                    .append("      <Shape>\n")
+                    .append(i % 2 == 0 ? "        <Box size=\"1 1 1\"/>\n" : "        <Sphere radius=\"0.5\"/>\n")
+                    .append("        <Appearance><Material diffuseColor=\"1 0 0\"/></Appearance>\n")
+                    .append("      </Shape>\n    </Transform>\n");
+        }
+        return utf8(sb.append("  </Scene>\n</X3D>\n"));
+    }
+
+    private static byte[] threeMf(int triangles) throws IOException {
+        Random random = new Random(18);
+        StringBuilder model = new StringBuilder("<?xml version=\"1.0\"?>\n"
+                + "<model xmlns=\"http://schemas.microsoft.com/3dmanufacturing/core/2015/02\">\n"
+                + "  <resources>\n    <object id=\"1\" type=\"model\">\n      <mesh>\n        <vertices>\n");
+        for (int i = 0; i < triangles * 3; i++) {
+            model.append("          <vertex x=\"").append(random.nextFloat() * 100).append("\" y=\"")
+                    .append(random.nextFloat() * 100).append("\" z=\"").append(random.nextFloat() * 100).append("\"/>\n");
+        }
+        model.append("        </vertices>\n        <triangles>\n");
+        for (int i = 0; i < triangles; i++) {
+            model.append("          <triangle v1=\"").append(3 * i).append("\" v2=\"").append(3 * i + 1)
+                    .append("\" v3=\"").append(3 * i + 2).append("\"/>\n");
+        }
+        model.append("        </triangles>\n      </mesh>\n    </object>\n  </resources>\n"
+                + "  <build>\n    <item objectid=\"1\"/>\n  </build>\n</model>\n");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.putNextEntry(new ZipEntry("3D/3dmodel.model"));
+            zip.write(utf8(model));
+            zip.closeEntry();
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] step(int points) {
+        Random random = new Random(19);
+        StringBuilder sb = new StringBuilder("ISO-10303-21;\nHEADER;\n"
+                + "FILE_DESCRIPTION(('Benchmark assembly'),'2;1');\n"
+                + "FILE_NAME('benchmark.step','2026-01-01T00:00:00',('bench'),(''),'','','');\n"
+                + "FILE_SCHEMA(('AUTOMOTIVE_DESIGN'));\nENDSEC;\nDATA;\n");
+        for (int i = 1; i <= points; i++) {
+            sb.append('#').append(i).append("=CARTESIAN_POINT('',(").append(random.nextFloat() * 100).append(',')
+                    .append(random.nextFloat() * 100).append(',').append(random.nextFloat() * 100).append("));\n");
+        }
+        sb.append('#').append(points + 1).append("=SHAPE_REPRESENTATION('part',(#1),#1);\n");
+        return utf8(sb.append("ENDSEC;\nEND-ISO-10303-21;\n"));
+    }
+
+    private static byte[] iges(int entities) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%-72sS%7d%n", "Benchmark IGES file", 1));
+        sb.append(String.format(Locale.ROOT, "%-72sG%7d%n", "1H,,1H;,9Hbenchmark,", 1));
+        for (int i = 0; i < entities; i++) {
+            sb.append(String.format(Locale.ROOT, "%8d%8d%8d%8d%8d%8d%8d%8d%8dD%7d%n",
+                    110, i + 1, 0, 0, 0, 0, 0, 0, 0, 2 * i + 1));
+            sb.append(String.format(Locale.ROOT, "%8d%8d%8d%8d%8d%8d%8d%8d%8dD%7d%n",
+                    110, 0, 0, 1, 0, 0, 0, 0, 0, 2 * i + 2));
+        }
+        for (int i = 0; i < entities; i++) {
+            sb.append(String.format(Locale.ROOT, "%-64s%8dP%7d%n",
+                    "110," + i + ".,0.,0.," + (i + 1) + ".,1.,0.;", 2 * i + 1, i + 1));
+        }
+        sb.append(String.format(Locale.ROOT, "%-72sT%7d%n",
+                String.format(Locale.ROOT, "S%7dG%7dD%7dP%7d", 1, 1, 2 * entities, entities), 1));
+        return utf8(sb);
+    }
+
+    private static byte[] dwf(int units) throws IOException {
+        // DWF/DWFX packages are rendered from their embedded sheet images
+        int sheets = Math.max(1, units / 200);
+        byte[] sheet = png(1200, 800);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.putNextEntry(new ZipEntry("manifest.xml"));
+            zip.write(utf8("<Manifest><Title>Benchmark drawing</Title></Manifest>"));
+            zip.closeEntry();
+            for (int i = 0; i < sheets; i++) {
+                zip.putNextEntry(new ZipEntry("sheets/sheet" + i + ".png"));
+                zip.write(sheet);
+                zip.closeEntry();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] utf8(CharSequence content) {
+        return content.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,71 @@
+package com.xtopdf.xtopdf.benchmarks;
+
+import com.xtopdf.xtopdf.converters.FileConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end conversion time of every converter with a generated input, across the
+ * {@link BenchmarkInputs.Size} classes.
+ *
+ * <p>Converters are called directly, so the cache, scheduler and post-processing are not part
+ * of the measurement. Formats without a generator are covered by {@link FixtureConverterBenchmark}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx2g", "-XX:+UseG1GC"})
+public class ConverterBenchmark {
+
+    @Param({"txt", "csv", "tsv", "json", "xml", "md", "html", "rtf", "svg",
+            "docx", "xlsx", "xls", "pptx", "ppt",
+            "png", "jpg", "bmp", "gif", "tiff",
+            "dxf", "plt", "hpgl", "dwf", "dwfx",
+            "stl", "obj", "wrl", "x3d", "3mf", "step", "stp", "iges", "igs"})
+    String format;
+
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    String size;
+
+    private FileConverter converter;
+    private MockMultipartFile input;
+    private File output;
+
+    @Setup
+    public void setUp(ApplicationState application) throws Exception {
+        byte[] content = BenchmarkInputs.generate(format, BenchmarkInputs.Size.valueOf(size));
+        converter = application.converter(format);
+        input = new MockMultipartFile("file", "benchmark." + format, "application/octet-stream", content);
+        output = Files.createTempFile("benchmark-" + format + "-", ".pdf").toFile();
+        application.verify(converter, input, output);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(output.toPath());
+    }
+
+    @Benchmark
+    public long convert() throws Exception {
+        converter.convertToPDF(input, output.getPath(), false);
+        return output.length();
+    }
+}
@@ -0,0 +1,89 @@
+package com.xtopdf.xtopdf.benchmarks;
+
+import com.xtopdf.xtopdf.converters.FileConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DXF conversion throughput with several drawings converted at once by the shared converter.
+ *
+ * <p>{@link #convertInParallel()} converts {@code parallel} medium drawings concurrently and
+ * returns when all are done. With no shared parse state the time per batch stays close to the
+ * single-drawing time until the threads outnumber the cores; drawings per second is
+ * {@code parallel} divided by the reported time.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx2g", "-XX:+UseG1GC"})
+public class DxfBenchmark {
+
+    /** Drawings converted concurrently. */
+    @Param({"1", "4", "16"})
+    int parallel;
+
+    private FileConverter converter;
+    private MockMultipartFile input;
+    private List<File> outputs;
+    private ExecutorService executor;
+
+    @Setup
+    public void setUp(ApplicationState application) throws Exception {
+        converter = application.converter("dxf");
+        input = new MockMultipartFile("file", "benchmark.dxf", "application/octet-stream",
+                BenchmarkInputs.generate("dxf", BenchmarkInputs.Size.MEDIUM));
+        outputs = new ArrayList<>();
+        for (int i = 0; i < parallel; i++) {
+            outputs.add(Files.createTempFile("benchmark-dxf-" + i + "-", ".pdf").toFile());
+        }
+        application.verify(converter, input, outputs.get(0));
+        executor = Executors.newFixedThreadPool(parallel);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        for (File output : outputs) {
+            Files.deleteIfExists(output.toPath());
+        }
+    }
+
+    @Benchmark
+    public long convertInParallel() throws Exception {
+        List<Future<Long>> conversions = new ArrayList<>(parallel);
+        for (File output : outputs) {
+            conversions.add(executor.submit(() -> {
+                converter.convertToPDF(input, output.getPath(), false);
+                return output.length();
+            }));
+        }
+        long bytes = 0;
+        for (Future<Long> conversion : conversions) {
+            bytes += conversion.get();
+        }
+        return bytes;
+    }
+}
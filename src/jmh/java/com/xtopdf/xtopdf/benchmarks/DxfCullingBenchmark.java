@@ -0,0 +1,96 @@
+package com.xtopdf.xtopdf.benchmarks;
+
+import com.xtopdf.xtopdf.entities.BlockEntity;
+import com.xtopdf.xtopdf.entities.DxfEntity;
+import com.xtopdf.xtopdf.services.dxf.DxfCoordinateCalculator;
+import com.xtopdf.xtopdf.services.dxf.DxfDrawing;
+import com.xtopdf.xtopdf.services.dxf.DxfEntityBounds;
+import com.xtopdf.xtopdf.services.dxf.DxfEntityParser;
+import com.xtopdf.xtopdf.services.dxf.DxfExtents;
+import com.xtopdf.xtopdf.services.dxf.DxfSpatialIndex;
+import com.xtopdf.xtopdf.services.dxf.DxfViewport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding the entities of one page when a DXF drawing is tiled, without rendering.
+ *
+ * <p>The drawing is laid out {@code tilesAcross} pages wide. {@link #searchIndex()} queries
+ * every page through a {@link DxfSpatialIndex}; {@link #scanEntities()} tests every entity's
+ * bounds against every page, the cost the index avoids. {@link #buildIndex()} is the
+ * one-off cost of measuring the entities and packing the tree.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx1g", "-XX:+UseG1GC"})
+public class DxfCullingBenchmark {
+
+    @Param({"MEDIUM", "LARGE"})
+    String size;
+
+    /** Pages along the drawing's longer side. */
+    @Param({"1", "4"})
+    int tilesAcross;
+
+    private List<DxfEntity> entities;
+    private Map<String, BlockEntity> blocks;
+    private DxfSpatialIndex index;
+    private List<DxfViewport> pages;
+
+    @Setup
+    public void setUp() throws Exception {
+        MockMultipartFile input = new MockMultipartFile("file", "benchmark.dxf", "application/octet-stream",
+                BenchmarkInputs.generate("dxf", BenchmarkInputs.Size.valueOf(size)));
+        DxfDrawing drawing = new DxfEntityParser().parse(input);
+        entities = drawing.entities();
+        blocks = drawing.blocks();
+        index = DxfSpatialIndex.build(entities, new DxfEntityBounds(blocks));
+        pages = new DxfCoordinateCalculator().layout(index.extents(), 595, 842, tilesAcross);
+    }
+
+    @Benchmark
+    public DxfSpatialIndex buildIndex() {
+        return DxfSpatialIndex.build(entities, new DxfEntityBounds(blocks));
+    }
+
+    @Benchmark
+    public int searchIndex() {
+        int visible = 0;
+        for (DxfViewport page : pages) {
+            DxfExtents window = page.window();
+            visible += index.search(window.minX(), window.minY(), window.maxX(), window.maxY()).cardinality();
+        }
+        return visible;
+    }
+
+    @Benchmark
+    public int scanEntities() {
+        int visible = 0;
+        for (DxfViewport page : pages) {
+            for (int i = 0; i < index.size(); i++) {
+                if (!page.isOffPage(index.minX(i), index.minY(i), index.maxX(i), index.maxY(i),
+                        index.scalesWithDrawing(i))) {
+                    visible++;
+                }
+            }
+        }
+        return visible;
+    }
+}
@@ -0,0 +1,81 @@
+package com.xtopdf.xtopdf.benchmarks;
+
+import com.xtopdf.xtopdf.services.dxf.DxfEntityParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DXF parsing time and allocation, without rendering.
+ *
+ * <p>{@link #parse()} runs {@link DxfEntityParser} over a generated drawing of lines, circles,
+ * arcs and six-vertex polylines. {@link #readLinesAndParseNumbers()} is the per-line work the
+ * parser did before it read bytes directly ({@code readLine().trim()} and a
+ * {@code Double.parseDouble} per value), kept as a baseline. Run with the GC profiler to see
+ * the allocation per drawing ({@code gc.alloc.rate.norm}):</p>
+ *
+ * <pre>./gradlew jmh -Pjmh.args='DxfParserBenchmark -prof gc'</pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx1g", "-XX:+UseG1GC"})
+public class DxfParserBenchmark {
+
+    @Param({"MEDIUM", "LARGE"})
+    String size;
+
+    private final DxfEntityParser parser = new DxfEntityParser();
+    private MockMultipartFile input;
+
+    @Setup
+    public void setUp() {
+        input = new MockMultipartFile("file", "benchmark.dxf", "application/octet-stream",
+                BenchmarkInputs.generate("dxf", BenchmarkInputs.Size.valueOf(size)));
+    }
+
+    @Benchmark
+    public int parse() throws IOException {
+        return parser.parse(input).entities().size();
+    }
+
+    @Benchmark
+    public double readLinesAndParseNumbers() throws IOException {
+        double sum = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(input.getBytes())))) {
+            String line;
+            boolean groupCode = true;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!groupCode) {
+                    try {
+                        sum += Double.parseDouble(line);
+                    } catch (NumberFormatException e) {
+                        // Entity type or other text value
+                    }
+                } else {
+                    Long.parseLong(line);
+                }
+                groupCode = !groupCode;
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,93 @@
+package com.xtopdf.xtopdf.benchmarks;
+
+import com.xtopdf.xtopdf.entities.DxfEntity;
+import com.xtopdf.xtopdf.pdf.impl.PdfBoxDocumentBuilder;
+import com.xtopdf.xtopdf.services.dxf.DxfCoordinateCalculator;
+import com.xtopdf.xtopdf.services.dxf.DxfDrawing;
+import com.xtopdf.xtopdf.services.dxf.DxfEntityBounds;
+import com.xtopdf.xtopdf.services.dxf.DxfEntityParser;
+import com.xtopdf.xtopdf.services.dxf.DxfEntityRenderer;
+import com.xtopdf.xtopdf.services.dxf.DxfPdfRenderer;
+import com.xtopdf.xtopdf.services.dxf.DxfSpatialIndex;
+import com.xtopdf.xtopdf.services.dxf.DxfViewport;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drawing a parsed DXF drawing onto a page and saving it, without parsing.
+ *
+ * <p>With {@code batched} the renderer paints each run of same-style entities with one
+ * operator; without it, it paints after every entity. The saved PDF's size is reported as the
+ * {@code pdfBytes} secondary result, since the content stream is what batching shrinks.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx1g", "-XX:+UseG1GC"})
+public class DxfRenderBenchmark {
+
+    @Param({"MEDIUM", "LARGE"})
+    String size;
+
+    @Param({"true", "false"})
+    boolean batched;
+
+    private DxfDrawing drawing;
+    private DxfViewport page;
+
+    @Setup
+    public void setUp() throws Exception {
+        MockMultipartFile input = new MockMultipartFile("file", "benchmark.dxf", "application/octet-stream",
+                BenchmarkInputs.generate("dxf", BenchmarkInputs.Size.valueOf(size)));
+        drawing = new DxfEntityParser().parse(input);
+        DxfSpatialIndex index = DxfSpatialIndex.build(drawing.entities(), new DxfEntityBounds(drawing.blocks()));
+        page = new DxfCoordinateCalculator().layout(index.extents(), 595, 842, 1).get(0);
+    }
+
+    /**
+     * Size of the PDF saved by the last invocation.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PdfSize {
+        public long pdfBytes;
+    }
+
+    @Benchmark
+    public byte[] render(PdfSize pdfSize) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PdfBoxDocumentBuilder builder = new PdfBoxDocumentBuilder()) {
+            DxfPdfRenderer renderer = new DxfPdfRenderer(builder);
+            DxfEntityRenderer entityRenderer = new DxfEntityRenderer(drawing.blocks());
+            for (DxfEntity entity : drawing.entities()) {
+                entityRenderer.renderEntity(renderer, entity, page.scale(), page.offsetX(), page.offsetY(),
+                        1.0, 1.0, 0.0);
+                if (!batched) {
+                    renderer.flush();
+                }
+            }
+            renderer.flush();
+            builder.save(out);
+        }
+        byte[] pdf = out.toByteArray();
+        pdfSize.pdfBytes = pdf.length;
+        return pdf;
+    }
+}
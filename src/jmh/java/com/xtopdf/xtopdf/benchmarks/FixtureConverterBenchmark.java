@@ -0,0 +1,66 @@
+package com.xtopdf.xtopdf.benchmarks;
+
+import com.xtopdf.xtopdf.converters.FileConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion time for formats that have no input generator, using the checked-in fixtures
+ * from {@code src/test/resources/test-files}. Each fixture comes in a single size.
+ *
+ * <p>DOC, EMF and WMF have neither a generator nor a fixture and are not benchmarked.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx2g", "-XX:+UseG1GC"})
+public class FixtureConverterBenchmark {
+
+    /** Format and fixture file name, separated by a colon. */
+    @Param({"odt:test.odt", "ods:test.ods", "odp:test.odp",
+            "dwg:simple_line.dwg", "dwg:complex.dwg", "dwt:complex.dwg"})
+    String fixture;
+
+    private FileConverter converter;
+    private MockMultipartFile input;
+    private File output;
+
+    @Setup
+    public void setUp(ApplicationState application) throws Exception {
+        String format = fixture.substring(0, fixture.indexOf(':'));
+        byte[] content = BenchmarkInputs.fixture(fixture.substring(fixture.indexOf(':') + 1));
+        converter = application.converter(format);
+        input = new MockMultipartFile("file", "benchmark." + format, "application/octet-stream", content);
+        output = Files.createTempFile("benchmark-" + format + "-", ".pdf").toFile();
+        application.verify(converter, input, output);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(output.toPath());
+    }
+
+    @Benchmark
+    public long convert() throws Exception {
+        converter.convertToPDF(input, output.getPath(), false);
+        return output.length();
+    }
+}
@@ -0,0 +1,176 @@
+package com.xtopdf.xtopdf.benchmarks;
+
+import com.xtopdf.xtopdf.pdf.impl.PdfBoxDocumentBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot-path primitives of {@link PdfBoxDocumentBuilder}.
+ *
+ * <p>Every benchmark builds a fresh document, so the cost includes creating the builder and
+ * loading its fonts; {@link #emptyDocument()} measures that baseline on its own, with the
+ * fonts parsed once and shared, and {@link #emptyDocumentParsingFonts()} with the fonts parsed
+ * for every document as they were before the shared font registry. The difference is the
+ * per-request startup time the registry saves. Documents are
+ * not saved, except in {@link #paragraphsAndSave()}, which adds serialization on top of
+ * {@link #addParagraph()}.</p>
+ *
+ * <p>{@link #addLargeTable(LargeTable)} lays out a 100,000-row table with a repeated header,
+ * written in 1,000-row chunks as the CSV streaming path does.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx1g", "-XX:+UseG1GC"})
+public class PdfBoxDocumentBuilderBenchmark {
+
+    /** Paragraphs, table rows, image count x 100 or line count / 100, per benchmark. */
+    @Param({"100", "1000"})
+    int count;
+
+    private String[] paragraphs;
+    private String[][] table;
+    private float[] lines;
+    private byte[] image;
+    private byte[] regularFont;
+    private byte[] boldFont;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(count);
+        // ~120 words per paragraph, so each one wraps over several lines
+        paragraphs = new String[count];
+        for (int i = 0; i < count; i++) {
+            paragraphs[i] = BenchmarkInputs.sentence(random, 120);
+        }
+        table = BenchmarkInputs.table(count);
+        lines = new float[count * 100 * 4];
+        for (int i = 0; i < lines.length; i += 2) {
+            lines[i] = random.nextFloat() * 595;
+            lines[i + 1] = random.nextFloat() * 842;
+        }
+        image = BenchmarkInputs.png(1024, 768);
+        regularFont = resource("/fonts/NotoSans-Regular.ttf");
+        boldFont = resource("/fonts/NotoSans-Bold.ttf");
+    }
+
+    private static byte[] resource(String path) {
+        try (InputStream in = PdfBoxDocumentBuilderBenchmark.class.getResourceAsStream(path)) {
+            return in != null ? in.readAllBytes() : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Benchmark
+    public int emptyDocument() throws IOException {
+        try (PdfBoxDocumentBuilder builder = new PdfBoxDocumentBuilder()) {
+            return builder.hashCode();
+        }
+    }
+
+    @Benchmark
+    public int emptyDocumentParsingFonts() throws IOException {
+        try (PdfBoxDocumentBuilder builder = new PdfBoxDocumentBuilder(regularFont, boldFont, null)) {
+            return builder.hashCode();
+        }
+    }
+
+    @Benchmark
+    public int addParagraph() throws IOException {
+        try (PdfBoxDocumentBuilder builder = new PdfBoxDocumentBuilder()) {
+            for (String paragraph : paragraphs) {
+                builder.addParagraph(paragraph);
+            }
+            return builder.hashCode();
+        }
+    }
+
+    @Benchmark
+    public int addTable() throws IOException {
+        try (PdfBoxDocumentBuilder builder = new PdfBoxDocumentBuilder()) {
+            builder.addTable(table);
+            return builder.hashCode();
+        }
+    }
+
+    /** A table the size of a large CSV upload, split into the chunks the converter writes. */
+    @State(Scope.Benchmark)
+    public static class LargeTable {
+
+        @Param({"100000"})
+        int rows;
+
+        String[][][] chunks;
+
+        @Setup
+        public void setUp() {
+            String[][] table = BenchmarkInputs.table(rows);
+            chunks = new String[(rows + 999) / 1000][][];
+            for (int i = 0; i < chunks.length; i++) {
+                chunks[i] = Arrays.copyOfRange(table, i * 1000, Math.min(rows, (i + 1) * 1000));
+            }
+        }
+    }
+
+    @Benchmark
+    public int addLargeTable(LargeTable large) throws IOException {
+        try (PdfBoxDocumentBuilder builder = new PdfBoxDocumentBuilder()) {
+            builder.addTable(large.chunks[0], 1);
+            for (int i = 1; i < large.chunks.length; i++) {
+                builder.continueTable(large.chunks[i]);
+            }
+            return builder.hashCode();
+        }
+    }
+
+    @Benchmark
+    public int drawLineBurst() throws IOException {
+        try (PdfBoxDocumentBuilder builder = new PdfBoxDocumentBuilder()) {
+            for (int i = 0; i < lines.length; i += 4) {
+                builder.drawLine(lines[i], lines[i + 1], lines[i + 2], lines[i + 3]);
+            }
+            return builder.hashCode();
+        }
+    }
+
+    @Benchmark
+    public int addImage() throws IOException {
+        try (PdfBoxDocumentBuilder builder = new PdfBoxDocumentBuilder()) {
+            for (int i = 0; i < Math.max(1, count / 100); i++) {
+                builder.addImage(image);
+            }
+            return builder.hashCode();
+        }
+    }
+
+    @Benchmark
+    public int paragraphsAndSave() throws IOException {
+        try (PdfBoxDocumentBuilder builder = new PdfBoxDocumentBuilder()) {
+            for (String paragraph : paragraphs) {
+                builder.addParagraph(paragraph);
+            }
+            builder.save(OutputStream.nullOutputStream());
+            return builder.hashCode();
+        }
+    }
+}
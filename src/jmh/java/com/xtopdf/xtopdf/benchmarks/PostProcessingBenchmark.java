@@ -0,0 +1,141 @@
+package com.xtopdf.xtopdf.benchmarks;
+
+import com.xtopdf.xtopdf.config.MetricsConfiguration.ConversionMetrics;
+import com.xtopdf.xtopdf.config.PageNumberConfig;
+import com.xtopdf.xtopdf.config.WatermarkConfig;
+import com.xtopdf.xtopdf.dto.ConversionParameters;
+import com.xtopdf.xtopdf.enums.PageNumberAlignment;
+import com.xtopdf.xtopdf.enums.PageNumberPosition;
+import com.xtopdf.xtopdf.enums.PageNumberStyle;
+import com.xtopdf.xtopdf.enums.WatermarkLayer;
+import com.xtopdf.xtopdf.enums.WatermarkOrientation;
+import com.xtopdf.xtopdf.pdf.impl.PdfBoxDocumentBuilder;
+import com.xtopdf.xtopdf.services.operations.PageNumberService;
+import com.xtopdf.xtopdf.services.operations.PdfMergeService;
+import com.xtopdf.xtopdf.services.operations.PdfPostProcessingPipeline;
+import com.xtopdf.xtopdf.services.operations.WatermarkService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Page numbers, watermark and merge on an already converted PDF, individually and through
+ * {@link PdfPostProcessingPipeline}.
+ *
+ * <p>Each benchmark loads the document from bytes, applies its step and saves it, so
+ * {@link #loadAndSave()} is the baseline to subtract for the cost of a step itself.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx1g", "-XX:+UseG1GC"})
+public class PostProcessingBenchmark {
+
+    @Param({"10", "200"})
+    int pages;
+
+    private final PageNumberService pageNumberService = new PageNumberService();
+    private final WatermarkService watermarkService = new WatermarkService();
+    private final PdfMergeService pdfMergeService = new PdfMergeService();
+    private final PdfPostProcessingPipeline pipeline = new PdfPostProcessingPipeline(
+            pageNumberService, watermarkService, pdfMergeService, new ConversionMetrics(new SimpleMeterRegistry()));
+
+    private byte[] converted;
+    private byte[] existing;
+    private PageNumberConfig pageNumbers;
+    private WatermarkConfig watermark;
+    private ConversionParameters allStages;
+
+    @Setup
+    public void setUp() throws IOException {
+        converted = document(pages);
+        existing = document(5);
+        pageNumbers = PageNumberConfig.builder()
+                .enabled(true)
+                .position(PageNumberPosition.BOTTOM)
+                .alignment(PageNumberAlignment.CENTER)
+                .style(PageNumberStyle.ARABIC)
+                .build();
+        watermark = WatermarkConfig.builder()
+                .enabled(true)
+                .text("CONFIDENTIAL")
+                .fontSize(48)
+                .layer(WatermarkLayer.FOREGROUND)
+                .orientation(WatermarkOrientation.DIAGONAL_UP)
+                .build();
+        MockMultipartFile existingPdf = new MockMultipartFile("existingPdf", "existing.pdf", "application/pdf", existing);
+        allStages = new ConversionParameters(null, null, existingPdf, "back", pageNumbers, watermark, false);
+    }
+
+    @Benchmark
+    public void loadAndSave() throws IOException {
+        try (PDDocument document = Loader.loadPDF(converted)) {
+            document.save(OutputStream.nullOutputStream());
+        }
+    }
+
+    @Benchmark
+    public void pageNumbers() throws IOException {
+        try (PDDocument document = Loader.loadPDF(converted)) {
+            pageNumberService.addPageNumbers(document, pageNumbers);
+            document.save(OutputStream.nullOutputStream());
+        }
+    }
+
+    @Benchmark
+    public void watermark() throws IOException {
+        try (PDDocument document = Loader.loadPDF(converted)) {
+            watermarkService.addWatermark(document, watermark);
+            document.save(OutputStream.nullOutputStream());
+        }
+    }
+
+    @Benchmark
+    public void merge() throws IOException {
+        try (PDDocument document = Loader.loadPDF(converted);
+             PDDocument other = Loader.loadPDF(existing)) {
+            pdfMergeService.mergePdfs(document, other, "back");
+            document.save(OutputStream.nullOutputStream());
+        }
+    }
+
+    @Benchmark
+    public void pipeline() throws IOException {
+        pipeline.processAndWrite(Loader.loadPDF(converted), allStages, OutputStream.nullOutputStream());
+    }
+
+    private static byte[] document(int pages) throws IOException {
+        Random random = new Random(pages);
+        try (PdfBoxDocumentBuilder builder = new PdfBoxDocumentBuilder();
+             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            for (int i = 0; i < pages; i++) {
+                if (i > 0) {
+                    builder.newPage();
+                }
+                builder.addParagraph(BenchmarkInputs.sentence(random, 300));
+            }
+            builder.save(out);
+            return out.toByteArray();
+        }
+    }
+}
@@ -2,11 +2,16 @@ package com.xtopdf.xtopdf.config;
 
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
 /**
  * Configuration for custom application metrics using Micrometer.
  * Registers custom meters for conversion operations:
@@ -14,6 +19,20 @@ import org.springframework.context.annotation.Configuration;
  * - conversion.duration.seconds: Timer by format
  * - conversion.errors.total: Counter by format and error type
  * - conversion.file.size.bytes: Distribution summary for file sizes
+ * - conversion.cache.hits.total / conversion.cache.misses.total: Result cache lookups by format
+ * - conversion.cache.bytes.saved.total: PDF bytes served from the result cache
+ * - conversion.postprocess.duration: Timer by post-processing stage (load, page_numbers, watermark, merge, save)
+ * - conversion.scheduler.queue.depth: Gauge of conversions waiting for CPU permits, by priority
+ * - conversion.scheduler.permits.in_use: Gauge of CPU permits held by running conversions
+ * - conversion.scheduler.wait.duration: Timer of time spent queued, by priority
+ * - conversion.scheduler.rejected.total: Conversions rejected because the queue was full, by priority
+ * - conversion.memory.reserved.bytes / conversion.memory.budget.bytes: Gauges of heap reserved by running conversions and the budget
+ * - conversion.memory.reservation.bytes: Distribution summary of predicted heap cost by format
+ * - conversion.memory.actual_to_predicted: Distribution summary of measured / predicted heap cost by format
+ * - conversion.jobs.claimed.total: Async jobs claimed from the job queue, by source (local or stolen from another replica)
+ * - conversion.jobs.leases.expired.total: Async job claims taken over after the previous holder's lease expired
+ * - conversion.sheet.render.duration: Timer of rendering one spreadsheet sheet (or run of CSV/TSV rows), by format
+ * - conversion.dxf.entities.culled.total: DXF entities left out of a page, by reason (off_page or sub_pixel)
  */
 @Configuration
 public class MetricsConfiguration {
@@ -115,5 +134,171 @@ public class MetricsConfiguration {
                     .register(registry)
                     .record(bytes);
         }
+
+        /**
+         * Records a result cache hit for the given format and the PDF bytes it saved regenerating.
+         */
+        public void recordCacheHit(String format, long bytesSaved) {
+            Counter.builder("conversion.cache.hits.total")
+                    .description("Conversions served from the result cache")
+                    .tag("format", format)
+                    .register(registry)
+                    .increment();
+            Counter.builder("conversion.cache.bytes.saved.total")
+                    .description("PDF bytes served from the result cache instead of being regenerated")
+                    .baseUnit("bytes")
+                    .tag("format", format)
+                    .register(registry)
+                    .increment(bytesSaved);
+        }
+
+        /**
+         * Records a result cache miss for the given format.
+         */
+        public void recordCacheMiss(String format) {
+            Counter.builder("conversion.cache.misses.total")
+                    .description("Conversions not found in the result cache")
+                    .tag("format", format)
+                    .register(registry)
+                    .increment();
+        }
+
+        /**
+         * Records the duration of one post-processing stage.
+         */
+        public void recordPostProcessingStage(String stage, long nanos) {
+            Timer.builder("conversion.postprocess.duration")
+                    .description("Time spent in each PDF post-processing stage")
+                    .tag("stage", stage)
+                    .register(registry)
+                    .record(nanos, TimeUnit.NANOSECONDS);
+        }
+    
+        /**
+         * Registers the scheduler gauges. Called once by the conversion scheduler.
+         *
+         * @param queueDepth queued conversions for a priority tag value
+         * @param priorities the priority tag values
+         * @param permitsInUse CPU permits currently held
+         */
+        public void registerSchedulerGauges(Function<String, Number> queueDepth,
+                                            Iterable<String> priorities,
+                                            Supplier<Number> permitsInUse) {
+            for (String priority : priorities) {
+                Gauge.builder("conversion.scheduler.queue.depth", () -> queueDepth.apply(priority))
+                        .description("Conversions waiting for CPU permits")
+                        .tag("priority", priority)
+                        .register(registry);
+            }
+            Gauge.builder("conversion.scheduler.permits.in_use", permitsInUse)
+                    .description("CPU permits held by running conversions")
+                    .register(registry);
+        }
+
+        /**
+         * Records how long a conversion waited in the scheduler queue.
+         */
+        public void recordSchedulerWait(String priority, long nanos) {
+            Timer.builder("conversion.scheduler.wait.duration")
+                    .description("Time conversions spent waiting for CPU permits")
+                    .tag("priority", priority)
+                    .register(registry)
+                    .record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Increments the counter of conversions rejected because the scheduler queue was full.
+         */
+        public void incrementSchedulerRejected(String priority) {
+            Counter.builder("conversion.scheduler.rejected.total")
+                    .description("Conversions rejected because the scheduler queue was full")
+                    .tag("priority", priority)
+                    .register(registry)
+                    .increment();
+        }
+    
+        /**
+         * Registers the memory admission gauges. Called once by the conversion scheduler.
+         */
+        public void registerMemoryGauges(Supplier<Number> reservedBytes, Supplier<Number> budgetBytes) {
+            Gauge.builder("conversion.memory.reserved.bytes", reservedBytes)
+                    .description("Heap reserved by running conversions")
+                    .baseUnit("bytes")
+                    .register(registry);
+            Gauge.builder("conversion.memory.budget.bytes", budgetBytes)
+                    .description("Heap budget shared by all conversions")
+                    .baseUnit("bytes")
+                    .register(registry);
+        }
+
+        /**
+         * Records the heap reserved for one conversion of the given format.
+         */
+        public void recordMemoryReservation(String format, long bytes) {
+            DistributionSummary.builder("conversion.memory.reservation.bytes")
+                    .description("Predicted heap cost reserved per conversion")
+                    .baseUnit("bytes")
+                    .tag("format", format)
+                    .register(registry)
+                    .record(bytes);
+        }
+
+        /**
+         * Records the ratio of measured to predicted heap cost for a conversion of the given format.
+         */
+        public void recordHeapCostRatio(String format, double ratio) {
+            DistributionSummary.builder("conversion.memory.actual_to_predicted")
+                    .description("Measured heap cost divided by the predicted cost")
+                    .tag("format", format)
+                    .register(registry)
+                    .record(ratio);
+        }
+
+        /**
+         * Increments the counter of async jobs claimed from the job queue.
+         *
+         * @param source "local" for jobs submitted to this replica, "stolen" for jobs submitted to another one
+         */
+        public void incrementJobClaims(String source) {
+            Counter.builder("conversion.jobs.claimed.total")
+                    .description("Async jobs claimed from the job queue")
+                    .tag("source", source)
+                    .register(registry)
+                    .increment();
+        }
+
+        /**
+         * Increments the counter of job claims taken over from a replica whose lease expired.
+         */
+        public void incrementJobLeaseExpired() {
+            Counter.builder("conversion.jobs.leases.expired.total")
+                    .description("Async job claims taken over after the holder's lease expired")
+                    .register(registry)
+                    .increment();
+        }
+
+        /**
+         * Records the time taken to render one sheet of a spreadsheet.
+         */
+        public void recordSheetRender(String format, long nanos) {
+            Timer.builder("conversion.sheet.render.duration")
+                    .description("Time taken to render one spreadsheet sheet")
+                    .tag("format", format)
+                    .register(registry)
+                    .record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Increments the counter of DXF entities left out of a page.
+         *
+         * @param reason "off_page" for entities outside the page, "sub_pixel" for ones too small to see
+         */
+        public void incrementDxfEntitiesCulled(String reason, long count) {
+            Counter.builder("conversion.dxf.entities.culled.total")
+                    .description("DXF entities not drawn because they would not be visible on the page")
+                    .tag("reason", reason)
+                    .register(registry)
+                    .increment(count);
+        }
     }
 }
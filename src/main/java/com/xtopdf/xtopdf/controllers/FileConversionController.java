@@ -25,14 +25,19 @@ import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.xtopdf.xtopdf.services.FileConversionService;
+import com.xtopdf.xtopdf.services.model.StreamedPdf;
 import org.springframework.web.multipart.MultipartFile;
 import java.nio.file.Paths;
 
@@ -61,6 +66,7 @@ public class FileConversionController {
              @ApiResponse(responseCode = "400", description = "Invalid request parameters or conversion error"),
              @ApiResponse(responseCode = "413", description = "File size exceeds maximum limit"),
              @ApiResponse(responseCode = "429", description = "Rate limit exceeded"),
+             @ApiResponse(responseCode = "503", description = "Conversion queue is full"),
              @ApiResponse(responseCode = "504", description = "Conversion timed out")
      })
      public ResponseEntity<SuccessResponse> convertFile(
@@ -85,41 +91,66 @@ public class FileConversionController {
              throw new IllegalArgumentException("Invalid output file path");
          }
 
-         // Convert individual parameters to DTO objects for cleaner processing
-         MergeRequest mergeRequest = existingPdf != null ? 
-                 ConversionConfigHelper.createMergeRequest(position) : null;
-         
-         PageNumberRequest pageNumberRequest = null;
-         if (addPageNumbers) {
-             pageNumberRequest = ConversionConfigHelper.createPageNumberRequest(
-                     PageNumberPosition.valueOf(pageNumberPosition.toUpperCase()),
-                     PageNumberAlignment.valueOf(pageNumberAlignment.toUpperCase()),
-                     PageNumberStyle.valueOf(pageNumberStyle.toUpperCase())
-             );
-         }
-         
-         WatermarkRequest watermarkRequest = null;
-         if (addWatermark) {
-             watermarkRequest = ConversionConfigHelper.createWatermarkRequest(
-                     watermarkText,
-                     watermarkFontSize,
-                     WatermarkLayer.valueOf(watermarkLayer.toUpperCase()),
-                     WatermarkOrientation.valueOf(watermarkOrientation.toUpperCase())
-             );
-         }
-         
-         // Validate and convert to config objects
-         String validatedPosition = ConversionConfigHelper.extractMergePosition(mergeRequest);
-         PageNumberConfig pageNumberConfig = ConversionConfigHelper.toPageNumberConfig(pageNumberRequest);
-         WatermarkConfig watermarkConfig = ConversionConfigHelper.toWatermarkConfig(watermarkRequest);
-         
-         ConversionParameters params = new ConversionParameters(
-                 inputFile, sanitizedOutputPath.toString(), existingPdf,
-                 validatedPosition, pageNumberConfig, watermarkConfig, executeMacros);
+         ConversionParameters params = toConversionParameters(
+                 inputFile, sanitizedOutputPath.toString(), existingPdf, position,
+                 addPageNumbers, pageNumberPosition, pageNumberAlignment, pageNumberStyle, executeMacros,
+                 addWatermark, watermarkText, watermarkFontSize, watermarkLayer, watermarkOrientation);
          fileConversionService.convertFile(params);
          return ResponseEntity.ok(SuccessResponse.ok("File converted successfully"));
      }
 
+    /**
+     * Streaming conversion endpoint for synchronous clients.
+     * Takes the same options as the main endpoint except {@code outputFile}: the PDF is written
+     * straight into the response body with chunked transfer encoding instead of being stored in
+     * the output directory. Conversion and post-processing finish before the response starts,
+     * so conversion errors are still reported as regular error responses.
+     */
+    @PostMapping("/stream")
+    @Operation(summary = "Convert file to PDF and stream the result", description = "Converts a single file to PDF and streams the PDF in the response body without storing it on the server")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "PDF streamed in the response body"),
+            @ApiResponse(responseCode = "400", description = "Invalid request parameters or conversion error"),
+            @ApiResponse(responseCode = "413", description = "File size exceeds maximum limit"),
+            @ApiResponse(responseCode = "429", description = "Rate limit exceeded"),
+            @ApiResponse(responseCode = "503", description = "Conversion queue is full"),
+            @ApiResponse(responseCode = "504", description = "Conversion timed out")
+    })
+    public ResponseEntity<StreamingResponseBody> convertFileStreaming(
+            @RequestParam("inputFile") MultipartFile inputFile,
+            @RequestParam(value = "existingPdf", required = false) MultipartFile existingPdf,
+            @RequestParam(value = "position", required = false, defaultValue = "back") String position,
+            @RequestParam(value = "addPageNumbers", required = false, defaultValue = "false") boolean addPageNumbers,
+            @RequestParam(value = "pageNumberPosition", required = false, defaultValue = "BOTTOM") String pageNumberPosition,
+            @RequestParam(value = "pageNumberAlignment", required = false, defaultValue = "CENTER") String pageNumberAlignment,
+            @RequestParam(value = "pageNumberStyle", required = false, defaultValue = "ARABIC") String pageNumberStyle,
+            @RequestParam(value = "executeMacros", required = false, defaultValue = "false") boolean executeMacros,
+            @RequestParam(value = "addWatermark", required = false, defaultValue = "false") boolean addWatermark,
+            @RequestParam(value = "watermarkText", required = false) String watermarkText,
+            @RequestParam(value = "watermarkFontSize", required = false, defaultValue = "48") float watermarkFontSize,
+            @RequestParam(value = "watermarkLayer", required = false, defaultValue = "FOREGROUND") String watermarkLayer,
+            @RequestParam(value = "watermarkOrientation", required = false, defaultValue = "DIAGONAL_UP") String watermarkOrientation)
+            throws FileConversionException {
+        ConversionParameters params = toConversionParameters(
+                inputFile, null, existingPdf, position,
+                addPageNumbers, pageNumberPosition, pageNumberAlignment, pageNumberStyle, executeMacros,
+                addWatermark, watermarkText, watermarkFontSize, watermarkLayer, watermarkOrientation);
+        StreamedPdf pdf = fileConversionService.convertForStreaming(params);
+
+        StreamingResponseBody body = outputStream -> {
+            try (pdf) {
+                pdf.writeTo(outputStream);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_PDF)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(pdfFileName(inputFile.getOriginalFilename()))
+                        .build()
+                        .toString())
+                .body(body);
+    }
+
     /**
      * JSON-based conversion endpoint that accepts structured request object.
      * Supports the same features as the main endpoint but with a cleaner JSON structure.
@@ -130,6 +161,7 @@ public class FileConversionController {
             @ApiResponse(responseCode = "200", description = "File converted successfully"),
             @ApiResponse(responseCode = "400", description = "Invalid request parameters or conversion error"),
             @ApiResponse(responseCode = "413", description = "File size exceeds maximum limit"),
+            @ApiResponse(responseCode = "503", description = "Conversion queue is full"),
             @ApiResponse(responseCode = "504", description = "Conversion timed out")
     })
     public ResponseEntity<SuccessResponse> convertFileWithJson(
@@ -159,4 +191,54 @@ public class FileConversionController {
         
         return ResponseEntity.ok(SuccessResponse.ok("File converted successfully"));
     }
+
+    private ConversionParameters toConversionParameters(
+            MultipartFile inputFile, String outputFile, MultipartFile existingPdf, String position,
+            boolean addPageNumbers, String pageNumberPosition, String pageNumberAlignment, String pageNumberStyle,
+            boolean executeMacros, boolean addWatermark, String watermarkText, float watermarkFontSize,
+            String watermarkLayer, String watermarkOrientation) {
+        // Convert individual parameters to DTO objects for cleaner processing
+        MergeRequest mergeRequest = existingPdf != null ?
+                ConversionConfigHelper.createMergeRequest(position) : null;
+
+        PageNumberRequest pageNumberRequest = null;
+        if (addPageNumbers) {
+            pageNumberRequest = ConversionConfigHelper.createPageNumberRequest(
+                    PageNumberPosition.valueOf(pageNumberPosition.toUpperCase()),
+                    PageNumberAlignment.valueOf(pageNumberAlignment.toUpperCase()),
+                    PageNumberStyle.valueOf(pageNumberStyle.toUpperCase())
+            );
+        }
+
+        WatermarkRequest watermarkRequest = null;
+        if (addWatermark) {
+            watermarkRequest = ConversionConfigHelper.createWatermarkRequest(
+                    watermarkText,
+                    watermarkFontSize,
+                    WatermarkLayer.valueOf(watermarkLayer.toUpperCase()),
+                    WatermarkOrientation.valueOf(watermarkOrientation.toUpperCase())
+            );
+        }
+
+        // Validate and convert to config objects
+        String validatedPosition = ConversionConfigHelper.extractMergePosition(mergeRequest);
+        PageNumberConfig pageNumberConfig = ConversionConfigHelper.toPageNumberConfig(pageNumberRequest);
+        WatermarkConfig watermarkConfig = ConversionConfigHelper.toWatermarkConfig(watermarkRequest);
+
+        return new ConversionParameters(
+                inputFile, outputFile, existingPdf,
+                validatedPosition, pageNumberConfig, watermarkConfig, executeMacros);
+    }
+
+    /**
+     * Derives the download name from the uploaded file name, e.g. "report.docx" becomes "report.pdf".
+     */
+    static String pdfFileName(String originalFilename) {
+        if (originalFilename == null || originalFilename.isBlank()) {
+            return "converted.pdf";
+        }
+        String name = Paths.get(originalFilename).getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return (dot > 0 ? name.substring(0, dot) : name) + ".pdf";
+    }
 }
@@ -1,9 +1,11 @@
 package com.xtopdf.xtopdf.controllers;
 
 import com.xtopdf.xtopdf.dto.ErrorResponse;
+import com.xtopdf.xtopdf.exceptions.ConversionRejectedException;
 import com.xtopdf.xtopdf.exceptions.ConversionTimeoutException;
 import com.xtopdf.xtopdf.exceptions.FileConversionException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -147,4 +149,23 @@ public class GlobalExceptionHandler {
         );
         return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(error);
     }
+
+    /**
+     * Handle conversion rejections.
+     * Triggered when the conversion scheduler's queue is full; clients should retry later.
+     */
+    @ExceptionHandler(ConversionRejectedException.class)
+    public ResponseEntity<ErrorResponse> handleConversionRejectedException(ConversionRejectedException ex) {
+        String correlationId = UUID.randomUUID().toString();
+        log.warn("Conversion rejected [correlationId={}]: {}", correlationId, ex.getMessage());
+
+        ErrorResponse error = new ErrorResponse(
+            "SERVER_BUSY",
+            "Server is busy, try again later",
+            correlationId
+        );
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, "1")
+            .body(error);
+    }
 }
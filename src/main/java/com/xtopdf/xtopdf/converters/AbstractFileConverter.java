@@ -1,6 +1,8 @@
 package com.xtopdf.xtopdf.converters;
 
 import com.xtopdf.xtopdf.exceptions.FileConversionException;
+import com.xtopdf.xtopdf.pdf.PdfOutputTarget;
+import org.apache.pdfbox.pdmodel.PDDocument;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.Set;
@@ -31,8 +33,36 @@ public abstract class AbstractFileConverter implements FileConverter {
         convertToPDF(inputFile, outputFile);
     }
 
+    @Override
+    public PDDocument convertToDocument(MultipartFile inputFile, boolean executeMacros) throws FileConversionException {
+        if (!supportsDocumentOutput()) {
+            return FileConverter.super.convertToDocument(inputFile, executeMacros);
+        }
+        if (inputFile == null) {
+            throw new FileConversionException("Input file must not be null");
+        }
+        PdfOutputTarget.DocumentTarget target = PdfOutputTarget.document();
+        try {
+            doConvert(inputFile, target, executeMacros);
+        } catch (FileConversionException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new FileConversionException(
+                "Error converting " + getFormatName() + " to PDF: " + e.getMessage(), e);
+        }
+        return target.document();
+    }
+
     protected abstract void doConvert(MultipartFile inputFile, String outputFile) throws Exception;
 
+    /**
+     * Converts into an output target instead of a file path. Converters that override this
+     * must also override {@link #supportsDocumentOutput()} to return true.
+     */
+    protected void doConvert(MultipartFile inputFile, PdfOutputTarget target, boolean executeMacros) throws Exception {
+        throw new UnsupportedOperationException(getFormatName() + " does not support in-memory output");
+    }
+
     protected abstract String getFormatName();
 
     @Override
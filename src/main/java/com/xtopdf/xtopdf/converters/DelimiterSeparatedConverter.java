@@ -1,5 +1,6 @@
 package com.xtopdf.xtopdf.converters;
 
+import com.xtopdf.xtopdf.pdf.PdfOutputTarget;
 import com.xtopdf.xtopdf.services.conversion.spreadsheet.DelimiterSeparatedToPdfService;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -44,4 +45,14 @@ public class DelimiterSeparatedConverter extends AbstractFileConverter {
     protected void doConvert(MultipartFile inputFile, String outputFile) throws Exception {
         toPdfService.convertDelimiterSeparatedToPdf(inputFile, new File(outputFile), delimiter);
     }
+
+    @Override
+    public boolean supportsDocumentOutput() {
+        return true;
+    }
+
+    @Override
+    protected void doConvert(MultipartFile inputFile, PdfOutputTarget target, boolean executeMacros) throws Exception {
+        toPdfService.convertDelimiterSeparatedToTarget(inputFile, target, delimiter);
+    }
 }
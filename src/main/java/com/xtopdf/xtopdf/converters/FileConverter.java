@@ -1,6 +1,7 @@
 package com.xtopdf.xtopdf.converters;
 
 import com.xtopdf.xtopdf.exceptions.FileConversionException;
+import org.apache.pdfbox.pdmodel.PDDocument;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
@@ -14,6 +15,28 @@ public interface FileConverter {
         convertToPDF(inputFile, outputFile);
     }
 
+    /**
+     * Returns whether this converter can hand its result over as an open document
+     * via {@link #convertToDocument(MultipartFile, boolean)}.
+     */
+    default boolean supportsDocumentOutput() {
+        return false;
+    }
+
+    /**
+     * Converts the input and returns the resulting PDF as an open document instead of
+     * writing it to a file, so post-processing can continue without a save/reload.
+     * The caller owns the returned document and must close it.
+     *
+     * @param inputFile the file to convert
+     * @param executeMacros whether macro-capable formats should recalculate before rendering
+     * @return the converted document
+     * @throws FileConversionException if the conversion fails or is not supported
+     */
+    default PDDocument convertToDocument(MultipartFile inputFile, boolean executeMacros) throws FileConversionException {
+        throw new FileConversionException(getClass().getSimpleName() + " does not support in-memory output");
+    }
+
     /**
      * Returns the file extensions this converter supports, including the leading dot.
      * Example: Set.of(".csv", ".tsv")
@@ -1,5 +1,6 @@
 package com.xtopdf.xtopdf.converters;
 
+import com.xtopdf.xtopdf.pdf.PdfOutputTarget;
 import com.xtopdf.xtopdf.services.conversion.data.JsonToPdfService;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Component;
@@ -27,4 +28,14 @@ public class JsonFileConverter extends AbstractFileConverter {
     protected void doConvert(MultipartFile inputFile, String outputFile) throws Exception {
         jsonToPdfService.convertJsonToPdf(inputFile, new File(outputFile));
     }
+
+    @Override
+    public boolean supportsDocumentOutput() {
+        return true;
+    }
+
+    @Override
+    protected void doConvert(MultipartFile inputFile, PdfOutputTarget target, boolean executeMacros) throws Exception {
+        jsonToPdfService.convertJsonToTarget(inputFile, target);
+    }
 }
@@ -1,6 +1,7 @@
 package com.xtopdf.xtopdf.converters;
 
 import com.xtopdf.xtopdf.exceptions.FileConversionException;
+import com.xtopdf.xtopdf.pdf.PdfOutputTarget;
 import com.xtopdf.xtopdf.services.conversion.spreadsheet.ExcelToPdfService;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Component;
@@ -29,6 +30,16 @@ public class XlsFileConverter extends AbstractFileConverter {
         excelToPdfService.convertExcelToPdf(inputFile, new File(outputFile), false);
     }
 
+    @Override
+    public boolean supportsDocumentOutput() {
+        return true;
+    }
+
+    @Override
+    protected void doConvert(MultipartFile inputFile, PdfOutputTarget target, boolean executeMacros) throws Exception {
+        excelToPdfService.convertExcelToTarget(inputFile, target, executeMacros);
+    }
+
     @Override
     public void convertToPDF(MultipartFile inputFile, String outputFile, boolean executeMacros)
             throws FileConversionException {
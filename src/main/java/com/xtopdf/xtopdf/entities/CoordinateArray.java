@@ -0,0 +1,87 @@
+package com.xtopdf.xtopdf.entities;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Growable array of coordinates stored as primitive doubles, used for the vertices of
+ * polylines, leaders, meshes and other variable-length entities.
+ *
+ * <p>Coordinates are interleaved in the order the entity defines (x1, y1, x2, y2, ... or
+ * x1, y1, z1, ...), so a vertex costs two or three doubles rather than two or three boxed
+ * {@code Double} objects and their list slots.</p>
+ */
+public final class CoordinateArray {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private double[] values = new double[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Appends a coordinate.
+     */
+    public void add(double value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size + (size >> 1));
+        }
+        values[size++] = value;
+    }
+
+    /**
+     * Returns the coordinate at an index.
+     *
+     * @throws IndexOutOfBoundsException if the index is not below {@link #size()}
+     */
+    public double get(int index) {
+        return values[checkIndex(index)];
+    }
+
+    /**
+     * Replaces the coordinate at an index.
+     *
+     * @throws IndexOutOfBoundsException if the index is not below {@link #size()}
+     */
+    public void set(int index, double value) {
+        values[checkIndex(index)] = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns a copy of the coordinates.
+     */
+    public double[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    private int checkIndex(int index) {
+        return Objects.checkIndex(index, size);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CoordinateArray other
+                && Arrays.equals(values, 0, size, other.values, 0, other.size);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0; i < size; i++) {
+            hash = 31 * hash + Double.hashCode(values[i]);
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
@@ -4,9 +4,6 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * LEADER/MULTILEADER entity - Arrow with annotation text.
  * DWG format: type=11, numVertices, vertices..., textX, textY, text (variable)
@@ -16,7 +13,7 @@ import java.util.List;
 @NoArgsConstructor
 @EqualsAndHashCode(callSuper = true)
 public class LeaderEntity extends DxfEntity {
-    private List<Double> vertices = new ArrayList<>(); // Leader line vertices (x1, y1, x2, y2, ...)
+    private CoordinateArray vertices = new CoordinateArray(); // Leader line vertices (x1, y1, x2, y2, ...)
     private String text = "";
     private double textX;
     private double textY;
@@ -4,9 +4,6 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * MESH entity - Advanced mesh geometry (ACIS-like).
  * DWG format: type=21, numVertices, vertices...
@@ -19,7 +16,7 @@ import java.util.List;
 @NoArgsConstructor
 @EqualsAndHashCode(callSuper = true)
 public class MeshEntity extends DxfEntity {
-    private List<Double> vertices = new ArrayList<>(); // x1, y1, z1, x2, y2, z2, ...
+    private CoordinateArray vertices = new CoordinateArray(); // x1, y1, z1, x2, y2, z2, ...
     private int subdivisionLevel = 0;
     
     public void addVertex(double x, double y, double z) {
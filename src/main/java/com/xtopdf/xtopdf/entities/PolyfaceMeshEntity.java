@@ -18,7 +18,7 @@ import java.util.List;
 @NoArgsConstructor
 @EqualsAndHashCode(callSuper = true)
 public class PolyfaceMeshEntity extends DxfEntity {
-    private List<Double> vertices = new ArrayList<>(); // x1, y1, z1, x2, y2, z2, ...
+    private CoordinateArray vertices = new CoordinateArray(); // x1, y1, z1, x2, y2, z2, ...
     private List<Integer> faceIndices = new ArrayList<>(); // indices into vertices list
     
     public void addVertex(double x, double y, double z) {
@@ -4,9 +4,6 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * POLYLINE/LWPOLYLINE entity - Sequence of connected line segments.
  * DWG format: type=5, numVertices, x1, y1, x2, y2, ... (variable length)
@@ -16,7 +13,7 @@ import java.util.List;
 @NoArgsConstructor
 @EqualsAndHashCode(callSuper = true)
 public class PolylineEntity extends DxfEntity {
-    private List<Double> vertices = new ArrayList<>(); // Stored as x1, y1, x2, y2, ...
+    private CoordinateArray vertices = new CoordinateArray(); // Stored as x1, y1, x2, y2, ...
     private boolean closed = false;
     
     public void addVertex(double x, double y) {
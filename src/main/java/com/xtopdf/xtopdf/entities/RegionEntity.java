@@ -4,9 +4,6 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * REGION entity - 2D enclosed area (often used for Boolean operations).
  * DWG format: type=25, numVertices, vertices..., filled
@@ -18,7 +15,7 @@ import java.util.List;
 @NoArgsConstructor
 @EqualsAndHashCode(callSuper = true)
 public class RegionEntity extends DxfEntity {
-    private List<Double> vertices = new ArrayList<>(); // x1, y1, x2, y2, ...
+    private CoordinateArray vertices = new CoordinateArray(); // x1, y1, x2, y2, ...
     private boolean filled = true;
     
     public void addVertex(double x, double y) {
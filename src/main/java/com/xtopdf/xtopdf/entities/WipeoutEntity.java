@@ -4,9 +4,6 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * WIPEOUT entity - Masking shape that covers underlying entities.
  * A filled polygon that acts as a mask to hide other content.
@@ -18,7 +15,7 @@ import java.util.List;
 @NoArgsConstructor
 @EqualsAndHashCode(callSuper = true)
 public class WipeoutEntity extends DxfEntity {
-    private List<Double> vertices = new ArrayList<>(); // Stored as x1, y1, x2, y2, ...
+    private CoordinateArray vertices = new CoordinateArray(); // Stored as x1, y1, x2, y2, ...
     
     public void addVertex(double x, double y) {
         vertices.add(x);
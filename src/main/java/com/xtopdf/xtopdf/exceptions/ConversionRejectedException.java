@@ -0,0 +1,11 @@
+package com.xtopdf.xtopdf.exceptions;
+
+/**
+ * Thrown when the conversion scheduler's queue is full and a conversion cannot be admitted.
+ */
+public class ConversionRejectedException extends RuntimeException {
+
+    public ConversionRejectedException(String message) {
+        super(message);
+    }
+}
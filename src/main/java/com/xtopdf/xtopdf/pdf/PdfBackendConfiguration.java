@@ -1,16 +1,23 @@
 package com.xtopdf.xtopdf.pdf;
 
 import com.xtopdf.xtopdf.pdf.impl.PdfBoxBackend;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 
+import java.io.File;
+
 /**
  * Configuration class for PDF backend.
  * This configures Apache PDFBox as the PDF generation engine.
  * 
  * <p>PDFBox is licensed under Apache License 2.0, making it suitable
  * for commercial use without source code disclosure requirements.</p>
+ *
+ * <p>{@code xtopdf.pdf.pdfbox.max-main-memory-mb} caps the stream data each PDFBox document
+ * keeps on the heap; beyond it, finished pages and embedded fonts are written to a scratch
+ * file in {@code xtopdf.pdf.pdfbox.temp-directory} (default: {@code java.io.tmpdir}).</p>
  */
 @Configuration
 public class PdfBackendConfiguration {
@@ -19,11 +26,16 @@ public class PdfBackendConfiguration {
      * Creates the PDF backend provider using Apache PDFBox.
      * 
      * @param pdfboxBackend The PDFBox backend implementation
+     * @param maxMainMemoryMb Heap limit for stream data per document in MB (-1 for no limit, 0 for scratch file only)
+     * @param tempDirectory Directory for scratch files, or blank for java.io.tmpdir
      * @return The PDF backend provider
      */
     @Bean
     @Primary
-    public PdfBackendProvider pdfBackendProvider(PdfBoxBackend pdfboxBackend) {
+    public PdfBackendProvider pdfBackendProvider(PdfBoxBackend pdfboxBackend,
+                                                 @Value("${xtopdf.pdf.pdfbox.max-main-memory-mb:64}") long maxMainMemoryMb,
+                                                 @Value("${xtopdf.pdf.pdfbox.temp-directory:}") String tempDirectory) {
+        pdfboxBackend.setMemoryLimit(maxMainMemoryMb, tempDirectory.isBlank() ? null : new File(tempDirectory));
         return pdfboxBackend;
     }
 }
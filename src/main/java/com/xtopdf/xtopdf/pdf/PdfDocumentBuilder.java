@@ -1,7 +1,11 @@
 package com.xtopdf.xtopdf.pdf;
 
+import org.apache.pdfbox.pdmodel.PDDocument;
+
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
 
 /**
  * Abstraction layer for PDF document generation.
@@ -48,6 +52,21 @@ public interface PdfDocumentBuilder extends AutoCloseable {
      * @throws IOException if an I/O error occurs
      */
     void addParagraph(String text) throws IOException;
+
+    /**
+     * Adds plain text one line at a time, as it is read from {@code lines}. Each line is
+     * wrapped to the page width and new pages are started as the current one fills, so the
+     * text never has to be held in memory as a whole.
+     *
+     * @param lines     the lines of text, without their line breaks
+     * @param monospace whether to use a monospaced font, e.g. for logs
+     * @throws IOException if an I/O error occurs
+     */
+    default void addTextLines(Iterator<String> lines, boolean monospace) throws IOException {
+        while (lines.hasNext()) {
+            addParagraph(lines.next());
+        }
+    }
     
     /**
      * Adds a table with the specified data to the current page.
@@ -57,6 +76,31 @@ public interface PdfDocumentBuilder extends AutoCloseable {
      */
     void addTable(String[][] data) throws IOException;
 
+    /**
+     * Adds a table whose first {@code headerRows} rows are headers: they are drawn in bold and
+     * repeated at the top of every page the table continues onto. Column widths are fitted to
+     * the content.
+     *
+     * @param data       the table data (rows x columns), header rows first
+     * @param headerRows the number of leading header rows
+     * @throws IOException if an I/O error occurs
+     */
+    default void addTable(String[][] data, int headerRows) throws IOException {
+        addTable(data);
+    }
+
+    /**
+     * Adds more rows to the table started by the last {@link #addTable(String[][], int)} call,
+     * with the same column widths and header rows, so a large table can be written in chunks.
+     * If the rows have a different number of columns, the table is laid out again.
+     *
+     * @param data the rows to add (rows x columns), without header rows
+     * @throws IOException if an I/O error occurs
+     */
+    default void continueTable(String[][] data) throws IOException {
+        addTable(data);
+    }
+
     /**
      * Adds a table with column widths and optional cell formatting.
      * Renders cells with proportional column widths, bold font for bold cells,
@@ -158,7 +202,88 @@ public interface PdfDocumentBuilder extends AutoCloseable {
      * @throws IOException if an I/O error occurs
      */
     void drawPolygon(float[] xPoints, float[] yPoints, int nPoints, boolean filled) throws IOException;
-    
+
+    /**
+     * Starts a new subpath of the current path at a point. Nothing is drawn until the path is
+     * painted with {@link #stroke()}, {@link #fill()} or {@link #fillAndStroke()}, so many
+     * shapes can be built up and painted with a single operator.
+     *
+     * @param x Point x-coordinate
+     * @param y Point y-coordinate
+     * @throws IOException if an I/O error occurs
+     */
+    void moveTo(float x, float y) throws IOException;
+
+    /**
+     * Adds a straight segment from the current point to the current path.
+     *
+     * @param x End x-coordinate
+     * @param y End y-coordinate
+     * @throws IOException if an I/O error occurs
+     */
+    void lineTo(float x, float y) throws IOException;
+
+    /**
+     * Adds a cubic Bézier segment from the current point to the current path.
+     *
+     * @param x1 First control point x-coordinate
+     * @param y1 First control point y-coordinate
+     * @param x2 Second control point x-coordinate
+     * @param y2 Second control point y-coordinate
+     * @param x3 End x-coordinate
+     * @param y3 End y-coordinate
+     * @throws IOException if an I/O error occurs
+     */
+    void curveTo(float x1, float y1, float x2, float y2, float x3, float y3) throws IOException;
+
+    /**
+     * Closes the current subpath with a segment back to its first point.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    void closePath() throws IOException;
+
+    /**
+     * Adds a subpath through {@code points} points read from an array of x, y pairs,
+     * starting at index {@code offset}. The first point starts the subpath.
+     *
+     * @param coordinates x, y pairs
+     * @param offset      index of the first point's x-coordinate
+     * @param points      number of points
+     * @throws IOException if an I/O error occurs
+     */
+    default void appendPolyline(float[] coordinates, int offset, int points) throws IOException {
+        if (points < 1) {
+            return;
+        }
+        moveTo(coordinates[offset], coordinates[offset + 1]);
+        for (int i = 1; i < points; i++) {
+            lineTo(coordinates[offset + 2 * i], coordinates[offset + 2 * i + 1]);
+        }
+    }
+
+    /**
+     * Strokes the current path with the current stroke color, line width and dash pattern,
+     * and starts a new, empty path.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    void stroke() throws IOException;
+
+    /**
+     * Fills the current path with the current fill color, and starts a new, empty path.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    void fill() throws IOException;
+
+    /**
+     * Fills and then strokes the current path, and starts a new, empty path.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    void fillAndStroke() throws IOException;
+
     /**
      * Sets the current stroke color.
      * 
@@ -290,6 +415,48 @@ public interface PdfDocumentBuilder extends AutoCloseable {
      * @throws IOException if an I/O error occurs
      */
     void save(File outputFile) throws IOException;
+
+    /**
+     * Saves the PDF document to the specified stream, e.g. an HTTP response body.
+     * The stream is not closed.
+     *
+     * @param outputStream The stream to write the PDF to
+     * @throws IOException if an I/O error occurs
+     */
+    void save(OutputStream outputStream) throws IOException;
+
+    /**
+     * Finishes the current page and hands the open document to the caller instead of saving it.
+     * After this call the builder no longer owns the document: {@link #close()} leaves it open
+     * and the caller is responsible for saving and closing it.
+     *
+     * <p>This lets post-processing (page numbers, watermark, merge) work on the document
+     * without a save/reload round-trip. Backends that are not built on PDFBox do not
+     * support it.</p>
+     *
+     * @return the live PDFBox document
+     * @throws IOException if the current page cannot be finished
+     * @throws UnsupportedOperationException if the backend cannot expose a PDFBox document
+     */
+    default PDDocument detachDocument() throws IOException {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " cannot detach its document");
+    }
+
+    /**
+     * Appends every page of another builder's document after this document's pages. Drawing
+     * continues on the last appended page, below the other builder's last content.
+     *
+     * <p>This lets independent parts of a document (e.g. the sheets of a workbook) be rendered
+     * concurrently, each into its own builder, and then joined in order. The other builder must
+     * come from the same backend; it is left open and may be closed once this call returns.</p>
+     *
+     * @param other the builder whose pages are appended
+     * @throws IOException if the pages cannot be copied
+     * @throws UnsupportedOperationException if the backend cannot join documents
+     */
+    default void appendPages(PdfDocumentBuilder other) throws IOException {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " cannot append pages");
+    }
     
     /**
      * Closes the PDF document and releases resources.
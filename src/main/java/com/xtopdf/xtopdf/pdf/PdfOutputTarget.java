@@ -0,0 +1,118 @@
+package com.xtopdf.xtopdf.pdf;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Destination for the document produced by a {@link PdfDocumentBuilder}.
+ *
+ * <p>Conversion services that accept a target instead of a {@link File} can either
+ * save the finished document to disk ({@link #file(File)}), write it to a stream
+ * ({@link #stream(OutputStream)}), or hand the live document
+ * to the caller ({@link #document()}) so post-processing can continue in memory.</p>
+ */
+public interface PdfOutputTarget {
+
+    /**
+     * Writes or hands off the finished document held by the builder.
+     *
+     * @param builder the builder holding the finished document
+     * @throws IOException if the document cannot be written
+     */
+    void write(PdfDocumentBuilder builder) throws IOException;
+
+    /**
+     * Returns a short description of the target for log messages.
+     */
+    String description();
+
+    /**
+     * Creates a target that saves the document to the given file.
+     */
+    static PdfOutputTarget file(File file) {
+        return new FileTarget(file);
+    }
+
+    /**
+     * Creates a target that writes the document to a stream, which is left open.
+     */
+    static PdfOutputTarget stream(OutputStream outputStream) {
+        return new StreamTarget(outputStream);
+    }
+
+    /**
+     * Creates a target that keeps the document open in memory.
+     */
+    static DocumentTarget document() {
+        return new DocumentTarget();
+    }
+
+    /**
+     * Saves the document to a file.
+     */
+    record FileTarget(File file) implements PdfOutputTarget {
+
+        @Override
+        public void write(PdfDocumentBuilder builder) throws IOException {
+            builder.save(file);
+        }
+
+        @Override
+        public String description() {
+            return file.getName();
+        }
+    }
+
+    /**
+     * Writes the document to a stream.
+     */
+    record StreamTarget(OutputStream outputStream) implements PdfOutputTarget {
+
+        @Override
+        public void write(PdfDocumentBuilder builder) throws IOException {
+            builder.save(outputStream);
+        }
+
+        @Override
+        public String description() {
+            return "output stream";
+        }
+    }
+
+    /**
+     * Detaches the document from the builder so it outlives the builder's {@code close()}.
+     * The caller owns the document returned by {@link #document()} and must close it.
+     */
+    final class DocumentTarget implements PdfOutputTarget {
+
+        private PDDocument document;
+
+        @Override
+        public void write(PdfDocumentBuilder builder) throws IOException {
+            if (document != null) {
+                throw new IllegalStateException("A document has already been written to this target");
+            }
+            document = builder.detachDocument();
+        }
+
+        @Override
+        public String description() {
+            return "in-memory document";
+        }
+
+        /**
+         * Returns the detached document.
+         *
+         * @throws IllegalStateException if no document has been written yet
+         */
+        public PDDocument document() {
+            if (document == null) {
+                throw new IllegalStateException("No document has been written to this target");
+            }
+            return document;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.xtopdf.xtopdf.pdf.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.fontbox.ttf.TTFParser;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Parsed fonts shared by every {@link PdfBoxDocumentBuilder}.
+ *
+ * <p>Parsing a TrueType font is the expensive part of loading it, so each font is parsed once
+ * and every document wraps the same {@link TrueTypeFont} in a {@code PDType0Font} of its own.
+ * Documents never close the shared fonts, and PDFBox reads them under its own locks, as it does
+ * for the system fonts its font mapper shares between documents. The tables used for layout
+ * and embedding are read when the font is parsed, so requests only read them.</p>
+ *
+ * <p>The multi-megabyte CJK font is parsed the first time any document needs a character
+ * the regular fonts cannot draw.</p>
+ */
+@Slf4j
+final class FontRegistry {
+
+    static final String REGULAR_FONT = "/fonts/NotoSans-Regular.ttf";
+    static final String BOLD_FONT = "/fonts/NotoSans-Bold.ttf";
+    static final List<String> CJK_FONTS = List.of(
+            "/fonts/NotoSansCJK-Regular.otf",
+            "/fonts/NotoSansCJK-Regular.ttf",
+            "/fonts/NotoSansSC-Regular.ttf");
+
+    private final TrueTypeFont regular;
+    private final TrueTypeFont bold;
+    private final Supplier<byte[]> cjkSource;
+    private TrueTypeFont cjk;
+    private boolean cjkResolved;
+
+    /**
+     * Parses the regular and bold fonts now; the CJK font is read from {@code cjkSource} and
+     * parsed on first use. A font whose bytes are null or cannot be parsed is left out, and
+     * builders fall back to Helvetica (or no CJK support) for it.
+     */
+    FontRegistry(byte[] regularBytes, byte[] boldBytes, Supplier<byte[]> cjkSource) {
+        this.regular = parse("regular", regularBytes);
+        this.bold = parse("bold", boldBytes);
+        this.cjkSource = cjkSource;
+    }
+
+    /**
+     * Returns the registry for the fonts on the classpath, parsed on first call.
+     */
+    static FontRegistry classpath() {
+        return Classpath.INSTANCE;
+    }
+
+    private static final class Classpath {
+        static final FontRegistry INSTANCE = new FontRegistry(
+                readResource(REGULAR_FONT), readResource(BOLD_FONT), FontRegistry::readCjkResource);
+    }
+
+    TrueTypeFont regular() {
+        return regular;
+    }
+
+    TrueTypeFont bold() {
+        return bold;
+    }
+
+    /**
+     * Returns the CJK font, parsing it on the first call, or null if there is none.
+     */
+    synchronized TrueTypeFont cjk() {
+        if (!cjkResolved) {
+            cjkResolved = true;
+            cjk = parse("CJK", cjkSource.get());
+        }
+        return cjk;
+    }
+
+    private static TrueTypeFont parse(String variant, byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            TrueTypeFont font = new TTFParser().parse(new RandomAccessReadBuffer(bytes));
+            // Read the tables PDType0Font and text measurement use while still single-threaded
+            font.getHeader();
+            font.getHorizontalHeader();
+            font.getHorizontalMetrics();
+            font.getMaximumProfile();
+            font.getNaming();
+            font.getOS2Windows();
+            font.getPostScript();
+            font.getUnicodeCmapLookup();
+            log.debug("Parsed {} font: {}", variant, font.getName());
+            return font;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to parse {} font: {}", variant, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Reads a classpath resource into a byte array.
+     *
+     * @param path the classpath resource path (e.g., "/fonts/NotoSans-Regular.ttf")
+     * @return the raw bytes, or null if the resource cannot be read
+     */
+    static byte[] readResource(String path) {
+        try (InputStream is = FontRegistry.class.getResourceAsStream(path)) {
+            if (is == null) {
+                log.warn("Font resource not found on classpath: {}", path);
+                return null;
+            }
+            return is.readAllBytes();
+        } catch (IOException e) {
+            log.warn("Failed to read font resource {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Reads the first CJK font resource that exists, trying OTF first, then TTF, then SC.
+     *
+     * @return the raw bytes of the CJK font, or null if none could be loaded
+     */
+    static byte[] readCjkResource() {
+        for (String path : CJK_FONTS) {
+            if (FontRegistry.class.getResource(path) != null) {
+                byte[] bytes = readResource(path);
+                if (bytes != null) {
+                    return bytes;
+                }
+            }
+        }
+        log.warn("No CJK font resource could be loaded; CJK characters may not render correctly");
+        return null;
+    }
+}
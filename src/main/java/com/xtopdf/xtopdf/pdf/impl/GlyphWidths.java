@@ -0,0 +1,110 @@
+package com.xtopdf.xtopdf.pdf.impl;
+
+import org.apache.pdfbox.pdmodel.font.PDFont;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Glyph advances of one font, cached per character and shared by every
+ * {@link PdfBoxDocumentBuilder}.
+ *
+ * <p>Each builder loads its own copy of the NotoSans fonts, but the advances only depend on
+ * the font program, so the cache is keyed by font name and filled by whichever builder first
+ * measures a character. Widths are in the units of {@link PDFont#getStringWidth} (1/1000 of
+ * the font size), and the width of a string is the sum of its characters' advances, which is
+ * how PDFBox measures strings too.</p>
+ *
+ * <p>Advances are held in primitive {@code float} pages of 256 characters, allocated on first
+ * use. A page is published through an {@link AtomicReferenceArray}; entries within it may be
+ * computed twice by racing threads, which is harmless since both compute the same value.</p>
+ */
+final class GlyphWidths {
+
+    private static final ConcurrentMap<String, GlyphWidths> CACHE = new ConcurrentHashMap<>();
+
+    private static final float UNKNOWN = Float.NaN;
+    private static final float MISSING = -1f;
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+    private final AtomicReferenceArray<float[]> pages = new AtomicReferenceArray<>(1 << (16 - PAGE_BITS));
+
+    private GlyphWidths() {
+    }
+
+    /**
+     * Returns the shared advances for a font, or a private cache if the font has no name.
+     */
+    static GlyphWidths of(PDFont font) {
+        String name = font.getName();
+        return name == null ? new GlyphWidths() : CACHE.computeIfAbsent(name, key -> new GlyphWidths());
+    }
+
+    /**
+     * Whether the font has a glyph for the character.
+     *
+     * @param font a font with this cache's font program, used to measure uncached characters
+     */
+    boolean canEncode(PDFont font, char c) {
+        return advance(font, c) != MISSING;
+    }
+
+    /**
+     * Returns the advance of a character, or -1 if the font cannot encode it.
+     *
+     * @param font a font with this cache's font program, used to measure uncached characters
+     */
+    float advance(PDFont font, char c) {
+        int pageIndex = c >>> PAGE_BITS;
+        float[] page = pages.get(pageIndex);
+        if (page == null) {
+            float[] fresh = new float[PAGE_SIZE];
+            Arrays.fill(fresh, UNKNOWN);
+            page = pages.compareAndSet(pageIndex, null, fresh) ? fresh : pages.get(pageIndex);
+        }
+        int slot = c & (PAGE_SIZE - 1);
+        float width = page[slot];
+        if (Float.isNaN(width)) {
+            width = measure(font, c);
+            page[slot] = width;
+        }
+        return width;
+    }
+
+    /**
+     * Returns the width of text, measuring characters the font cannot encode as a space, which
+     * is what they are replaced with when drawn.
+     *
+     * @param font a font with this cache's font program, used to measure uncached characters
+     */
+    float width(PDFont font, CharSequence text) {
+        float width = 0;
+        for (int i = 0; i < text.length(); i++) {
+            width += width(font, text.charAt(i));
+        }
+        return width;
+    }
+
+    /**
+     * Returns the width of one character as drawn: its advance, or a space's if the font
+     * cannot encode it.
+     *
+     * @param font a font with this cache's font program, used to measure uncached characters
+     */
+    float width(PDFont font, char c) {
+        float advance = advance(font, c);
+        return advance != MISSING ? advance : Math.max(0, advance(font, ' '));
+    }
+
+    private static float measure(PDFont font, char c) {
+        try {
+            return font.getStringWidth(String.valueOf(c));
+        } catch (Exception e) {
+            // No glyph for the character, as with PDFont.encode
+            return MISSING;
+        }
+    }
+}
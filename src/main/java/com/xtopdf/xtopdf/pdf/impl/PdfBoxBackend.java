@@ -4,10 +4,11 @@ import com.xtopdf.xtopdf.pdf.PdfBackendProvider;
 import com.xtopdf.xtopdf.pdf.PdfDocumentBuilder;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.springframework.stereotype.Component;
 
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 
 /**
  * Apache PDFBox backend provider implementation.
@@ -15,9 +16,14 @@ import java.io.InputStream;
  * <p>This provider creates PDF document builders using Apache PDFBox,
  * which is licensed under Apache License 2.0 and suitable for commercial use.</p>
  * 
- * <p>Font files are loaded once at initialization and cached as byte arrays.
- * Each call to {@link #createBuilder()} passes the cached bytes to the builder
- * constructor, avoiding repeated classpath I/O.</p>
+ * <p>Font files are loaded once at initialization, cached as byte arrays and parsed
+ * into a {@link FontRegistry}. Each call to {@link #createBuilder()} wraps the parsed
+ * fonts for the new document, avoiding repeated classpath I/O and font parsing.</p>
+ *
+ * <p>By default documents are built entirely in memory. {@link #setMemoryLimit} lets each
+ * document keep only a capped amount of stream data on the heap and spill the rest, such as
+ * the content of finished pages, to a scratch file that is deleted when the document is
+ * closed.</p>
  */
 @Slf4j
 @Component("pdfboxBackend")
@@ -26,21 +32,52 @@ public class PdfBoxBackend implements PdfBackendProvider {
     private byte[] regularFontBytes;
     private byte[] boldFontBytes;
     private byte[] cjkFontBytes;
+    // Helvetica until loadFontBytes runs, as with null font bytes
+    private FontRegistry fonts = new FontRegistry(null, null, () -> null);
+    private MemoryUsageSetting memoryUsage = MemoryUsageSetting.setupMainMemoryOnly();
 
     @PostConstruct
     void loadFontBytes() {
-        regularFontBytes = loadResource("/fonts/NotoSans-Regular.ttf");
-        boldFontBytes = loadResource("/fonts/NotoSans-Bold.ttf");
-        cjkFontBytes = loadCjkResource();
+        regularFontBytes = FontRegistry.readResource(FontRegistry.REGULAR_FONT);
+        boldFontBytes = FontRegistry.readResource(FontRegistry.BOLD_FONT);
+        cjkFontBytes = FontRegistry.readCjkResource();
+        fonts = new FontRegistry(regularFontBytes, boldFontBytes, () -> cjkFontBytes);
         log.info("Font bytes cached: regular={}, bold={}, cjk={}",
                 regularFontBytes != null ? regularFontBytes.length + " bytes" : "null",
                 boldFontBytes != null ? boldFontBytes.length + " bytes" : "null",
                 cjkFontBytes != null ? cjkFontBytes.length + " bytes" : "null");
     }
 
+    /**
+     * Sets how much stream data each document keeps on the heap before spilling to a scratch
+     * file.
+     *
+     * @param maxMainMemoryMb the heap limit per document in MB; negative for no limit (no
+     *                        scratch file), 0 to keep every stream in the scratch file
+     * @param tempDirectory   where scratch files are created, or null for {@code java.io.tmpdir}
+     */
+    public void setMemoryLimit(long maxMainMemoryMb, File tempDirectory) {
+        MemoryUsageSetting setting;
+        if (maxMainMemoryMb < 0) {
+            setting = MemoryUsageSetting.setupMainMemoryOnly();
+        } else if (maxMainMemoryMb == 0) {
+            setting = MemoryUsageSetting.setupTempFileOnly();
+        } else {
+            setting = MemoryUsageSetting.setupMixed(maxMainMemoryMb * 1024 * 1024);
+        }
+        if (tempDirectory != null) {
+            setting.setTempDir(tempDirectory);
+        }
+        this.memoryUsage = setting;
+        log.info("PDF documents keep {} of stream data on the heap{}",
+                maxMainMemoryMb < 0 ? "all" : maxMainMemoryMb + " MB",
+                maxMainMemoryMb < 0 ? "" : ", the rest in scratch files under "
+                        + (tempDirectory != null ? tempDirectory : System.getProperty("java.io.tmpdir")));
+    }
+
     @Override
     public PdfDocumentBuilder createBuilder() throws IOException {
-        return new PdfBoxDocumentBuilder(regularFontBytes, boldFontBytes, cjkFontBytes);
+        return new PdfBoxDocumentBuilder(fonts, memoryUsage);
     }
     
     @Override
@@ -48,47 +85,6 @@ public class PdfBoxBackend implements PdfBackendProvider {
         return "pdfbox";
     }
 
-    /**
-     * Reads a classpath resource into a byte array.
-     *
-     * @param path the classpath resource path (e.g., "/fonts/NotoSans-Regular.ttf")
-     * @return the raw bytes, or null if the resource cannot be read
-     */
-    private byte[] loadResource(String path) {
-        try (InputStream is = getClass().getResourceAsStream(path)) {
-            if (is == null) {
-                log.warn("Font resource not found on classpath: {}", path);
-                return null;
-            }
-            return is.readAllBytes();
-        } catch (IOException e) {
-            log.warn("Failed to read font resource {}: {}", path, e.getMessage());
-            return null;
-        }
-    }
-
-    /**
-     * Attempts to load the CJK font resource, trying OTF first, then TTF, then SC fallback.
-     *
-     * @return the raw bytes of the CJK font, or null if none could be loaded
-     */
-    private byte[] loadCjkResource() {
-        byte[] bytes = loadResource("/fonts/NotoSansCJK-Regular.otf");
-        if (bytes != null) {
-            return bytes;
-        }
-        bytes = loadResource("/fonts/NotoSansCJK-Regular.ttf");
-        if (bytes != null) {
-            return bytes;
-        }
-        bytes = loadResource("/fonts/NotoSansSC-Regular.ttf");
-        if (bytes != null) {
-            return bytes;
-        }
-        log.warn("No CJK font resource could be loaded; CJK characters may not render correctly");
-        return null;
-    }
-
     // Package-private accessors for testing
     byte[] getRegularFontBytes() {
         return regularFontBytes;
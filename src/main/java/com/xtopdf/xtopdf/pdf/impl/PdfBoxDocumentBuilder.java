@@ -3,6 +3,15 @@ package com.xtopdf.xtopdf.pdf.impl;
 import com.xtopdf.xtopdf.pdf.PdfDocumentBuilder;
 import com.xtopdf.xtopdf.pdf.TextAlignment;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNull;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
@@ -13,12 +22,16 @@ import org.apache.pdfbox.pdmodel.font.PDType1Font;
 import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Apache PDFBox implementation of the PdfDocumentBuilder interface.
@@ -37,11 +50,15 @@ public class PdfBoxDocumentBuilder implements PdfDocumentBuilder {
     private static final float DEFAULT_LEADING = 14.5f;
     private static final float DEFAULT_MARGIN = 50f;
     private static final float TABLE_CELL_PADDING = 5f;
+    private static final float TABLE_ROW_HEIGHT = 20f;
+    private static final float TABLE_MIN_COLUMN_WIDTH = 20f;
+    private static final int TABLE_MEASURE_CHARS = 200;
     private static final float HEADER_FOOTER_FONT_SIZE = 10f;
     private static final float HEADER_Y_OFFSET = 25f;
     private static final float FOOTER_Y_POSITION = 25f;
 
     private final PDDocument document;
+    private boolean detached = false;
     private PDPage currentPage;
     private PDPageContentStream contentStream;
     private float currentY;
@@ -51,6 +68,12 @@ public class PdfBoxDocumentBuilder implements PdfDocumentBuilder {
     private PDFont regularFont;
     private PDFont boldFont;
     private PDFont cjkFont;
+    private boolean cjkFontResolved = false;
+    private PDFont monospaceFont;
+    private final FontRegistry fonts;
+
+    // Shared glyph advances of the fonts above, looked up once per font
+    private final Map<PDFont, GlyphWidths> glyphWidths = new IdentityHashMap<>();
 
     // Formatted text accumulation for addFormattedText / endParagraph
     private final List<TextSegment> pendingSegments = new ArrayList<>();
@@ -58,6 +81,12 @@ public class PdfBoxDocumentBuilder implements PdfDocumentBuilder {
     // Current paragraph alignment (resets to LEFT after each endParagraph)
     private TextAlignment currentAlignment = TextAlignment.LEFT;
 
+    // Layout of the last table, for continueTable
+    private float[] tableColumnWidths;
+    private String[][] tableHeaderRows = new String[0][];
+    private PDPage tableEndPage;
+    private float tableEndY;
+
     /**
      * A segment of formatted text accumulated via {@link #addFormattedText}.
      */
@@ -66,21 +95,20 @@ public class PdfBoxDocumentBuilder implements PdfDocumentBuilder {
 
     /**
      * Creates a new PDFBox document builder.
-     * Loads NotoSans fonts from the classpath for Unicode support.
+     * Uses the NotoSans fonts on the classpath for Unicode support, parsed once and
+     * shared by every builder created this way.
      * Falls back to Helvetica if any font fails to load.
      *
      * @throws IOException if the document cannot be created
      */
     public PdfBoxDocumentBuilder() throws IOException {
-        this.document = new PDDocument();
-        loadFonts();
-        newPage();
+        this(FontRegistry.classpath());
     }
 
     /**
      * Creates a new PDFBox document builder using pre-loaded font byte arrays.
-     * This constructor avoids repeated classpath I/O by accepting cached font bytes
-     * from {@link PdfBoxBackend}.
+     * The fonts are parsed for this builder only; {@link PdfBoxBackend} parses its
+     * cached bytes once and shares them through a {@link FontRegistry} instead.
      *
      * <p>If any byte array is null, that font variant falls back to Helvetica.</p>
      *
@@ -91,128 +119,80 @@ public class PdfBoxDocumentBuilder implements PdfDocumentBuilder {
      */
     public PdfBoxDocumentBuilder(byte[] regularFontBytes, byte[] boldFontBytes,
                                   byte[] cjkFontBytes) throws IOException {
-        this.document = new PDDocument();
-        loadFontsFromBytes(regularFontBytes, boldFontBytes, cjkFontBytes);
-        newPage();
+        this(new FontRegistry(regularFontBytes, boldFontBytes, () -> cjkFontBytes));
     }
 
     /**
-     * Loads fonts from pre-cached byte arrays. Falls back to Helvetica for any null byte array.
+     * Creates a new PDFBox document builder over shared, already parsed fonts. Wrapping them
+     * for this document does not parse them again; the CJK font is only wrapped once
+     * {@link #fontForChar} needs it.
+     *
+     * @param fonts the parsed fonts
+     * @throws IOException if the document cannot be created
      */
-    private void loadFontsFromBytes(byte[] regularFontBytes, byte[] boldFontBytes,
-                                     byte[] cjkFontBytes) {
-        try {
-            if (regularFontBytes != null) {
-                this.regularFont = PDType0Font.load(document, new ByteArrayInputStream(regularFontBytes), false);
-            } else {
-                log.warn("Regular font bytes are null, falling back to Helvetica");
-                this.regularFont = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
-            }
-
-            if (boldFontBytes != null) {
-                this.boldFont = PDType0Font.load(document, new ByteArrayInputStream(boldFontBytes), false);
-            } else {
-                log.warn("Bold font bytes are null, falling back to Helvetica-Bold");
-                this.boldFont = new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD);
-            }
-
-            // Only set fontsLoaded if both regular and bold were loaded from bytes
-            this.fontsLoaded = (regularFontBytes != null && boldFontBytes != null);
+    PdfBoxDocumentBuilder(FontRegistry fonts) throws IOException {
+        this(fonts, MemoryUsageSetting.setupMainMemoryOnly());
+    }
 
-            if (cjkFontBytes != null) {
-                try {
-                    this.cjkFont = PDType0Font.load(document, new ByteArrayInputStream(cjkFontBytes), false);
-                    log.debug("CJK font loaded from cached bytes");
-                } catch (IOException e) {
-                    log.warn("Failed to load CJK font from cached bytes: {}", e.getMessage());
-                    this.cjkFont = null;
-                }
-            } else {
-                this.cjkFont = null;
-            }
-        } catch (IOException e) {
-            log.warn("Failed to load fonts from cached bytes, falling back to Helvetica: {}", e.getMessage());
-            this.regularFont = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
-            this.boldFont = new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD);
-            this.cjkFont = null;
-            this.fontsLoaded = false;
-        }
+    /**
+     * Creates a new PDFBox document builder over shared fonts whose streams are kept as
+     * {@code memoryUsage} allows. With a main-memory limit or a temp-file-only setting, each
+     * page's content stream is written to the document's scratch file once it is complete
+     * (when the next page is started), so only the page being drawn is held on the heap.
+     *
+     * @param fonts       the parsed fonts
+     * @param memoryUsage where the document keeps its streams
+     * @throws IOException if the document cannot be created
+     */
+    PdfBoxDocumentBuilder(FontRegistry fonts, MemoryUsageSetting memoryUsage) throws IOException {
+        this.document = new PDDocument(memoryUsage.streamCache);
+        this.fonts = fonts;
+        loadFonts();
+        newPage();
     }
 
     /**
-     * Attempts to load NotoSans fonts from the classpath.
-     * On success, sets {@code fontsLoaded = true} and assigns {@code regularFont} and {@code boldFont}.
-     * On failure, falls back to Helvetica and logs a warning.
+     * Wraps the registry's regular and bold fonts for this document.
+     * On success, sets {@code fontsLoaded = true}; a missing or unloadable font falls back
+     * to Helvetica and logs a warning.
      */
     private void loadFonts() {
-        try {
-            // Load regular and bold TTF fonts
-            try (InputStream regularStream = getClass().getResourceAsStream("/fonts/NotoSans-Regular.ttf");
-                 InputStream boldStream = getClass().getResourceAsStream("/fonts/NotoSans-Bold.ttf")) {
-
-                if (regularStream == null || boldStream == null) {
-                    throw new IOException("NotoSans-Regular.ttf or NotoSans-Bold.ttf not found on classpath");
-                }
+        this.regularFont = loadFont(fonts.regular(), Standard14Fonts.FontName.HELVETICA);
+        this.boldFont = loadFont(fonts.bold(), Standard14Fonts.FontName.HELVETICA_BOLD);
+        this.fontsLoaded = regularFont instanceof PDType0Font && boldFont instanceof PDType0Font;
+    }
 
-                this.regularFont = PDType0Font.load(document, regularStream, false);
-                this.boldFont = PDType0Font.load(document, boldStream, false);
-                this.fontsLoaded = true;
-                log.debug("NotoSans regular and bold fonts loaded successfully");
+    private PDFont loadFont(TrueTypeFont font, Standard14Fonts.FontName fallback) {
+        if (font != null) {
+            try {
+                return PDType0Font.load(document, font, false);
+            } catch (IOException e) {
+                log.warn("Failed to load font {}, falling back to {}: {}", font.getName(), fallback, e.getMessage());
             }
-
-            // Load CJK font separately — OTF with CFF outlines requires special handling
-            loadCjkFont();
-
-        } catch (IOException e) {
-            log.warn("Failed to load NotoSans fonts from classpath, falling back to Helvetica: {}", e.getMessage());
-            this.regularFont = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
-            this.boldFont = new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD);
-            this.cjkFont = null;
-            this.fontsLoaded = false;
+        } else {
+            log.warn("Font is not available, falling back to {}", fallback);
         }
+        return new PDType1Font(fallback);
     }
 
     /**
-     * Attempts to load the CJK font from the classpath.
-     * Tries OTF first, then falls back to TTF variant if available.
-     * If CJK font cannot be loaded, logs a warning and continues without it.
+     * Returns the CJK font, wrapping the registry's on the first call, or null if no CJK
+     * font could be loaded.
      */
-    private void loadCjkFont() {
-        // Try loading as OTF with CFF outlines (PDFBox may not support this)
-        try (InputStream cjkStream = getClass().getResourceAsStream("/fonts/NotoSansCJK-Regular.otf")) {
-            if (cjkStream != null) {
-                this.cjkFont = PDType0Font.load(document, cjkStream, false);
-                log.debug("NotoSansCJK font loaded successfully");
-                return;
-            }
-        } catch (IOException e) {
-            log.debug("Could not load NotoSansCJK-Regular.otf (CFF outlines not supported by PDFBox): {}", e.getMessage());
-        }
-
-        // Try TTF variant as fallback
-        try (InputStream cjkTtfStream = getClass().getResourceAsStream("/fonts/NotoSansCJK-Regular.ttf")) {
-            if (cjkTtfStream != null) {
-                this.cjkFont = PDType0Font.load(document, cjkTtfStream, false);
-                log.debug("NotoSansCJK TTF font loaded successfully");
-                return;
+    private PDFont cjkFont() {
+        if (!cjkFontResolved) {
+            cjkFontResolved = true;
+            TrueTypeFont font = fonts.cjk();
+            if (font != null) {
+                try {
+                    cjkFont = PDType0Font.load(document, font, false);
+                    log.debug("CJK font loaded");
+                } catch (IOException e) {
+                    log.warn("Failed to load CJK font; CJK characters may not render correctly: {}", e.getMessage());
+                }
             }
-        } catch (IOException e) {
-            log.debug("Could not load NotoSansCJK-Regular.ttf: {}", e.getMessage());
         }
-
-        // Try NotoSansSC (Simplified Chinese) TTF as another fallback
-        try (InputStream scStream = getClass().getResourceAsStream("/fonts/NotoSansSC-Regular.ttf")) {
-            if (scStream != null) {
-                this.cjkFont = PDType0Font.load(document, scStream, false);
-                log.debug("NotoSansSC TTF font loaded as CJK fallback");
-                return;
-            }
-        } catch (IOException e) {
-            log.debug("Could not load NotoSansSC-Regular.ttf: {}", e.getMessage());
-        }
-
-        log.warn("No CJK font could be loaded; CJK characters may not render correctly");
-        this.cjkFont = null;
+        return cjkFont;
     }
 
     @Override
@@ -281,50 +261,122 @@ public class PdfBoxDocumentBuilder implements PdfDocumentBuilder {
         currentY -= DEFAULT_LEADING; // Add extra space after paragraph
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Lines are written as they are wrapped, in one text object per page. The monospaced
+     * font is Courier, which covers Latin-1; other characters are drawn as spaces.</p>
+     */
+    @Override
+    public void addTextLines(Iterator<String> lines, boolean monospace) throws IOException {
+        PDFont font = monospace ? monospaceFont() : regularFont;
+        float maxWidth = currentPage.getMediaBox().getWidth() - (2 * DEFAULT_MARGIN);
+        boolean inText = false;
+
+        while (lines.hasNext()) {
+            // Replace tabs with spaces for consistent rendering
+            String text = safeEncode(lines.next().replace("\t", "    "), font);
+            for (String line : wrapText(text, maxWidth, font, DEFAULT_FONT_SIZE)) {
+                // Check if we need a new page
+                if (currentY < DEFAULT_MARGIN) {
+                    if (inText) {
+                        contentStream.endText();
+                        inText = false;
+                    }
+                    newPage();
+                }
+                if (!inText) {
+                    contentStream.beginText();
+                    contentStream.setFont(font, DEFAULT_FONT_SIZE);
+                    contentStream.setLeading(DEFAULT_LEADING);
+                    contentStream.newLineAtOffset(DEFAULT_MARGIN, currentY);
+                    inText = true;
+                }
+                if (!line.isEmpty()) {
+                    contentStream.showText(line);
+                }
+                contentStream.newLine();
+                currentY -= DEFAULT_LEADING;
+            }
+        }
+
+        if (inText) {
+            contentStream.endText();
+        }
+        currentY -= DEFAULT_LEADING; // Add extra space after the text
+    }
+
+    private PDFont monospaceFont() {
+        if (monospaceFont == null) {
+            monospaceFont = new PDType1Font(Standard14Fonts.FontName.COURIER);
+        }
+        return monospaceFont;
+    }
+
     @Override
     public void addTable(String[][] data) throws IOException {
+        addTable(data, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Column widths come from the rows picked by {@link TableLayout#sampleRows}, measured in
+     * the table font. The widths and header rows are kept for {@link #continueTable}.</p>
+     */
+    @Override
+    public void addTable(String[][] data, int headerRows) throws IOException {
         if (data == null || data.length == 0) {
             return;
         }
 
         int numCols = data[0].length;
-        float pageWidth = currentPage.getMediaBox().getWidth() - (2 * DEFAULT_MARGIN);
-        float cellWidth = pageWidth / numCols;
-        float cellHeight = 20f;
+        int headers = Math.clamp(headerRows, 0, data.length);
+        tableColumnWidths = layoutColumns(data, headers, numCols);
+        tableHeaderRows = Arrays.copyOf(data, headers);
 
-        for (String[] row : data) {
-            // Check if we need a new page
-            if (currentY - cellHeight < DEFAULT_MARGIN) {
+        for (int rowIdx = 0; rowIdx < data.length; rowIdx++) {
+            if (currentY - TABLE_ROW_HEIGHT < DEFAULT_MARGIN) {
                 newPage();
+                if (rowIdx >= headers) {
+                    repeatTableHeader();
+                }
             }
+            drawTableRow(data[rowIdx], tableColumnWidths, rowIdx < headers ? boldFont : regularFont, null);
+        }
 
-            float x = DEFAULT_MARGIN;
-            float y = currentY;
-
-            // Draw cell borders and text
-            for (int col = 0; col < numCols && col < row.length; col++) {
-                // Draw cell border
-                contentStream.addRect(x, y - cellHeight, cellWidth, cellHeight);
-                contentStream.stroke();
-
-                // Draw cell text
-                String cellText = row[col] != null ? row[col] : "";
-                cellText = safeEncode(cellText, regularFont);
-                cellText = truncateText(cellText, cellWidth - (2 * TABLE_CELL_PADDING), regularFont, DEFAULT_FONT_SIZE);
-
-                contentStream.beginText();
-                contentStream.setFont(regularFont, DEFAULT_FONT_SIZE);
-                contentStream.newLineAtOffset(x + TABLE_CELL_PADDING, y - cellHeight + TABLE_CELL_PADDING);
-                contentStream.showText(cellText);
-                contentStream.endText();
+        endTable();
+    }
 
-                x += cellWidth;
+    @Override
+    public void continueTable(String[][] data) throws IOException {
+        if (data == null || data.length == 0) {
+            return;
+        }
+        if (tableColumnWidths == null || data[0].length != tableColumnWidths.length) {
+            // Lay the table out again for the new column count, keeping its header rows
+            String[][] withHeader = new String[tableHeaderRows.length + data.length][];
+            for (int i = 0; i < tableHeaderRows.length; i++) {
+                withHeader[i] = Arrays.copyOf(tableHeaderRows[i], data[0].length);
             }
+            System.arraycopy(data, 0, withHeader, tableHeaderRows.length, data.length);
+            addTable(withHeader, tableHeaderRows.length);
+            return;
+        }
 
-            currentY -= cellHeight;
+        // Join the previous chunk without the gap left after a table
+        if (currentPage == tableEndPage && currentY == tableEndY - DEFAULT_LEADING) {
+            currentY = tableEndY;
+        }
+        for (String[] row : data) {
+            if (currentY - TABLE_ROW_HEIGHT < DEFAULT_MARGIN) {
+                newPage();
+                repeatTableHeader();
+            }
+            drawTableRow(row, tableColumnWidths, regularFont, null);
         }
 
-        currentY -= DEFAULT_LEADING; // Add space after table
+        endTable();
     }
 
     @Override
@@ -335,72 +387,156 @@ public class PdfBoxDocumentBuilder implements PdfDocumentBuilder {
         }
 
         int numCols = data[0].length;
-        float cellHeight = 20f;
+        float[] widths = new float[numCols];
+        for (int col = 0; col < numCols; col++) {
+            widths[col] = (columnWidths != null && col < columnWidths.length)
+                    ? columnWidths[col]
+                    : (currentPage.getMediaBox().getWidth() - 2 * DEFAULT_MARGIN) / numCols;
+        }
 
         for (int rowIdx = 0; rowIdx < data.length; rowIdx++) {
-            String[] row = data[rowIdx];
-
             // Check if we need a new page
-            if (currentY - cellHeight < DEFAULT_MARGIN) {
+            if (currentY - TABLE_ROW_HEIGHT < DEFAULT_MARGIN) {
                 newPage();
             }
+            drawTableRow(data[rowIdx], widths, regularFont,
+                    formatting != null && rowIdx < formatting.length ? formatting[rowIdx] : null);
+        }
 
-            float x = DEFAULT_MARGIN;
-            float y = currentY;
+        tableColumnWidths = null;
+        currentY -= DEFAULT_LEADING; // Add space after table
+    }
+
+    /**
+     * Measures the sampled rows and fits the columns to the page. Cells are measured up to
+     * {@code TABLE_MEASURE_CHARS} characters; anything longer is wider than the page anyway.
+     */
+    private float[] layoutColumns(String[][] data, int headerRows, int numCols) throws IOException {
+        float available = currentPage.getMediaBox().getWidth() - 2 * DEFAULT_MARGIN;
+        float[] natural = new float[numCols];
+        Arrays.fill(natural, TABLE_MIN_COLUMN_WIDTH);
 
+        for (int rowIdx : TableLayout.sampleRows(data.length, headerRows, TableLayout.SAMPLE_ROWS)) {
+            String[] row = data[rowIdx];
+            PDFont font = rowIdx < headerRows ? boldFont : regularFont;
             for (int col = 0; col < numCols && col < row.length; col++) {
-                float colWidth = (columnWidths != null && col < columnWidths.length)
-                        ? columnWidths[col]
-                        : (currentPage.getMediaBox().getWidth() - 2 * DEFAULT_MARGIN) / numCols;
-
-                // Get formatting for this cell
-                com.xtopdf.xtopdf.services.conversion.spreadsheet.CellFormatting cellFmt = null;
-                if (formatting != null && rowIdx < formatting.length && col < formatting[rowIdx].length) {
-                    cellFmt = formatting[rowIdx][col];
+                String text = row[col];
+                if (text == null || text.isEmpty()) {
+                    continue;
                 }
+                if (text.length() > TABLE_MEASURE_CHARS) {
+                    text = text.substring(0, TABLE_MEASURE_CHARS);
+                }
+                float width = widthsOf(font).width(font, text) / 1000 * DEFAULT_FONT_SIZE + 2 * TABLE_CELL_PADDING;
+                natural[col] = Math.max(natural[col], Math.min(width, available));
+            }
+        }
+        return TableLayout.fitColumnWidths(natural, available);
+    }
+
+    private void repeatTableHeader() throws IOException {
+        float headerHeight = (tableHeaderRows.length + 1) * TABLE_ROW_HEIGHT;
+        if (headerHeight > currentPage.getMediaBox().getHeight() - 2 * DEFAULT_MARGIN) {
+            return; // the header would leave no room for the body
+        }
+        for (String[] header : tableHeaderRows) {
+            drawTableRow(header, tableColumnWidths, boldFont, null);
+        }
+    }
+
+    private void endTable() {
+        tableEndPage = currentPage;
+        tableEndY = currentY;
+        currentY -= DEFAULT_LEADING; // Add space after table
+    }
 
-                // Draw background fill if cell has a background color
+    /**
+     * Draws one table row at {@code currentY} and moves below it. Backgrounds are filled
+     * first, then every border of the row is stroked as one path and the cell texts are
+     * written in a single text object.
+     */
+    private void drawTableRow(String[] row, float[] widths, PDFont font,
+                              com.xtopdf.xtopdf.services.conversion.spreadsheet.CellFormatting[] formatting)
+            throws IOException {
+        int cells = Math.min(widths.length, row.length);
+        float top = currentY;
+        float bottom = top - TABLE_ROW_HEIGHT;
+
+        if (formatting != null) {
+            float x = DEFAULT_MARGIN;
+            for (int col = 0; col < cells; col++) {
+                var cellFmt = col < formatting.length ? formatting[col] : null;
                 if (cellFmt != null && cellFmt.hasBackground()) {
                     contentStream.setNonStrokingColor(
                             cellFmt.backgroundR() / 255f,
                             cellFmt.backgroundG() / 255f,
                             cellFmt.backgroundB() / 255f);
-                    contentStream.addRect(x, y - cellHeight, colWidth, cellHeight);
+                    contentStream.addRect(x, bottom, widths[col], TABLE_ROW_HEIGHT);
                     contentStream.fill();
                     // Reset to black for text
                     contentStream.setNonStrokingColor(0f, 0f, 0f);
                 }
+                x += widths[col];
+            }
+        }
 
-                // Draw cell border
-                contentStream.addRect(x, y - cellHeight, colWidth, cellHeight);
-                contentStream.stroke();
-
-                // Determine cell text: use formattedValue if available, otherwise raw data
-                String cellText;
-                if (cellFmt != null && cellFmt.formattedValue() != null && !cellFmt.formattedValue().isEmpty()) {
-                    cellText = cellFmt.formattedValue();
-                } else {
-                    cellText = row[col] != null ? row[col] : "";
+        if (cells > 0) {
+            float x = DEFAULT_MARGIN;
+            for (int col = 0; col <= cells; col++) {
+                contentStream.moveTo(x, top);
+                contentStream.lineTo(x, bottom);
+                if (col < cells) {
+                    x += widths[col];
                 }
+            }
+            contentStream.moveTo(DEFAULT_MARGIN, top);
+            contentStream.lineTo(x, top);
+            contentStream.moveTo(DEFAULT_MARGIN, bottom);
+            contentStream.lineTo(x, bottom);
+            contentStream.stroke();
+        }
+
+        boolean inText = false;
+        PDFont textFont = null;
+        float x = DEFAULT_MARGIN;
+        float lastX = 0;
+        for (int col = 0; col < cells; col++) {
+            var cellFmt = formatting != null && col < formatting.length ? formatting[col] : null;
+
+            // Use formattedValue if available, otherwise raw data
+            String cellText;
+            if (cellFmt != null && cellFmt.formattedValue() != null && !cellFmt.formattedValue().isEmpty()) {
+                cellText = cellFmt.formattedValue();
+            } else {
+                cellText = row[col] != null ? row[col] : "";
+            }
 
-                // Select font based on bold flag
-                PDFont cellFont = (cellFmt != null && cellFmt.bold()) ? boldFont : regularFont;
+            if (!cellText.isEmpty()) {
+                PDFont cellFont = (cellFmt != null && cellFmt.bold()) ? boldFont : font;
                 cellText = safeEncode(cellText, cellFont);
-                cellText = truncateText(cellText, colWidth - (2 * TABLE_CELL_PADDING), cellFont, DEFAULT_FONT_SIZE);
+                cellText = truncateText(cellText, widths[col] - (2 * TABLE_CELL_PADDING), cellFont, DEFAULT_FONT_SIZE);
 
-                contentStream.beginText();
-                contentStream.setFont(cellFont, DEFAULT_FONT_SIZE);
-                contentStream.newLineAtOffset(x + TABLE_CELL_PADDING, y - cellHeight + TABLE_CELL_PADDING);
+                if (!inText) {
+                    contentStream.beginText();
+                    contentStream.newLineAtOffset(x + TABLE_CELL_PADDING, bottom + TABLE_CELL_PADDING);
+                    inText = true;
+                } else {
+                    contentStream.newLineAtOffset(x + TABLE_CELL_PADDING - lastX, 0);
+                }
+                lastX = x + TABLE_CELL_PADDING;
+                if (cellFont != textFont) {
+                    contentStream.setFont(cellFont, DEFAULT_FONT_SIZE);
+                    textFont = cellFont;
+                }
                 contentStream.showText(cellText);
-                contentStream.endText();
-
-                x += colWidth;
             }
-
-            currentY -= cellHeight;
+            x += widths[col];
+        }
+        if (inText) {
+            contentStream.endText();
         }
 
-        currentY -= DEFAULT_LEADING; // Add space after table
+        currentY = bottom;
     }
 
     @Override
@@ -468,6 +604,133 @@ public class PdfBoxDocumentBuilder implements PdfDocumentBuilder {
         document.save(outputFile);
     }
 
+    @Override
+    public void save(OutputStream outputStream) throws IOException {
+        if (contentStream != null) {
+            contentStream.close();
+            contentStream = null;
+        }
+        document.save(outputStream);
+    }
+
+    @Override
+    public PDDocument detachDocument() throws IOException {
+        if (detached) {
+            throw new IllegalStateException("Document has already been detached");
+        }
+        if (contentStream != null) {
+            contentStream.close();
+            contentStream = null;
+        }
+        detached = true;
+        return document;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Pages are copied object by object, with content streams copied in their encoded form
+     * rather than decoded and compressed again. References to the other builder's fonts are
+     * pointed at this builder's copies of the same fonts, so a document joined from many parts
+     * still embeds each font once.</p>
+     */
+    @Override
+    public void appendPages(PdfDocumentBuilder other) throws IOException {
+        if (!(other instanceof PdfBoxDocumentBuilder part) || part == this) {
+            throw new IllegalArgumentException("Can only append pages from another PDFBox builder");
+        }
+        if (detached || part.detached) {
+            throw new IllegalStateException("Document has already been detached");
+        }
+        if (contentStream != null) {
+            contentStream.close();
+            contentStream = null;
+        }
+        if (part.contentStream != null) {
+            part.contentStream.close();
+            part.contentStream = null;
+        }
+
+        Map<COSBase, COSBase> copies = new IdentityHashMap<>();
+        mapFont(copies, part.regularFont, regularFont);
+        mapFont(copies, part.boldFont, boldFont);
+        if (part.cjkFont != null) {
+            mapFont(copies, part.cjkFont, cjkFont());
+        }
+
+        for (PDPage page : part.document.getPages()) {
+            COSDictionary pageCopy = new COSDictionary();
+            for (Map.Entry<COSName, COSBase> entry : page.getCOSObject().entrySet()) {
+                if (!COSName.PARENT.equals(entry.getKey())) {
+                    pageCopy.setItem(entry.getKey(), copyObject(entry.getValue(), copies));
+                }
+            }
+            if (!pageCopy.containsKey(COSName.MEDIA_BOX)) {
+                // Inherited from the other document's page tree
+                pageCopy.setItem(COSName.MEDIA_BOX, page.getMediaBox().getCOSArray());
+            }
+            currentPage = new PDPage(pageCopy);
+            document.addPage(currentPage);
+            currentY = part.currentY;
+        }
+        contentStream = new PDPageContentStream(document, currentPage, PDPageContentStream.AppendMode.APPEND, true);
+    }
+
+    private static void mapFont(Map<COSBase, COSBase> copies, PDFont from, PDFont to) {
+        if (from != null && to != null) {
+            copies.put(from.getCOSObject(), to.getCOSObject());
+        }
+    }
+
+    /**
+     * Deep-copies a PDF object into this document. Objects already in {@code copies} (fonts,
+     * and objects reached twice) are not copied again.
+     */
+    private COSBase copyObject(COSBase base, Map<COSBase, COSBase> copies) throws IOException {
+        if (base instanceof COSObject reference) {
+            base = reference.getObject();
+        }
+        if (base == null) {
+            return COSNull.NULL;
+        }
+        COSBase existing = copies.get(base);
+        if (existing != null) {
+            return existing;
+        }
+        if (base instanceof COSStream stream) {
+            COSStream streamCopy = document.getDocument().createCOSStream();
+            copies.put(stream, streamCopy);
+            for (Map.Entry<COSName, COSBase> entry : stream.entrySet()) {
+                if (!COSName.LENGTH.equals(entry.getKey())) {
+                    streamCopy.setItem(entry.getKey(), copyObject(entry.getValue(), copies));
+                }
+            }
+            try (InputStream in = stream.createRawInputStream();
+                 OutputStream out = streamCopy.createRawOutputStream()) {
+                in.transferTo(out);
+            }
+            return streamCopy;
+        }
+        if (base instanceof COSDictionary dictionary) {
+            COSDictionary dictionaryCopy = new COSDictionary();
+            copies.put(dictionary, dictionaryCopy);
+            for (Map.Entry<COSName, COSBase> entry : dictionary.entrySet()) {
+                dictionaryCopy.setItem(entry.getKey(), copyObject(entry.getValue(), copies));
+            }
+            return dictionaryCopy;
+        }
+        if (base instanceof COSArray array) {
+            COSArray arrayCopy = new COSArray();
+            copies.put(array, arrayCopy);
+            for (COSBase item : array) {
+                arrayCopy.add(copyObject(item, copies));
+            }
+            return arrayCopy;
+        }
+        // Names, numbers, strings and booleans are never modified, so they can be shared
+        return base;
+    }
+
     /**
      * Returns whether NotoSans fonts were successfully loaded from the classpath.
      * Package-private for testing.
@@ -483,7 +746,7 @@ public class PdfBoxDocumentBuilder implements PdfDocumentBuilder {
         if (contentStream != null) {
             contentStream.close();
         }
-        if (document != null) {
+        if (document != null && !detached) {
             document.close();
         }
     }
@@ -601,22 +864,16 @@ public class PdfBoxDocumentBuilder implements PdfDocumentBuilder {
      * encode the character.
      */
     private PDFont fontForChar(char c, PDFont primaryFont) {
-        try {
-            primaryFont.encode(String.valueOf(c));
+        if (widthsOf(primaryFont).canEncode(primaryFont, c)) {
             return primaryFont;
-        } catch (Exception e) {
-            // Character not supported by primary font, try CJK
-            if (cjkFont != null) {
-                try {
-                    cjkFont.encode(String.valueOf(c));
-                    return cjkFont;
-                } catch (Exception ex) {
-                    // CJK font also can't encode
-                }
-            }
-            // No font can encode this character — return null to signal skip
-            return null;
         }
+        // Character not supported by primary font, try CJK
+        PDFont cjk = cjkFont();
+        if (cjk != null && widthsOf(cjk).canEncode(cjk, c)) {
+            return cjk;
+        }
+        // No font can encode this character — return null to signal skip
+        return null;
     }
 
     /**
@@ -708,7 +965,7 @@ public class PdfBoxDocumentBuilder implements PdfDocumentBuilder {
         float currentWidth = 0;
 
         for (WordToken token : tokens) {
-            float tokenWidth = token.font().getStringWidth(token.word()) / 1000 * token.fontSize();
+            float tokenWidth = tokenWidth(token);
 
             if (currentWidth + tokenWidth > maxWidth && !currentLine.isEmpty()) {
                 lines.add(new LineOfTokens(new ArrayList<>(currentLine)));
@@ -720,7 +977,7 @@ public class PdfBoxDocumentBuilder implements PdfDocumentBuilder {
                     if (!trimmed.isEmpty()) {
                         token = new WordToken(trimmed, token.font(), token.fontSize(),
                                 token.r(), token.g(), token.b());
-                        tokenWidth = token.font().getStringWidth(token.word()) / 1000 * token.fontSize();
+                        tokenWidth = tokenWidth(token);
                     } else {
                         continue;
                     }
@@ -738,6 +995,10 @@ public class PdfBoxDocumentBuilder implements PdfDocumentBuilder {
         return lines;
     }
 
+    private float tokenWidth(WordToken token) {
+        return widthsOf(token.font()).width(token.font(), token.word()) / 1000 * token.fontSize();
+    }
+
     /**
      * Renders a single line of word tokens at the current Y position,
      * applying the current alignment to compute the X offset and
@@ -747,7 +1008,7 @@ public class PdfBoxDocumentBuilder implements PdfDocumentBuilder {
         // Compute line width by summing all token widths
         float lineWidth = 0;
         for (WordToken token : line.tokens()) {
-            lineWidth += token.font().getStringWidth(token.word()) / 1000 * token.fontSize();
+            lineWidth += tokenWidth(token);
         }
 
         // Compute X offset based on alignment
@@ -797,11 +1058,15 @@ public class PdfBoxDocumentBuilder implements PdfDocumentBuilder {
     // ---------------------------------------------------------------
 
     /**
-     * Wraps text to fit within the specified width.
+     * Wraps text to fit within the specified width. Line widths are kept as running sums of
+     * cached glyph advances, so each word is measured once however long the line gets.
      */
     private List<String> wrapText(String text, float maxWidth, PDFont font, float fontSize) throws IOException {
         List<String> lines = new ArrayList<>();
         String[] paragraphs = text.split("\n");
+        GlyphWidths widths = widthsOf(font);
+        float scale = fontSize / 1000;
+        float spaceWidth = widths.width(font, " ") * scale;
 
         for (String paragraph : paragraphs) {
             if (paragraph.isEmpty()) {
@@ -811,16 +1076,23 @@ public class PdfBoxDocumentBuilder implements PdfDocumentBuilder {
 
             String[] words = paragraph.split(" ");
             StringBuilder line = new StringBuilder();
+            float lineWidth = 0;
 
             for (String word : words) {
-                String testLine = line.isEmpty() ? word : line + " " + word;
-                float width = font.getStringWidth(testLine) / 1000 * fontSize;
+                float wordWidth = widths.width(font, word) * scale;
+                float width = line.isEmpty() ? wordWidth : lineWidth + spaceWidth + wordWidth;
 
                 if (width > maxWidth && !line.isEmpty()) {
                     lines.add(line.toString());
-                    line = new StringBuilder(word);
+                    line.setLength(0);
+                    line.append(word);
+                    lineWidth = wordWidth;
                 } else {
-                    line = new StringBuilder(testLine);
+                    if (!line.isEmpty()) {
+                        line.append(' ');
+                    }
+                    line.append(word);
+                    lineWidth = width;
                 }
             }
 
@@ -840,44 +1112,52 @@ public class PdfBoxDocumentBuilder implements PdfDocumentBuilder {
         if (text == null || text.isEmpty()) {
             return text;
         }
-        StringBuilder safe = new StringBuilder();
-        for (char c : text.toCharArray()) {
-            try {
-                font.encode(String.valueOf(c));
-                safe.append(c);
-            } catch (Exception e) {
+        GlyphWidths widths = widthsOf(font);
+        char[] chars = null;
+        for (int i = 0; i < text.length(); i++) {
+            if (!widths.canEncode(font, text.charAt(i))) {
                 // Character can't be encoded — replace with space
-                safe.append(' ');
+                if (chars == null) {
+                    chars = text.toCharArray();
+                }
+                chars[i] = ' ';
             }
         }
-        return safe.toString();
+        return chars == null ? text : new String(chars);
     }
 
     /**
-     * Truncates text to fit within the specified width.
+     * Truncates text to fit within the specified width, ending it with an ellipsis. The
+     * prefix width is summed from cached glyph advances in a single pass.
      */
     private String truncateText(String text, float maxWidth, PDFont font, float fontSize) throws IOException {
-        float width = font.getStringWidth(text) / 1000 * fontSize;
-
-        if (width <= maxWidth) {
+        GlyphWidths widths = widthsOf(font);
+        float scale = fontSize / 1000;
+        if (widths.width(font, text) * scale <= maxWidth) {
             return text;
         }
 
         String ellipsis = "...";
-        float ellipsisWidth = font.getStringWidth(ellipsis) / 1000 * fontSize;
+        float limit = maxWidth - widths.width(font, ellipsis) * scale;
 
-        StringBuilder truncated = new StringBuilder();
-        for (char c : text.toCharArray()) {
-            String test = truncated.toString() + c;
-            float testWidth = font.getStringWidth(test) / 1000 * fontSize;
-
-            if (testWidth + ellipsisWidth > maxWidth) {
+        int fits = 0;
+        float width = 0;
+        while (fits < text.length()) {
+            width += widths.width(font, text.charAt(fits)) * scale;
+            if (width > limit) {
                 break;
             }
-            truncated.append(c);
+            fits++;
+        }
+        if (fits > 0 && Character.isHighSurrogate(text.charAt(fits - 1))) {
+            fits--;
         }
 
-        return truncated + ellipsis;
+        return text.substring(0, fits) + ellipsis;
+    }
+
+    private GlyphWidths widthsOf(PDFont font) {
+        return glyphWidths.computeIfAbsent(font, GlyphWidths::of);
     }
 
     @Override
@@ -953,6 +1233,53 @@ public class PdfBoxDocumentBuilder implements PdfDocumentBuilder {
         }
     }
 
+    @Override
+    public void moveTo(float x, float y) throws IOException {
+        contentStream.moveTo(x, y);
+    }
+
+    @Override
+    public void lineTo(float x, float y) throws IOException {
+        contentStream.lineTo(x, y);
+    }
+
+    @Override
+    public void curveTo(float x1, float y1, float x2, float y2, float x3, float y3) throws IOException {
+        contentStream.curveTo(x1, y1, x2, y2, x3, y3);
+    }
+
+    @Override
+    public void closePath() throws IOException {
+        contentStream.closePath();
+    }
+
+    @Override
+    public void appendPolyline(float[] coordinates, int offset, int points) throws IOException {
+        if (points < 1) {
+            return;
+        }
+        contentStream.moveTo(coordinates[offset], coordinates[offset + 1]);
+        int end = offset + 2 * points;
+        for (int i = offset + 2; i < end; i += 2) {
+            contentStream.lineTo(coordinates[i], coordinates[i + 1]);
+        }
+    }
+
+    @Override
+    public void stroke() throws IOException {
+        contentStream.stroke();
+    }
+
+    @Override
+    public void fill() throws IOException {
+        contentStream.fill();
+    }
+
+    @Override
+    public void fillAndStroke() throws IOException {
+        contentStream.fillAndStroke();
+    }
+
     @Override
     public void setStrokeColor(int r, int g, int b) throws IOException {
         contentStream.setStrokingColor(r / 255f, g / 255f, b / 255f);
@@ -0,0 +1,97 @@
+package com.xtopdf.xtopdf.pdf.impl;
+
+/**
+ * Column-width fitting for {@link PdfBoxDocumentBuilder} tables.
+ *
+ * <p>Widths are taken from a sample of the rows rather than all of them, so laying out a
+ * 100,000-row table costs the same as laying out a few hundred. The sample is the header rows,
+ * then rows spread evenly over the rest of the table.</p>
+ *
+ * <p>Fitting works like filling water: columns whose content is narrower than an equal share of
+ * the page get exactly what they need, and the space they leave is shared out among the wider
+ * columns, which are truncated. When every column fits, the spare width is spread evenly so the
+ * table still spans the page.</p>
+ */
+final class TableLayout {
+
+    /** Rows measured per table, including the header rows. */
+    static final int SAMPLE_ROWS = 100;
+
+    private TableLayout() {
+    }
+
+    /**
+     * Picks the rows to measure: every row of a small table, otherwise the header rows followed
+     * by rows at an even stride through the body.
+     *
+     * @param rowCount   number of rows in the table
+     * @param headerRows number of leading header rows, always included
+     * @param maxSamples the most rows to return
+     * @return row indices in ascending order
+     */
+    static int[] sampleRows(int rowCount, int headerRows, int maxSamples) {
+        if (rowCount <= maxSamples) {
+            int[] all = new int[rowCount];
+            for (int i = 0; i < rowCount; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+        int headers = Math.min(headerRows, maxSamples);
+        int bodySamples = maxSamples - headers;
+        int bodyRows = rowCount - headers;
+        int[] rows = new int[maxSamples];
+        for (int i = 0; i < headers; i++) {
+            rows[i] = i;
+        }
+        for (int i = 0; i < bodySamples; i++) {
+            rows[headers + i] = headers + (int) ((long) i * bodyRows / bodySamples);
+        }
+        return rows;
+    }
+
+    /**
+     * Fits the columns into the available width.
+     *
+     * @param naturalWidths the width each column needs to show its sampled content untruncated
+     * @param available     the width of the table
+     * @return the column widths, which add up to {@code available}
+     */
+    static float[] fitColumnWidths(float[] naturalWidths, float available) {
+        int columns = naturalWidths.length;
+        float[] widths = new float[columns];
+        boolean[] settled = new boolean[columns];
+        int open = columns;
+        float remaining = available;
+
+        boolean changed = true;
+        while (changed && open > 0) {
+            changed = false;
+            float share = remaining / open;
+            for (int col = 0; col < columns; col++) {
+                if (!settled[col] && naturalWidths[col] <= share) {
+                    widths[col] = naturalWidths[col];
+                    settled[col] = true;
+                    remaining -= naturalWidths[col];
+                    open--;
+                    changed = true;
+                }
+            }
+        }
+
+        if (open > 0) {
+            float share = remaining / open;
+            for (int col = 0; col < columns; col++) {
+                if (!settled[col]) {
+                    widths[col] = share;
+                }
+            }
+        } else if (columns > 0) {
+            float extra = remaining / columns;
+            for (int col = 0; col < columns; col++) {
+                widths[col] += extra;
+            }
+        }
+        return widths;
+    }
+}
@@ -0,0 +1,340 @@
+package com.xtopdf.xtopdf.services;
+
+import com.xtopdf.xtopdf.config.MetricsConfiguration.ConversionMetrics;
+import com.xtopdf.xtopdf.dto.ConversionJob;
+import com.xtopdf.xtopdf.dto.ConversionJob.JobStatus;
+import com.xtopdf.xtopdf.dto.ConversionParameters;
+import com.xtopdf.xtopdf.exceptions.ConversionRejectedException;
+import com.xtopdf.xtopdf.services.jobs.JobQueue;
+import com.xtopdf.xtopdf.services.scheduling.ConversionScheduler;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs async conversion jobs.
+ *
+ * <p>Uploads are spooled to the job store and converted from disk at async priority on the
+ * {@link ConversionScheduler}; the resulting PDF is moved into the job store. Webhook
+ * notifications are sent from a separate virtual thread so retries never hold CPU permits.</p>
+ *
+ * <p>Every job goes through the {@link JobQueue}: it is published once its upload is spooled
+ * and converted by whichever node claims it. With the local queue that is always this node,
+ * straight away. With a shared queue, a replica claims a new job itself only while it has idle
+ * capacity; otherwise the job waits in the queue, and every replica polls the queue
+ * ({@code xtopdf.jobs.poll-interval-ms}) and steals waiting jobs whenever it is idle. Claims
+ * are leases renewed by the same poll, so jobs held by a replica that dies are picked up by
+ * another one once the lease expires.</p>
+ *
+ * <p>With the local queue, jobs interrupted by the previous shutdown are resumed from their
+ * spooled upload when the application starts, or marked failed when
+ * {@code xtopdf.jobs.resume-on-startup} is false. A shared queue needs no startup recovery:
+ * other replicas may still be running those jobs, and expired leases cover the rest.</p>
+ */
+@Service
+@Slf4j
+public class AsyncConversionService {
+
+    private final FileConversionService fileConversionService;
+    private final JobTrackingService jobTrackingService;
+    private final WebhookService webhookService;
+    private final ConversionScheduler conversionScheduler;
+    private final JobQueue jobQueue;
+    private final ConversionMetrics conversionMetrics;
+    private final String baseOutputDirectory;
+    private final boolean resumeOnStartup;
+    private final ExecutorService webhookExecutor;
+
+    public AsyncConversionService(
+            FileConversionService fileConversionService,
+            JobTrackingService jobTrackingService,
+            WebhookService webhookService,
+            ConversionScheduler conversionScheduler,
+            JobQueue jobQueue,
+            ConversionMetrics conversionMetrics,
+            @Value("${xtopdf.output.directory:/safe/output/directory}") String baseOutputDirectory,
+            @Value("${xtopdf.jobs.resume-on-startup:true}") boolean resumeOnStartup) {
+        this.fileConversionService = fileConversionService;
+        this.jobTrackingService = jobTrackingService;
+        this.webhookService = webhookService;
+        this.conversionScheduler = conversionScheduler;
+        this.jobQueue = jobQueue;
+        this.conversionMetrics = conversionMetrics;
+        this.baseOutputDirectory = baseOutputDirectory;
+        this.resumeOnStartup = resumeOnStartup;
+        this.webhookExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @PreDestroy
+    void shutdownExecutor() {
+        webhookExecutor.shutdown();
+        try {
+            if (!webhookExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+                webhookExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            webhookExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Creates a job for the upload, spools the upload to disk and queues the conversion.
+     *
+     * @param inputFile the uploaded file
+     * @param outputFileName the output file name for the job
+     * @param webhookUrl optional webhook URL to notify on completion
+     * @return the created job in PENDING status
+     * @throws IllegalArgumentException if the upload cannot be stored
+     * @throws ConversionRejectedException if the conversion queue is full and no other replica
+     *         can take the job; the job is marked failed
+     */
+    public ConversionJob submit(MultipartFile inputFile, String outputFileName, String webhookUrl) {
+        var job = jobTrackingService.submit(inputFile.getOriginalFilename(), outputFileName, webhookUrl);
+        long inputBytes = inputFile.getSize();
+        try {
+            jobTrackingService.spoolInput(job.id(), inputFile);
+        } catch (IOException e) {
+            log.error("Failed to spool input of job {}: {}", job.id(), e.getMessage());
+            jobTrackingService.markFailed(job.id(), "Failed to read input file");
+            throw new IllegalArgumentException("Failed to read input file");
+        }
+        jobQueue.publish(job.id());
+        // With a shared queue, a busy replica leaves new jobs for idle ones to steal
+        if ((!jobQueue.isShared() || hasIdleCapacity()) && claimAndEnqueue(job, inputBytes)) {
+            conversionMetrics.incrementJobClaims("local");
+        }
+        return job;
+    }
+
+    /**
+     * Resumes jobs interrupted by the previous shutdown.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedJobs() {
+        if (jobQueue.isShared()) {
+            return;
+        }
+        List<ConversionJob> interrupted = jobTrackingService.recoverInterruptedJobs(resumeOnStartup);
+        int resumed = 0;
+        for (ConversionJob job : interrupted) {
+            long inputBytes = jobTrackingService.getInput(job.id()).map(AsyncConversionService::sizeOf).orElse(0L);
+            jobQueue.publish(job.id());
+            try {
+                if (claimAndEnqueue(job, inputBytes)) {
+                    resumed++;
+                }
+            } catch (ConversionRejectedException e) {
+                log.warn("Could not resume job {}: conversion queue is full", job.id());
+            }
+        }
+        if (!interrupted.isEmpty()) {
+            log.info("Resumed {} of {} interrupted async jobs", resumed, interrupted.size());
+        }
+    }
+
+    /**
+     * Renews this replica's leases and steals waiting jobs from a shared queue while this
+     * replica has idle capacity.
+     */
+    @Scheduled(fixedDelayString = "${xtopdf.jobs.poll-interval-ms:2000}")
+    public void pollSharedQueue() {
+        if (!jobQueue.isShared()) {
+            return;
+        }
+        jobQueue.renewLeases();
+        for (JobQueue.QueuedJob queued : jobQueue.claimable()) {
+            if (!hasIdleCapacity()) {
+                break;
+            }
+            Optional<ConversionJob> job = jobTrackingService.getStatus(queued.jobId());
+            if (job.isEmpty() || job.get().completedAt() != null) {
+                // Purged, or finished by a replica that lost its lease before completing the queue entry
+                jobQueue.complete(queued.jobId());
+                continue;
+            }
+            long inputBytes = jobTrackingService.getInput(queued.jobId()).map(AsyncConversionService::sizeOf).orElse(0L);
+            if (claimAndEnqueue(job.get(), inputBytes)) {
+                boolean stolen = !queued.publishedBy().equals(jobQueue.nodeId());
+                conversionMetrics.incrementJobClaims(stolen ? "stolen" : "local");
+                log.info("Claimed job {} submitted to {}", queued.jobId(), queued.publishedBy());
+            }
+        }
+    }
+
+    private boolean hasIdleCapacity() {
+        return conversionScheduler.queuedCount() == 0
+                && conversionScheduler.permitsInUse() < conversionScheduler.getCpuPermits();
+    }
+
+    /**
+     * Claims the job and queues its conversion.
+     *
+     * @return false if another node holds the job, or the conversion queue is full and the job
+     *         was left in a shared queue for another replica
+     * @throws ConversionRejectedException if the conversion queue is full and the job queue is
+     *         local; the job is marked failed. A job displaced later by a synchronous request is
+     *         handled the same way, without the exception
+     */
+    private boolean claimAndEnqueue(ConversionJob job, long inputBytes) {
+        if (!jobQueue.tryClaim(job.id())) {
+            return false;
+        }
+        try {
+            conversionScheduler.submit(ConversionScheduler.formatOf(job.inputFileName()), inputBytes,
+                    ConversionScheduler.Priority.ASYNC, () -> {
+                        try {
+                            processJob(job);
+                        } finally {
+                            jobQueue.complete(job.id());
+                        }
+                        return null;
+                    }, displaced -> {
+                        log.warn("Async job {} gave up its place in the conversion queue to a synchronous request",
+                                job.id());
+                        if (!abandon(job)) {
+                            notifyWebhook(job.id(), job.webhookUrl());
+                        }
+                    });
+            return true;
+        } catch (ConversionRejectedException e) {
+            if (abandon(job)) {
+                return false;
+            }
+            // A full queue fails the job and, for new submissions, the request with 503
+            throw e;
+        }
+    }
+
+    /**
+     * Gives up a claimed job the scheduler will not run: a shared queue keeps it for another
+     * replica, a local one fails it.
+     *
+     * @return true if the job was left in the shared queue
+     */
+    private boolean abandon(ConversionJob job) {
+        if (jobQueue.isShared()) {
+            jobQueue.release(job.id());
+            return true;
+        }
+        jobQueue.complete(job.id());
+        jobTrackingService.markFailed(job.id(), "Server busy, try again later");
+        return false;
+    }
+
+    private void processJob(ConversionJob job) {
+        String jobId = job.id();
+        try {
+            jobTrackingService.markProcessing(jobId);
+
+            var baseDirectory = Paths.get(baseOutputDirectory).normalize().toAbsolutePath();
+            var outputPath = baseDirectory.resolve(job.outputFileName()).normalize().toAbsolutePath();
+
+            if (!outputPath.startsWith(baseDirectory) || !outputPath.toString().endsWith(".pdf")) {
+                jobTrackingService.markFailed(jobId, "Invalid output file path");
+                notifyWebhook(jobId, job.webhookUrl());
+                return;
+            }
+
+            Path input = jobTrackingService.getInput(jobId)
+                    .orElseThrow(() -> new IOException("Spooled input is missing"));
+            var inputFile = new SpooledMultipartFile(job.inputFileName(), input);
+
+            ConversionParameters params = ConversionParameters.of(inputFile, outputPath.toString());
+            fileConversionService.convertFile(params);
+
+            // Hand the PDF over to the job store; /result streams it from there
+            jobTrackingService.markCompleted(jobId, outputPath);
+        } catch (Exception e) {
+            log.error("Async conversion failed for job {}: {}", jobId, e.getMessage(), e);
+            // A replica that took the job over after our lease expired may have finished it already
+            boolean completedElsewhere = jobTrackingService.getStatus(jobId)
+                    .map(ConversionJob::status)
+                    .filter(status -> status == JobStatus.COMPLETED)
+                    .isPresent();
+            if (!completedElsewhere) {
+                jobTrackingService.markFailed(jobId, "Conversion failed");
+            }
+        }
+
+        notifyWebhook(jobId, job.webhookUrl());
+    }
+
+    private void notifyWebhook(String jobId, String webhookUrl) {
+        if (webhookUrl != null && !webhookUrl.isBlank()) {
+            jobTrackingService.getStatus(jobId).ifPresent(job ->
+                    webhookExecutor.execute(() -> webhookService.notifyCompletion(job, webhookUrl)));
+        }
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * MultipartFile view of an upload spooled to disk. Content is read from the file on demand.
+     */
+    private record SpooledMultipartFile(String originalFilename, Path path) implements MultipartFile {
+        @Override
+        public String getName() {
+            return "inputFile";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return originalFilename;
+        }
+
+        @Override
+        public String getContentType() {
+            return "application/octet-stream";
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return getSize() == 0;
+        }
+
+        @Override
+        public long getSize() {
+            return sizeOf(path);
+        }
+
+        @Override
+        public byte[] getBytes() throws IOException {
+            return Files.readAllBytes(path);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return Files.newInputStream(path);
+        }
+
+        @Override
+        public void transferTo(File dest) throws IOException {
+            Files.copy(path, dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
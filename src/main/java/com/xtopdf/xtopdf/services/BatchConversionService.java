@@ -6,20 +6,29 @@ import com.xtopdf.xtopdf.dto.BatchConversionResult.FileResult;
 import com.xtopdf.xtopdf.dto.ConversionParameters;
 import com.xtopdf.xtopdf.config.PageNumberConfig;
 import com.xtopdf.xtopdf.config.WatermarkConfig;
+import com.xtopdf.xtopdf.exceptions.ConversionRejectedException;
+import com.xtopdf.xtopdf.services.scheduling.ConversionScheduler;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 /**
- * Service for processing batch file conversions in parallel using virtual threads.
+ * Service for processing batch file conversions in parallel.
+ *
+ * <p>Files run through the {@link ConversionScheduler} at batch priority, so they only use CPU
+ * permits left over by synchronous and async conversions. At most
+ * {@code xtopdf.batch.parallel-workers} files of one batch are scheduled at a time.</p>
  */
 @Service
 @Slf4j
@@ -27,19 +36,24 @@ public class BatchConversionService {
 
     private final FileConversionService fileConversionService;
     private final BatchConfig batchConfig;
+    private final ConversionScheduler conversionScheduler;
     private final String baseOutputDirectory;
 
     public BatchConversionService(
             FileConversionService fileConversionService,
             BatchConfig batchConfig,
+            ConversionScheduler conversionScheduler,
             @Value("${xtopdf.output.directory:/safe/output/directory}") String baseOutputDirectory) {
         this.fileConversionService = fileConversionService;
         this.batchConfig = batchConfig;
+        this.conversionScheduler = conversionScheduler;
         this.baseOutputDirectory = baseOutputDirectory;
     }
 
     /**
-     * Processes a batch of files in parallel using virtual threads.
+     * Processes a batch of files in parallel, with at most {@code parallelWorkers} files in flight.
+     * Files rejected because the scheduler queue is full, or later displaced from it by
+     * higher-priority conversions, are reported as failures.
      *
      * @param files the list of files to convert
      * @return a BatchConversionResult with per-file results
@@ -54,20 +68,60 @@ public class BatchConversionService {
                     "Batch size exceeds maximum allowed: " + batchConfig.getMaxBatchSize());
         }
 
-        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
-
+        Semaphore workers = new Semaphore(Math.max(1, batchConfig.getParallelWorkers()));
+        List<Future<FileResult>> futures = new ArrayList<>(files.size());
         try {
-            List<CompletableFuture<FileResult>> futures = files.stream()
-                    .map(file -> CompletableFuture.supplyAsync(() -> convertSingleFile(file), executor))
-                    .toList();
-
-            List<FileResult> results = futures.stream()
-                    .map(CompletableFuture::join)
-                    .toList();
+            for (MultipartFile file : files) {
+                workers.acquire();
+                futures.add(schedule(file, workers));
+            }
 
+            List<FileResult> results = new ArrayList<>(files.size());
+            for (int i = 0; i < futures.size(); i++) {
+                results.add(awaitResult(futures.get(i), files.get(i)));
+            }
             return BatchConversionResult.of(results);
-        } finally {
-            executor.shutdown();
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch conversion was interrupted", e);
+        }
+    }
+
+    private Future<FileResult> schedule(MultipartFile file, Semaphore workers) {
+        String fileName = file.getOriginalFilename();
+        try {
+            return conversionScheduler.submit(ConversionScheduler.formatOf(fileName), file.getSize(),
+                    ConversionScheduler.Priority.BATCH, () -> {
+                        try {
+                            return convertSingleFile(file);
+                        } finally {
+                            workers.release();
+                        }
+                    }, displaced -> workers.release());
+        } catch (ConversionRejectedException e) {
+            workers.release();
+            log.warn("Batch conversion rejected for file {}: {}", fileName, e.getMessage());
+            return CompletableFuture.completedFuture(
+                    FileResult.failure(fileName != null ? fileName : "unknown", "Server busy, try again later"));
+        }
+    }
+
+    private FileResult awaitResult(Future<FileResult> future, MultipartFile file) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            String fileName = file.getOriginalFilename();
+            if (e.getCause() instanceof ConversionRejectedException rejected) {
+                // Gave up its place in the queue to a higher-priority conversion
+                log.warn("Batch conversion rejected for file {}: {}", fileName, rejected.getMessage());
+                return FileResult.failure(fileName != null ? fileName : "unknown", "Server busy, try again later");
+            }
+            log.error("Batch conversion failed for file {}: {}", fileName, e.getCause().getMessage(), e.getCause());
+            return FileResult.failure(fileName != null ? fileName : "unknown", "Conversion failed");
+        } catch (CancellationException e) {
+            String fileName = file.getOriginalFilename();
+            return FileResult.failure(fileName != null ? fileName : "unknown", "Conversion cancelled");
         }
     }
 
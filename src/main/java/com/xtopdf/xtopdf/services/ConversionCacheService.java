@@ -2,47 +2,137 @@ package com.xtopdf.xtopdf.services;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.xtopdf.xtopdf.config.PageNumberConfig;
+import com.xtopdf.xtopdf.config.WatermarkConfig;
+import com.xtopdf.xtopdf.dto.ConversionParameters;
+import com.xtopdf.xtopdf.services.cache.SegmentedDiskCache;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
 import java.util.HexFormat;
 import java.util.concurrent.TimeUnit;
 
-// TODO: Integrate into FileConversionService once file-based conversion is refactored to return bytes
-
 /**
  * Caching service for file conversion results.
- * Uses Caffeine in-memory cache with configurable TTL and max size.
  * Cache key is SHA-256 hash of file content + output extension.
+ *
+ * <p>Results are kept in two tiers:
+ * <ul>
+ *   <li>Memory: a Caffeine cache weighted by PDF byte length, so the budget is expressed
+ *       in megabytes rather than entry count. Results larger than the per-entry limit
+ *       skip this tier entirely.</li>
+ *   <li>Disk (optional): a {@link SegmentedDiskCache} of append-only, memory-mapped segment
+ *       files. Entries evicted from memory for size spill over to disk, large results are
+ *       written there directly, and the tier survives restarts.</li>
+ * </ul>
+ * {@link #transferTo(String, WritableByteChannel)} serves disk hits with
+ * {@code FileChannel.transferTo}, so large cached PDFs are never copied onto the heap.</p>
+ *
+ * <p>{@link FileConversionService} consults this cache before running a converter.
+ * Keys built by {@link #computeCacheKey(ConversionParameters, String)} cover the
+ * input bytes and every option that changes the produced PDF, so a hit can skip
+ * conversion, page numbering, watermarking and merging entirely.</p>
  */
 @Service
 @Slf4j
 public class ConversionCacheService {
 
     private Cache<String, byte[]> cache;
+    private SegmentedDiskCache diskCache;
 
     @Value("${xtopdf.cache.enabled:true}")
     private boolean cacheEnabled;
 
-    @Value("${xtopdf.cache.max-size:100}")
-    private int maxSize;
+    @Value("${xtopdf.cache.memory.max-mb:64}")
+    private int maxMemoryMb;
+
+    @Value("${xtopdf.cache.memory.max-entry-mb:8}")
+    private int maxMemoryEntryMb = 8;
 
     @Value("${xtopdf.cache.ttl-minutes:60}")
     private int ttlMinutes;
 
+    @Value("${xtopdf.cache.disk.enabled:false}")
+    private boolean diskEnabled;
+
+    @Value("${xtopdf.cache.disk.directory:${java.io.tmpdir}/xtopdf-cache}")
+    private String diskDirectory;
+
+    @Value("${xtopdf.cache.disk.max-mb:1024}")
+    private int diskMaxMb;
+
+    @Value("${xtopdf.cache.disk.segment-mb:64}")
+    private int diskSegmentMb;
+
+    @Value("${xtopdf.cache.disk.ttl-minutes:1440}")
+    private int diskTtlMinutes;
+
     @PostConstruct
     void initCache() {
         cache = Caffeine.newBuilder()
-                .maximumSize(maxSize)
+                .maximumWeight(maxMemoryMb * 1024L * 1024L)
+                .weigher((String key, byte[] value) -> value.length)
                 .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+                .evictionListener((String key, byte[] value, RemovalCause cause) -> {
+                    if (cause == RemovalCause.SIZE && key != null && value != null) {
+                        spillToDisk(key, value);
+                    }
+                })
                 .recordStats()
                 .build();
-        log.info("Conversion cache initialized: enabled={}, maxSize={}, ttlMinutes={}",
-                cacheEnabled, maxSize, ttlMinutes);
+
+        if (cacheEnabled && diskEnabled) {
+            try {
+                diskCache = new SegmentedDiskCache(Path.of(diskDirectory),
+                        diskMaxMb * 1024L * 1024L, diskSegmentMb * 1024L * 1024L,
+                        Duration.ofMinutes(diskTtlMinutes), Clock.systemUTC());
+            } catch (IOException e) {
+                log.warn("Disk cache tier unavailable at {}, continuing with memory only: {}",
+                        diskDirectory, e.getMessage());
+                diskCache = null;
+            }
+        }
+        log.info("Conversion cache initialized: enabled={}, memoryMaxMb={}, ttlMinutes={}, disk={}",
+                cacheEnabled, maxMemoryMb, ttlMinutes, diskCache != null ? diskDirectory : "disabled");
+    }
+
+    @PreDestroy
+    void closeCache() throws IOException {
+        if (diskCache != null) {
+            diskCache.close();
+        }
+    }
+
+    /**
+     * Periodically drops expired disk entries and compacts mostly-dead segments.
+     */
+    @Scheduled(fixedRateString = "${xtopdf.cache.disk.compaction-interval-minutes:15}", timeUnit = TimeUnit.MINUTES)
+    public void compactDiskTier() {
+        if (diskCache == null) {
+            return;
+        }
+        try {
+            diskCache.evictIfNeeded();
+        } catch (IOException e) {
+            log.warn("Disk cache compaction failed: {}", e.getMessage());
+        }
     }
 
     /**
@@ -80,8 +170,101 @@ public class ConversionCacheService {
         }
     }
 
+    /**
+     * Computes the cache key for a full conversion request.
+     * The uploaded file is hashed as a stream, so large inputs are not copied onto the heap.
+     * The options string covers the input extension, {@code executeMacros}, the page number
+     * and watermark settings, and the merge position plus the SHA-256 of the existing PDF.
+     *
+     * @param params the conversion parameters
+     * @param inputExtension the lowercased input extension (e.g., ".docx")
+     * @return SHA-256 hash as hex string
+     * @throws IOException if the input or existing PDF cannot be read
+     */
+    public String computeCacheKey(ConversionParameters params, String inputExtension) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            updateDigest(digest, params.inputFile());
+            digest.update(".pdf".getBytes(StandardCharsets.UTF_8));
+            digest.update(describeOptions(params, inputExtension).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
+    }
+
+    /**
+     * Builds a deterministic description of every option that affects the converted output.
+     * Disabled features collapse to a fixed marker so unused settings never split the cache.
+     */
+    String describeOptions(ConversionParameters params, String inputExtension) throws IOException {
+        StringBuilder options = new StringBuilder();
+        options.append("input=").append(inputExtension);
+        options.append(";macros=").append(params.executeMacros());
+
+        PageNumberConfig pageNumbers = params.pageNumberConfig();
+        options.append(";pageNumbers=");
+        if (pageNumbers.isEnabled()) {
+            options.append(pageNumbers.getPosition()).append(',')
+                    .append(pageNumbers.getAlignment()).append(',')
+                    .append(pageNumbers.getStyle());
+        } else {
+            options.append("off");
+        }
+
+        WatermarkConfig watermark = params.watermarkConfig();
+        options.append(";watermark=");
+        if (watermark.isEnabled()) {
+            options.append(watermark.getFontSize()).append(',')
+                    .append(watermark.getLayer()).append(',')
+                    .append(watermark.getOrientation()).append(',')
+                    .append(watermark.getText() != null ? watermark.getText().length() : -1).append(':')
+                    .append(watermark.getText());
+        } else {
+            options.append("off");
+        }
+
+        MultipartFile existingPdf = params.existingPdf();
+        options.append(";merge=");
+        if (existingPdf != null && !existingPdf.isEmpty()) {
+            options.append("front".equalsIgnoreCase(params.position()) ? "front" : "back")
+                    .append(',').append(hashContent(existingPdf));
+        } else {
+            options.append("off");
+        }
+        return options.toString();
+    }
+
+    /**
+     * Computes the SHA-256 of an uploaded file by streaming its content.
+     *
+     * @param file the uploaded file
+     * @return SHA-256 hash as hex string
+     * @throws IOException if the file cannot be read
+     */
+    public String hashContent(MultipartFile file) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            updateDigest(digest, file);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
+    }
+
+    private void updateDigest(MessageDigest digest, MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            byte[] buffer = new byte[8192];
+            int bytesRead;
+            while ((bytesRead = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, bytesRead);
+            }
+        }
+    }
+
     /**
      * Gets a cached conversion result by key.
+     * Checks the memory tier first, then the disk tier; small disk hits are promoted to memory.
      *
      * @param cacheKey the cache key
      * @return cached PDF bytes, or null if not cached
@@ -91,12 +274,54 @@ public class ConversionCacheService {
             return null;
         }
         byte[] result = cache.getIfPresent(cacheKey);
+        if (result == null && diskCache != null) {
+            result = diskCache.get(cacheKey);
+            if (result != null && fitsInMemory(result.length)) {
+                cache.put(cacheKey, result);
+            }
+        }
         if (result != null) {
             log.debug("Cache hit for key: {}", cacheKey.substring(0, 8));
         }
         return result;
     }
 
+    /**
+     * Writes a cached conversion result to a channel without materializing disk hits on the heap.
+     *
+     * @param cacheKey the cache key
+     * @param target the channel to write the PDF bytes to
+     * @return number of bytes written, or -1 if not cached
+     * @throws IOException if writing to the target fails
+     */
+    public long transferTo(String cacheKey, WritableByteChannel target) throws IOException {
+        if (!cacheEnabled) {
+            return -1;
+        }
+        byte[] inMemory = cache.getIfPresent(cacheKey);
+        if (inMemory != null) {
+            ByteBuffer buffer = ByteBuffer.wrap(inMemory);
+            while (buffer.hasRemaining()) {
+                target.write(buffer);
+            }
+            return inMemory.length;
+        }
+        return diskCache != null ? diskCache.transferTo(cacheKey, target) : -1;
+    }
+
+    /**
+     * Checks whether a result is cached in either tier.
+     *
+     * @param cacheKey the cache key
+     * @return true if a live entry exists
+     */
+    public boolean contains(String cacheKey) {
+        if (!cacheEnabled) {
+            return false;
+        }
+        return cache.getIfPresent(cacheKey) != null || (diskCache != null && diskCache.contains(cacheKey));
+    }
+
     /**
      * Stores a conversion result in the cache.
      *
@@ -107,10 +332,41 @@ public class ConversionCacheService {
         if (!cacheEnabled) {
             return;
         }
-        cache.put(cacheKey, pdfBytes);
+        if (fitsInMemory(pdfBytes.length)) {
+            cache.put(cacheKey, pdfBytes);
+        } else {
+            spillToDisk(cacheKey, pdfBytes);
+        }
         log.debug("Cached result for key: {}", cacheKey.substring(0, 8));
     }
 
+    /**
+     * Stores a conversion result that is already on disk.
+     * Results too large for the memory tier are copied file-to-file into the disk tier
+     * without being read onto the heap.
+     *
+     * @param cacheKey the cache key
+     * @param pdfFile the converted PDF file
+     */
+    public void put(String cacheKey, Path pdfFile) {
+        if (!cacheEnabled) {
+            return;
+        }
+        try {
+            long length = Files.size(pdfFile);
+            if (fitsInMemory(length)) {
+                cache.put(cacheKey, Files.readAllBytes(pdfFile));
+            } else if (diskCache != null) {
+                diskCache.put(cacheKey, pdfFile);
+            } else {
+                return;
+            }
+            log.debug("Cached result for key: {}", cacheKey.substring(0, 8));
+        } catch (IOException e) {
+            log.warn("Failed to cache result for key {}: {}", cacheKey.substring(0, 8), e.getMessage());
+        }
+    }
+
     /**
      * Checks if caching is enabled.
      */
@@ -119,10 +375,10 @@ public class ConversionCacheService {
     }
 
     /**
-     * Returns the current cache size.
+     * Returns the current cache size (entries across both tiers).
      */
     public long size() {
-        return cache.estimatedSize();
+        return cache.estimatedSize() + (diskCache != null ? diskCache.size() : 0);
     }
 
     /**
@@ -130,5 +386,28 @@ public class ConversionCacheService {
      */
     public void invalidateAll() {
         cache.invalidateAll();
+        if (diskCache != null) {
+            try {
+                diskCache.clear();
+            } catch (IOException e) {
+                log.warn("Failed to clear disk cache: {}", e.getMessage());
+            }
+        }
+    }
+
+    private boolean fitsInMemory(long length) {
+        return length <= maxMemoryEntryMb * 1024L * 1024L;
+    }
+
+    private void spillToDisk(String cacheKey, byte[] pdfBytes) {
+        // Entries promoted from disk are still there; appending them again only adds dead records
+        if (diskCache == null || diskCache.contains(cacheKey)) {
+            return;
+        }
+        try {
+            diskCache.put(cacheKey, pdfBytes);
+        } catch (IOException e) {
+            log.warn("Failed to spill cache entry {} to disk: {}", cacheKey.substring(0, 8), e.getMessage());
+        }
     }
 }
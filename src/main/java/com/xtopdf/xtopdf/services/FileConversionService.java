@@ -1,5 +1,14 @@
 package com.xtopdf.xtopdf.services;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.*;
 
@@ -11,14 +20,15 @@ import com.xtopdf.xtopdf.exceptions.ConversionTimeoutException;
 import com.xtopdf.xtopdf.exceptions.FileConversionException;
 import com.xtopdf.xtopdf.services.VirusScanService;
 import com.xtopdf.xtopdf.services.model.ConversionRuntimeException;
-import com.xtopdf.xtopdf.services.operations.PageNumberService;
-import com.xtopdf.xtopdf.services.operations.PdfMergeService;
-import com.xtopdf.xtopdf.services.operations.WatermarkService;
+import com.xtopdf.xtopdf.services.model.StreamedPdf;
+import com.xtopdf.xtopdf.services.operations.PdfPostProcessingPipeline;
 import com.xtopdf.xtopdf.services.orchestration.ContainerOrchestrationService;
+import com.xtopdf.xtopdf.services.scheduling.ConversionScheduler;
 import com.xtopdf.xtopdf.validation.FileContentValidator;
 import io.micrometer.core.instrument.Timer;
 import io.micrometer.observation.annotation.Observed;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.pdmodel.PDDocument;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
@@ -29,37 +39,41 @@ public class FileConversionService {
     private final ConverterRegistry converterRegistry;
     private final FileContentValidator contentValidator;
     private final VirusScanService virusScanService;
-    private final PdfMergeService pdfMergeService;
-    private final PageNumberService pageNumberService;
-    private final WatermarkService watermarkService;
+    private final PdfPostProcessingPipeline postProcessingPipeline;
     private final ContainerOrchestrationService containerOrchestrationService;
+    private final ConversionCacheService conversionCacheService;
     private final ConversionMetrics conversionMetrics;
+    private final ConversionScheduler conversionScheduler;
     private final int timeoutSeconds;
 
     public FileConversionService(
             ConverterRegistry converterRegistry,
             FileContentValidator contentValidator,
             VirusScanService virusScanService,
-            PdfMergeService pdfMergeService,
-            PageNumberService pageNumberService,
-            WatermarkService watermarkService,
+            PdfPostProcessingPipeline postProcessingPipeline,
             ContainerOrchestrationService containerOrchestrationService,
+            ConversionCacheService conversionCacheService,
             ConversionMetrics conversionMetrics,
+            ConversionScheduler conversionScheduler,
             @Value("${xtopdf.conversion.timeout-seconds:300}") int timeoutSeconds) {
         this.converterRegistry = converterRegistry;
         this.contentValidator = contentValidator;
         this.virusScanService = virusScanService;
-        this.pdfMergeService = pdfMergeService;
-        this.pageNumberService = pageNumberService;
-        this.watermarkService = watermarkService;
+        this.postProcessingPipeline = postProcessingPipeline;
         this.containerOrchestrationService = containerOrchestrationService;
+        this.conversionCacheService = conversionCacheService;
         this.conversionMetrics = conversionMetrics;
+        this.conversionScheduler = conversionScheduler;
         this.timeoutSeconds = timeoutSeconds;
     }
 
     /**
      * Converts a file to PDF using the parameters specified in the ConversionParameters object.
      *
+     * <p>When the result cache is enabled, identical requests (same input bytes and options)
+     * are served from {@link ConversionCacheService} without running the converter or any
+     * post-processing step. Validation and virus scanning still run on every request.</p>
+     *
      * @param params the conversion parameters
      * @throws FileConversionException if the conversion fails
      */
@@ -82,6 +96,111 @@ public class FileConversionService {
         conversionMetrics.recordFileSize(params.inputFile().getSize());
         Timer.Sample timerSample = conversionMetrics.startTimer();
 
+        validateAndScan(params, extension);
+
+        FileConverter converter = converterRegistry.getConverter(extension);
+
+        String cacheKey = lookupCacheKey(params, extension, fileName);
+        if (cacheKey != null) {
+            long served = writeCachedResult(cacheKey, params.outputFile(), fileName);
+            if (served >= 0) {
+                conversionMetrics.recordCacheHit(format, served);
+                conversionMetrics.stopTimer(timerSample, format);
+                log.debug("Served {} from conversion cache ({} bytes)", fileName, served);
+                return;
+            }
+            conversionMetrics.recordCacheMiss(format);
+        }
+
+        runConversion(params, converter, fileName, format);
+        conversionMetrics.stopTimer(timerSample, format);
+        if (cacheKey != null) {
+            storeCachedResult(cacheKey, params.outputFile());
+        }
+    }
+
+    /**
+     * Converts a file to PDF for streaming straight into a response, without writing
+     * the result to the output directory. {@code params.outputFile()} is ignored.
+     *
+     * <p>Converters that support {@link FileConverter#convertToDocument} produce the document in
+     * memory; post-processing runs on it and nothing touches the disk. Other converters, and
+     * conversions that run in a container, write to a temporary file that is deleted once the
+     * result has been streamed. Cache hits are transferred from the cache without copying
+     * through the heap. Results produced in memory are not added to the cache.</p>
+     *
+     * <p>Validation, virus scanning, conversion and post-processing all complete (within the
+     * conversion timeout) before this method returns, so errors surface before the response
+     * is committed. The caller must write or close the returned result.</p>
+     *
+     * @param params the conversion parameters
+     * @return the converted PDF, ready to be written once
+     * @throws FileConversionException if the conversion fails
+     */
+    @Observed(name = "file.conversion", contextualName = "convert-file-streaming",
+            lowCardinalityKeyValues = {"operation", "convertForStreaming"})
+    public StreamedPdf convertForStreaming(ConversionParameters params) throws FileConversionException {
+        if (params.inputFile() == null) {
+            throw new FileConversionException("Input file is required");
+        }
+
+        String fileName = Objects.requireNonNull(params.inputFile().getOriginalFilename());
+        String extension = extractExtension(fileName);
+        String format = extension.startsWith(".") ? extension.substring(1) : extension;
+
+        conversionMetrics.incrementRequestCount(format);
+        conversionMetrics.recordFileSize(params.inputFile().getSize());
+        Timer.Sample timerSample = conversionMetrics.startTimer();
+
+        validateAndScan(params, extension);
+
+        FileConverter converter = converterRegistry.getConverter(extension);
+
+        String cacheKey = lookupCacheKey(params, extension, fileName);
+        if (cacheKey != null) {
+            if (conversionCacheService.contains(cacheKey)) {
+                conversionMetrics.stopTimer(timerSample, format);
+                return out -> {
+                    long served = conversionCacheService.transferTo(cacheKey, Channels.newChannel(out));
+                    if (served < 0) {
+                        throw new IOException("Cached result for " + fileName + " was evicted before it could be streamed");
+                    }
+                    conversionMetrics.recordCacheHit(format, served);
+                };
+            }
+            conversionMetrics.recordCacheMiss(format);
+        }
+
+        if (!containerOrchestrationService.isEnabled() && converter.supportsDocumentOutput()) {
+            StreamedPdf result = runWithTimeout(() -> convertInMemory(params, converter, fileName),
+                    fileName, format, params.inputFile().getSize());
+            conversionMetrics.stopTimer(timerSample, format);
+            return result;
+        }
+
+        Path tempFile;
+        try {
+            tempFile = Files.createTempFile("xtopdf-stream-", ".pdf");
+        } catch (IOException e) {
+            throw new FileConversionException("Failed to create temporary file for " + fileName + ": " + e.getMessage(), e);
+        }
+        ConversionParameters fileParams = new ConversionParameters(
+                params.inputFile(), tempFile.toString(), params.existingPdf(), params.position(),
+                params.pageNumberConfig(), params.watermarkConfig(), params.executeMacros());
+        try {
+            runConversion(fileParams, converter, fileName, format);
+        } catch (FileConversionException | RuntimeException e) {
+            deleteQuietly(tempFile);
+            throw e;
+        }
+        conversionMetrics.stopTimer(timerSample, format);
+        if (cacheKey != null) {
+            storeCachedResult(cacheKey, tempFile.toString());
+        }
+        return StreamedPdf.ofTemporaryFile(tempFile);
+    }
+
+    private void validateAndScan(ConversionParameters params, String extension) throws FileConversionException {
         contentValidator.validate(params.inputFile(), extension);
 
         // Virus scan after content validation, before conversion
@@ -89,44 +208,39 @@ public class FileConversionService {
         if (!scanResult.isClean()) {
             throw new FileConversionException("File rejected: virus scan failed");
         }
+    }
 
-        FileConverter converter = converterRegistry.getConverter(extension);
-
+    /**
+     * Runs the converter and post-processing against {@code params.outputFile()},
+     * either in a container or locally, within the conversion timeout.
+     */
+    private void runConversion(ConversionParameters params, FileConverter converter,
+                               String fileName, String format) throws FileConversionException {
         // Define the conversion logic as a Runnable
         Runnable conversionLogic = () -> {
             try {
-                converter.convertToPDF(params.inputFile(), params.outputFile(), params.executeMacros());
-
-                // Add page numbers centrally if enabled
-                if (params.pageNumberConfig().isEnabled()) {
+                boolean postProcess = postProcessingPipeline.hasStages(params);
+                if (postProcess && converter.supportsDocumentOutput()) {
+                    // Hand the live document straight to post-processing and write the output once
+                    PDDocument document = converter.convertToDocument(params.inputFile(), params.executeMacros());
                     try {
-                        java.io.File outputPdfFile = new java.io.File(params.outputFile());
-                        pageNumberService.addPageNumbers(outputPdfFile, params.pageNumberConfig());
+                        postProcessingPipeline.processAndWrite(document, params, new java.io.File(params.outputFile()));
                     } catch (java.io.IOException e) {
                         throw new ConversionRuntimeException(
-                                new FileConversionException("Failed to add page numbers to " + fileName + ": " + e.getMessage(), e));
+                                new FileConversionException("Post-processing failed for " + fileName + ": " + e.getMessage(), e));
                     }
+                    return;
                 }
 
-                // Add watermark if enabled
-                if (params.watermarkConfig().isEnabled()) {
-                    try {
-                        java.io.File outputPdfFile = new java.io.File(params.outputFile());
-                        watermarkService.addWatermark(outputPdfFile, params.watermarkConfig());
-                    } catch (java.io.IOException e) {
-                        throw new ConversionRuntimeException(
-                                new FileConversionException("Failed to add watermark to " + fileName + ": " + e.getMessage(), e));
-                    }
-                }
+                converter.convertToPDF(params.inputFile(), params.outputFile(), params.executeMacros());
 
-                // If an existing PDF is provided, merge it with the converted PDF
-                if (params.existingPdf() != null && !params.existingPdf().isEmpty()) {
+                // Apply page numbers, watermark and merge in a single load/save pass
+                if (postProcess) {
                     try {
-                        java.io.File outputPdfFile = new java.io.File(params.outputFile());
-                        pdfMergeService.mergePdfs(outputPdfFile, params.existingPdf(), params.position());
+                        postProcessingPipeline.process(new java.io.File(params.outputFile()), params);
                     } catch (java.io.IOException e) {
                         throw new ConversionRuntimeException(
-                                new FileConversionException("Failed to merge PDF files for " + fileName + ": " + e.getMessage(), e));
+                                new FileConversionException("Post-processing failed for " + fileName + ": " + e.getMessage(), e));
                     }
                 }
             } catch (ConversionRuntimeException e) {
@@ -139,8 +253,7 @@ public class FileConversionService {
         };
 
         // Execute conversion either in container or locally, with timeout
-        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
-        Future<?> future = executor.submit(() -> {
+        runWithTimeout(() -> {
             try {
                 containerOrchestrationService.executeInContainer(params.inputFile(), params.outputFile(), conversionLogic);
             } catch (ConversionRuntimeException e) {
@@ -152,11 +265,54 @@ public class FileConversionService {
                 throw new ConversionRuntimeException(
                         new FileConversionException("Unexpected error converting " + fileName + ": " + e.getMessage(), e));
             }
-        });
+            return null;
+        }, fileName, format, params.inputFile().getSize());
+    }
 
+    /**
+     * Converts into an open document and applies post-processing, keeping everything in memory.
+     * Runs inside {@link #runWithTimeout}, so failures are wrapped in ConversionRuntimeException.
+     */
+    private StreamedPdf convertInMemory(ConversionParameters params, FileConverter converter, String fileName) {
+        PDDocument document;
         try {
-            future.get(timeoutSeconds, TimeUnit.SECONDS);
-            conversionMetrics.stopTimer(timerSample, format);
+            document = converter.convertToDocument(params.inputFile(), params.executeMacros());
+        } catch (FileConversionException e) {
+            throw new ConversionRuntimeException(e);
+        } catch (RuntimeException e) {
+            log.error("Unexpected error during conversion of {}: {}", fileName, e.getMessage(), e);
+            throw new ConversionRuntimeException(
+                    new FileConversionException("Unexpected error converting " + fileName + ": " + e.getMessage(), e));
+        }
+
+        List<Closeable> resources = new ArrayList<>();
+        StreamedPdf result = StreamedPdf.ofDocument(document, resources);
+        try {
+            postProcessingPipeline.apply(document, params, resources);
+        } catch (IOException e) {
+            closeQuietly(result);
+            throw new ConversionRuntimeException(
+                    new FileConversionException("Post-processing failed for " + fileName + ": " + e.getMessage(), e));
+        } catch (RuntimeException e) {
+            closeQuietly(result);
+            throw e;
+        }
+        return result;
+    }
+
+    /**
+     * Runs a task through the {@link ConversionScheduler} and waits at most {@code timeoutSeconds}
+     * for it, including time spent queued for CPU permits and heap budget. Conversions started from
+     * an async job or a batch file inherit that task's priority, permits and heap reservation.
+     * Tasks report conversion failures by throwing ConversionRuntimeException.
+     *
+     * @throws com.xtopdf.xtopdf.exceptions.ConversionRejectedException if the scheduler queue is full
+     */
+    private <T> T runWithTimeout(Callable<T> task, String fileName, String format, long inputBytes)
+            throws FileConversionException {
+        Future<T> future = conversionScheduler.submit(format, inputBytes, ConversionScheduler.Priority.SYNC, task);
+        try {
+            return future.get(timeoutSeconds, TimeUnit.SECONDS);
         } catch (TimeoutException e) {
             future.cancel(true);
             conversionMetrics.incrementErrorCount(format, "timeout");
@@ -172,15 +328,80 @@ public class FileConversionService {
                 throw new FileConversionException("Unexpected error converting " + fileName + ": " + re.getMessage(), re);
             }
             throw new FileConversionException("Unexpected error converting " + fileName + ": " + cause.getMessage(), cause);
+        } catch (CancellationException e) {
+            conversionMetrics.incrementErrorCount(format, "cancelled");
+            throw new FileConversionException("Conversion of " + fileName + " was cancelled", e);
         } catch (InterruptedException e) {
+            future.cancel(true);
             conversionMetrics.incrementErrorCount(format, "interrupted");
             Thread.currentThread().interrupt();
             throw new FileConversionException("Conversion of " + fileName + " was interrupted", e);
-        } finally {
-            executor.shutdownNow();
         }
     }
 
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            log.warn("Failed to release conversion result: {}", e.getMessage());
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete temporary file: {}", file);
+        }
+    }
+
+    /**
+     * Computes the result cache key for this request, or returns null when caching is disabled
+     * or the key cannot be computed (the conversion then simply runs uncached).
+     */
+    private String lookupCacheKey(ConversionParameters params, String extension, String fileName) {
+        if (!conversionCacheService.isEnabled()) {
+            return null;
+        }
+        try {
+            return conversionCacheService.computeCacheKey(params, extension);
+        } catch (IOException e) {
+            log.warn("Could not compute cache key for {}, converting without cache: {}", fileName, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Copies a cached result to the output path. Disk-tier hits are transferred
+     * file-to-file without passing through the heap.
+     *
+     * @return number of bytes written, or -1 on a cache miss
+     */
+    private long writeCachedResult(String cacheKey, String outputFile, String fileName) throws FileConversionException {
+        if (!conversionCacheService.contains(cacheKey)) {
+            return -1;
+        }
+        Path outputPath = Path.of(outputFile);
+        try {
+            long written;
+            try (FileChannel out = FileChannel.open(outputPath,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                written = conversionCacheService.transferTo(cacheKey, out);
+            }
+            if (written < 0) {
+                // Evicted between the lookup and the transfer
+                Files.deleteIfExists(outputPath);
+            }
+            return written;
+        } catch (IOException e) {
+            throw new FileConversionException("Failed to write cached result for " + fileName + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void storeCachedResult(String cacheKey, String outputFile) {
+        conversionCacheService.put(cacheKey, Path.of(outputFile));
+    }
+
     /**
      * Extracts the file extension from a filename, including the leading dot.
      * Returns the extension in lowercase.
@@ -1,33 +1,51 @@
 package com.xtopdf.xtopdf.services;
 
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
 import com.xtopdf.xtopdf.dto.ConversionJob;
 import com.xtopdf.xtopdf.dto.ConversionJob.JobStatus;
+import com.xtopdf.xtopdf.services.jobs.JobStore;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Service for tracking async conversion jobs in-memory.
- * Uses Caffeine caches with eviction to prevent memory leaks.
+ * Service for tracking async conversion jobs.
+ *
+ * <p>Job records, spooled uploads and results are kept by the configured {@link JobStore}.
+ * Uploads and results live on disk, so large files never sit in the heap, and results are
+ * served straight from their file. With the default file-based store, jobs survive a
+ * restart; {@link #recoverInterruptedJobs(boolean)} decides which of them can be resumed.</p>
+ *
+ * <p>Finished jobs and their files are removed after {@code xtopdf.jobs.retention-minutes}.</p>
  */
 @Service
 @Slf4j
 public class JobTrackingService {
 
-    private final Cache<String, ConversionJob> jobs = Caffeine.newBuilder()
-            .maximumSize(10_000)
-            .expireAfterWrite(Duration.ofHours(2))
-            .build();
+    private final JobStore jobStore;
+    private final Duration retention;
 
-    private final Cache<String, byte[]> results = Caffeine.newBuilder()
-            .maximumSize(1_000)
-            .expireAfterWrite(Duration.ofHours(2))
-            .build();
+    public JobTrackingService(
+            JobStore jobStore,
+            @Value("${xtopdf.jobs.retention-minutes:120}") long retentionMinutes) {
+        this.jobStore = jobStore;
+        this.retention = Duration.ofMinutes(retentionMinutes);
+    }
 
     /**
      * Submits a new conversion job and returns the job with a generated UUID.
@@ -40,7 +58,7 @@ public class JobTrackingService {
     public ConversionJob submit(String inputFileName, String outputFileName, String webhookUrl) {
         String jobId = UUID.randomUUID().toString();
         var job = ConversionJob.pending(jobId, inputFileName, outputFileName, webhookUrl);
-        jobs.put(jobId, job);
+        jobStore.save(job);
         log.info("Job submitted: id={}, inputFile={}", jobId, inputFileName);
         return job;
     }
@@ -52,17 +70,45 @@ public class JobTrackingService {
      * @return the job if found, empty otherwise
      */
     public Optional<ConversionJob> getStatus(String jobId) {
-        return Optional.ofNullable(jobs.getIfPresent(jobId));
+        return jobStore.find(jobId);
+    }
+
+    /**
+     * Gets the result of a completed job as a file resource, so it can be streamed from disk.
+     *
+     * @param jobId the job ID
+     * @return the PDF if the job is completed and its result is still present, empty otherwise
+     */
+    public Optional<Resource> getResult(String jobId) {
+        return jobStore.find(jobId)
+                .filter(job -> job.status() == JobStatus.COMPLETED)
+                .map(job -> jobStore.resultPath(job.id()))
+                .filter(Files::isRegularFile)
+                .map(FileSystemResource::new);
+    }
+
+    /**
+     * Writes the job's upload to the job store, so it is processed from disk rather than the heap.
+     *
+     * @param jobId the job ID
+     * @param inputFile the uploaded file
+     * @return the spooled file
+     * @throws IOException if the upload cannot be written
+     */
+    public Path spoolInput(String jobId, MultipartFile inputFile) throws IOException {
+        Path target = jobStore.inputPath(jobId);
+        // For uploads the container already wrote to disk, this is a move rather than a copy
+        inputFile.transferTo(target);
+        return target;
     }
 
     /**
-     * Gets the result bytes of a completed job.
+     * Returns the job's spooled upload, if present.
      *
      * @param jobId the job ID
-     * @return the PDF bytes if the job is completed, empty otherwise
      */
-    public Optional<byte[]> getResult(String jobId) {
-        return Optional.ofNullable(results.getIfPresent(jobId));
+    public Optional<Path> getInput(String jobId) {
+        return Optional.of(jobStore.inputPath(jobId)).filter(Files::isRegularFile);
     }
 
     /**
@@ -71,39 +117,97 @@ public class JobTrackingService {
      * @param jobId the job ID
      */
     public void markProcessing(String jobId) {
-        var existing = jobs.getIfPresent(jobId);
-        if (existing != null) {
-            jobs.put(jobId, existing.withProcessing());
-        }
+        jobStore.find(jobId).ifPresent(existing -> jobStore.save(existing.withProcessing()));
         log.debug("Job processing: id={}", jobId);
     }
 
     /**
-     * Updates the job status to COMPLETED and stores the result.
+     * Updates the job status to COMPLETED, moving the converted PDF into the job store and
+     * discarding the spooled upload.
      *
-     * @param jobId    the job ID
-     * @param pdfBytes the converted PDF bytes
+     * @param jobId   the job ID
+     * @param pdfFile the converted PDF; it is moved, not copied
+     * @throws IOException if the PDF cannot be moved into the job store
      */
-    public void markCompleted(String jobId, byte[] pdfBytes) {
-        var existing = jobs.getIfPresent(jobId);
-        if (existing != null) {
-            jobs.put(jobId, existing.withCompleted());
-        }
-        results.put(jobId, pdfBytes);
+    public void markCompleted(String jobId, Path pdfFile) throws IOException {
+        Files.move(pdfFile, jobStore.resultPath(jobId), StandardCopyOption.REPLACE_EXISTING);
+        jobStore.find(jobId).ifPresent(existing -> jobStore.save(existing.withCompleted()));
+        deleteInput(jobId);
         log.info("Job completed: id={}", jobId);
     }
 
     /**
-     * Updates the job status to FAILED with an error message.
+     * Updates the job status to FAILED with an error message and discards the spooled upload.
      *
      * @param jobId        the job ID
      * @param errorMessage description of what went wrong
      */
     public void markFailed(String jobId, String errorMessage) {
-        var existing = jobs.getIfPresent(jobId);
-        if (existing != null) {
-            jobs.put(jobId, existing.withFailed(errorMessage));
-        }
+        jobStore.find(jobId).ifPresent(existing -> jobStore.save(existing.withFailed(errorMessage)));
+        deleteInput(jobId);
         log.error("Job failed: id={}, error={}", jobId, errorMessage);
     }
+
+    /**
+     * Reconciles jobs left over from before a restart.
+     *
+     * <p>Completed jobs whose result file is gone are marked failed. Pending or processing
+     * jobs whose upload is still spooled are returned so they can be run again; the others,
+     * and all of them when {@code resume} is false, are marked failed.</p>
+     *
+     * @param resume whether interrupted jobs with a spooled upload should be resumed
+     * @return the jobs to resume
+     */
+    public List<ConversionJob> recoverInterruptedJobs(boolean resume) {
+        List<ConversionJob> resumable = new ArrayList<>();
+        for (ConversionJob job : jobStore.findAll()) {
+            switch (job.status()) {
+                case COMPLETED -> {
+                    if (!Files.isRegularFile(jobStore.resultPath(job.id()))) {
+                        markFailed(job.id(), "Result was lost");
+                    }
+                }
+                case PENDING, PROCESSING -> {
+                    if (resume && getInput(job.id()).isPresent()) {
+                        resumable.add(job);
+                    } else {
+                        markFailed(job.id(), "Interrupted by a server restart");
+                    }
+                }
+                case FAILED -> {
+                    // Nothing to recover
+                }
+            }
+        }
+        return resumable;
+    }
+
+    /**
+     * Removes finished jobs, and jobs that never received an upload, once they are older
+     * than the retention period.
+     */
+    @Scheduled(fixedDelayString = "${xtopdf.jobs.purge-interval-minutes:15}", timeUnit = TimeUnit.MINUTES)
+    public void purgeExpiredJobs() {
+        Instant cutoff = Instant.now().minus(retention);
+        int purged = 0;
+        for (ConversionJob job : jobStore.findAll()) {
+            boolean finished = job.completedAt() != null;
+            Instant since = finished ? job.completedAt() : job.createdAt();
+            if (since.isBefore(cutoff) && (finished || getInput(job.id()).isEmpty())) {
+                jobStore.delete(job.id());
+                purged++;
+            }
+        }
+        if (purged > 0) {
+            log.info("Purged {} expired jobs", purged);
+        }
+    }
+
+    private void deleteInput(String jobId) {
+        try {
+            Files.deleteIfExists(jobStore.inputPath(jobId));
+        } catch (IOException e) {
+            log.warn("Failed to delete spooled input of job {}: {}", jobId, e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,686 @@
+package com.xtopdf.xtopdf.services.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Disk tier of the conversion result cache, stored as append-only segment files.
+ *
+ * <p>Each segment is a sequence of self-describing records:
+ * {@code [magic:int][keyLength:int][key:UTF-8][createdAt:long][dataLength:long][data]}.
+ * The in-memory index (key to segment, offset and length) is rebuilt by scanning the
+ * segments on startup, so cached results survive restarts without a separate index file.
+ * A torn record at the end of a segment (e.g. after a crash) is truncated away.</p>
+ *
+ * <p>Sealed segments are memory-mapped read-only; the active segment is read positionally
+ * until it is sealed. {@link #transferTo(String, WritableByteChannel)} serves a cached
+ * result with {@link FileChannel#transferTo} so bytes never pass through the Java heap.</p>
+ *
+ * <p>Entries expire after the configured TTL. When the segments grow past the byte budget,
+ * the least recently used entries are dropped and segments that are mostly dead are
+ * compacted by copying their live records into the active segment. Compaction continues
+ * with the segments holding the most dead records until the files fit the budget again.</p>
+ *
+ * <p>Thread-safety: appends are serialized by an append lock; lookups hold the read lock,
+ * and eviction/compaction (which removes segments) holds the write lock. A transfer holds
+ * the read lock only to find its entry and pin the entry's segment, so a slow receiver
+ * does not hold up appends or eviction; a segment removed while pinned is closed and
+ * deleted when its last transfer finishes.</p>
+ */
+@Slf4j
+public class SegmentedDiskCache implements AutoCloseable {
+
+    private static final int RECORD_MAGIC = 0x58435031; // "XCP1"
+    private static final int MAX_KEY_BYTES = 1024;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".dat";
+    private static final double EVICTION_LOW_WATER = 0.8;
+    private static final double COMPACTION_LIVE_RATIO = 0.5;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final long segmentBytes;
+    private final Duration ttl;
+    private final Clock clock;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, IndexEntry> index = new ConcurrentHashMap<>();
+    private final NavigableMap<Long, Segment> segments = new TreeMap<>();
+    private Segment active;
+    private long diskBytes;
+
+    /**
+     * Location of one cached result inside a segment.
+     */
+    private static final class IndexEntry {
+        final long segmentId;
+        final long recordOffset;
+        final long dataOffset;
+        final long length;
+        final long recordSize;
+        final long createdAt;
+        volatile long lastAccess;
+
+        IndexEntry(long segmentId, long recordOffset, long dataOffset, long length, long recordSize, long createdAt) {
+            this.segmentId = segmentId;
+            this.recordOffset = recordOffset;
+            this.dataOffset = dataOffset;
+            this.length = length;
+            this.recordSize = recordSize;
+            this.createdAt = createdAt;
+            this.lastAccess = createdAt;
+        }
+    }
+
+    /**
+     * One append-only segment file.
+     */
+    private static final class Segment {
+        final long id;
+        final Path path;
+        final FileChannel channel;
+        long size;
+        long liveBytes;
+        boolean sealed;
+        MappedByteBuffer mapped;
+        final AtomicInteger readers = new AtomicInteger();
+        volatile boolean retired;
+
+        Segment(long id, Path path, FileChannel channel, long size) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.size = size;
+        }
+
+        ByteBuffer read(long offset, int length) throws IOException {
+            if (sealed) {
+                if (mapped == null) {
+                    mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                }
+                return mapped.slice((int) offset, length);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of segment " + path.getFileName());
+                }
+            }
+            return buffer.flip();
+        }
+
+        /**
+         * Closes and deletes the file once the segment is retired and no transfer is reading it.
+         */
+        synchronized void disposeIfUnused() throws IOException {
+            if (retired && readers.get() == 0 && channel.isOpen()) {
+                channel.close();
+                Files.deleteIfExists(path);
+                log.debug("Removed cache segment {}", path.getFileName());
+            }
+        }
+    }
+
+    /**
+     * Writes the payload of a record at the given position of the active segment.
+     */
+    @FunctionalInterface
+    private interface PayloadWriter {
+        void write(FileChannel target, long position) throws IOException;
+    }
+
+    /**
+     * Opens (or creates) a disk cache in the given directory and rebuilds its index.
+     *
+     * @param directory    directory holding the segment files
+     * @param maxBytes     total byte budget across all segments
+     * @param segmentBytes size at which the active segment is sealed (at most 2 GB, as sealed segments are mapped)
+     * @param ttl          time-to-live for cached entries
+     * @param clock        clock used for TTL and LRU bookkeeping
+     * @throws IOException if the directory or segments cannot be opened
+     */
+    public SegmentedDiskCache(Path directory, long maxBytes, long segmentBytes, Duration ttl, Clock clock) throws IOException {
+        if (maxBytes <= 0 || segmentBytes <= 0) {
+            throw new IllegalArgumentException("Disk cache sizes must be positive");
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.segmentBytes = Math.min(segmentBytes, Integer.MAX_VALUE);
+        this.ttl = ttl;
+        this.clock = clock;
+        Files.createDirectories(directory);
+        loadSegments();
+        evictIfNeeded();
+    }
+
+    /**
+     * Returns the cached bytes for a key, or null if absent or expired.
+     */
+    public byte[] get(String key) {
+        lock.readLock().lock();
+        try {
+            IndexEntry entry = liveEntry(key);
+            if (entry == null) {
+                return null;
+            }
+            ByteBuffer data = segments.get(entry.segmentId).read(entry.dataOffset, (int) entry.length);
+            byte[] bytes = new byte[(int) entry.length];
+            data.get(bytes);
+            entry.lastAccess = clock.millis();
+            return bytes;
+        } catch (IOException e) {
+            log.warn("Failed to read disk cache entry {}: {}", abbreviate(key), e.getMessage());
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the cached bytes for a key directly to a channel using {@link FileChannel#transferTo}.
+     *
+     * @return number of bytes transferred, or -1 if the key is absent or expired
+     * @throws IOException if the transfer fails
+     */
+    public long transferTo(String key, WritableByteChannel target) throws IOException {
+        IndexEntry entry;
+        Segment segment;
+        lock.readLock().lock();
+        try {
+            entry = liveEntry(key);
+            if (entry == null) {
+                return -1;
+            }
+            // Keep the segment's file until the transfer is done, without holding the lock
+            segment = segments.get(entry.segmentId);
+            segment.readers.incrementAndGet();
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        try {
+            long transferred = 0;
+            while (transferred < entry.length) {
+                long n = segment.channel.transferTo(entry.dataOffset + transferred, entry.length - transferred, target);
+                if (n <= 0) {
+                    throw new IOException("Disk cache transfer stalled for entry " + abbreviate(key));
+                }
+                transferred += n;
+            }
+            entry.lastAccess = clock.millis();
+            return transferred;
+        } finally {
+            segment.readers.decrementAndGet();
+            segment.disposeIfUnused();
+        }
+    }
+
+    /**
+     * Returns whether a live entry exists for the key.
+     */
+    public boolean contains(String key) {
+        return liveEntry(key) != null;
+    }
+
+    /**
+     * Appends a result held in memory.
+     */
+    public void put(String key, byte[] data) throws IOException {
+        append(key, data.length, (target, position) -> writeFully(target, ByteBuffer.wrap(data), position));
+    }
+
+    /**
+     * Appends a result stored in a file, copying it channel-to-channel.
+     */
+    public void put(String key, Path file) throws IOException {
+        try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = source.size();
+            append(key, length, (target, position) -> {
+                long copied = 0;
+                while (copied < length) {
+                    long n = target.transferFrom(source, position + copied, length - copied);
+                    if (n <= 0) {
+                        throw new IOException("Short read while caching " + file.getFileName());
+                    }
+                    copied += n;
+                }
+            });
+        }
+    }
+
+    /**
+     * Drops expired and least recently used entries, then compacts mostly-dead segments.
+     * Called after appends that exceed the byte budget; may also be called periodically.
+     */
+    public void evictIfNeeded() throws IOException {
+        appendLock.lock();
+        try {
+            lock.writeLock().lock();
+            try {
+                long now = clock.millis();
+                index.entrySet().removeIf(e -> {
+                    if (isExpired(e.getValue(), now)) {
+                        release(e.getValue());
+                        return true;
+                    }
+                    return false;
+                });
+
+                long liveBytes = segments.values().stream().mapToLong(s -> s.liveBytes).sum();
+                if (diskBytes > maxBytes) {
+                    long target = (long) (maxBytes * EVICTION_LOW_WATER);
+                    List<Map.Entry<String, IndexEntry>> byAge = new ArrayList<>(index.entrySet());
+                    byAge.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+                    for (Map.Entry<String, IndexEntry> e : byAge) {
+                        if (liveBytes <= target) {
+                            break;
+                        }
+                        index.remove(e.getKey());
+                        release(e.getValue());
+                        liveBytes -= e.getValue().recordSize;
+                    }
+                }
+                compactSegments();
+                // Dead records can keep the files over budget however little is live
+                while (diskBytes > maxBytes && compactMostDead()) {
+                    // keep going
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Removes all entries and segment files.
+     */
+    public void clear() throws IOException {
+        appendLock.lock();
+        try {
+            lock.writeLock().lock();
+            try {
+                index.clear();
+                for (Segment segment : segments.values()) {
+                    segment.retired = true;
+                    segment.disposeIfUnused();
+                }
+                segments.clear();
+                diskBytes = 0;
+                active = openSegment(0);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of live entries.
+     */
+    public long size() {
+        return index.size();
+    }
+
+    /**
+     * Returns the total size of all segment files, including dead records.
+     */
+    public long diskBytes() {
+        lock.readLock().lock();
+        try {
+            return diskBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        appendLock.lock();
+        try {
+            lock.writeLock().lock();
+            try {
+                for (Segment segment : segments.values()) {
+                    if (segment.channel.isOpen()) {
+                        segment.channel.force(false);
+                        segment.channel.close();
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // ---------------------------------------------------------------
+    // Appending
+    // ---------------------------------------------------------------
+
+    private void append(String key, long length, PayloadWriter payload) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        if (keyBytes.length > MAX_KEY_BYTES) {
+            throw new IllegalArgumentException("Cache key too long");
+        }
+        long recordSize = headerSize(keyBytes.length) + length;
+        if (recordSize > segmentBytes || recordSize > maxBytes) {
+            log.debug("Result of {} bytes exceeds disk cache limits, not cached", length);
+            return;
+        }
+
+        boolean overBudget;
+        appendLock.lock();
+        try {
+            if (active.size + recordSize > segmentBytes) {
+                rollSegment();
+            }
+            Segment segment = active;
+            long recordOffset = segment.size;
+            long createdAt = clock.millis();
+
+            ByteBuffer header = ByteBuffer.allocate(headerSize(keyBytes.length));
+            header.putInt(RECORD_MAGIC).putInt(keyBytes.length).put(keyBytes).putLong(createdAt).putLong(length).flip();
+            writeFully(segment.channel, header, recordOffset);
+            long dataOffset = recordOffset + headerSize(keyBytes.length);
+            payload.write(segment.channel, dataOffset);
+
+            lock.writeLock().lock();
+            try {
+                segment.size += recordSize;
+                segment.liveBytes += recordSize;
+                diskBytes += recordSize;
+                IndexEntry previous = index.put(key,
+                        new IndexEntry(segment.id, recordOffset, dataOffset, length, recordSize, createdAt));
+                if (previous != null) {
+                    release(previous);
+                }
+                overBudget = diskBytes > maxBytes;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            appendLock.unlock();
+        }
+
+        if (overBudget) {
+            evictIfNeeded();
+        }
+    }
+
+    private void rollSegment() throws IOException {
+        lock.writeLock().lock();
+        try {
+            active.sealed = true;
+            active = openSegment(active.id + 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ---------------------------------------------------------------
+    // Compaction (called with both locks held)
+    // ---------------------------------------------------------------
+
+    private void compactSegments() throws IOException {
+        for (Segment segment : new ArrayList<>(segments.values())) {
+            if (segment == active) {
+                continue;
+            }
+            if (segment.liveBytes == 0) {
+                deleteSegment(segment);
+            } else if (segment.liveBytes < segment.size * COMPACTION_LIVE_RATIO) {
+                relocateLiveRecords(segment);
+                deleteSegment(segment);
+            }
+        }
+    }
+
+    /**
+     * Compacts the segment with the most dead records, sealing the active segment first if
+     * only it has any. Returns false when no segment has dead records.
+     */
+    private boolean compactMostDead() throws IOException {
+        Segment victim = null;
+        for (Segment segment : segments.values()) {
+            if (segment != active && segment.size > segment.liveBytes
+                    && (victim == null || segment.size - segment.liveBytes > victim.size - victim.liveBytes)) {
+                victim = segment;
+            }
+        }
+        if (victim == null) {
+            if (active.size <= active.liveBytes) {
+                return false;
+            }
+            active.sealed = true;
+            active = openSegment(active.id + 1);
+            return true;
+        }
+        if (victim.liveBytes > 0) {
+            relocateLiveRecords(victim);
+        }
+        deleteSegment(victim);
+        return true;
+    }
+
+    private void relocateLiveRecords(Segment segment) throws IOException {
+        for (Map.Entry<String, IndexEntry> e : index.entrySet()) {
+            IndexEntry entry = e.getValue();
+            if (entry.segmentId != segment.id) {
+                continue;
+            }
+            if (active.size + entry.recordSize > segmentBytes) {
+                active.sealed = true;
+                active = openSegment(active.id + 1);
+            }
+            long newOffset = active.size;
+            long copied = 0;
+            while (copied < entry.recordSize) {
+                segment.channel.position(entry.recordOffset + copied);
+                long n = active.channel.transferFrom(segment.channel, newOffset + copied, entry.recordSize - copied);
+                if (n <= 0) {
+                    throw new IOException("Short copy while compacting " + segment.path.getFileName());
+                }
+                copied += n;
+            }
+            active.size += entry.recordSize;
+            active.liveBytes += entry.recordSize;
+            diskBytes += entry.recordSize;
+            IndexEntry moved = new IndexEntry(active.id, newOffset,
+                    newOffset + (entry.dataOffset - entry.recordOffset), entry.length, entry.recordSize, entry.createdAt);
+            moved.lastAccess = entry.lastAccess;
+            e.setValue(moved);
+        }
+        segment.liveBytes = 0;
+    }
+
+    private void deleteSegment(Segment segment) throws IOException {
+        segments.remove(segment.id);
+        diskBytes -= segment.size;
+        segment.retired = true;
+        segment.disposeIfUnused();
+    }
+
+    // ---------------------------------------------------------------
+    // Startup
+    // ---------------------------------------------------------------
+
+    private void loadSegments() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(p -> segmentId(p) >= 0)
+                    .sorted(Comparator.comparingLong(SegmentedDiskCache::segmentId))
+                    .toList();
+        }
+
+        for (Path file : files) {
+            Segment segment = new Segment(segmentId(file), file,
+                    FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE), 0);
+            // Registered before the scan, so a key written twice in this segment releases its
+            // earlier record from this segment's live bytes
+            segments.put(segment.id, segment);
+            scanSegment(segment);
+            segment.sealed = true;
+            diskBytes += segment.size;
+        }
+
+        Segment last = segments.isEmpty() ? null : segments.lastEntry().getValue();
+        if (last != null && last.size < segmentBytes) {
+            last.sealed = false;
+            active = last;
+        } else {
+            active = openSegment(last == null ? 0 : last.id + 1);
+        }
+        log.info("Disk cache opened at {}: {} entries in {} segments ({} bytes)",
+                directory, index.size(), segments.size(), diskBytes);
+    }
+
+    private void scanSegment(Segment segment) throws IOException {
+        FileChannel channel = segment.channel;
+        long fileSize = channel.size();
+        long position = 0;
+        long now = clock.millis();
+        ByteBuffer fixed = ByteBuffer.allocate(8);
+
+        while (position < fileSize) {
+            fixed.clear();
+            if (!readFully(channel, fixed, position, fileSize) || fixed.flip().getInt() != RECORD_MAGIC) {
+                break;
+            }
+            int keyLength = fixed.getInt();
+            if (keyLength <= 0 || keyLength > MAX_KEY_BYTES) {
+                break;
+            }
+            ByteBuffer rest = ByteBuffer.allocate(keyLength + 16);
+            if (!readFully(channel, rest, position + 8, fileSize)) {
+                break;
+            }
+            rest.flip();
+            byte[] keyBytes = new byte[keyLength];
+            rest.get(keyBytes);
+            long createdAt = rest.getLong();
+            long length = rest.getLong();
+            long recordSize = headerSize(keyLength) + length;
+            if (length < 0 || position + recordSize > fileSize) {
+                break;
+            }
+
+            IndexEntry entry = new IndexEntry(segment.id, position, position + headerSize(keyLength),
+                    length, recordSize, createdAt);
+            if (!isExpired(entry, now)) {
+                IndexEntry previous = index.put(new String(keyBytes, StandardCharsets.UTF_8), entry);
+                if (previous != null) {
+                    release(previous);
+                }
+                segment.liveBytes += recordSize;
+            }
+            position += recordSize;
+        }
+
+        if (position < fileSize) {
+            log.warn("Truncating torn record at offset {} in cache segment {}", position, segment.path.getFileName());
+            channel.truncate(position);
+        }
+        segment.size = position;
+    }
+
+    private Segment openSegment(long id) throws IOException {
+        Path path = directory.resolve(SEGMENT_PREFIX + id + SEGMENT_SUFFIX);
+        Segment segment = new Segment(id, path, FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE), 0);
+        segment.size = segment.channel.size();
+        segments.put(id, segment);
+        diskBytes += segment.size;
+        return segment;
+    }
+
+    // ---------------------------------------------------------------
+    // Helpers
+    // ---------------------------------------------------------------
+
+    private IndexEntry liveEntry(String key) {
+        IndexEntry entry = index.get(key);
+        if (entry == null || isExpired(entry, clock.millis())) {
+            return null;
+        }
+        return entry;
+    }
+
+    private boolean isExpired(IndexEntry entry, long now) {
+        return now - entry.createdAt >= ttl.toMillis();
+    }
+
+    private void release(IndexEntry entry) {
+        Segment segment = segments.get(entry.segmentId);
+        if (segment != null) {
+            segment.liveBytes -= entry.recordSize;
+        }
+    }
+
+    private static int headerSize(int keyLength) {
+        return 4 + 4 + keyLength + 8 + 8;
+    }
+
+    private static long segmentId(Path path) {
+        String name = path.getFileName().toString();
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            offset += channel.write(buffer, offset);
+        }
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position, long limit) throws IOException {
+        if (position + buffer.remaining() > limit) {
+            return false;
+        }
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, offset);
+            if (n < 0) {
+                return false;
+            }
+            offset += n;
+        }
+        return true;
+    }
+
+    private static String abbreviate(String key) {
+        return key.length() > 8 ? key.substring(0, 8) : key;
+    }
+}
@@ -585,7 +585,7 @@ public class DwgToDxfService {
             writer.write("0\nLWPOLYLINE\n8\n0\n");
             writer.write(String.format("90\n%d\n", polyline.getVertexCount()));
             writer.write(String.format("70\n%d\n", polyline.isClosed() ? 1 : 0));
-            List<Double> vertices = polyline.getVertices();
+            CoordinateArray vertices = polyline.getVertices();
             for (int i = 0; i < vertices.size(); i += 2) {
                 writer.write(String.format("10\n%.6f\n20\n%.6f\n", vertices.get(i), vertices.get(i + 1)));
             }
@@ -637,7 +637,7 @@ public class DwgToDxfService {
             LeaderEntity leader = (LeaderEntity) entity;
             writer.write("0\nLEADER\n8\n0\n");
             writer.write(String.format("3\n%s\n", leader.getText()));
-            List<Double> vertices = leader.getVertices();
+            CoordinateArray vertices = leader.getVertices();
             for (int i = 0; i < vertices.size(); i += 2) {
                 writer.write(String.format("10\n%.6f\n20\n%.6f\n", vertices.get(i), vertices.get(i + 1)));
             }
@@ -700,7 +700,7 @@ public class DwgToDxfService {
             WipeoutEntity wipeout = (WipeoutEntity) entity;
             writer.write("0\nWIPEOUT\n8\n0\n");
             writer.write(String.format("90\n%d\n", wipeout.getVertexCount()));
-            List<Double> vertices = wipeout.getVertices();
+            CoordinateArray vertices = wipeout.getVertices();
             for (int i = 0; i < vertices.size(); i += 2) {
                 writer.write(String.format("10\n%.6f\n20\n%.6f\n", vertices.get(i), vertices.get(i + 1)));
             }
@@ -718,7 +718,7 @@ public class DwgToDxfService {
             writer.write("0\nPOLYLINE\n8\n0\n");
             writer.write("70\n64\n"); // Polyface mesh flag
             writer.write(String.format("71\n%d\n", mesh.getVertexCount()));
-            List<Double> vertices = mesh.getVertices();
+            CoordinateArray vertices = mesh.getVertices();
             for (int i = 0; i < vertices.size(); i += 3) {
                 writer.write("0\nVERTEX\n8\n0\n");
                 writer.write(String.format("10\n%.6f\n20\n%.6f\n30\n%.6f\n", 
@@ -731,7 +731,7 @@ public class DwgToDxfService {
             writer.write("0\nMESH\n8\n0\n");
             writer.write(String.format("91\n%d\n", mesh.getVertexCount()));
             writer.write(String.format("92\n%d\n", mesh.getSubdivisionLevel()));
-            List<Double> vertices = mesh.getVertices();
+            CoordinateArray vertices = mesh.getVertices();
             for (int i = 0; i < vertices.size(); i += 3) {
                 writer.write(String.format("10\n%.6f\n20\n%.6f\n30\n%.6f\n", 
                     vertices.get(i), vertices.get(i + 1), vertices.get(i + 2)));
@@ -764,7 +764,7 @@ public class DwgToDxfService {
             RegionEntity region = (RegionEntity) entity;
             writer.write("0\nREGION\n8\n0\n");
             writer.write(String.format("90\n%d\n", region.getVertexCount()));
-            List<Double> vertices = region.getVertices();
+            CoordinateArray vertices = region.getVertices();
             for (int i = 0; i < vertices.size(); i += 2) {
                 writer.write(String.format("10\n%.6f\n20\n%.6f\n", vertices.get(i), vertices.get(i + 1)));
             }
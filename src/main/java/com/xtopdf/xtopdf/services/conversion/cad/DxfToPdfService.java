@@ -1,20 +1,30 @@
 package com.xtopdf.xtopdf.services.conversion.cad;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import com.xtopdf.xtopdf.config.MetricsConfiguration.ConversionMetrics;
 import com.xtopdf.xtopdf.pdf.PdfBackendProvider;
 import com.xtopdf.xtopdf.pdf.PdfDocumentBuilder;
 import com.xtopdf.xtopdf.entities.*;
 import com.xtopdf.xtopdf.services.dxf.DxfEntityParser;
 import com.xtopdf.xtopdf.services.dxf.DxfCoordinateCalculator;
+import com.xtopdf.xtopdf.services.dxf.DxfDrawing;
+import com.xtopdf.xtopdf.services.dxf.DxfEntityBounds;
 import com.xtopdf.xtopdf.services.dxf.DxfEntityRenderer;
+import com.xtopdf.xtopdf.services.dxf.DxfExtents;
 import com.xtopdf.xtopdf.services.dxf.DxfPdfRenderer;
+import com.xtopdf.xtopdf.services.dxf.DxfSpatialIndex;
+import com.xtopdf.xtopdf.services.dxf.DxfViewport;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service to convert DXF (Drawing Exchange Format) files to PDF.
@@ -23,15 +33,68 @@ import java.util.List;
  * in the PDF using a custom renderer that works with a PDF backend abstraction (such as PDFBox).
  * 
  * Supported entities: LINE, CIRCLE, ARC, ELLIPSE, POINT, POLYLINE, SOLID/TRACE, and many more.
+ * ASCII and binary DXF files are accepted.
+ * 
+ * Files up to the streaming threshold are parsed into a {@link DxfDrawing} and then
+ * rendered. Larger files are read twice instead: the first pass takes the extents from
+ * the header (or measures the entities) and collects the block definitions, and the second
+ * renders each entity as soon as it is parsed, so only the block definitions are held.
+ * 
+ * The drawing is placed by its extents, measured over every entity type. Entities that
+ * cannot reach the page, and ones smaller than the minimum feature size, are not drawn
+ * (see {@link DxfViewport}); a parsed drawing is searched through a {@link DxfSpatialIndex}
+ * rather than tested entity by entity. A parsed drawing can also be tiled across several
+ * pages at a larger scale.
+ * 
+ * Each conversion works on its own parsed drawing, so conversions (including
+ * DWG and DWT, which go through this service) can run concurrently.
  */
-@RequiredArgsConstructor
 @Slf4j
 @Service
 public class DxfToPdfService {
     
+    private static final long DEFAULT_STREAMING_THRESHOLD_MB = 16;
+    private static final double DEFAULT_MIN_FEATURE_SIZE_PT = 0.1;
+    
+    // A4 pages
+    private static final double PAGE_WIDTH = 595;
+    private static final double PAGE_HEIGHT = 842;
+    
     private final PdfBackendProvider pdfBackend;
     private final DxfEntityParser parser;
     private final DxfCoordinateCalculator calculator;
+    private final ConversionMetrics conversionMetrics;
+    private final long streamingThresholdBytes;
+    private final int tilesAcross;
+    private final double minFeatureSize;
+    
+    public DxfToPdfService(PdfBackendProvider pdfBackend, DxfEntityParser parser, DxfCoordinateCalculator calculator) {
+        this(pdfBackend, parser, calculator, null, DEFAULT_STREAMING_THRESHOLD_MB, 1, DEFAULT_MIN_FEATURE_SIZE_PT);
+    }
+    
+    /**
+     * @param conversionMetrics    receives culled-entity counts; may be null
+     * @param streamingThresholdMb files larger than this are rendered in two streaming passes
+     *                             (0 streams every file)
+     * @param tilesAcross          pages along the drawing's longer side; 1 fits the drawing on
+     *                             one page (streamed drawings always use one page)
+     * @param minFeatureSize       geometry smaller than this many points in both directions is
+     *                             not drawn (0 draws everything)
+     */
+    @Autowired
+    public DxfToPdfService(PdfBackendProvider pdfBackend, DxfEntityParser parser, DxfCoordinateCalculator calculator,
+                           ConversionMetrics conversionMetrics,
+                           @Value("${xtopdf.dxf.streaming-threshold-mb:16}") long streamingThresholdMb,
+                           @Value("${xtopdf.dxf.tiles-across:1}") int tilesAcross,
+                           @Value("${xtopdf.dxf.min-feature-size-pt:0.1}") double minFeatureSize) {
+        this.pdfBackend = pdfBackend;
+        this.parser = parser;
+        this.calculator = calculator;
+        this.conversionMetrics = conversionMetrics;
+        this.streamingThresholdBytes = streamingThresholdMb * 1024 * 1024;
+        this.tilesAcross = Math.max(1, tilesAcross);
+        this.minFeatureSize = minFeatureSize;
+    }
     
     /**
      * Convert DXF file to PDF.
@@ -41,37 +104,140 @@ public class DxfToPdfService {
      * @throws IOException if conversion fails
      */
     public void convertDxfToPdf(MultipartFile dxfFile, File pdfFile) throws IOException {
+        if (dxfFile.getSize() > streamingThresholdBytes) {
+            convertStreaming(dxfFile, pdfFile);
+            return;
+        }
+        
         // Parse DXF entities and blocks
-        List<DxfEntity> entities = parser.parseDxfEntities(dxfFile);
+        DxfDrawing drawing = parser.parse(dxfFile);
+        List<DxfEntity> entities = drawing.entities();
+        DxfSpatialIndex index = DxfSpatialIndex.build(entities, new DxfEntityBounds(drawing.blocks()));
+        BitSet unbounded = index.unbounded();
+        int bounded = index.size() - unbounded.cardinality();
         
         // Create PDF using PDFBox abstraction
         try (PdfDocumentBuilder builder = pdfBackend.createBuilder()) {
-            // Calculate scale factor to fit drawing on page (A4 = 595x842 points)
-            double scale = calculator.calculateScale(entities, 595, 842);
-            double offsetX = 50; // Left margin
-            double offsetY = 50; // Bottom margin
+            // Scale and place the drawing on one page, or tile it across several
+            List<DxfViewport> pages = calculator.layout(index.extents(), PAGE_WIDTH, PAGE_HEIGHT, tilesAcross);
             
-            // Create DxfPdfRenderer helper for canvas-like operations
             DxfPdfRenderer renderer = new DxfPdfRenderer(builder);
-            
-            // Set up drawing parameters
-            renderer.setStrokeColor(0, 0, 0); // Black
-            renderer.setFillColor(0.827f, 0.827f, 0.827f); // Light gray
-            renderer.setLineWidth(1);
+            applyDrawingStyle(renderer);
             
             // Create renderer with block registry
-            DxfEntityRenderer entityRenderer = new DxfEntityRenderer(parser.getBlockRegistry());
+            DxfEntityRenderer entityRenderer = new DxfEntityRenderer(drawing.blocks());
             
-            // Render each entity (blocks are stored in registry, not rendered directly)
-            for (DxfEntity entity : entities) {
-                if (!(entity instanceof BlockEntity)) {
-                    entityRenderer.renderEntity(renderer, entity, scale, offsetX, offsetY, 1.0, 1.0, 0.0);
+            long offPage = 0;
+            long belowSize = 0;
+            for (int p = 0; p < pages.size(); p++) {
+                DxfViewport page = pages.get(p);
+                if (p > 0) {
+                    renderer.newPage();
+                }
+                
+                // Entities near the page, plus those without bounds, in drawing order
+                DxfExtents window = page.window();
+                BitSet candidates = index.search(window.minX(), window.minY(), window.maxX(), window.maxY());
+                candidates.or(unbounded);
+                
+                int drawn = 0;
+                int pageBelowSize = 0;
+                for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                    DxfEntity entity = entities.get(i);
+                    // Blocks are stored in the registry, not rendered directly
+                    if (entity instanceof BlockEntity) {
+                        continue;
+                    }
+                    if (!unbounded.get(i)) {
+                        boolean scales = index.scalesWithDrawing(i);
+                        if (page.isOffPage(index.minX(i), index.minY(i), index.maxX(i), index.maxY(i), scales)) {
+                            continue;
+                        }
+                        if (page.isBelowSize(index.minX(i), index.minY(i), index.maxX(i), index.maxY(i), scales,
+                                minFeatureSize)) {
+                            pageBelowSize++;
+                            continue;
+                        }
+                        drawn++;
+                    }
+                    entityRenderer.renderEntity(renderer, entity, page.scale(), page.offsetX(), page.offsetY(),
+                            1.0, 1.0, 0.0);
                 }
+                offPage += bounded - drawn - pageBelowSize;
+                belowSize += pageBelowSize;
             }
+            recordCulled(dxfFile, pages.size(), offPage, belowSize);
             
+            renderer.flush();
             builder.save(pdfFile);
         } catch (Exception e) {
             throw new IOException("Error creating PDF from DXF", e);
         }
     }
+    
+    /**
+     * Renders a DXF file in two passes over its input without keeping its entities.
+     */
+    private void convertStreaming(MultipartFile dxfFile, File pdfFile) throws IOException {
+        log.debug("Streaming DXF file {} ({} bytes)", dxfFile.getOriginalFilename(), dxfFile.getSize());
+        
+        // Pass one: block definitions, and extents from the header or the entities
+        Map<String, BlockEntity> blocks = new HashMap<>();
+        DxfCoordinateCalculator.Bounds bounds = new DxfCoordinateCalculator.Bounds(blocks);
+        DxfDrawing definitions = parser.parseDefinitions(dxfFile, blocks, bounds::include);
+        DxfExtents extents = definitions.headerExtents() != null
+                ? definitions.headerExtents() : bounds.toExtents();
+        DxfViewport page = calculator.layout(extents, PAGE_WIDTH, PAGE_HEIGHT, 1).get(0);
+        
+        // Pass two: render entities as they are parsed, skipping those that would not show
+        try (PdfDocumentBuilder builder = pdfBackend.createBuilder()) {
+            DxfPdfRenderer renderer = new DxfPdfRenderer(builder);
+            applyDrawingStyle(renderer);
+            DxfEntityRenderer entityRenderer = new DxfEntityRenderer(blocks);
+            DxfEntityBounds entityBounds = new DxfEntityBounds(blocks);
+            long[] culled = new long[2];
+            
+            parser.parse(dxfFile, entity -> {
+                DxfExtents box = entityBounds.of(entity);
+                if (box != null) {
+                    boolean scales = entityBounds.scalesWithDrawing(entity);
+                    if (page.isOffPage(box.minX(), box.minY(), box.maxX(), box.maxY(), scales)) {
+                        culled[0]++;
+                        return;
+                    }
+                    if (page.isBelowSize(box.minX(), box.minY(), box.maxX(), box.maxY(), scales, minFeatureSize)) {
+                        culled[1]++;
+                        return;
+                    }
+                }
+                entityRenderer.renderEntity(renderer, entity, page.scale(), page.offsetX(), page.offsetY(),
+                        1.0, 1.0, 0.0);
+            });
+            recordCulled(dxfFile, 1, culled[0], culled[1]);
+            
+            renderer.flush();
+            builder.save(pdfFile);
+        } catch (Exception e) {
+            throw new IOException("Error creating PDF from DXF", e);
+        }
+    }
+    
+    private void recordCulled(MultipartFile dxfFile, int pages, long offPage, long belowSize) {
+        log.debug("DXF file {}: {} page(s), {} entity placements off the page, {} below {}pt",
+                dxfFile.getOriginalFilename(), pages, offPage, belowSize, minFeatureSize);
+        if (conversionMetrics != null) {
+            conversionMetrics.incrementDxfEntitiesCulled("off_page", offPage);
+            conversionMetrics.incrementDxfEntitiesCulled("sub_pixel", belowSize);
+        }
+    }
+    
+    /**
+     * Sets the stroke, fill and line width. The renderer writes them to each page as they are
+     * first needed.
+     */
+    private static void applyDrawingStyle(DxfPdfRenderer renderer) throws IOException {
+        renderer.setStrokeColor(0, 0, 0); // Black
+        renderer.setFillColor(0.827f, 0.827f, 0.827f); // Light gray
+        renderer.setLineWidth(1);
+    }
 }
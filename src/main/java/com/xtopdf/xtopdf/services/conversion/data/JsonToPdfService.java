@@ -3,6 +3,7 @@ package com.xtopdf.xtopdf.services.conversion.data;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.xtopdf.xtopdf.pdf.PdfBackendProvider;
 import com.xtopdf.xtopdf.pdf.PdfDocumentBuilder;
+import com.xtopdf.xtopdf.pdf.PdfOutputTarget;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
@@ -29,10 +30,21 @@ public class JsonToPdfService {
     }
 
     public void convertJsonToPdf(MultipartFile jsonFile, File pdfFile) throws IOException {
+        convertJsonToTarget(jsonFile, pdfFile != null ? PdfOutputTarget.file(pdfFile) : null);
+    }
+
+    /**
+     * Converts a JSON file and writes the result to the given target.
+     *
+     * @param jsonFile the input JSON file
+     * @param target where the finished document goes (a file, or kept in memory)
+     * @throws IOException if the input cannot be read or the PDF cannot be created
+     */
+    public void convertJsonToTarget(MultipartFile jsonFile, PdfOutputTarget target) throws IOException {
         if (jsonFile == null) {
             throw new IOException("Input file must not be null");
         }
-        if (pdfFile == null) {
+        if (target == null) {
             throw new IOException("Output file must not be null");
         }
 
@@ -62,7 +74,7 @@ public class JsonToPdfService {
                     builder.endParagraph();
                 }
             }
-            builder.save(pdfFile);
+            target.write(builder);
         }
     }
 }
@@ -2,6 +2,7 @@ package com.xtopdf.xtopdf.services.conversion.data;
 
 import com.xtopdf.xtopdf.pdf.PdfBackendProvider;
 import com.xtopdf.xtopdf.pdf.PdfDocumentBuilder;
+import com.xtopdf.xtopdf.pdf.PdfOutputTarget;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.DocumentType;
@@ -31,10 +32,21 @@ public class XmlToPdfService {
     }
 
     public void convertXmlToPdf(MultipartFile xmlFile, File pdfFile) throws IOException {
+        convertXmlToTarget(xmlFile, pdfFile != null ? PdfOutputTarget.file(pdfFile) : null);
+    }
+
+    /**
+     * Converts a XML file and writes the result to the given target.
+     *
+     * @param xmlFile the input XML file
+     * @param target where the finished document goes (a file, or kept in memory)
+     * @throws IOException if the input cannot be read or the PDF cannot be created
+     */
+    public void convertXmlToTarget(MultipartFile xmlFile, PdfOutputTarget target) throws IOException {
         if (xmlFile == null) {
             throw new IOException("Input file must not be null");
         }
-        if (pdfFile == null) {
+        if (target == null) {
             throw new IOException("Output file must not be null");
         }
 
@@ -65,7 +77,7 @@ public class XmlToPdfService {
                 renderHighlightedLine(builder, line);
                 builder.endParagraph();
             }
-            builder.save(pdfFile);
+            target.write(builder);
         }
     }
 
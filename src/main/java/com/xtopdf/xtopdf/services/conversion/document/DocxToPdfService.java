@@ -2,6 +2,7 @@ package com.xtopdf.xtopdf.services.conversion.document;
 
 import com.xtopdf.xtopdf.pdf.PdfBackendProvider;
 import com.xtopdf.xtopdf.pdf.PdfDocumentBuilder;
+import com.xtopdf.xtopdf.pdf.PdfOutputTarget;
 import com.xtopdf.xtopdf.pdf.TextAlignment;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.xwpf.usermodel.IBodyElement;
@@ -46,6 +47,19 @@ public class DocxToPdfService {
     public void convertDocxToPdf(MultipartFile docxFile, File pdfFile) throws IOException {
         Objects.requireNonNull(docxFile, "docxFile must not be null");
         Objects.requireNonNull(pdfFile, "pdfFile must not be null");
+        convertDocxToTarget(docxFile, PdfOutputTarget.file(pdfFile));
+    }
+
+    /**
+     * Converts a DOCX file and writes the result to the given target.
+     *
+     * @param docxFile the input DOCX file
+     * @param target where the finished document goes (a file, or kept in memory)
+     * @throws IOException if the DOCX cannot be read or the PDF cannot be created
+     */
+    public void convertDocxToTarget(MultipartFile docxFile, PdfOutputTarget target) throws IOException {
+        Objects.requireNonNull(docxFile, "docxFile must not be null");
+        Objects.requireNonNull(target, "target must not be null");
 
         try (var fis = docxFile.getInputStream();
              XWPFDocument document = new XWPFDocument(fis);
@@ -57,7 +71,7 @@ public class DocxToPdfService {
             renderBodyElements(document, builder, state);
             renderFooters(document, builder);
 
-            builder.save(pdfFile);
+            target.write(builder);
         } catch (IOException e) {
             throw e;
         } catch (Exception e) {
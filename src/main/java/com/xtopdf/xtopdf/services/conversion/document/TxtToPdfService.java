@@ -2,7 +2,10 @@ package com.xtopdf.xtopdf.services.conversion.document;
 
 import com.xtopdf.xtopdf.pdf.PdfBackendProvider;
 import com.xtopdf.xtopdf.pdf.PdfDocumentBuilder;
+import com.xtopdf.xtopdf.pdf.PdfOutputTarget;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -10,38 +13,86 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.Iterator;
 
 /**
  * Service for converting TXT files to PDF.
  * Uses the PDF backend abstraction layer with Apache PDFBox.
+ *
+ * The file is decoded in {@code xtopdf.txt.charset} (UTF-8 by default) and laid out line by
+ * line as it is read, so memory use does not grow with the size of the file. With
+ * {@code xtopdf.txt.log-mode} the text is set in a monospaced font with line numbers.
  */
 @Slf4j
 @Service
 public class TxtToPdfService {
-    
+
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+    private static final int LINE_NUMBER_WIDTH = 6;
+
     private final PdfBackendProvider pdfBackend;
-    
+    private final Charset charset;
+    private final boolean logMode;
+
     public TxtToPdfService(PdfBackendProvider pdfBackend) {
+        this(pdfBackend, "UTF-8", false);
+    }
+
+    @Autowired
+    public TxtToPdfService(PdfBackendProvider pdfBackend,
+                           @Value("${xtopdf.txt.charset:UTF-8}") String charset,
+                           @Value("${xtopdf.txt.log-mode:false}") boolean logMode) {
         this.pdfBackend = pdfBackend;
+        this.charset = Charset.forName(charset);
+        this.logMode = logMode;
     }
-    
+
     public void convertTxtToPdf(MultipartFile txtFile, File pdfFile) throws IOException {
-        // Read the .txt file content
-        StringBuilder textContent = new StringBuilder();
-        
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(txtFile.getInputStream()))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                textContent.append(line).append("\n");
+        convertTxtToTarget(txtFile, PdfOutputTarget.file(pdfFile));
+    }
+
+    /**
+     * Converts a TXT file and writes the result to the given target.
+     *
+     * @param txtFile the input text file
+     * @param target where the finished document goes (a file, or kept in memory)
+     * @throws IOException if reading the input or creating the PDF fails
+     */
+    public void convertTxtToTarget(MultipartFile txtFile, PdfOutputTarget target) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(txtFile.getInputStream(), charset))) {
+            // Create PDF using abstraction layer (PDFBox backend)
+            try (PdfDocumentBuilder builder = pdfBackend.createBuilder()) {
+                builder.addTextLines(lines(reader), logMode);
+                target.write(builder);
+            } catch (UncheckedIOException e) {
+                // Reading the input failed part way through
+                throw e.getCause();
+            } catch (Exception e) {
+                throw new IOException("Error creating PDF from .txt file", e);
             }
         }
+    }
 
-        // Create PDF using abstraction layer (PDFBox backend)
-        try (PdfDocumentBuilder builder = pdfBackend.createBuilder()) {
-            builder.addParagraph(textContent.toString());
-            builder.save(pdfFile);
-        } catch (Exception e) {
-            throw new IOException("Error creating PDF from .txt file", e);
-        }
+    /**
+     * Returns the lines of the file as they are read, without a leading byte order mark and,
+     * in log mode, prefixed with their line numbers.
+     */
+    private Iterator<String> lines(BufferedReader reader) {
+        long[] lineNumber = {0};
+        return reader.lines().map(line -> {
+            if (lineNumber[0]++ == 0 && !line.isEmpty() && line.charAt(0) == BYTE_ORDER_MARK) {
+                line = line.substring(1);
+            }
+            return logMode ? numbered(lineNumber[0], line) : line;
+        }).iterator();
+    }
+
+    private static String numbered(long lineNumber, String line) {
+        String number = Long.toString(lineNumber);
+        StringBuilder numbered = new StringBuilder(LINE_NUMBER_WIDTH + 2 + line.length());
+        numbered.repeat(' ', Math.max(0, LINE_NUMBER_WIDTH - number.length()));
+        return numbered.append(number).append("  ").append(line).toString();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,413 @@
+package com.xtopdf.xtopdf.services.conversion.spreadsheet;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Splits delimiter-separated text (CSV, TSV) into rows of cells, working directly on the
+ * encoded bytes.
+ *
+ * <p>Input is read into one large buffer. Line breaks, delimiters and quotes are found eight
+ * bytes at a time with word-wide comparisons (SWAR), and each cell is decoded once, straight
+ * from its slice of the buffer; only cells containing quotes are copied before decoding.
+ * Scanning bytes is correct for any charset that encodes ASCII as single bytes which never
+ * occur inside multi-byte sequences (UTF-8, ISO-8859-x, windows-125x);
+ * {@link #requireAsciiCompatible} rejects others up front.</p>
+ *
+ * <p>The rules match the line-based parser this replaces: {@code \n}, {@code \r} and
+ * {@code \r\n} end a line (also inside quotes); a quote anywhere in a cell toggles quoting;
+ * {@code ""} inside quotes is a literal quote; an unclosed quote makes the rest of the line
+ * literal. A UTF-8 byte order mark at the start of the input is skipped.</p>
+ *
+ * <p>Large inputs can be cut into {@link Segment}s of whole lines with {@link #nextSegment}
+ * and each segment split by its own reader, on another thread. Since no line break is ever
+ * part of a cell, every line break is a safe place to cut.</p>
+ *
+ * <p>Not thread-safe; use one reader per input.</p>
+ */
+@Slf4j
+final class DelimitedRowReader {
+
+    static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+    private static final int MIN_BUFFER_SIZE = 64;
+
+    private static final VarHandle LONGS =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long CARRIAGE_RETURNS = ONES * '\r';
+    private static final long LINE_FEEDS = ONES * '\n';
+    private static final long QUOTES = ONES * '"';
+    private static final byte QUOTE = '"';
+    private static final String ASCII_PROBE = "\t,;|\"\r\n";
+
+    private final InputStream in;
+    private final Charset charset;
+    private final byte delimiter;
+    private final long delimiters;
+    private final int maxLineLength;
+    private final int maxLineBytes;
+    private final int maxFields;
+
+    private byte[] buffer;
+    private int pos;
+    private int limit;
+    private int lineStart;
+    private int lineEnd;
+    private boolean started;
+    private boolean eof;
+    private boolean skipLineFeed;
+    private int lineNumber;
+    private String[] cells = new String[16];
+    private byte[] unquoted = new byte[256];
+
+    /**
+     * A run of whole lines cut from the input, each followed by a single {@code \n}.
+     *
+     * @param bytes the lines, in the input's charset
+     * @param length the number of bytes used in {@code bytes}
+     * @param firstLine the number of the first line in the input, counting from 1
+     * @param lines the number of lines
+     */
+    record Segment(byte[] bytes, int length, int firstLine, int lines) {
+    }
+
+    /**
+     * @param in the input; not closed by the reader
+     * @param charset the input's charset, see {@link #requireAsciiCompatible}
+     * @param delimiter the field delimiter, an ASCII character
+     * @param bufferSize the initial buffer size; the buffer grows to hold longer lines
+     * @param maxLineLength the longest line allowed, in characters
+     * @param maxFields the most cells a line may have
+     */
+    DelimitedRowReader(InputStream in, Charset charset, char delimiter, int bufferSize,
+                       int maxLineLength, int maxFields) {
+        if (delimiter == 0 || delimiter >= 0x80 || delimiter == '"' || delimiter == '\r' || delimiter == '\n') {
+            throw new IllegalArgumentException("Unsupported delimiter: " + (int) delimiter);
+        }
+        this.in = in;
+        this.charset = charset;
+        this.delimiter = (byte) delimiter;
+        this.delimiters = ONES * delimiter;
+        this.maxLineLength = maxLineLength;
+        // A line with more bytes than this has more characters than maxLineLength in any charset
+        this.maxLineBytes = (int) Math.min(Integer.MAX_VALUE - 16,
+                (long) maxLineLength * (long) Math.ceil(charset.newEncoder().maxBytesPerChar()));
+        this.maxFields = maxFields;
+        this.buffer = new byte[Math.max(MIN_BUFFER_SIZE, bufferSize)];
+    }
+
+    /**
+     * Creates a reader over a segment cut by {@link #nextSegment}; line numbers continue from
+     * the segment's position in the input.
+     */
+    DelimitedRowReader(Segment segment, Charset charset, char delimiter, int maxLineLength, int maxFields) {
+        this(InputStream.nullInputStream(), charset, delimiter, MIN_BUFFER_SIZE, maxLineLength, maxFields);
+        this.buffer = segment.bytes();
+        this.limit = segment.length();
+        this.lineNumber = segment.firstLine() - 1;
+        this.started = true;
+        this.eof = true;
+    }
+
+    /**
+     * Checks that delimiters, quotes and line breaks encode to their ASCII bytes in the given
+     * charset, so the input can be split without decoding it.
+     *
+     * @return the charset
+     * @throws IllegalArgumentException if the charset encodes them differently (e.g. UTF-16)
+     */
+    static Charset requireAsciiCompatible(Charset charset) {
+        if (!Arrays.equals(ASCII_PROBE.getBytes(charset), ASCII_PROBE.getBytes(StandardCharsets.US_ASCII))) {
+            throw new IllegalArgumentException("Charset " + charset.name()
+                    + " is not supported for delimiter-separated files; use an ASCII-compatible charset such as UTF-8");
+        }
+        return charset;
+    }
+
+    /**
+     * Returns the number of the last line returned by {@link #nextRow()}, counting from 1.
+     */
+    int lineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Reads the next line and splits it into cells.
+     *
+     * @return the line's cells (an empty line has one empty cell), or null at the end of input
+     * @throws IOException if the input cannot be read, or the line is longer than
+     *                     {@code maxLineLength} or has more than {@code maxFields} cells
+     */
+    String[] nextRow() throws IOException {
+        if (!nextLine()) {
+            return null;
+        }
+        lineNumber++;
+        checkLineLength();
+        return split(lineStart, lineEnd);
+    }
+
+    /**
+     * Cuts the next lines from the input without splitting them into cells.
+     *
+     * @param maxLines the most lines to take
+     * @return the lines, or null at the end of input
+     * @throws IOException if the input cannot be read or a line is longer than {@code maxLineLength}
+     */
+    Segment nextSegment(int maxLines) throws IOException {
+        byte[] bytes = null;
+        int length = 0;
+        int lines = 0;
+        int firstLine = lineNumber + 1;
+        while (lines < maxLines && nextLine()) {
+            lineNumber++;
+            lines++;
+            checkLineLength();
+            int lineLength = lineEnd - lineStart;
+            if (bytes == null) {
+                // Sized from the first line; grows if later lines are longer
+                bytes = new byte[(int) Math.max(MIN_BUFFER_SIZE,
+                        Math.min(DEFAULT_BUFFER_SIZE * 4L, (long) (lineLength + 1) * maxLines))];
+            } else if (bytes.length - length < lineLength + 1) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + lineLength + 1));
+            }
+            System.arraycopy(buffer, lineStart, bytes, length, lineLength);
+            length += lineLength;
+            bytes[length++] = '\n';
+        }
+        return lines == 0 ? null : new Segment(bytes, length, firstLine, lines);
+    }
+
+    private void checkLineLength() throws IOException {
+        int length = lineEnd - lineStart;
+        // Bytes are at least as many as characters; only decode to count when it could matter
+        if (length > maxLineLength && new String(buffer, lineStart, length, charset).length() > maxLineLength) {
+            throw lineTooLong(lineNumber);
+        }
+    }
+
+    /**
+     * Finds the next line in the buffer, reading more input as needed, and sets
+     * {@code lineStart}/{@code lineEnd} to its bounds without the line break.
+     */
+    private boolean nextLine() throws IOException {
+        if (!started) {
+            started = true;
+            fill();
+            skipByteOrderMark();
+        }
+        if (skipLineFeed) {
+            // The previous line ended with \r at the end of the buffer
+            if (pos == limit && !eof) {
+                fill();
+            }
+            if (pos < limit && buffer[pos] == '\n') {
+                pos++;
+            }
+            skipLineFeed = false;
+        }
+
+        int scanFrom = pos;
+        while (true) {
+            int end = indexOfLineBreak(scanFrom, limit);
+            if (end < limit) {
+                lineStart = pos;
+                lineEnd = end;
+                pos = end + 1;
+                if (buffer[end] == '\r') {
+                    if (pos < limit) {
+                        if (buffer[pos] == '\n') {
+                            pos++;
+                        }
+                    } else {
+                        skipLineFeed = true;
+                    }
+                }
+                return true;
+            }
+            if (eof) {
+                if (pos == limit) {
+                    return false;
+                }
+                lineStart = pos;
+                lineEnd = limit;
+                pos = limit;
+                return true;
+            }
+            if (limit - pos > maxLineBytes) {
+                throw lineTooLong(lineNumber + 1);
+            }
+            int scanned = limit - pos;
+            fill();
+            scanFrom = pos + scanned;
+        }
+    }
+
+    /**
+     * Moves the unread bytes to the front of the buffer, growing it if it is full, and reads
+     * as much input as fits.
+     */
+    private void fill() throws IOException {
+        if (pos > 0) {
+            System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int requested = buffer.length - limit;
+        int read = in.readNBytes(buffer, limit, requested);
+        limit += read;
+        if (read < requested) {
+            eof = true;
+        }
+    }
+
+    private void skipByteOrderMark() {
+        if (StandardCharsets.UTF_8.equals(charset) && limit >= 3
+                && buffer[0] == (byte) 0xEF && buffer[1] == (byte) 0xBB && buffer[2] == (byte) 0xBF) {
+            pos = 3;
+        }
+    }
+
+    private String[] split(int start, int end) throws IOException {
+        int count = 0;
+        int cellStart = start;
+        boolean inQuotes = false;
+        boolean quoted = false;
+        int p = start;
+        while (true) {
+            int special = indexOfCellBreak(p, end);
+            if (special == end) {
+                break;
+            }
+            p = special + 1;
+            if (buffer[special] == QUOTE) {
+                quoted = true;
+                if (inQuotes && p < end && buffer[p] == QUOTE) {
+                    p++; // Escaped quote
+                } else {
+                    inQuotes = !inQuotes;
+                }
+            } else if (!inQuotes) {
+                count = addCell(count, cellStart, special, quoted);
+                cellStart = p;
+                quoted = false;
+            }
+        }
+        if (inQuotes) {
+            log.warn("Unclosed quote in line {}, treating as literal", lineNumber);
+        }
+        count = addCell(count, cellStart, end, quoted);
+        return Arrays.copyOf(cells, count);
+    }
+
+    private int addCell(int count, int from, int to, boolean quoted) throws IOException {
+        if (count == maxFields) {
+            log.warn("Line {} exceeds maximum field count (max: {})", lineNumber, maxFields);
+            throw new IOException("Line " + lineNumber + " exceeds maximum field count: " + maxFields);
+        }
+        if (count == cells.length) {
+            cells = Arrays.copyOf(cells, Math.min(maxFields, cells.length * 2));
+        }
+        if (from == to) {
+            cells[count] = "";
+        } else if (quoted) {
+            cells[count] = unquote(from, to);
+        } else {
+            cells[count] = new String(buffer, from, to - from, charset);
+        }
+        return count + 1;
+    }
+
+    /**
+     * Decodes a cell containing quotes: quotes that open or close quoting are dropped and
+     * {@code ""} inside quotes becomes one quote.
+     */
+    private String unquote(int from, int to) {
+        if (unquoted.length < to - from) {
+            unquoted = new byte[Math.max(to - from, unquoted.length * 2)];
+        }
+        int length = 0;
+        boolean inQuotes = false;
+        for (int i = from; i < to; i++) {
+            byte b = buffer[i];
+            if (b != QUOTE) {
+                unquoted[length++] = b;
+            } else if (inQuotes && i + 1 < to && buffer[i + 1] == QUOTE) {
+                unquoted[length++] = QUOTE;
+                i++;
+            } else {
+                inQuotes = !inQuotes;
+            }
+        }
+        return new String(unquoted, 0, length, charset);
+    }
+
+    private IOException lineTooLong(int line) {
+        log.warn("Line {} exceeds maximum length (max: {} chars)", line, maxLineLength);
+        return new IOException("Line " + line + " exceeds maximum length: " + maxLineLength);
+    }
+
+    /**
+     * Returns the index of the first {@code \r} or {@code \n} in {@code [from, to)}, or {@code to}.
+     */
+    private int indexOfLineBreak(int from, int to) {
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            long word = (long) LONGS.get(buffer, i);
+            long found = matches(word, CARRIAGE_RETURNS) | matches(word, LINE_FEEDS);
+            if (found != 0) {
+                return i + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+        }
+        for (; i < to; i++) {
+            byte b = buffer[i];
+            if (b == '\r' || b == '\n') {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * Returns the index of the first delimiter or quote in {@code [from, to)}, or {@code to}.
+     */
+    private int indexOfCellBreak(int from, int to) {
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            long word = (long) LONGS.get(buffer, i);
+            long found = matches(word, delimiters) | matches(word, QUOTES);
+            if (found != 0) {
+                return i + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+        }
+        for (; i < to; i++) {
+            byte b = buffer[i];
+            if (b == delimiter || b == QUOTE) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * Sets the high bit of every byte of {@code word} equal to the byte repeated in
+     * {@code pattern}. Bytes above a match may be flagged spuriously, but the lowest flagged
+     * byte is always a real match, which is all the scans use.
+     */
+    private static long matches(long word, long pattern) {
+        long x = word ^ pattern;
+        return (x - ONES) & ~x & HIGH_BITS;
+    }
+}
@@ -2,16 +2,21 @@ package com.xtopdf.xtopdf.services.conversion.spreadsheet;
 
 import com.xtopdf.xtopdf.pdf.PdfBackendProvider;
 import com.xtopdf.xtopdf.pdf.PdfDocumentBuilder;
+import com.xtopdf.xtopdf.pdf.PdfOutputTarget;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Unified service for converting delimiter-separated files (CSV, TSV, etc.) to PDF.
@@ -21,6 +26,11 @@ import java.util.List;
  * This service replaces the separate CsvToPdfService and TsvToPdfService with a
  * single parameterized implementation, ensuring bug fixes and improvements apply
  * to all delimiter-separated formats automatically.
+ *
+ * Input is split by {@link DelimitedRowReader} on the raw bytes, in the charset set by
+ * {@code xtopdf.csv.charset} (UTF-8 by default). Files above the streaming threshold are
+ * cut into segments of whole lines that are parsed and rendered in parallel on the
+ * {@link SheetRenderPool}, then joined in order.
  */
 @Slf4j
 @Service
@@ -34,14 +44,46 @@ public class DelimiterSeparatedToPdfService {
     // Performance: Streaming thresholds for large files
     private static final long STREAMING_THRESHOLD = 10_000_000; // 10MB
     private static final int CHUNK_SIZE = 1000; // Process 1000 rows at a time
+    private static final int SEGMENT_CHUNKS = 10; // Chunks per segment rendered by one worker
+    private static final int HEADER_ROWS = 1; // The first row is the header, repeated on every page
 
     private final PdfBackendProvider pdfBackend;
+    private final Charset charset;
+    private final SheetRenderPool renderPool;
+    private final int segmentLines;
 
     public DelimiterSeparatedToPdfService(PdfBackendProvider pdfBackend) {
+        this(pdfBackend, "UTF-8", SheetRenderPool.sequential());
+    }
+
+    @Autowired
+    public DelimiterSeparatedToPdfService(PdfBackendProvider pdfBackend,
+                                          @Value("${xtopdf.csv.charset:UTF-8}") String charset,
+                                          SheetRenderPool renderPool) {
+        this(pdfBackend, charset, renderPool, SEGMENT_CHUNKS * CHUNK_SIZE);
+    }
+
+    DelimiterSeparatedToPdfService(PdfBackendProvider pdfBackend, String charset, SheetRenderPool renderPool,
+                                   int segmentLines) {
         this.pdfBackend = pdfBackend;
+        this.charset = DelimitedRowReader.requireAsciiCompatible(Charset.forName(charset));
+        this.renderPool = renderPool;
+        this.segmentLines = segmentLines;
     }
 
     public void convertDelimiterSeparatedToPdf(MultipartFile inputFile, File pdfFile, char delimiter) throws IOException {
+        convertDelimiterSeparatedToTarget(inputFile, PdfOutputTarget.file(pdfFile), delimiter);
+    }
+
+    /**
+     * Converts a delimiter-separated file and writes the result to the given target.
+     *
+     * @param inputFile the input file
+     * @param target where the finished document goes (a file, or kept in memory)
+     * @param delimiter the field delimiter
+     * @throws IOException if parsing fails or the PDF cannot be created
+     */
+    public void convertDelimiterSeparatedToTarget(MultipartFile inputFile, PdfOutputTarget target, char delimiter) throws IOException {
         log.debug("Starting delimiter-separated to PDF conversion for file: {} (delimiter: '{}')",
                 inputFile.getOriginalFilename(), delimiter == '\t' ? "\\t" : String.valueOf(delimiter));
 
@@ -53,43 +95,32 @@ public class DelimiterSeparatedToPdfService {
         }
 
         // Route to streaming or in-memory processing based on file size
-        if (fileSize > STREAMING_THRESHOLD) {
+        if (fileSize > STREAMING_THRESHOLD && renderPool.isParallel()) {
+            log.debug("Using parallel streaming mode for large file: {} bytes", fileSize);
+            convertStreamingParallel(inputFile, target, delimiter);
+        } else if (fileSize > STREAMING_THRESHOLD) {
             log.debug("Using streaming mode for large file: {} bytes", fileSize);
-            convertStreaming(inputFile, pdfFile, delimiter);
+            convertStreaming(inputFile, target, delimiter);
         } else {
             log.debug("Using in-memory mode for file: {} bytes", fileSize);
-            convertInMemory(inputFile, pdfFile, delimiter);
+            convertInMemory(inputFile, target, delimiter);
         }
     }
 
     /**
      * Convert delimiter-separated file to PDF using in-memory processing for smaller files.
      */
-    private void convertInMemory(MultipartFile inputFile, File pdfFile, char delimiter) throws IOException {
+    private void convertInMemory(MultipartFile inputFile, PdfOutputTarget target, char delimiter) throws IOException {
         List<String[]> rows = new ArrayList<>();
         int maxColumns = 0;
 
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(inputFile.getInputStream()))) {
-            String line;
-            int lineNumber = 0;
-
-            while ((line = br.readLine()) != null) {
-                lineNumber++;
-
-                if (line.length() > MAX_LINE_LENGTH) {
-                    log.warn("Line {} exceeds maximum length: {} chars (max: {})",
-                            lineNumber, line.length(), MAX_LINE_LENGTH);
-                    throw new IOException("Line " + lineNumber + " exceeds maximum length: " + MAX_LINE_LENGTH);
-                }
-
-                String[] values = parseLine(line, lineNumber, delimiter);
-
-                if (values.length > MAX_FIELDS) {
-                    log.warn("Line {} exceeds maximum field count: {} fields (max: {})",
-                            lineNumber, values.length, MAX_FIELDS);
-                    throw new IOException("Line " + lineNumber + " exceeds maximum field count: " + MAX_FIELDS);
-                }
+        try (InputStream in = inputFile.getInputStream()) {
+            // The whole file fits in the buffer, so it is read in one go
+            int bufferSize = (int) Math.min(DelimitedRowReader.DEFAULT_BUFFER_SIZE, inputFile.getSize() + 1);
+            DelimitedRowReader reader = newReader(in, delimiter, bufferSize);
+            String[] values;
 
+            while ((values = reader.nextRow()) != null) {
                 rows.add(values);
                 maxColumns = Math.max(maxColumns, values.length);
             }
@@ -102,12 +133,12 @@ public class DelimiterSeparatedToPdfService {
 
         log.debug("Parsed {} rows with max {} columns", rows.size(), maxColumns);
 
-        String[][] tableData = normalizeRows(rows, maxColumns);
+        String[][] tableData = padRows(rows, maxColumns);
 
         try (PdfDocumentBuilder builder = pdfBackend.createBuilder()) {
-            builder.addTable(tableData);
-            builder.save(pdfFile);
-            log.info("Successfully converted to PDF: {} -> {}", inputFile.getOriginalFilename(), pdfFile.getName());
+            builder.addTable(tableData, HEADER_ROWS);
+            target.write(builder);
+            log.info("Successfully converted to PDF: {} -> {}", inputFile.getOriginalFilename(), target.description());
         } catch (Exception e) {
             log.error("Error creating PDF: {}", e.getMessage(), e);
             throw new IOException("Error creating PDF: " + e.getMessage(), e);
@@ -117,39 +148,23 @@ public class DelimiterSeparatedToPdfService {
     /**
      * Convert delimiter-separated file to PDF using streaming for large files.
      */
-    private void convertStreaming(MultipartFile inputFile, File pdfFile, char delimiter) throws IOException {
+    private void convertStreaming(MultipartFile inputFile, PdfOutputTarget target, char delimiter) throws IOException {
         try (PdfDocumentBuilder builder = pdfBackend.createBuilder();
-             BufferedReader br = new BufferedReader(new InputStreamReader(inputFile.getInputStream()))) {
+             InputStream in = inputFile.getInputStream()) {
 
+            DelimitedRowReader reader = newReader(in, delimiter, DelimitedRowReader.DEFAULT_BUFFER_SIZE);
             List<String[]> chunk = new ArrayList<>();
-            String line;
+            String[] values;
             int maxColumns = 0;
-            int lineNumber = 0;
             int totalRows = 0;
 
-            while ((line = br.readLine()) != null) {
-                lineNumber++;
-
-                if (line.length() > MAX_LINE_LENGTH) {
-                    log.warn("Line {} exceeds maximum length: {} chars (max: {})",
-                            lineNumber, line.length(), MAX_LINE_LENGTH);
-                    throw new IOException("Line " + lineNumber + " exceeds maximum length: " + MAX_LINE_LENGTH);
-                }
-
-                String[] values = parseLine(line, lineNumber, delimiter);
-
-                if (values.length > MAX_FIELDS) {
-                    log.warn("Line {} exceeds maximum field count: {} fields (max: {})",
-                            lineNumber, values.length, MAX_FIELDS);
-                    throw new IOException("Line " + lineNumber + " exceeds maximum field count: " + MAX_FIELDS);
-                }
-
+            while ((values = reader.nextRow()) != null) {
                 chunk.add(values);
                 maxColumns = Math.max(maxColumns, values.length);
 
                 if (chunk.size() >= CHUNK_SIZE) {
-                    String[][] tableData = normalizeRows(chunk, maxColumns);
-                    builder.addTable(tableData);
+                    String[][] tableData = padRows(chunk, maxColumns);
+                    addChunk(builder, tableData, totalRows == 0);
                     totalRows += chunk.size();
                     log.debug("Processed chunk of {} rows (total: {})", chunk.size(), totalRows);
                     chunk.clear();
@@ -157,8 +172,8 @@ public class DelimiterSeparatedToPdfService {
             }
 
             if (!chunk.isEmpty()) {
-                String[][] tableData = normalizeRows(chunk, maxColumns);
-                builder.addTable(tableData);
+                String[][] tableData = padRows(chunk, maxColumns);
+                addChunk(builder, tableData, totalRows == 0);
                 totalRows += chunk.size();
                 log.debug("Processed final chunk of {} rows (total: {})", chunk.size(), totalRows);
             }
@@ -168,9 +183,9 @@ public class DelimiterSeparatedToPdfService {
                 throw new IOException("File is empty");
             }
 
-            builder.save(pdfFile);
+            target.write(builder);
             log.info("Successfully converted to PDF using streaming: {} -> {} ({} rows)",
-                    inputFile.getOriginalFilename(), pdfFile.getName(), totalRows);
+                    inputFile.getOriginalFilename(), target.description(), totalRows);
 
         } catch (IOException e) {
             throw e;
@@ -181,51 +196,141 @@ public class DelimiterSeparatedToPdfService {
     }
 
     /**
-     * Normalize rows to have the same number of columns.
+     * Convert a large delimiter-separated file to PDF on several threads.
+     *
+     * <p>This thread only cuts the input into segments of {@code SEGMENT_CHUNKS * CHUNK_SIZE}
+     * whole lines. Each segment is parsed and rendered on a worker, into its own part of the
+     * document, and the parts are joined in input order. Tables are padded to the widest row
+     * seen so far, as in {@link #convertStreaming}: a segment parses its rows first, then waits
+     * only for the previous segment's width before rendering. Each segment starts on a new page.</p>
+     *
+     * <p>Package-private for testing.</p>
      */
-    private String[][] normalizeRows(List<String[]> rows, int maxColumns) {
-        String[][] tableData = new String[rows.size()][maxColumns];
-        for (int i = 0; i < rows.size(); i++) {
-            String[] row = rows.get(i);
-            for (int j = 0; j < maxColumns; j++) {
-                tableData[i][j] = j < row.length ? row[j] : "";
+    void convertStreamingParallel(MultipartFile inputFile, PdfOutputTarget target, char delimiter)
+            throws IOException {
+        try (PdfDocumentBuilder builder = pdfBackend.createBuilder();
+             InputStream in = inputFile.getInputStream();
+             SheetRenderPool.Session segments = renderPool.open(formatTag(delimiter), builder, pdfBackend)) {
+
+            DelimitedRowReader reader = newReader(in, delimiter, DelimitedRowReader.DEFAULT_BUFFER_SIZE);
+            CompletableFuture<Integer> widthBefore = CompletableFuture.completedFuture(0);
+            DelimitedRowReader.Segment segment;
+            String[] header = null;
+            int totalRows = 0;
+
+            while ((segment = reader.nextSegment(segmentLines)) != null) {
+                DelimitedRowReader.Segment lines = segment;
+                CompletableFuture<Integer> previousWidth = widthBefore;
+                CompletableFuture<Integer> width = new CompletableFuture<>();
+                String[] segmentHeader = header;
+                segments.render("lines " + lines.firstLine() + "-" + (lines.firstLine() + lines.lines() - 1),
+                        part -> renderSegment(part, lines, delimiter, segmentHeader, previousWidth, width));
+                widthBefore = width;
+                if (header == null) {
+                    header = new DelimitedRowReader(lines, charset, delimiter, MAX_LINE_LENGTH, MAX_FIELDS).nextRow();
+                }
+                totalRows += lines.lines();
             }
+
+            if (totalRows == 0) {
+                log.warn("File is empty: {}", inputFile.getOriginalFilename());
+                throw new IOException("File is empty");
+            }
+
+            segments.finish();
+            target.write(builder);
+            log.info("Successfully converted to PDF using parallel streaming: {} -> {} ({} rows)",
+                    inputFile.getOriginalFilename(), target.description(), totalRows);
+
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error creating PDF: {}", e.getMessage(), e);
+            throw new IOException("Error creating PDF: " + e.getMessage(), e);
         }
-        return tableData;
     }
 
     /**
-     * Parse a delimiter-separated line handling quoted values and escaped quotes.
+     * Parses one segment and adds its rows as tables of {@code CHUNK_SIZE} rows, headed by the
+     * file's header row unless this is the first segment. Completes
+     * {@code width} with the widest row up to the end of this segment once the rows are parsed,
+     * or exceptionally if parsing fails, so the next segment never waits forever.
      */
-    String[] parseLine(String line, int lineNumber, char delimiter) {
-        List<String> values = new ArrayList<>();
-        StringBuilder currentValue = new StringBuilder();
-        boolean inQuotes = false;
-
-        for (int i = 0; i < line.length(); i++) {
-            char c = line.charAt(i);
-
-            if (c == '"') {
-                if (inQuotes && i + 1 < line.length() && line.charAt(i + 1) == '"') {
-                    currentValue.append('"');
-                    i++;
-                } else {
-                    inQuotes = !inQuotes;
-                }
-            } else if (c == delimiter && !inQuotes) {
-                values.add(currentValue.toString());
-                currentValue = new StringBuilder();
+    private void renderSegment(PdfDocumentBuilder builder, DelimitedRowReader.Segment segment, char delimiter,
+                               String[] header, CompletableFuture<Integer> previousWidth,
+                               CompletableFuture<Integer> width)
+            throws IOException {
+        List<String[]> rows = new ArrayList<>(segment.lines());
+        int maxColumns;
+        try {
+            DelimitedRowReader reader = new DelimitedRowReader(segment, charset, delimiter, MAX_LINE_LENGTH, MAX_FIELDS);
+            int segmentColumns = 0;
+            String[] values;
+            while ((values = reader.nextRow()) != null) {
+                rows.add(values);
+                segmentColumns = Math.max(segmentColumns, values.length);
+            }
+            maxColumns = previousWidth.join();
+            width.complete(Math.max(maxColumns, segmentColumns));
+        } catch (IOException | RuntimeException | Error e) {
+            width.completeExceptionally(e);
+            throw e;
+        }
+
+        for (int start = 0; start < rows.size(); start += CHUNK_SIZE) {
+            List<String[]> chunk = rows.subList(start, Math.min(rows.size(), start + CHUNK_SIZE));
+            for (String[] row : chunk) {
+                maxColumns = Math.max(maxColumns, row.length);
+            }
+            if (start == 0 && header != null) {
+                List<String[]> headed = new ArrayList<>(chunk.size() + 1);
+                headed.add(header);
+                headed.addAll(chunk);
+                builder.addTable(padRows(headed, maxColumns), HEADER_ROWS);
             } else {
-                currentValue.append(c);
+                addChunk(builder, padRows(chunk, maxColumns), start == 0);
             }
         }
+    }
 
-        if (inQuotes) {
-            log.warn("Unclosed quote in line {}, treating as literal", lineNumber);
+    /**
+     * Adds one chunk of a table: the first chunk starts the table with its header row, later
+     * chunks continue it with the same column widths.
+     */
+    private static void addChunk(PdfDocumentBuilder builder, String[][] tableData, boolean first) throws IOException {
+        if (first) {
+            builder.addTable(tableData, HEADER_ROWS);
+        } else {
+            builder.continueTable(tableData);
         }
+    }
+
+    private static String formatTag(char delimiter) {
+        return switch (delimiter) {
+            case ',' -> "csv";
+            case '\t' -> "tsv";
+            default -> "delimited";
+        };
+    }
 
-        values.add(currentValue.toString());
+    private DelimitedRowReader newReader(InputStream in, char delimiter, int bufferSize) {
+        return new DelimitedRowReader(in, charset, delimiter, bufferSize, MAX_LINE_LENGTH, MAX_FIELDS);
+    }
 
-        return values.toArray(new String[0]);
+    /**
+     * Pads short rows with empty cells so every row has maxColumns cells. Rows that are
+     * already full width go into the table as they are, without being copied.
+     */
+    private String[][] padRows(List<String[]> rows, int maxColumns) {
+        String[][] tableData = rows.toArray(new String[0][]);
+        for (int i = 0; i < tableData.length; i++) {
+            String[] row = tableData[i];
+            if (row.length < maxColumns) {
+                String[] padded = Arrays.copyOf(row, maxColumns);
+                Arrays.fill(padded, row.length, maxColumns, "");
+                tableData[i] = padded;
+            }
+        }
+        return tableData;
     }
 }
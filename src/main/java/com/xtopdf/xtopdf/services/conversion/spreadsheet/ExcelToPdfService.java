@@ -2,13 +2,17 @@ package com.xtopdf.xtopdf.services.conversion.spreadsheet;
 
 import com.xtopdf.xtopdf.pdf.PdfBackendProvider;
 import com.xtopdf.xtopdf.pdf.PdfDocumentBuilder;
+import com.xtopdf.xtopdf.pdf.PdfOutputTarget;
 import com.xtopdf.xtopdf.utils.ExcelUtils;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.openxml4j.opc.OPCPackage;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
 import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
 import org.apache.poi.xssf.usermodel.XSSFColor;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import org.xml.sax.InputSource;
@@ -16,12 +20,12 @@ import org.xml.sax.XMLReader;
 
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
+import java.io.UncheckedIOException;
 import java.util.Iterator;
-import java.util.List;
 
 /**
  * Unified service for converting Excel files (both XLS and XLSX) to PDF.
@@ -36,10 +40,23 @@ public class ExcelToPdfService {
     static final long STREAMING_THRESHOLD = 10_000_000L; // 10 MB
     static final int CHUNK_SIZE = 1000;
 
+    private static final SheetRenderPool.SheetRenderer EMPTY_SHEET =
+            builder -> builder.addParagraph("(Empty sheet)\n");
+
     private final PdfBackendProvider pdfBackend;
+    private final SheetRenderPool sheetRenderPool;
 
+    /**
+     * Creates a service that renders sheets one after another on the calling thread.
+     */
     public ExcelToPdfService(PdfBackendProvider pdfBackend) {
+        this(pdfBackend, SheetRenderPool.sequential());
+    }
+
+    @Autowired
+    public ExcelToPdfService(PdfBackendProvider pdfBackend, SheetRenderPool sheetRenderPool) {
         this.pdfBackend = pdfBackend;
+        this.sheetRenderPool = sheetRenderPool;
     }
 
     /**
@@ -65,11 +82,25 @@ public class ExcelToPdfService {
      */
     public void convertExcelToPdf(MultipartFile excelFile, File pdfFile,
                                    boolean executeMacros) throws IOException {
+        convertExcelToTarget(excelFile, pdfFile != null ? PdfOutputTarget.file(pdfFile) : null, executeMacros);
+    }
+
+    /**
+     * Converts an Excel file (XLS or XLSX) and writes the result to the given target.
+     *
+     * @param excelFile     the input Excel file
+     * @param target        where the finished document goes (a file, or kept in memory)
+     * @param executeMacros if true, recalculate formulas before conversion
+     * @throws IOException              if an I/O error occurs during conversion
+     * @throws IllegalArgumentException if excelFile or target is null
+     */
+    public void convertExcelToTarget(MultipartFile excelFile, PdfOutputTarget target,
+                                   boolean executeMacros) throws IOException {
         // Validate inputs before any resource allocation (Requirement 8.4)
         if (excelFile == null) {
             throw new IllegalArgumentException("Input file must not be null");
         }
-        if (pdfFile == null) {
+        if (target == null) {
             throw new IllegalArgumentException("Output file must not be null");
         }
         if (excelFile.getSize() > MAX_FILE_SIZE) {
@@ -78,9 +109,9 @@ public class ExcelToPdfService {
 
         // Route to appropriate conversion path (Requirements 9.1, 9.2)
         if (isStreamingRequired(excelFile)) {
-            convertXlsxStreaming(excelFile, pdfFile);
+            convertXlsxStreaming(excelFile, target);
         } else {
-            convertInMemory(excelFile, pdfFile, executeMacros);
+            convertInMemory(excelFile, target, executeMacros);
         }
     }
 
@@ -108,12 +139,22 @@ public class ExcelToPdfService {
     /**
      * In-memory conversion path using WorkbookFactory for format auto-detection.
      * Handles both XLS and XLSX files below the streaming threshold.
+     *
+     * <p>Sheets are read one at a time on this thread and rendered concurrently by the
+     * {@link SheetRenderPool}, which assembles them in sheet order.</p>
      */
     void convertInMemory(MultipartFile excelFile, File pdfFile,
                          boolean executeMacros) throws IOException {
+        convertInMemory(excelFile, PdfOutputTarget.file(pdfFile), executeMacros);
+    }
+
+    private void convertInMemory(MultipartFile excelFile, PdfOutputTarget target,
+                                 boolean executeMacros) throws IOException {
         try (var inputStream = excelFile.getInputStream();
              Workbook workbook = WorkbookFactory.create(inputStream);
-             PdfDocumentBuilder builder = pdfBackend.createBuilder()) {
+             PdfDocumentBuilder builder = pdfBackend.createBuilder();
+             SheetRenderPool.Session sheets = sheetRenderPool.open(
+                     workbook instanceof HSSFWorkbook ? "xls" : "xlsx", builder, pdfBackend)) {
 
             // Recalculate formulas when executeMacros is true (Requirement 2.1)
             if (executeMacros) {
@@ -124,21 +165,21 @@ public class ExcelToPdfService {
                 }
             }
 
-            // Process each sheet in the workbook
+            // Process each sheet in the workbook; each one starts on a new page
             for (int sheetIndex = 0; sheetIndex < workbook.getNumberOfSheets(); sheetIndex++) {
                 Sheet sheet = workbook.getSheetAt(sheetIndex);
+                String header = "Sheet: " + sheet.getSheetName() + "\n";
+                SheetRenderPool.SheetRenderer content = readSheet(sheet);
 
-                if (sheetIndex > 0) {
-                    builder.newPage();
-                }
-
-                // Add sheet name as header
-                builder.addParagraph("Sheet: " + sheet.getSheetName() + "\n");
-
-                processSheet(sheet, builder);
+                sheets.render(sheet.getSheetName(), sheetBuilder -> {
+                    // Add sheet name as header
+                    sheetBuilder.addParagraph(header);
+                    content.render(sheetBuilder);
+                });
             }
+            sheets.finish();
 
-            builder.save(pdfFile);
+            target.write(builder);
         } catch (IllegalArgumentException e) {
             // Re-throw validation exceptions as-is
             throw e;
@@ -152,23 +193,31 @@ public class ExcelToPdfService {
     /**
      * SAX streaming conversion path for large XLSX files.
      * Uses OPCPackage + XSSFReader + SAX ContentHandler to parse the file
-     * without loading the entire workbook into memory.
+     * without loading the entire workbook into memory. Rows are written as
+     * tables of CHUNK_SIZE rows while the sheet is parsed (see SheetChunkWriter),
+     * so heap use stays flat however many rows a sheet has.
      *
-     * <p>Note: The streaming path does NOT support cell formatting (CellFormatting)
-     * — it only extracts plain text values. This is an acknowledged trade-off
-     * per Requirement 9.4.</p>
+     * <p>Cell formatting (bold, fills and number formats) is resolved from the
+     * workbook's styles table through a bounded per-conversion style cache
+     * (XlsxStyleResolver). Column widths are not read in this path; columns
+     * share the page width equally.</p>
      *
      * @param excelFile the input XLSX file
      * @param pdfFile   the output PDF file
      * @throws IOException if an I/O error occurs during conversion
      */
     void convertXlsxStreaming(MultipartFile excelFile, File pdfFile) throws IOException {
+        convertXlsxStreaming(excelFile, PdfOutputTarget.file(pdfFile));
+    }
+
+    private void convertXlsxStreaming(MultipartFile excelFile, PdfOutputTarget target) throws IOException {
         try (InputStream inputStream = excelFile.getInputStream();
              OPCPackage opcPackage = OPCPackage.open(inputStream);
              PdfDocumentBuilder builder = pdfBackend.createBuilder()) {
 
             ReadOnlySharedStringsTable sharedStrings = new ReadOnlySharedStringsTable(opcPackage);
             XSSFReader xssfReader = new XSSFReader(opcPackage);
+            XlsxStyleResolver styleResolver = openStyleResolver(xssfReader);
 
             Iterator<InputStream> sheetsData = xssfReader.getSheetsData();
             XSSFReader.SheetIterator sheetIterator = (XSSFReader.SheetIterator) sheetsData;
@@ -187,20 +236,11 @@ public class ExcelToPdfService {
                     // Add sheet name as header
                     builder.addParagraph("Sheet: " + sheetName + "\n");
 
-                    // Collect all rows from the SAX handler
-                    List<List<String>> allRows = new ArrayList<>();
-                    int[] maxColumns = {0};
-
-                    SheetSaxHandler handler = new SheetSaxHandler(sharedStrings, (rowIndex, cellValues) -> {
-                        // Pad the allRows list to accommodate sparse rows
-                        while (allRows.size() <= rowIndex) {
-                            allRows.add(null);
-                        }
-                        allRows.set(rowIndex, cellValues);
-                        if (cellValues.size() > maxColumns[0]) {
-                            maxColumns[0] = cellValues.size();
-                        }
-                    });
+                    // Rows go straight from the SAX callbacks into table chunks
+                    InputStream sheetXml = new BufferedInputStream(sheetStream);
+                    int declaredColumns = SheetSaxHandler.declaredColumnCount(sheetXml);
+                    SheetChunkWriter chunkWriter = new SheetChunkWriter(builder, declaredColumns, CHUNK_SIZE);
+                    SheetSaxHandler handler = new SheetSaxHandler(sharedStrings, styleResolver, chunkWriter);
 
                     // Parse the sheet XML with SAX (XXE prevention hardening)
                     SAXParserFactory factory = SAXParserFactory.newInstance();
@@ -210,74 +250,55 @@ public class ExcelToPdfService {
                     SAXParser saxParser = factory.newSAXParser();
                     XMLReader xmlReader = saxParser.getXMLReader();
                     xmlReader.setContentHandler(handler);
-                    xmlReader.parse(new InputSource(sheetStream));
+                    xmlReader.parse(new InputSource(sheetXml));
 
-                    // Write rows in chunks
-                    if (allRows.isEmpty() || maxColumns[0] == 0) {
+                    if (!chunkWriter.finish()) {
                         builder.addParagraph("(Empty sheet)\n");
-                    } else {
-                        writeRowsInChunks(allRows, maxColumns[0], builder);
                     }
                 }
             }
 
-            builder.save(pdfFile);
+            target.write(builder);
         } catch (IOException e) {
             throw e;
+        } catch (UncheckedIOException e) {
+            // Thrown by the chunk writer from inside the SAX callbacks
+            throw e.getCause();
         } catch (Exception e) {
             throw new IOException("Error processing XLSX file in streaming mode", e);
         }
     }
 
-    /**
-     * Writes collected rows to the PDF builder in chunks of CHUNK_SIZE.
-     * Each chunk is written as a separate table call.
-     *
-     * @param allRows    the collected rows (may contain nulls for sparse rows)
-     * @param maxColumns the maximum number of columns across all rows
-     * @param builder    the PDF document builder
-     * @throws IOException if an I/O error occurs
-     */
-    private void writeRowsInChunks(List<List<String>> allRows, int maxColumns,
-                                    PdfDocumentBuilder builder) throws IOException {
-        int totalRows = allRows.size();
-        for (int startRow = 0; startRow < totalRows; startRow += CHUNK_SIZE) {
-            int endRow = Math.min(startRow + CHUNK_SIZE, totalRows);
-            int chunkSize = endRow - startRow;
-
-            String[][] chunkData = new String[chunkSize][maxColumns];
-            for (int i = 0; i < chunkSize; i++) {
-                List<String> rowValues = allRows.get(startRow + i);
-                for (int col = 0; col < maxColumns; col++) {
-                    if (rowValues != null && col < rowValues.size()) {
-                        chunkData[i][col] = rowValues.get(col) != null ? rowValues.get(col) : "";
-                    } else {
-                        chunkData[i][col] = "";
-                    }
-                }
-            }
-
-            builder.addTable(chunkData);
+    private static XlsxStyleResolver openStyleResolver(XSSFReader xssfReader) {
+        try {
+            StylesTable stylesTable = xssfReader.getStylesTable();
+            return stylesTable != null ? new XlsxStyleResolver(stylesTable) : null;
+        } catch (Exception e) {
+            log.warn("Could not read workbook styles, converting without formatting: {}", e.getMessage());
+            return null;
         }
     }
 
-    private void processSheet(Sheet sheet, PdfDocumentBuilder builder) throws IOException {
+    /**
+     * Reads a sheet's cells, formatting and column widths, and returns the renderer that
+     * draws them. Only reading touches the workbook; the renderer uses the extracted arrays
+     * and may run on another thread.
+     */
+    private SheetRenderPool.SheetRenderer readSheet(Sheet sheet) {
         if (sheet.getPhysicalNumberOfRows() == 0) {
-            builder.addParagraph("(Empty sheet)\n");
-            return;
+            return EMPTY_SHEET;
         }
 
         int maxColumns = getMaxColumnCount(sheet);
 
         if (maxColumns == 0) {
-            builder.addParagraph("(Empty sheet)\n");
-            return;
+            return EMPTY_SHEET;
         }
 
         String[][] tableData = extractTableData(sheet, maxColumns);
         CellFormatting[][] formatting = extractFormatting(sheet, maxColumns);
         float[] columnWidths = calculateColumnWidths(sheet, maxColumns, tableData);
-        builder.addTable(tableData, columnWidths, formatting);
+        return builder -> builder.addTable(tableData, columnWidths, formatting);
     }
 
     private int getMaxColumnCount(Sheet sheet) {
@@ -373,28 +394,14 @@ public class ExcelToPdfService {
         boolean hasBackground = false;
         int bgR = 255, bgG = 255, bgB = 255;
         try {
-            Color fillColor = style.getFillForegroundColorColor();
-            if (fillColor != null && style.getFillPattern() != FillPatternType.NO_FILL) {
-                byte[] rgb = null;
-                if (fillColor instanceof XSSFColor xssfColor) {
-                    rgb = xssfColor.getRGB();
-                    if (rgb == null) {
-                        rgb = xssfColor.getARGBHex() != null ? hexToRgb(xssfColor.getARGBHex()) : null;
-                    }
-                } else if (fillColor instanceof org.apache.poi.hssf.util.HSSFColor hssfColor) {
-                    short[] triplet = hssfColor.getTriplet();
-                    if (triplet != null) {
-                        rgb = new byte[]{(byte) triplet[0], (byte) triplet[1], (byte) triplet[2]};
-                    }
-                }
-                if (rgb != null && rgb.length >= 3) {
-                    bgR = rgb[0] & 0xFF;
-                    bgG = rgb[1] & 0xFF;
-                    bgB = rgb[2] & 0xFF;
-                    // Only mark as having background if it's not white
-                    if (bgR != 255 || bgG != 255 || bgB != 255) {
-                        hasBackground = true;
-                    }
+            byte[] rgb = fillRgb(style);
+            if (rgb != null && rgb.length >= 3) {
+                bgR = rgb[0] & 0xFF;
+                bgG = rgb[1] & 0xFF;
+                bgB = rgb[2] & 0xFF;
+                // Only mark as having background if it's not white
+                if (bgR != 255 || bgG != 255 || bgB != 255) {
+                    hasBackground = true;
                 }
             }
         } catch (Exception e) {
@@ -418,10 +425,32 @@ public class ExcelToPdfService {
         return new CellFormatting(bold, bgR, bgG, bgB, hasBackground, formattedValue);
     }
 
+    /**
+     * Returns the RGB bytes of a style's solid fill, or null if the style has no fill
+     * or its colour cannot be resolved. Shared with the streaming path (XlsxStyleResolver).
+     */
+    static byte[] fillRgb(CellStyle style) {
+        Color fillColor = style.getFillForegroundColorColor();
+        if (fillColor == null || style.getFillPattern() == FillPatternType.NO_FILL) {
+            return null;
+        }
+        if (fillColor instanceof XSSFColor xssfColor) {
+            byte[] rgb = xssfColor.getRGB();
+            return rgb != null ? rgb : hexToRgb(xssfColor.getARGBHex());
+        }
+        if (fillColor instanceof org.apache.poi.hssf.util.HSSFColor hssfColor) {
+            short[] triplet = hssfColor.getTriplet();
+            if (triplet != null) {
+                return new byte[]{(byte) triplet[0], (byte) triplet[1], (byte) triplet[2]};
+            }
+        }
+        return null;
+    }
+
     /**
      * Converts an ARGB hex string (e.g., "FF0000FF") to RGB byte array.
      */
-    private byte[] hexToRgb(String argbHex) {
+    private static byte[] hexToRgb(String argbHex) {
         if (argbHex == null || argbHex.length() < 6) {
             return null;
         }
@@ -5,6 +5,7 @@ import com.xtopdf.xtopdf.pdf.PdfDocumentBuilder;
 import lombok.extern.slf4j.Slf4j;
 import org.odftoolkit.odfdom.doc.OdfSpreadsheetDocument;
 import org.odftoolkit.odfdom.doc.table.OdfTable;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -20,50 +21,41 @@ public class OdsToPdfService {
     private static final int MAX_COLS = 1000;
     
     private final PdfBackendProvider pdfBackend;
+    private final SheetRenderPool sheetRenderPool;
     
     public OdsToPdfService(PdfBackendProvider pdfBackend) {
+        this(pdfBackend, SheetRenderPool.sequential());
+    }
+    
+    @Autowired
+    public OdsToPdfService(PdfBackendProvider pdfBackend, SheetRenderPool sheetRenderPool) {
         this.pdfBackend = pdfBackend;
+        this.sheetRenderPool = sheetRenderPool;
     }
     
     public void convertOdsToPdf(MultipartFile odsFile, File pdfFile) throws IOException {
         try (var fis = odsFile.getInputStream();
-             PdfDocumentBuilder builder = pdfBackend.createBuilder()) {
+             PdfDocumentBuilder builder = pdfBackend.createBuilder();
+             SheetRenderPool.Session sheets = sheetRenderPool.open("ods", builder, pdfBackend)) {
             
             OdfSpreadsheetDocument odsDocument = OdfSpreadsheetDocument.loadDocument(fis);
             List<OdfTable> tables = odsDocument.getTableList();
             
-            for (int i = 0; i < tables.size(); i++) {
-                OdfTable table = tables.get(i);
-                
-                if (i > 0) {
-                    builder.addParagraph("\n");
-                }
-                
-                builder.addParagraph("Sheet: " + table.getTableName() + "\n");
-                
-                int rowCount = Math.min(table.getRowCount(), MAX_ROWS);
-                int colCount = Math.min(table.getColumnCount(), MAX_COLS);
-                
-                if (rowCount == 0 || colCount == 0) {
-                    builder.addParagraph("(Empty sheet)\n");
-                    continue;
-                }
-                
-                String[][] tableData = new String[rowCount][colCount];
+            // odfdom is not thread-safe: cells are read here, sheets are rendered by the pool
+            for (OdfTable table : tables) {
+                String header = "Sheet: " + table.getTableName() + "\n";
+                String[][] tableData = readTable(table);
                 
-                for (int r = 0; r < rowCount; r++) {
-                    for (int c = 0; c < colCount; c++) {
-                        try {
-                            String cellValue = table.getCellByPosition(c, r).getDisplayText();
-                            tableData[r][c] = cellValue != null ? cellValue : "";
-                        } catch (Exception e) {
-                            tableData[r][c] = "";
-                        }
+                sheets.render(table.getTableName(), sheetBuilder -> {
+                    sheetBuilder.addParagraph(header);
+                    if (tableData == null) {
+                        sheetBuilder.addParagraph("(Empty sheet)\n");
+                    } else {
+                        sheetBuilder.addTable(tableData);
                     }
-                }
-                
-                builder.addTable(tableData);
+                });
             }
+            sheets.finish();
             
             builder.save(pdfFile);
         } catch (Exception e) {
@@ -71,4 +63,30 @@ public class OdsToPdfService {
             throw new IOException("Error processing ODS file", e);
         }
     }
+    
+    /**
+     * Reads a sheet's display text, or returns null if the sheet is empty.
+     */
+    private static String[][] readTable(OdfTable table) {
+        int rowCount = Math.min(table.getRowCount(), MAX_ROWS);
+        int colCount = Math.min(table.getColumnCount(), MAX_COLS);
+        
+        if (rowCount == 0 || colCount == 0) {
+            return null;
+        }
+        
+        String[][] tableData = new String[rowCount][colCount];
+                
+        for (int r = 0; r < rowCount; r++) {
+            for (int c = 0; c < colCount; c++) {
+                try {
+                    String cellValue = table.getCellByPosition(c, r).getDisplayText();
+                    tableData[r][c] = cellValue != null ? cellValue : "";
+                } catch (Exception e) {
+                    tableData[r][c] = "";
+                }
+            }
+        }
+        return tableData;
+    }
 }
@@ -0,0 +1,148 @@
+package com.xtopdf.xtopdf.services.conversion.spreadsheet;
+
+import com.xtopdf.xtopdf.pdf.PdfDocumentBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Receives rows from a {@link SheetSaxHandler} and writes them to the PDF as tables of at most
+ * {@code chunkSize} rows, as soon as each chunk is complete. Only the current chunk is held
+ * in memory, so heap use does not grow with the number of rows in the sheet.
+ *
+ * <p>Rows skipped in the sheet XML (sparse rows) and rows without cells are counted rather than
+ * stored, and written as empty rows ahead of the next row with cells, so rows keep their
+ * positions as in the non-streaming conversion. A long run goes out through the same chunks as
+ * any other rows, so it costs pages but not heap. The table width starts at the column count
+ * declared by the sheet's {@code <dimension>} element and grows if a row turns out to be wider;
+ * the next chunk is then written at the new width.</p>
+ *
+ * <p>When rows carry {@link CellFormatting}, each chunk is written with it; chunks without any
+ * formatting are written as plain tables.</p>
+ *
+ * <p>The builder's {@link IOException}s are rethrown as {@link UncheckedIOException}, since the
+ * SAX callback cannot throw checked exceptions.</p>
+ */
+final class SheetChunkWriter implements SheetSaxHandler.RowCallback {
+
+    private static final String[] EMPTY_ROW = new String[0];
+    private static final CellFormatting[] NO_FORMATTING = new CellFormatting[0];
+
+    private final PdfDocumentBuilder builder;
+    private final int chunkSize;
+    private final int declaredColumns;
+    private final List<String[]> chunk;
+    private final List<CellFormatting[]> chunkFormatting;
+    private boolean chunkHasFormatting;
+    private int columns;
+    private int nextRowIndex;
+    private long emptyRows;
+    private boolean wroteRows;
+
+    /**
+     * @param builder the builder the tables are added to
+     * @param declaredColumns the column count from the sheet's dimension, or 0 if unknown
+     * @param chunkSize the maximum number of rows per table
+     */
+    SheetChunkWriter(PdfDocumentBuilder builder, int declaredColumns, int chunkSize) {
+        this.builder = builder;
+        this.declaredColumns = Math.max(0, declaredColumns);
+        this.chunkSize = chunkSize;
+        this.chunk = new ArrayList<>(chunkSize);
+        this.chunkFormatting = new ArrayList<>(chunkSize);
+    }
+
+    @Override
+    public void onRow(int rowIndex, List<String> cellValues, List<CellFormatting> cellFormatting) {
+        emptyRows += Math.max(0, rowIndex - nextRowIndex);
+        nextRowIndex = Math.max(nextRowIndex, rowIndex + 1);
+        if (cellValues.isEmpty()) {
+            emptyRows++;
+            return;
+        }
+        // The declared width only applies once the sheet has any cells at all
+        columns = Math.max(columns, Math.max(declaredColumns, cellValues.size()));
+        addEmptyRows();
+        add(cellValues.toArray(EMPTY_ROW),
+                cellFormatting != null ? cellFormatting.toArray(NO_FORMATTING) : NO_FORMATTING);
+    }
+
+    /**
+     * Writes the rows still pending.
+     *
+     * @return true if any table was written; false if the sheet had no cells
+     * @throws IOException if the builder fails
+     */
+    boolean finish() throws IOException {
+        try {
+            if (columns > 0) {
+                addEmptyRows();
+            }
+            flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return wroteRows;
+    }
+
+    private void addEmptyRows() {
+        long count = emptyRows;
+        emptyRows = 0;
+        for (long i = 0; i < count; i++) {
+            add(EMPTY_ROW, NO_FORMATTING);
+        }
+    }
+
+    private void add(String[] row, CellFormatting[] formatting) {
+        chunk.add(row);
+        chunkFormatting.add(formatting);
+        for (CellFormatting cell : formatting) {
+            chunkHasFormatting |= cell != CellFormatting.PLAIN;
+        }
+        if (chunk.size() >= chunkSize) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        String[][] table = new String[chunk.size()][columns];
+        for (int i = 0; i < table.length; i++) {
+            String[] row = chunk.get(i);
+            for (int col = 0; col < columns; col++) {
+                String value = col < row.length ? row[col] : null;
+                table[i][col] = value != null ? value : "";
+            }
+        }
+        CellFormatting[][] formatting = chunkHasFormatting ? formattingTable(table.length) : null;
+        chunk.clear();
+        chunkFormatting.clear();
+        chunkHasFormatting = false;
+        try {
+            if (formatting != null) {
+                builder.addTable(table, null, formatting);
+            } else {
+                builder.addTable(table);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        wroteRows = true;
+    }
+
+    private CellFormatting[][] formattingTable(int rows) {
+        CellFormatting[][] formatting = new CellFormatting[rows][columns];
+        for (int i = 0; i < rows; i++) {
+            CellFormatting[] row = chunkFormatting.get(i);
+            for (int col = 0; col < columns; col++) {
+                CellFormatting cell = col < row.length ? row[col] : null;
+                formatting[i][col] = cell != null ? cell : CellFormatting.PLAIN;
+            }
+        }
+        return formatting;
+    }
+}
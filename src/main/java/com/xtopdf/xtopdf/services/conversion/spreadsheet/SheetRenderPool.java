@@ -0,0 +1,254 @@
+package com.xtopdf.xtopdf.services.conversion.spreadsheet;
+
+import com.xtopdf.xtopdf.config.MetricsConfiguration.ConversionMetrics;
+import com.xtopdf.xtopdf.pdf.PdfBackendProvider;
+import com.xtopdf.xtopdf.pdf.PdfDocumentBuilder;
+import com.xtopdf.xtopdf.services.scheduling.ConversionScheduler;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Renders the sheets of a spreadsheet concurrently on a bounded pool of worker threads.
+ *
+ * <p>Workbook readers (POI, odfdom) are not thread-safe, so the caller still reads sheets one
+ * at a time; each sheet it has read is handed to a worker that renders it into a builder of
+ * its own. The first sheet is rendered into the conversion's builder and every later sheet
+ * into a part builder, which {@link Session#finish()} appends in sheet order. Each sheet
+ * starts on a new page and the page sequence is the same however the work was scheduled.</p>
+ *
+ * <p>Large CSV/TSV files go through the same pool, with runs of rows in place of sheets
+ * (see {@link DelimiterSeparatedToPdfService}).</p>
+ *
+ * <p>The pool size is {@code xtopdf.spreadsheet.render-workers}. Workers render within the
+ * conversion's CPU permits: the reading thread keeps one of the permits
+ * {@link ConversionScheduler#permitsHeld() held} by its conversion, and a conversion has at most
+ * one sheet rendering for each of the others, up to the pool size. That also bounds the sheets
+ * read but not yet rendered, and so the extra heap a conversion holds. With a single worker, or
+ * a conversion holding a single permit, sheets are rendered on the caller's thread straight
+ * into the conversion's builder. Work run outside the scheduler may use the whole pool.</p>
+ */
+@Component
+@Slf4j
+public class SheetRenderPool {
+
+    /**
+     * Renders one sheet, starting at the top of a new page.
+     */
+    @FunctionalInterface
+    interface SheetRenderer {
+        void render(PdfDocumentBuilder builder) throws IOException;
+    }
+
+    private final ConversionMetrics conversionMetrics;
+    private final int workers;
+    private final ExecutorService executor;
+
+    @Autowired
+    public SheetRenderPool(ConversionMetrics conversionMetrics,
+                           @Value("${xtopdf.spreadsheet.render-workers:4}") int workers) {
+        this.conversionMetrics = conversionMetrics;
+        this.workers = Math.max(1, workers);
+        this.executor = this.workers > 1
+                ? Executors.newFixedThreadPool(this.workers,
+                        Thread.ofPlatform().name("sheet-render-", 0).daemon(true).factory())
+                : null;
+        log.info("Spreadsheet sheet rendering with {} worker(s)", this.workers);
+    }
+
+    /**
+     * Returns a pool that renders every sheet on the caller's thread and records no metrics.
+     */
+    static SheetRenderPool sequential() {
+        return new SheetRenderPool(null, 1);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Whether the calling conversion's sheets are rendered on worker threads rather than its own.
+     */
+    boolean isParallel() {
+        return renderThreads() > 0;
+    }
+
+    /**
+     * Sheets the calling conversion may have rendering at once on workers: one fewer than the
+     * CPU permits it holds, as its own thread keeps reading, and no more than the pool size.
+     */
+    private int renderThreads() {
+        if (executor == null) {
+            return 0;
+        }
+        int permits = ConversionScheduler.permitsHeld();
+        return permits > 0 ? Math.min(workers, permits - 1) : workers;
+    }
+
+    /**
+     * Starts rendering the sheets of one conversion. Must be called on the converting thread,
+     * which decides how many workers the conversion may use.
+     *
+     * @param format the format tag for the per-sheet timer (e.g. "xlsx")
+     * @param builder the conversion's builder; the caller must not use it until
+     *                {@link Session#finish()} returns
+     * @param backend creates the part builders for the second and later sheets
+     * @return the session, to be closed when the conversion ends
+     */
+    Session open(String format, PdfDocumentBuilder builder, PdfBackendProvider backend) {
+        return new Session(format, builder, backend);
+    }
+
+    /**
+     * The sheets of one conversion. Not thread-safe; used by the converting thread only.
+     */
+    final class Session implements AutoCloseable {
+
+        private final String format;
+        private final PdfDocumentBuilder builder;
+        private final PdfBackendProvider backend;
+        private final int renderThreads;
+        private final Semaphore pending;
+        private final Deque<Future<PdfDocumentBuilder>> parts = new ArrayDeque<>();
+        private int sheets;
+
+        private Session(String format, PdfDocumentBuilder builder, PdfBackendProvider backend) {
+            this.format = format;
+            this.builder = builder;
+            this.backend = backend;
+            this.renderThreads = renderThreads();
+            this.pending = new Semaphore(renderThreads);
+        }
+
+        /**
+         * Renders the next sheet, on a worker when the conversion may use any. Blocks while
+         * the conversion already has as many sheets waiting to be rendered as it may use workers.
+         *
+         * @param sheetName the sheet name, for logging
+         * @param renderer draws the sheet
+         * @throws IOException if the sheet is rendered on this thread and rendering fails, or if
+         *                     the thread is interrupted while waiting for a worker
+         */
+        void render(String sheetName, SheetRenderer renderer) throws IOException {
+            int index = sheets++;
+            if (renderThreads == 0) {
+                if (index > 0) {
+                    builder.newPage();
+                }
+                renderTimed(sheetName, renderer, builder);
+                return;
+            }
+
+            try {
+                pending.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to render sheet " + sheetName);
+            }
+            try {
+                parts.add(executor.submit(() -> {
+                    try {
+                        PdfDocumentBuilder target = index == 0 ? builder : backend.createBuilder();
+                        try {
+                            renderTimed(sheetName, renderer, target);
+                        } catch (IOException | RuntimeException | Error e) {
+                            if (target != builder) {
+                                target.close();
+                            }
+                            throw e;
+                        }
+                        return target;
+                    } finally {
+                        pending.release();
+                    }
+                }));
+            } catch (RejectedExecutionException e) {
+                pending.release();
+                throw new IOException("Sheet rendering pool has been shut down", e);
+            }
+        }
+
+        /**
+         * Waits for every sheet and appends the part builders to the conversion's builder in
+         * sheet order.
+         *
+         * @throws IOException if any sheet failed to render or could not be appended
+         */
+        void finish() throws IOException {
+            while (!parts.isEmpty()) {
+                PdfDocumentBuilder part = await(parts.poll());
+                if (part != builder) {
+                    try (part) {
+                        builder.appendPages(part);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Waits for sheets still rendering after a failure and closes their part builders.
+         */
+        @Override
+        public void close() {
+            while (!parts.isEmpty()) {
+                try {
+                    PdfDocumentBuilder part = await(parts.poll());
+                    if (part != builder) {
+                        part.close();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    log.debug("Discarding sheet after failed conversion: {}", e.getMessage());
+                }
+            }
+        }
+
+        private void renderTimed(String sheetName, SheetRenderer renderer, PdfDocumentBuilder target)
+                throws IOException {
+            long start = System.nanoTime();
+            renderer.render(target);
+            long elapsed = System.nanoTime() - start;
+            if (conversionMetrics != null) {
+                conversionMetrics.recordSheetRender(format, elapsed);
+            }
+            log.debug("Rendered sheet '{}' in {} ms", sheetName, elapsed / 1_000_000);
+        }
+
+        private PdfDocumentBuilder await(Future<PdfDocumentBuilder> part) throws IOException {
+            try {
+                return part.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for sheets to render");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException io) {
+                    throw io;
+                }
+                if (cause instanceof RuntimeException runtime) {
+                    throw runtime;
+                }
+                if (cause instanceof Error error) {
+                    throw error;
+                }
+                throw new IOException("Failed to render sheet", cause);
+            }
+        }
+    }
+}
@@ -4,8 +4,13 @@ import org.apache.poi.xssf.model.SharedStrings;
 import org.xml.sax.Attributes;
 import org.xml.sax.helpers.DefaultHandler;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * SAX handler for parsing XLSX sheet XML during streaming mode.
@@ -17,7 +22,12 @@ import java.util.List;
  * provided SharedStrings table.</p>
  *
  * <p>Emits completed rows via a {@link RowCallback} functional interface
- * when the {@code </row>} end element is encountered.</p>
+ * when the {@code </row>} end element is encountered. When constructed with an
+ * {@link XlsxStyleResolver}, the style index ({@code s} attribute) of each cell is
+ * resolved as well and passed along as {@link CellFormatting}.</p>
+ *
+ * <p>{@link #declaredColumnCount(InputStream)} reads the column count from the sheet's
+ * {@code <dimension>} element before parsing, so callers can size their tables up front.</p>
  */
 public class SheetSaxHandler extends DefaultHandler {
 
@@ -31,16 +41,33 @@ public class SheetSaxHandler extends DefaultHandler {
          *
          * @param rowIndex the 0-based row index
          * @param cellValues the cell values for this row, indexed by column
+         * @param cellFormatting the formatting of each cell, indexed by column, or null when
+         *                       the handler has no style resolver
          */
-        void onRow(int rowIndex, List<String> cellValues);
+        void onRow(int rowIndex, List<String> cellValues, List<CellFormatting> cellFormatting);
     }
 
+    /**
+     * How far into the sheet XML to look for {@code <dimension>}; it precedes {@code <sheetData>}.
+     */
+    static final int DIMENSION_SCAN_BYTES = 16 * 1024;
+
+    /**
+     * Declared widths above this are ignored (some writers declare every column, e.g. A1:XFD1).
+     */
+    static final int MAX_DECLARED_COLUMNS = 1024;
+
+    private static final Pattern DIMENSION = Pattern.compile(
+            "<(?:\\w+:)?dimension\\s+ref=\"\\$?([A-Za-z]+)\\$?\\d*(?::\\$?([A-Za-z]+)\\$?\\d*)?\"");
+
     private final SharedStrings sharedStrings;
+    private final XlsxStyleResolver styleResolver;
     private final RowCallback rowCallback;
 
     // Current cell state
     private String currentCellRef;
     private String currentCellType;
+    private String currentCellStyle;
     private StringBuilder cellValueBuilder;
     private boolean inValue;
     private boolean inInlineString;
@@ -48,10 +75,21 @@ public class SheetSaxHandler extends DefaultHandler {
     // Current row state
     private int currentRowIndex;
     private List<String> currentRowValues;
+    private List<CellFormatting> currentRowFormatting;
     private int maxColumnInRow;
 
     public SheetSaxHandler(SharedStrings sharedStrings, RowCallback rowCallback) {
+        this(sharedStrings, null, rowCallback);
+    }
+
+    /**
+     * @param sharedStrings the workbook's shared strings
+     * @param styleResolver resolves cell styles into formatting, or null to skip formatting
+     * @param rowCallback receives each completed row
+     */
+    SheetSaxHandler(SharedStrings sharedStrings, XlsxStyleResolver styleResolver, RowCallback rowCallback) {
         this.sharedStrings = sharedStrings;
+        this.styleResolver = styleResolver;
         this.rowCallback = rowCallback;
         this.cellValueBuilder = new StringBuilder();
     }
@@ -63,11 +101,13 @@ public class SheetSaxHandler extends DefaultHandler {
                 String rowRef = attributes.getValue("r");
                 currentRowIndex = rowRef != null ? Integer.parseInt(rowRef) - 1 : 0;
                 currentRowValues = new ArrayList<>();
+                currentRowFormatting = styleResolver != null ? new ArrayList<>() : null;
                 maxColumnInRow = 0;
             }
             case "c" -> {
                 currentCellRef = attributes.getValue("r");
                 currentCellType = attributes.getValue("t");
+                currentCellStyle = attributes.getValue("s");
                 cellValueBuilder.setLength(0);
                 inValue = false;
                 inInlineString = false;
@@ -116,6 +156,13 @@ public class SheetSaxHandler extends DefaultHandler {
                     currentRowValues.add("");
                 }
                 currentRowValues.set(colIndex, value);
+                if (currentRowFormatting != null) {
+                    while (currentRowFormatting.size() <= colIndex) {
+                        currentRowFormatting.add(CellFormatting.PLAIN);
+                    }
+                    currentRowFormatting.set(colIndex,
+                            styleResolver.format(currentCellStyle, currentCellType, cellValueBuilder.toString()));
+                }
                 if (colIndex >= maxColumnInRow) {
                     maxColumnInRow = colIndex + 1;
                 }
@@ -123,7 +170,7 @@ public class SheetSaxHandler extends DefaultHandler {
             case "row" -> {
                 // Emit the completed row
                 if (currentRowValues != null) {
-                    rowCallback.onRow(currentRowIndex, currentRowValues);
+                    rowCallback.onRow(currentRowIndex, currentRowValues, currentRowFormatting);
                 }
             }
             default -> { /* ignore other elements */ }
@@ -178,6 +225,29 @@ public class SheetSaxHandler extends DefaultHandler {
         }
     }
 
+    /**
+     * Reads the column count declared by the sheet's {@code <dimension ref="A1:K500">} element
+     * without consuming the stream: the start of the stream is read and then reset.
+     *
+     * @param sheetXml the sheet XML; must support {@link InputStream#mark(int)}
+     * @return the declared number of columns, or 0 if there is no usable dimension
+     * @throws IOException if the stream cannot be read or reset
+     */
+    static int declaredColumnCount(InputStream sheetXml) throws IOException {
+        sheetXml.mark(DIMENSION_SCAN_BYTES);
+        byte[] head = sheetXml.readNBytes(DIMENSION_SCAN_BYTES);
+        sheetXml.reset();
+
+        // Element and attribute names are ASCII, whatever the document encoding
+        Matcher matcher = DIMENSION.matcher(new String(head, StandardCharsets.ISO_8859_1));
+        if (!matcher.find()) {
+            return 0;
+        }
+        String lastColumn = matcher.group(2) != null ? matcher.group(2) : matcher.group(1);
+        int columns = cellRefToColumnIndex(lastColumn) + 1;
+        return columns <= MAX_DECLARED_COLUMNS ? columns : 0;
+    }
+
     /**
      * Converts a cell reference (e.g., "B3", "AA1") to a 0-based column index.
      */
@@ -0,0 +1,149 @@
+package com.xtopdf.xtopdf.services.conversion.spreadsheet;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Resolves the style index ({@code s} attribute) of cells read by {@link SheetSaxHandler}
+ * into {@link CellFormatting}, using the workbook's read-only {@link StylesTable}.
+ *
+ * <p>Styles are resolved once and kept in a bounded LRU cache keyed by style index, so a sheet
+ * with millions of cells in a handful of styles looks each style up only once. Cells whose
+ * style only sets bold or a fill share one {@link CellFormatting} instance per style; only
+ * numbers with a non-General number format get their own instance, carrying the value
+ * formatted the way the in-memory path's {@link DataFormatter} would show it.</p>
+ *
+ * <p>Not thread-safe; use one resolver per conversion.</p>
+ */
+@Slf4j
+final class XlsxStyleResolver {
+
+    static final int DEFAULT_CACHE_SIZE = 256;
+
+    private final StylesTable stylesTable;
+    private final DataFormatter dataFormatter = new DataFormatter();
+    private final Map<Integer, ResolvedStyle> cache;
+
+    /**
+     * A style reduced to what the PDF table renders.
+     *
+     * @param formatting the cell formatting without a formatted value
+     * @param formatIndex the number format index
+     * @param formatString the number format pattern, or null for General
+     */
+    private record ResolvedStyle(CellFormatting formatting, short formatIndex, String formatString) {
+    }
+
+    XlsxStyleResolver(StylesTable stylesTable) {
+        this(stylesTable, DEFAULT_CACHE_SIZE);
+    }
+
+    XlsxStyleResolver(StylesTable stylesTable, int cacheSize) {
+        this.stylesTable = stylesTable;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, ResolvedStyle> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the formatting of a cell.
+     *
+     * @param styleIndex the cell's {@code s} attribute, or null if it has none
+     * @param cellType the cell's {@code t} attribute, or null for a number
+     * @param rawValue the cell's raw {@code <v>} content
+     * @return the cell's formatting; {@link CellFormatting#PLAIN} for unstyled cells
+     */
+    CellFormatting format(String styleIndex, String cellType, String rawValue) {
+        if (styleIndex == null || styleIndex.isEmpty()) {
+            return CellFormatting.PLAIN;
+        }
+        ResolvedStyle style;
+        try {
+            style = resolve(Integer.parseInt(styleIndex));
+        } catch (NumberFormatException e) {
+            return CellFormatting.PLAIN;
+        }
+
+        boolean number = cellType == null || "n".equals(cellType);
+        if (!number || style.formatString() == null || rawValue == null || rawValue.isEmpty()) {
+            return style.formatting();
+        }
+        try {
+            String formatted = dataFormatter.formatRawCellContents(
+                    Double.parseDouble(rawValue), style.formatIndex(), style.formatString());
+            if (formatted == null || formatted.isEmpty()) {
+                return style.formatting();
+            }
+            CellFormatting base = style.formatting();
+            return new CellFormatting(base.bold(), base.backgroundR(), base.backgroundG(), base.backgroundB(),
+                    base.hasBackground(), formatted);
+        } catch (RuntimeException e) {
+            log.debug("Could not format value '{}' with '{}': {}", rawValue, style.formatString(), e.getMessage());
+            return style.formatting();
+        }
+    }
+
+    private ResolvedStyle resolve(int styleIndex) {
+        ResolvedStyle cached = cache.get(styleIndex);
+        if (cached == null) {
+            cached = load(styleIndex);
+            cache.put(styleIndex, cached);
+        }
+        return cached;
+    }
+
+    private ResolvedStyle load(int styleIndex) {
+        XSSFCellStyle style;
+        try {
+            style = stylesTable.getStyleAt(styleIndex);
+        } catch (RuntimeException e) {
+            log.debug("Unknown cell style {}: {}", styleIndex, e.getMessage());
+            style = null;
+        }
+        if (style == null) {
+            return new ResolvedStyle(CellFormatting.PLAIN, (short) 0, null);
+        }
+
+        boolean bold = false;
+        try {
+            bold = style.getFont() != null && style.getFont().getBold();
+        } catch (RuntimeException e) {
+            log.debug("Could not extract font bold flag: {}", e.getMessage());
+        }
+
+        int bgR = 255, bgG = 255, bgB = 255;
+        boolean hasBackground = false;
+        try {
+            byte[] rgb = ExcelToPdfService.fillRgb(style);
+            if (rgb != null && rgb.length >= 3) {
+                bgR = rgb[0] & 0xFF;
+                bgG = rgb[1] & 0xFF;
+                bgB = rgb[2] & 0xFF;
+                hasBackground = bgR != 255 || bgG != 255 || bgB != 255;
+            }
+        } catch (RuntimeException e) {
+            log.debug("Could not extract background color: {}", e.getMessage());
+        }
+
+        short formatIndex = style.getDataFormat();
+        String formatString = style.getDataFormatString();
+        if (formatIndex == 0 || formatString == null || BuiltinFormats.getBuiltinFormat(0).equals(formatString)) {
+            // General: the handler's own number rendering applies
+            formatString = null;
+        }
+
+        CellFormatting formatting = bold || hasBackground
+                ? new CellFormatting(bold, bgR, bgG, bgB, hasBackground, null)
+                : CellFormatting.PLAIN;
+        return new ResolvedStyle(formatting, formatIndex, formatString);
+    }
+}
@@ -3,7 +3,9 @@ package com.xtopdf.xtopdf.services.dxf;
 import com.xtopdf.xtopdf.entities.*;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Utility class for calculating scales and coordinate transformations for DXF entities.
@@ -11,6 +13,9 @@ import java.util.List;
 @Component
 public class DxfCoordinateCalculator {
     
+    /** Page margin on every side, in points. */
+    private static final double MARGIN = 50;
+    
     /**
      * Calculate scale factor to fit entities on a page with margins.
      * 
@@ -25,52 +30,126 @@ public class DxfCoordinateCalculator {
         }
         
         // Find bounding box
-        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
-        double maxX = Double.MIN_VALUE, maxY = Double.MIN_VALUE;
-        
+        Bounds bounds = new Bounds();
         for (DxfEntity entity : entities) {
-            if (entity instanceof LineEntity) {
-                LineEntity line = (LineEntity) entity;
-                minX = Math.min(minX, Math.min(line.getX1(), line.getX2()));
-                minY = Math.min(minY, Math.min(line.getY1(), line.getY2()));
-                maxX = Math.max(maxX, Math.max(line.getX1(), line.getX2()));
-                maxY = Math.max(maxY, Math.max(line.getY1(), line.getY2()));
-            } else if (entity instanceof CircleEntity) {
-                CircleEntity circle = (CircleEntity) entity;
-                minX = Math.min(minX, circle.getCenterX() - circle.getRadius());
-                minY = Math.min(minY, circle.getCenterY() - circle.getRadius());
-                maxX = Math.max(maxX, circle.getCenterX() + circle.getRadius());
-                maxY = Math.max(maxY, circle.getCenterY() + circle.getRadius());
-            } else if (entity instanceof ArcEntity) {
-                ArcEntity arc = (ArcEntity) entity;
-                minX = Math.min(minX, arc.getCenterX() - arc.getRadius());
-                minY = Math.min(minY, arc.getCenterY() - arc.getRadius());
-                maxX = Math.max(maxX, arc.getCenterX() + arc.getRadius());
-                maxY = Math.max(maxY, arc.getCenterY() + arc.getRadius());
-            } else if (entity instanceof PointEntity) {
-                PointEntity point = (PointEntity) entity;
-                minX = Math.min(minX, point.getX());
-                minY = Math.min(minY, point.getY());
-                maxX = Math.max(maxX, point.getX());
-                maxY = Math.max(maxY, point.getY());
-            }
-            // Add other entity types for bounding box calculation
+            bounds.include(entity);
         }
-        
-        double width = maxX - minX;
-        double height = maxY - minY;
+        DxfExtents extents = bounds.toExtents();
+        return extents != null ? calculateScale(extents, pageWidth, pageHeight) : 1.0;
+    }
+    
+    /**
+     * Calculate scale factor to fit a bounding box on a page with margins.
+     * 
+     * @param extents Bounding box of the drawing
+     * @param pageWidth Width of the page in points
+     * @param pageHeight Height of the page in points
+     * @return Scale factor to fit the box on page, or 1.0 if it is empty
+     */
+    public double calculateScale(DxfExtents extents, double pageWidth, double pageHeight) {
+        double width = extents.width();
+        double height = extents.height();
         
         if (width <= 0 || height <= 0) {
             return 1.0;
         }
         
         // Calculate scale to fit on page with margins
-        double availableWidth = pageWidth - 100;
-        double availableHeight = pageHeight - 100;
+        double availableWidth = pageWidth - 2 * MARGIN;
+        double availableHeight = pageHeight - 2 * MARGIN;
         
         double scaleX = availableWidth / width;
         double scaleY = availableHeight / height;
         
         return Math.min(scaleX, scaleY);
     }
+    
+    /**
+     * Lay a drawing out on pages: one page when {@code tilesAcross} is 1, otherwise a grid
+     * of pages at up to {@code tilesAcross} times the single-page scale, so that the drawing's
+     * longer side spans that many pages. Each page has the same 50pt margins as a single page
+     * and the pages are ordered left to right, top to bottom.
+     * 
+     * @param extents Bounding box of the drawing, or null if it has none
+     * @param pageWidth Width of each page in points
+     * @param pageHeight Height of each page in points
+     * @param tilesAcross Pages along the drawing's longer side
+     * @return The pages, at least one
+     */
+    public List<DxfViewport> layout(DxfExtents extents, double pageWidth, double pageHeight, int tilesAcross) {
+        if (extents == null) {
+            return List.of(new DxfViewport(1.0, MARGIN, MARGIN, pageWidth, pageHeight));
+        }
+        double scale = calculateScale(extents, pageWidth, pageHeight);
+        if (tilesAcross <= 1 || extents.width() <= 0 || extents.height() <= 0) {
+            return List.of(new DxfViewport(scale, MARGIN - extents.minX() * scale, MARGIN - extents.minY() * scale,
+                    pageWidth, pageHeight));
+        }
+        
+        double availableWidth = pageWidth - 2 * MARGIN;
+        double availableHeight = pageHeight - 2 * MARGIN;
+        double tiledScale = scale * tilesAcross;
+        // Round before taking the ceiling so a drawing that exactly fills N pages does not get N + 1
+        int columns = Math.max(1, (int) Math.ceil(Math.round(extents.width() * tiledScale / availableWidth * 1e6) / 1e6));
+        int rows = Math.max(1, (int) Math.ceil(Math.round(extents.height() * tiledScale / availableHeight * 1e6) / 1e6));
+        
+        List<DxfViewport> pages = new ArrayList<>(rows * columns);
+        for (int row = rows - 1; row >= 0; row--) {
+            for (int column = 0; column < columns; column++) {
+                pages.add(new DxfViewport(tiledScale,
+                        MARGIN - extents.minX() * tiledScale - column * availableWidth,
+                        MARGIN - extents.minY() * tiledScale - row * availableHeight,
+                        pageWidth, pageHeight));
+            }
+        }
+        return pages;
+    }
+    
+    /**
+     * Bounding box built up one entity at a time, so a drawing can be measured while it is
+     * parsed without keeping its entities ({@code bounds::include} is a
+     * {@link DxfEntityHandler}). INSERTs are measured against the block map as they arrive;
+     * a streamed drawing can pass the map its parser is filling, since the BLOCKS section
+     * comes before ENTITIES.
+     */
+    public static final class Bounds {
+        
+        private final DxfEntityBounds entityBounds;
+        private double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        private double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        
+        /**
+         * A box for a drawing without blocks; INSERTs add nothing to it.
+         */
+        public Bounds() {
+            this(Map.of());
+        }
+        
+        /**
+         * @param blocks Block definitions, for measuring INSERTs
+         */
+        public Bounds(Map<String, BlockEntity> blocks) {
+            this.entityBounds = new DxfEntityBounds(blocks);
+        }
+        
+        /**
+         * Grows the box to cover an entity.
+         */
+        public void include(DxfEntity entity) {
+            DxfExtents extents = entityBounds.of(entity);
+            if (extents != null) {
+                minX = Math.min(minX, extents.minX());
+                minY = Math.min(minY, extents.minY());
+                maxX = Math.max(maxX, extents.maxX());
+                maxY = Math.max(maxY, extents.maxY());
+            }
+        }
+        
+        /**
+         * The box around the entities so far, or null if none had bounds.
+         */
+        public DxfExtents toExtents() {
+            return minX <= maxX ? new DxfExtents(minX, minY, maxX, maxY) : null;
+        }
+    }
 }
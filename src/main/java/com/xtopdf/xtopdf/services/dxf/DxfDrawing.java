@@ -0,0 +1,32 @@
+package com.xtopdf.xtopdf.services.dxf;
+
+import com.xtopdf.xtopdf.entities.BlockEntity;
+import com.xtopdf.xtopdf.entities.DxfEntity;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of parsing one DXF file: the entities of the drawing and the block definitions
+ * its INSERT entities refer to.
+ *
+ * <p>Every parse returns a new drawing and the parser keeps no state between parses, so
+ * one parser can be shared by concurrent conversions. Both collections are unmodifiable.</p>
+ *
+ * @param entities the top-level entities, in file order; empty when they were passed to a
+ *                 {@link DxfEntityHandler} instead
+ * @param blocks the block definitions by name
+ * @param headerExtents the drawing extents from the {@code $EXTMIN} and {@code $EXTMAX}
+ *                      header variables, or null if the header has no usable extents
+ */
+public record DxfDrawing(List<DxfEntity> entities, Map<String, BlockEntity> blocks, DxfExtents headerExtents) {
+
+    public DxfDrawing {
+        entities = List.copyOf(entities);
+        blocks = Map.copyOf(blocks);
+    }
+
+    public DxfDrawing(List<DxfEntity> entities, Map<String, BlockEntity> blocks) {
+        this(entities, blocks, null);
+    }
+}
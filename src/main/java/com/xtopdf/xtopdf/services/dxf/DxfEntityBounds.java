@@ -0,0 +1,342 @@
+package com.xtopdf.xtopdf.services.dxf;
+
+import com.xtopdf.xtopdf.entities.*;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bounding boxes of DXF entities in drawing coordinates, covering what {@link DxfEntityRenderer}
+ * draws for them.
+ *
+ * <p>Geometry is measured exactly: arcs by the axis crossings they sweep, ellipses by their
+ * rotated axes, polylines, leaders, meshes and faces by their vertices. INSERTs are measured
+ * from the bounds of their block, placed with the insertion point, base point, scale factors
+ * and rotation; the box also covers the unrotated placement the renderer currently draws, so
+ * culling by these bounds never drops a block that is drawn. Text has no font metrics at this
+ * point and is estimated at {@value #TEXT_WIDTH_PER_HEIGHT} of its height per character.
+ * Placeholders that the renderer draws at the drawing origin (SURFACE and BODY) are measured
+ * there.</p>
+ *
+ * <p>Block bounds are cached, so an instance belongs to one drawing's block table.</p>
+ */
+public final class DxfEntityBounds {
+
+    /** Average character width as a fraction of the text height. */
+    static final double TEXT_WIDTH_PER_HEIGHT = 0.6;
+
+    private final Map<String, BlockEntity> blocks;
+    private final Map<String, DxfExtents> blockExtents = new HashMap<>();
+    private final Map<String, Boolean> blockScales = new HashMap<>();
+    private final Set<String> measuring = new HashSet<>();
+
+    public DxfEntityBounds(Map<String, BlockEntity> blocks) {
+        this.blocks = blocks;
+    }
+
+    /**
+     * Returns the bounding box of an entity, or null if it has nothing to place (an INSERT of
+     * an unknown or empty block, or a polyline without enough vertices to draw).
+     */
+    public DxfExtents of(DxfEntity entity) {
+        Box box = new Box();
+        measure(entity, box);
+        return box.toExtents();
+    }
+
+    /**
+     * Whether everything drawn for the entity scales with the drawing. Point crosses,
+     * arrowheads, text and placeholder labels are drawn at a fixed size, so entities that
+     * have them stay visible however small their geometry becomes.
+     */
+    public boolean scalesWithDrawing(DxfEntity entity) {
+        if (entity instanceof InsertEntity insert) {
+            return blockScalesWithDrawing(insert.getBlockName());
+        }
+        return entity instanceof LineEntity || entity instanceof CircleEntity || entity instanceof ArcEntity
+                || entity instanceof EllipseEntity || entity instanceof PolylineEntity || entity instanceof SolidEntity
+                || entity instanceof Face3DEntity || entity instanceof WipeoutEntity || entity instanceof RegionEntity
+                || entity instanceof PolyfaceMeshEntity;
+    }
+
+    private boolean blockScalesWithDrawing(String name) {
+        Boolean cached = blockScales.get(name);
+        if (cached != null) {
+            return cached;
+        }
+        BlockEntity block = blocks.get(name);
+        if (block == null || !measuring.add(name)) {
+            return false;
+        }
+        boolean scales = true;
+        try {
+            for (DxfEntity entity : block.getEntities()) {
+                if (!scalesWithDrawing(entity)) {
+                    scales = false;
+                    break;
+                }
+            }
+        } finally {
+            measuring.remove(name);
+        }
+        blockScales.put(name, scales);
+        return scales;
+    }
+
+    private void measure(DxfEntity entity, Box box) {
+        if (entity instanceof LineEntity line) {
+            box.include(line.getX1(), line.getY1());
+            box.include(line.getX2(), line.getY2());
+        } else if (entity instanceof CircleEntity circle) {
+            box.includeCircle(circle.getCenterX(), circle.getCenterY(), circle.getRadius());
+        } else if (entity instanceof ArcEntity arc) {
+            measureArc(arc, box);
+        } else if (entity instanceof PointEntity point) {
+            box.include(point.getX(), point.getY());
+        } else if (entity instanceof PolylineEntity polyline) {
+            if (polyline.getVertices().size() >= 4) {
+                box.includeVertices(polyline.getVertices(), 2);
+            }
+        } else if (entity instanceof EllipseEntity ellipse) {
+            measureEllipse(ellipse, box);
+        } else if (entity instanceof SolidEntity solid) {
+            box.include(solid.getX1(), solid.getY1());
+            box.include(solid.getX2(), solid.getY2());
+            box.include(solid.getX3(), solid.getY3());
+            if (!solid.isTriangle()) {
+                box.include(solid.getX4(), solid.getY4());
+            }
+        } else if (entity instanceof TextEntity text) {
+            measureText(text.getX(), text.getY(), text.getHeight(), text.getText(), text.getRotationAngle(), box);
+        } else if (entity instanceof MTextEntity mtext) {
+            box.include(mtext.getX(), mtext.getY());
+            box.include(mtext.getX() + mtext.getWidth(), mtext.getY() + mtext.getHeight());
+        } else if (entity instanceof DimensionEntity dimension) {
+            box.include(dimension.getX1(), dimension.getY1());
+            box.include(dimension.getX2(), dimension.getY2());
+            box.include(dimension.getTextX(), dimension.getTextY());
+        } else if (entity instanceof LeaderEntity leader) {
+            if (leader.getVertices().size() >= 4) {
+                box.includeVertices(leader.getVertices(), 2);
+                box.include(leader.getTextX(), leader.getTextY());
+            }
+        } else if (entity instanceof ToleranceEntity tolerance) {
+            box.include(tolerance.getX(), tolerance.getY());
+            box.include(tolerance.getX() + tolerance.getHeight() * 4, tolerance.getY() + tolerance.getHeight());
+        } else if (entity instanceof TableEntity table) {
+            box.include(table.getX(), table.getY());
+            box.include(table.getX() + table.getColumns() * table.getCellWidth(),
+                    table.getY() + table.getRows() * table.getCellHeight());
+        } else if (entity instanceof InsertEntity insert) {
+            measureInsert(insert, box);
+        } else if (entity instanceof AttributeEntity attribute) {
+            measureText(attribute.getX(), attribute.getY(), attribute.getHeight(), attribute.getValue(), 0, box);
+        } else if (entity instanceof XRefEntity xref) {
+            box.include(xref.getInsertX(), xref.getInsertY());
+        } else if (entity instanceof WipeoutEntity wipeout) {
+            if (wipeout.getVertices().size() >= 6) {
+                box.includeVertices(wipeout.getVertices(), 2);
+            }
+        } else if (entity instanceof Face3DEntity face) {
+            box.include(face.getX1(), face.getY1());
+            box.include(face.getX2(), face.getY2());
+            box.include(face.getX3(), face.getY3());
+            if (!face.isTriangle()) {
+                box.include(face.getX4(), face.getY4());
+            }
+        } else if (entity instanceof PolyfaceMeshEntity mesh) {
+            if (mesh.getVertices().size() >= 9) {
+                box.includeVertices(mesh.getVertices(), 3);
+            }
+        } else if (entity instanceof MeshEntity mesh) {
+            if (mesh.getVertices().size() >= 3) {
+                box.includeVertices(mesh.getVertices(), 3);
+            }
+        } else if (entity instanceof Solid3DEntity solid) {
+            box.include(solid.getBoundingBoxMinX(), solid.getBoundingBoxMinY());
+            box.include(solid.getBoundingBoxMaxX(), solid.getBoundingBoxMaxY());
+        } else if (entity instanceof SurfaceEntity) {
+            // 4 x 50 unit placeholder grid at the drawing origin
+            box.include(0, 0);
+            box.include(200, 200);
+        } else if (entity instanceof BodyEntity) {
+            // 100 x 50 unit placeholder frame at the drawing origin
+            box.include(0, 0);
+            box.include(100, 50);
+        } else if (entity instanceof RegionEntity region) {
+            if (region.getVertices().size() >= 6) {
+                box.includeVertices(region.getVertices(), 2);
+            }
+        } else if (entity instanceof ViewportEntity viewport) {
+            box.include(viewport.getCenterX() - viewport.getWidth() / 2, viewport.getCenterY() - viewport.getHeight() / 2);
+            box.include(viewport.getCenterX() + viewport.getWidth() / 2, viewport.getCenterY() + viewport.getHeight() / 2);
+        } else if (entity instanceof ImageEntity image) {
+            box.include(image.getInsertX(), image.getInsertY());
+            box.include(image.getInsertX() + image.getWidth(), image.getInsertY() + image.getHeight());
+        } else if (entity instanceof UnderlayEntity underlay) {
+            box.include(underlay.getInsertX(), underlay.getInsertY());
+            box.include(underlay.getInsertX() + 150 * underlay.getScaleX(), underlay.getInsertY() + 100 * underlay.getScaleY());
+        } else if (entity instanceof OleFrameEntity ole) {
+            box.include(ole.getInsertX(), ole.getInsertY());
+            box.include(ole.getInsertX() + ole.getWidth(), ole.getInsertY() + ole.getHeight());
+        }
+    }
+
+    /**
+     * Arcs run counterclockwise from the start angle to the end angle. The renderer sweeps by
+     * the plain difference, which goes clockwise when the end angle is the smaller one, so
+     * such arcs are given the bounds of the full circle.
+     */
+    private static void measureArc(ArcEntity arc, Box box) {
+        double start = arc.getStartAngle();
+        double sweep = arc.getEndAngle() - start;
+        if (sweep <= 0 || sweep >= 360) {
+            box.includeCircle(arc.getCenterX(), arc.getCenterY(), arc.getRadius());
+            return;
+        }
+        box.includePolar(arc.getCenterX(), arc.getCenterY(), arc.getRadius(), start);
+        box.includePolar(arc.getCenterX(), arc.getCenterY(), arc.getRadius(), arc.getEndAngle());
+        for (int axis = 0; axis < 360; axis += 90) {
+            if (((axis - start) % 360 + 360) % 360 <= sweep) {
+                box.includePolar(arc.getCenterX(), arc.getCenterY(), arc.getRadius(), axis);
+            }
+        }
+    }
+
+    /**
+     * The ellipse's box from its rotated axes, together with the axis-aligned ellipse the
+     * renderer draws with the same radii.
+     */
+    private static void measureEllipse(EllipseEntity ellipse, Box box) {
+        double majorX = ellipse.getMajorAxisX();
+        double majorY = ellipse.getMajorAxisY();
+        double ratio = ellipse.getRatio();
+        double halfWidth = Math.hypot(majorX, ratio * majorY);
+        double halfHeight = Math.hypot(majorY, ratio * majorX);
+        double major = Math.hypot(majorX, majorY);
+        halfWidth = Math.max(halfWidth, major);
+        halfHeight = Math.max(halfHeight, Math.abs(major * ratio));
+        box.include(ellipse.getCenterX() - halfWidth, ellipse.getCenterY() - halfHeight);
+        box.include(ellipse.getCenterX() + halfWidth, ellipse.getCenterY() + halfHeight);
+    }
+
+    private static void measureText(double x, double y, double height, String text, double rotation, Box box) {
+        double width = (text == null ? 0 : text.length()) * height * TEXT_WIDTH_PER_HEIGHT;
+        box.includeRectangle(x, y, 0, 0, width, height, rotation);
+    }
+
+    private void measureInsert(InsertEntity insert, Box box) {
+        DxfExtents content = blockExtents(insert.getBlockName());
+        if (content == null) {
+            return;
+        }
+        BlockEntity block = blocks.get(insert.getBlockName());
+        double scaleX = insert.getScaleX();
+        double scaleY = insert.getScaleY();
+        // The block as placed by the DXF transform
+        box.includeRectangle(insert.getInsertX(), insert.getInsertY(),
+                (content.minX() - block.getBaseX()) * scaleX, (content.minY() - block.getBaseY()) * scaleY,
+                (content.maxX() - block.getBaseX()) * scaleX, (content.maxY() - block.getBaseY()) * scaleY,
+                insert.getRotation());
+        
+        // The block as the renderer draws it: unrotated, scaled by the X factor on both axes,
+        // with attribute positions scaled by the insert's factors once more
+        Box drawn = new Box();
+        drawn.include(content.minX(), content.minY());
+        drawn.include(content.maxX(), content.maxY());
+        for (DxfEntity entity : block.getEntities()) {
+            if (entity instanceof AttributeEntity attribute) {
+                measureText(attribute.getX() * scaleX, attribute.getY() * scaleY, attribute.getHeight(),
+                        attribute.getValue(), 0, drawn);
+            }
+        }
+        box.includeRectangle(insert.getInsertX(), insert.getInsertY(),
+                (drawn.minX - block.getBaseX()) * scaleX, (drawn.minY - block.getBaseY()) * scaleX,
+                (drawn.maxX - block.getBaseX()) * scaleX, (drawn.maxY - block.getBaseY()) * scaleX, 0);
+    }
+
+    private DxfExtents blockExtents(String name) {
+        if (blockExtents.containsKey(name)) {
+            return blockExtents.get(name);
+        }
+        BlockEntity block = blocks.get(name);
+        if (block == null || !measuring.add(name)) {
+            // Unknown block, or one that inserts itself
+            return null;
+        }
+        Box box = new Box();
+        try {
+            for (DxfEntity entity : block.getEntities()) {
+                measure(entity, box);
+            }
+        } finally {
+            measuring.remove(name);
+        }
+        DxfExtents extents = box.toExtents();
+        blockExtents.put(name, extents);
+        return extents;
+    }
+
+    /**
+     * Box grown one point at a time.
+     */
+    private static final class Box {
+
+        private double minX = Double.POSITIVE_INFINITY;
+        private double minY = Double.POSITIVE_INFINITY;
+        private double maxX = Double.NEGATIVE_INFINITY;
+        private double maxY = Double.NEGATIVE_INFINITY;
+
+        void include(double x, double y) {
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+
+        void includeCircle(double centerX, double centerY, double radius) {
+            include(centerX - radius, centerY - radius);
+            include(centerX + radius, centerY + radius);
+        }
+
+        void includePolar(double centerX, double centerY, double radius, double degrees) {
+            double radians = Math.toRadians(degrees);
+            include(centerX + radius * Math.cos(radians), centerY + radius * Math.sin(radians));
+        }
+
+        void includeVertices(CoordinateArray vertices, int stride) {
+            for (int i = 0; i + 1 < vertices.size(); i += stride) {
+                include(vertices.get(i), vertices.get(i + 1));
+            }
+        }
+
+        /**
+         * Includes the corners of the rectangle (left, bottom)-(right, top), rotated by the
+         * given degrees about the origin and then moved to (x, y).
+         */
+        void includeRectangle(double x, double y, double left, double bottom, double right, double top,
+                              double degrees) {
+            double cos = 1;
+            double sin = 0;
+            if (degrees != 0) {
+                double radians = Math.toRadians(degrees);
+                cos = Math.cos(radians);
+                sin = Math.sin(radians);
+            }
+            includeRotated(x, y, left, bottom, cos, sin);
+            includeRotated(x, y, right, bottom, cos, sin);
+            includeRotated(x, y, right, top, cos, sin);
+            includeRotated(x, y, left, top, cos, sin);
+        }
+
+        private void includeRotated(double x, double y, double dx, double dy, double cos, double sin) {
+            include(x + dx * cos - dy * sin, y + dx * sin + dy * cos);
+        }
+
+        DxfExtents toExtents() {
+            return minX <= maxX && minY <= maxY ? new DxfExtents(minX, minY, maxX, maxY) : null;
+        }
+    }
+}
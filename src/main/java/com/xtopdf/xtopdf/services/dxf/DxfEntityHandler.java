@@ -0,0 +1,21 @@
+package com.xtopdf.xtopdf.services.dxf;
+
+import com.xtopdf.xtopdf.entities.DxfEntity;
+
+import java.io.IOException;
+
+/**
+ * Receives the top-level entities of a DXF file one at a time, as the parser completes them,
+ * so a drawing can be measured or rendered without holding all of its entities.
+ */
+@FunctionalInterface
+public interface DxfEntityHandler {
+
+    /**
+     * Handles the next top-level entity, in file order.
+     *
+     * @param entity The parsed entity
+     * @throws IOException to stop parsing
+     */
+    void handle(DxfEntity entity) throws IOException;
+}
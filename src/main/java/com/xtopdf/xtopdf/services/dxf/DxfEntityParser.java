@@ -4,16 +4,28 @@ import com.xtopdf.xtopdf.entities.*;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Parser for DXF (Drawing Exchange Format) files that extracts entities and blocks.
+ *
+ * <p>The parser is stateless: each call builds its own {@link DxfDrawing}, so the singleton
+ * can serve concurrent DXF, DWG and DWT conversions.</p>
+ *
+ * <p>The file is read with a {@link DxfTokenizer}, which matches entity types and parses
+ * numbers from the raw bytes; strings are only created for text values such as block names
+ * and labels, and vertices are kept in primitive {@link CoordinateArray}s. ASCII and binary
+ * DXF files are both accepted.</p>
+ *
+ * <p>Top-level entities can be passed to a {@link DxfEntityHandler} as they are parsed
+ * rather than collected, so that only the block definitions are held in memory.</p>
  */
 @Component
 public class DxfEntityParser {
@@ -61,6 +73,7 @@ public class DxfEntityParser {
     private static final int GROUP_CODE_ENTITY_TYPE = 0;
     private static final int GROUP_CODE_TEXT_VALUE = 1;
     private static final int GROUP_CODE_BLOCK_NAME = 2;
+    private static final int GROUP_CODE_HEADER_VARIABLE = 9;
     private static final int GROUP_CODE_X_START = 10;
     private static final int GROUP_CODE_Y_START = 20;
     private static final int GROUP_CODE_X_END = 11;
@@ -72,35 +85,64 @@ public class DxfEntityParser {
     private static final int GROUP_CODE_RADIUS = 40;
     private static final int GROUP_CODE_START_ANGLE = 50;
     private static final int GROUP_CODE_END_ANGLE = 51;
+    private static final int MIN_NUMERIC_GROUP_CODE = 10;
+    private static final int MAX_NUMERIC_GROUP_CODE = 99;
     
-    private final Map<String, BlockEntity> blockRegistry = new HashMap<>();
+    private static final byte[] ENDBLK = ascii(ENTITY_ENDBLK);
+    private static final byte[] SECTION = ascii("SECTION");
+    private static final byte[] ENTITIES = ascii("ENTITIES");
+    private static final byte[] EXTMIN = ascii("$EXTMIN");
+    private static final byte[] EXTMAX = ascii("$EXTMAX");
     
-    /**
-     * Safely parse an integer from user-controlled string input.
-     */
-    private int safeParseInt(String value) throws NumberFormatException {
-        if (value == null || value.trim().isEmpty()) {
-            throw new NumberFormatException("Cannot parse null or empty string");
-        }
-        long longValue = Long.parseLong(value.trim());
-        if (longValue < Integer.MIN_VALUE || longValue > Integer.MAX_VALUE) {
-            throw new NumberFormatException("Value out of int range: " + longValue);
+    /** Header extents at or beyond this magnitude are AutoCAD's "no extents" placeholders. */
+    private static final double UNSET_EXTENTS = 1e20;
+    
+    /** Supported entity types, most common first, with the entity each one creates. */
+    private static final List<EntityType> ENTITY_TYPES = List.of(
+            new EntityType(ENTITY_LINE, LineEntity::new),
+            new EntityType(ENTITY_LWPOLYLINE, PolylineEntity::new),
+            new EntityType(ENTITY_POLYLINE, PolylineEntity::new),
+            new EntityType(ENTITY_ARC, ArcEntity::new),
+            new EntityType(ENTITY_CIRCLE, CircleEntity::new),
+            new EntityType(ENTITY_TEXT, TextEntity::new),
+            new EntityType(ENTITY_MTEXT, MTextEntity::new),
+            new EntityType(ENTITY_INSERT, InsertEntity::new),
+            new EntityType(ENTITY_POINT, PointEntity::new),
+            new EntityType(ENTITY_ELLIPSE, EllipseEntity::new),
+            new EntityType(ENTITY_SOLID, SolidEntity::new),
+            new EntityType(ENTITY_TRACE, SolidEntity::new),
+            new EntityType(ENTITY_DIMENSION, DimensionEntity::new),
+            new EntityType(ENTITY_LEADER, LeaderEntity::new),
+            new EntityType(ENTITY_MULTILEADER, LeaderEntity::new),
+            new EntityType(ENTITY_TOLERANCE, ToleranceEntity::new),
+            new EntityType(ENTITY_TABLE, TableEntity::new),
+            new EntityType(ENTITY_BLOCK, BlockEntity::new),
+            new EntityType(ENTITY_ATTDEF, AttributeEntity::new),
+            new EntityType(ENTITY_ATTRIB, AttributeEntity::new),
+            new EntityType(ENTITY_XREF, XRefEntity::new),
+            new EntityType(ENTITY_WIPEOUT, WipeoutEntity::new),
+            new EntityType(ENTITY_3DFACE, Face3DEntity::new),
+            new EntityType(ENTITY_3DSOLID, Solid3DEntity::new),
+            new EntityType(ENTITY_MESH, MeshEntity::new),
+            new EntityType(ENTITY_SURFACE, SurfaceEntity::new),
+            new EntityType(ENTITY_BODY, BodyEntity::new),
+            new EntityType(ENTITY_REGION, RegionEntity::new),
+            new EntityType(ENTITY_VIEWPORT, ViewportEntity::new),
+            new EntityType(ENTITY_IMAGE, ImageEntity::new),
+            new EntityType(ENTITY_PDFUNDERLAY, UnderlayEntity::new),
+            new EntityType(ENTITY_DGNUNDERLAY, UnderlayEntity::new),
+            new EntityType(ENTITY_DWFUNDERLAY, UnderlayEntity::new),
+            new EntityType(ENTITY_OLEFRAME, OleFrameEntity::new),
+            new EntityType(ENTITY_OLE2FRAME, OleFrameEntity::new));
+    
+    private record EntityType(byte[] name, Supplier<DxfEntity> factory) {
+        EntityType(String name, Supplier<DxfEntity> factory) {
+            this(ascii(name), factory);
         }
-        return (int) longValue;
     }
     
-    /**
-     * Safely parse a double from user-controlled string input.
-     */
-    private double safeParseDouble(String value) throws NumberFormatException {
-        if (value == null || value.trim().isEmpty()) {
-            throw new NumberFormatException("Cannot parse null or empty string");
-        }
-        double doubleValue = Double.parseDouble(value.trim());
-        if (!Double.isFinite(doubleValue)) {
-            throw new NumberFormatException("Value is not finite: " + value);
-        }
-        return doubleValue;
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
     }
     
     /**
@@ -124,77 +166,141 @@ public class DxfEntityParser {
      * @throws IOException if reading fails
      */
     public List<DxfEntity> parseDxfEntities(MultipartFile dxfFile) throws IOException {
-        blockRegistry.clear(); // Reset block registry
+        return parse(dxfFile).entities();
+    }
+    
+    /**
+     * Parse a DXF file into its entities and block definitions.
+     * 
+     * @param dxfFile The DXF file to parse
+     * @return The parsed drawing
+     * @throws IOException if reading fails
+     */
+    public DxfDrawing parse(MultipartFile dxfFile) throws IOException {
         List<DxfEntity> entities = new ArrayList<>();
+        DxfDrawing definitions = read(dxfFile, new HashMap<>(), entities::add, false);
+        return new DxfDrawing(entities, definitions.blocks(), definitions.headerExtents());
+    }
+    
+    /**
+     * Parse a DXF file, passing each top-level entity to a handler as soon as it is complete
+     * instead of collecting them.
+     * 
+     * @param dxfFile The DXF file to parse
+     * @param handler Receives the top-level entities in file order
+     * @return The block definitions and header extents; the entities are empty
+     * @throws IOException if reading fails or the handler throws
+     */
+    public DxfDrawing parse(MultipartFile dxfFile, DxfEntityHandler handler) throws IOException {
+        return read(dxfFile, new HashMap<>(), handler, false);
+    }
+    
+    /**
+     * Read what a streamed conversion needs before it renders: the header extents and the
+     * block definitions.
+     * 
+     * <p>If the header gives usable extents, reading stops where the ENTITIES section starts,
+     * since the BLOCKS section comes before it. Otherwise the whole file is read and the
+     * top-level entities are passed to the handler so the caller can measure them.</p>
+     * 
+     * @param dxfFile The DXF file to read
+     * @param handler Receives the top-level entities if the header has no usable extents
+     * @return The block definitions and header extents; the entities are empty
+     * @throws IOException if reading fails or the handler throws
+     */
+    public DxfDrawing parseDefinitions(MultipartFile dxfFile, DxfEntityHandler handler) throws IOException {
+        return parseDefinitions(dxfFile, new HashMap<>(), handler);
+    }
+    
+    /**
+     * Read the header extents and block definitions, adding each block to {@code blocks} as
+     * soon as it ends. The BLOCKS section comes before ENTITIES, so the handler can measure
+     * an INSERT against the map as it arrives.
+     * 
+     * @param dxfFile The DXF file to read
+     * @param blocks Receives the block definitions, by name
+     * @param handler Receives the top-level entities if the header has no usable extents
+     * @return The block definitions and header extents; the entities are empty
+     * @throws IOException if reading fails or the handler throws
+     */
+    public DxfDrawing parseDefinitions(MultipartFile dxfFile, Map<String, BlockEntity> blocks,
+            DxfEntityHandler handler) throws IOException {
+        return read(dxfFile, blocks, handler, true);
+    }
+    
+    private DxfDrawing read(MultipartFile dxfFile, Map<String, BlockEntity> blockRegistry, DxfEntityHandler handler,
+            boolean definitionsOnly) throws IOException {
         BlockEntity currentBlock = null;
+        // $EXTMIN x and y, then $EXTMAX x and y
+        double[] header = {Double.NaN, Double.NaN, Double.NaN, Double.NaN};
+        int headerVariable = -1;
+        boolean sectionStart = false;
         
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(dxfFile.getInputStream()))) {
-            String line;
-            Integer currentGroupCode = null;
-            String currentEntityType = null;
+        try (InputStream in = dxfFile.getInputStream()) {
+            DxfTokenizer tokenizer = new DxfTokenizer(in);
             DxfEntity currentEntity = null;
             
-            while ((line = br.readLine()) != null) {
-                line = line.trim();
-                
-                if (currentGroupCode == null) {
-                    try {
-                        currentGroupCode = safeParseInt(line);
-                    } catch (NumberFormatException e) {
-                        continue;
-                    }
-                } else {
-                    if (currentGroupCode == GROUP_CODE_ENTITY_TYPE) {
-                        // Handle ENDBLK - end of block definition
-                        if (ENTITY_ENDBLK.equals(line)) {
-                            if (currentBlock != null) {
-                                // Store block in registry
-                                blockRegistry.put(currentBlock.getName(), currentBlock);
-                                currentBlock = null;
-                            }
-                            currentEntity = null;
-                            currentEntityType = null;
-                        } else {
-                            // Save previous entity
+            while (tokenizer.next()) {
+                int groupCode = tokenizer.groupCode();
+                if (sectionStart && groupCode == GROUP_CODE_BLOCK_NAME && tokenizer.valueIs(ENTITIES)
+                        && definitionsOnly && headerExtents(header) != null) {
+                    break;
+                }
+                sectionStart = groupCode == GROUP_CODE_ENTITY_TYPE && tokenizer.valueIs(SECTION);
+                if (groupCode == GROUP_CODE_ENTITY_TYPE) {
+                    headerVariable = -1;
+                    // Handle ENDBLK - end of block definition
+                    if (tokenizer.valueIs(ENDBLK)) {
+                        if (currentBlock != null) {
+                            // The block's last entity ends here too
                             if (currentEntity != null) {
-                                if (currentBlock != null) {
-                                    // Entity belongs to current block
-                                    currentBlock.addEntity(currentEntity);
-                                } else {
-                                    // Regular entity
-                                    entities.add(currentEntity);
-                                }
+                                currentBlock.addEntity(currentEntity);
                             }
-                            
-                            currentEntityType = line;
-                            currentEntity = createEntity(currentEntityType);
-                            
-                            // Start a new block definition
-                            if (ENTITY_BLOCK.equals(line) && currentEntity instanceof BlockEntity) {
-                                currentBlock = (BlockEntity) currentEntity;
-                                currentEntity = null; // Block itself is not added to entities
+                            // Store block in registry
+                            blockRegistry.put(currentBlock.getName(), currentBlock);
+                            currentBlock = null;
+                        }
+                        currentEntity = null;
+                    } else {
+                        // Save previous entity
+                        if (currentEntity != null) {
+                            if (currentBlock != null) {
+                                // Entity belongs to current block
+                                currentBlock.addEntity(currentEntity);
+                            } else {
+                                // Regular entity
+                                handler.handle(currentEntity);
                             }
                         }
-                    } else if (currentEntity != null) {
-                        parseEntityProperty(currentEntity, currentGroupCode, line);
-                    } else if (currentBlock != null) {
-                        // Parsing block properties (name, base point)
-                        if (currentGroupCode == GROUP_CODE_BLOCK_NAME) {
-                            currentBlock.setName(line);
+                        
+                        currentEntity = createEntity(tokenizer);
+                        
+                        // Start a new block definition
+                        if (currentEntity instanceof BlockEntity block) {
+                            currentBlock = block;
+                            currentEntity = null; // Block itself is not added to entities
+                        }
+                    }
+                } else if (currentEntity != null) {
+                    parseEntityProperty(currentEntity, groupCode, tokenizer);
+                } else if (currentBlock != null) {
+                    // Parsing block properties (name, base point)
+                    if (groupCode == GROUP_CODE_BLOCK_NAME) {
+                        currentBlock.setName(tokenizer.stringValue());
+                    } else if (groupCode == GROUP_CODE_X_START || groupCode == GROUP_CODE_Y_START) {
+                        double doubleValue = tokenizer.doubleValue();
+                        if (Double.isNaN(doubleValue)) {
+                            // Skip invalid values
+                        } else if (groupCode == GROUP_CODE_X_START) {
+                            currentBlock.setBaseX(doubleValue);
                         } else {
-                            try {
-                                double doubleValue = safeParseDouble(line);
-                                if (currentGroupCode == GROUP_CODE_X_START) {
-                                    currentBlock.setBaseX(doubleValue);
-                                } else if (currentGroupCode == GROUP_CODE_Y_START) {
-                                    currentBlock.setBaseY(doubleValue);
-                                }
-                            } catch (NumberFormatException e) {
-                                // Skip invalid values
-                            }
+                            currentBlock.setBaseY(doubleValue);
                         }
                     }
-                    currentGroupCode = null;
+                } else if (groupCode == GROUP_CODE_HEADER_VARIABLE) {
+                    headerVariable = tokenizer.valueIs(EXTMIN) ? 0 : tokenizer.valueIs(EXTMAX) ? 2 : -1;
+                } else if (headerVariable >= 0 && (groupCode == GROUP_CODE_X_START || groupCode == GROUP_CODE_Y_START)) {
+                    header[headerVariable + (groupCode == GROUP_CODE_X_START ? 0 : 1)] = tokenizer.doubleValue();
                 }
             }
             
@@ -203,65 +309,48 @@ public class DxfEntityParser {
                 if (currentBlock != null) {
                     currentBlock.addEntity(currentEntity);
                 } else {
-                    entities.add(currentEntity);
+                    handler.handle(currentEntity);
                 }
             }
         }
         
-        return entities;
+        return new DxfDrawing(List.of(), blockRegistry, headerExtents(header));
     }
     
     /**
-     * Get the block registry with all parsed blocks.
+     * Returns the extents given by the $EXTMIN and $EXTMAX header variables, or null if
+     * either is missing, invalid, empty, or one of the placeholder values (magnitude 1e20)
+     * AutoCAD writes for a drawing with no extents.
      */
-    public Map<String, BlockEntity> getBlockRegistry() {
-        return blockRegistry;
+    private static DxfExtents headerExtents(double[] header) {
+        for (double value : header) {
+            if (!(Math.abs(value) < UNSET_EXTENTS)) {
+                return null;
+            }
+        }
+        if (header[0] >= header[2] || header[1] >= header[3]) {
+            return null;
+        }
+        return new DxfExtents(header[0], header[1], header[2], header[3]);
     }
     
-    private DxfEntity createEntity(String entityType) {
-        switch (entityType) {
-            case ENTITY_LINE: return new LineEntity();
-            case ENTITY_CIRCLE: return new CircleEntity();
-            case ENTITY_ARC: return new ArcEntity();
-            case ENTITY_ELLIPSE: return new EllipseEntity();
-            case ENTITY_POINT: return new PointEntity();
-            case ENTITY_POLYLINE:
-            case ENTITY_LWPOLYLINE: return new PolylineEntity();
-            case ENTITY_SOLID:
-            case ENTITY_TRACE: return new SolidEntity();
-            case ENTITY_TEXT: return new TextEntity();
-            case ENTITY_MTEXT: return new MTextEntity();
-            case ENTITY_DIMENSION: return new DimensionEntity();
-            case ENTITY_LEADER:
-            case ENTITY_MULTILEADER: return new LeaderEntity();
-            case ENTITY_TOLERANCE: return new ToleranceEntity();
-            case ENTITY_TABLE: return new TableEntity();
-            case ENTITY_BLOCK: return new BlockEntity();
-            case ENTITY_INSERT: return new InsertEntity();
-            case ENTITY_ATTDEF:
-            case ENTITY_ATTRIB: return new AttributeEntity();
-            case ENTITY_XREF: return new XRefEntity();
-            case ENTITY_WIPEOUT: return new WipeoutEntity();
-            case ENTITY_3DFACE: return new Face3DEntity();
-            case ENTITY_3DSOLID: return new Solid3DEntity();
-            case ENTITY_MESH: return new MeshEntity();
-            case ENTITY_SURFACE: return new SurfaceEntity();
-            case ENTITY_BODY: return new BodyEntity();
-            case ENTITY_REGION: return new RegionEntity();
-            case ENTITY_VIEWPORT: return new ViewportEntity();
-            case ENTITY_IMAGE: return new ImageEntity();
-            case ENTITY_PDFUNDERLAY:
-            case ENTITY_DGNUNDERLAY:
-            case ENTITY_DWFUNDERLAY: return new UnderlayEntity();
-            case ENTITY_OLEFRAME:
-            case ENTITY_OLE2FRAME: return new OleFrameEntity();
-            default: return null;
+    /**
+     * Creates an empty entity for the entity type in the tokenizer's current value, or
+     * returns null for types that are not supported.
+     */
+    private DxfEntity createEntity(DxfTokenizer tokenizer) {
+        for (EntityType type : ENTITY_TYPES) {
+            if (tokenizer.valueIs(type.name())) {
+                return type.factory().get();
+            }
         }
+        return null;
     }
     
-    private void parseEntityProperty(DxfEntity entity, int groupCode, String value) {
+    private void parseEntityProperty(DxfEntity entity, int groupCode, DxfTokenizer tokenizer) {
         // Handle text values first (group code 1)
         if (groupCode == GROUP_CODE_TEXT_VALUE) {
+            String value = tokenizer.stringValue();
             if (entity instanceof TextEntity) {
                 ((TextEntity) entity).setText(value);
             } else if (entity instanceof MTextEntity) {
@@ -276,247 +365,23 @@ public class DxfEntityParser {
             return;
         }
         
-        try {
-            double doubleValue = safeParseDouble(value);
-            
-            if (entity instanceof LineEntity) {
-                LineEntity line = (LineEntity) entity;
-                switch (groupCode) {
-                    case GROUP_CODE_X_START: line.setX1(doubleValue); break;
-                    case GROUP_CODE_Y_START: line.setY1(doubleValue); break;
-                    case GROUP_CODE_X_END: line.setX2(doubleValue); break;
-                    case GROUP_CODE_Y_END: line.setY2(doubleValue); break;
-                }
-            } else if (entity instanceof CircleEntity) {
-                CircleEntity circle = (CircleEntity) entity;
-                switch (groupCode) {
-                    case GROUP_CODE_X_START: circle.setCenterX(doubleValue); break;
-                    case GROUP_CODE_Y_START: circle.setCenterY(doubleValue); break;
-                    case GROUP_CODE_RADIUS: circle.setRadius(doubleValue); break;
-                }
-            } else if (entity instanceof ArcEntity) {
-                ArcEntity arc = (ArcEntity) entity;
-                switch (groupCode) {
-                    case GROUP_CODE_X_START: arc.setCenterX(doubleValue); break;
-                    case GROUP_CODE_Y_START: arc.setCenterY(doubleValue); break;
-                    case GROUP_CODE_RADIUS: arc.setRadius(doubleValue); break;
-                    case GROUP_CODE_START_ANGLE: arc.setStartAngle(doubleValue); break;
-                    case GROUP_CODE_END_ANGLE: arc.setEndAngle(doubleValue); break;
-                }
-            } else if (entity instanceof PointEntity) {
-                PointEntity point = (PointEntity) entity;
-                switch (groupCode) {
-                    case GROUP_CODE_X_START: point.setX(doubleValue); break;
-                    case GROUP_CODE_Y_START: point.setY(doubleValue); break;
-                }
-            } else if (entity instanceof PolylineEntity) {
-                PolylineEntity polyline = (PolylineEntity) entity;
-                if (groupCode == GROUP_CODE_X_START) {
-                    polyline.addVertex(doubleValue, 0); // Will be updated with Y
-                } else if (groupCode == GROUP_CODE_Y_START && polyline.getVertexCount() > 0) {
-                    List<Double> vertices = polyline.getVertices();
-                    vertices.set(vertices.size() - 1, doubleValue);
-                }
-            } else if (entity instanceof EllipseEntity) {
-                EllipseEntity ellipse = (EllipseEntity) entity;
-                switch (groupCode) {
-                    case GROUP_CODE_X_START: ellipse.setCenterX(doubleValue); break;
-                    case GROUP_CODE_Y_START: ellipse.setCenterY(doubleValue); break;
-                    case GROUP_CODE_X_END: ellipse.setMajorAxisX(doubleValue); break;
-                    case GROUP_CODE_Y_END: ellipse.setMajorAxisY(doubleValue); break;
-                    case GROUP_CODE_RADIUS: ellipse.setRatio(doubleValue); break;
-                }
-            } else if (entity instanceof SolidEntity) {
-                SolidEntity solid = (SolidEntity) entity;
-                switch (groupCode) {
-                    case GROUP_CODE_X_START: solid.setX1(doubleValue); break;
-                    case GROUP_CODE_Y_START: solid.setY1(doubleValue); break;
-                    case GROUP_CODE_X_END: solid.setX2(doubleValue); break;
-                    case GROUP_CODE_Y_END: solid.setY2(doubleValue); break;
-                    case GROUP_CODE_X2: solid.setX3(doubleValue); break;
-                    case GROUP_CODE_Y2: solid.setY3(doubleValue); break;
-                    case GROUP_CODE_X3: solid.setX4(doubleValue); break;
-                    case GROUP_CODE_Y3: solid.setY4(doubleValue); break;
-                }
-            } else if (entity instanceof TextEntity) {
-                TextEntity text = (TextEntity) entity;
-                switch (groupCode) {
-                    case GROUP_CODE_X_START: text.setX(doubleValue); break;
-                    case GROUP_CODE_Y_START: text.setY(doubleValue); break;
-                    case 40: text.setHeight(doubleValue); break; // Text height
-                    case 50: text.setRotationAngle(doubleValue); break; // Rotation angle
-                }
-            } else if (entity instanceof MTextEntity) {
-                MTextEntity mtext = (MTextEntity) entity;
-                switch (groupCode) {
-                    case GROUP_CODE_X_START: mtext.setX(doubleValue); break;
-                    case GROUP_CODE_Y_START: mtext.setY(doubleValue); break;
-                    case 40: mtext.setHeight(doubleValue); break; // Initial text height
-                    case 41: mtext.setWidth(doubleValue); break; // Reference column width
-                }
-            } else if (entity instanceof DimensionEntity) {
-                DimensionEntity dim = (DimensionEntity) entity;
-                switch (groupCode) {
-                    case 70: dim.setDimensionType(safeDoubleToInt(doubleValue)); break;
-                    case GROUP_CODE_X_START: dim.setX1(doubleValue); break;
-                    case GROUP_CODE_Y_START: dim.setY1(doubleValue); break;
-                    case GROUP_CODE_X_END: dim.setX2(doubleValue); break;
-                    case GROUP_CODE_Y_END: dim.setY2(doubleValue); break;
-                    case 13: dim.setTextX(doubleValue); break;
-                    case 23: dim.setTextY(doubleValue); break;
-                    case 42: dim.setMeasurement(doubleValue); break;
-                }
-            } else if (entity instanceof LeaderEntity) {
-                LeaderEntity leader = (LeaderEntity) entity;
-                if (groupCode == GROUP_CODE_X_START) {
-                    leader.addVertex(doubleValue, 0);
-                } else if (groupCode == GROUP_CODE_Y_START && leader.getVertexCount() > 0) {
-                    List<Double> vertices = leader.getVertices();
-                    vertices.set(vertices.size() - 1, doubleValue);
-                } else if (groupCode == 13) {
-                    leader.setTextX(doubleValue);
-                } else if (groupCode == 23) {
-                    leader.setTextY(doubleValue);
-                }
-            } else if (entity instanceof ToleranceEntity) {
-                ToleranceEntity tolerance = (ToleranceEntity) entity;
-                switch (groupCode) {
-                    case GROUP_CODE_X_START: tolerance.setX(doubleValue); break;
-                    case GROUP_CODE_Y_START: tolerance.setY(doubleValue); break;
-                    case 40: tolerance.setHeight(doubleValue); break;
-                }
-            } else if (entity instanceof TableEntity) {
-                TableEntity table = (TableEntity) entity;
-                switch (groupCode) {
-                    case GROUP_CODE_X_START: table.setX(doubleValue); break;
-                    case GROUP_CODE_Y_START: table.setY(doubleValue); break;
-                    case 90: table.setRows(safeDoubleToInt(doubleValue)); break;
-                    case 91: table.setColumns(safeDoubleToInt(doubleValue)); break;
-                    case 40: table.setCellHeight(doubleValue); break;
-                    case 41: table.setCellWidth(doubleValue); break;
-                }
-            } else if (entity instanceof BlockEntity) {
-                BlockEntity block = (BlockEntity) entity;
-                if (groupCode == GROUP_CODE_BLOCK_NAME) {
-                    // Block name is handled as string, not double
-                } else {
-                    switch (groupCode) {
-                        case GROUP_CODE_X_START: block.setBaseX(doubleValue); break;
-                        case GROUP_CODE_Y_START: block.setBaseY(doubleValue); break;
-                    }
-                }
-            } else if (entity instanceof InsertEntity) {
-                InsertEntity insert = (InsertEntity) entity;
-                if (groupCode == GROUP_CODE_BLOCK_NAME) {
-                    // Block name handled as string
-                } else {
-                    switch (groupCode) {
-                        case GROUP_CODE_X_START: insert.setInsertX(doubleValue); break;
-                        case GROUP_CODE_Y_START: insert.setInsertY(doubleValue); break;
-                        case 41: insert.setScaleX(doubleValue); break;
-                        case 42: insert.setScaleY(doubleValue); break;
-                        case 50: insert.setRotation(doubleValue); break;
-                    }
-                }
-            } else if (entity instanceof AttributeEntity) {
-                AttributeEntity attr = (AttributeEntity) entity;
-                switch (groupCode) {
-                    case GROUP_CODE_X_START: attr.setX(doubleValue); break;
-                    case GROUP_CODE_Y_START: attr.setY(doubleValue); break;
-                    case 40: attr.setHeight(doubleValue); break;
-                }
-            } else if (entity instanceof XRefEntity) {
-                XRefEntity xref = (XRefEntity) entity;
-                switch (groupCode) {
-                    case GROUP_CODE_X_START: xref.setInsertX(doubleValue); break;
-                    case GROUP_CODE_Y_START: xref.setInsertY(doubleValue); break;
-                }
-            } else if (entity instanceof WipeoutEntity) {
-                WipeoutEntity wipeout = (WipeoutEntity) entity;
-                if (groupCode == GROUP_CODE_X_START) {
-                    wipeout.addVertex(doubleValue, 0);
-                } else if (groupCode == GROUP_CODE_Y_START && wipeout.getVertexCount() > 0) {
-                    List<Double> vertices = wipeout.getVertices();
-                    vertices.set(vertices.size() - 1, doubleValue);
-                }
-            } else if (entity instanceof Face3DEntity) {
-                Face3DEntity face3d = (Face3DEntity) entity;
-                switch (groupCode) {
-                    case GROUP_CODE_X_START: face3d.setX1(doubleValue); break;
-                    case GROUP_CODE_Y_START: face3d.setY1(doubleValue); break;
-                    case 30: face3d.setZ1(doubleValue); break; // Z coordinate
-                    case GROUP_CODE_X_END: face3d.setX2(doubleValue); break;
-                    case GROUP_CODE_Y_END: face3d.setY2(doubleValue); break;
-                    case 31: face3d.setZ2(doubleValue); break;
-                    case GROUP_CODE_X2: face3d.setX3(doubleValue); break;
-                    case GROUP_CODE_Y2: face3d.setY3(doubleValue); break;
-                    case 32: face3d.setZ3(doubleValue); break;
-                    case GROUP_CODE_X3: face3d.setX4(doubleValue); break;
-                    case GROUP_CODE_Y3: face3d.setY4(doubleValue); break;
-                    case 33: face3d.setZ4(doubleValue); break;
-                }
-            } else if (entity instanceof PolyfaceMeshEntity) {
-                PolyfaceMeshEntity mesh = (PolyfaceMeshEntity) entity;
-                if (groupCode == GROUP_CODE_X_START) {
-                    mesh.addVertex(doubleValue, 0, 0);
-                } else if (groupCode == GROUP_CODE_Y_START && mesh.getVertexCount() > 0) {
-                    List<Double> vertices = mesh.getVertices();
-                    vertices.set(vertices.size() - 2, doubleValue);
-                } else if (groupCode == 30 && mesh.getVertexCount() > 0) { // Z coordinate
-                    List<Double> vertices = mesh.getVertices();
-                    vertices.set(vertices.size() - 1, doubleValue);
-                }
-            } else if (entity instanceof MeshEntity) {
-                MeshEntity mesh = (MeshEntity) entity;
-                if (groupCode == GROUP_CODE_X_START) {
-                    mesh.addVertex(doubleValue, 0, 0);
-                } else if (groupCode == GROUP_CODE_Y_START && mesh.getVertexCount() > 0) {
-                    List<Double> vertices = mesh.getVertices();
-                    vertices.set(vertices.size() - 2, doubleValue);
-                } else if (groupCode == 30 && mesh.getVertexCount() > 0) {
-                    List<Double> vertices = mesh.getVertices();
-                    vertices.set(vertices.size() - 1, doubleValue);
-                } else if (groupCode == 92) {
-                    mesh.setSubdivisionLevel(safeDoubleToInt(doubleValue));
-                }
-            } else if (entity instanceof Solid3DEntity) {
-                Solid3DEntity solid = (Solid3DEntity) entity;
-                switch (groupCode) {
-                    case GROUP_CODE_X_START: solid.setBoundingBoxMinX(doubleValue); break;
-                    case GROUP_CODE_Y_START: solid.setBoundingBoxMinY(doubleValue); break;
-                    case 30: solid.setBoundingBoxMinZ(doubleValue); break;
-                    case GROUP_CODE_X_END: solid.setBoundingBoxMaxX(doubleValue); break;
-                    case GROUP_CODE_Y_END: solid.setBoundingBoxMaxY(doubleValue); break;
-                    case 31: solid.setBoundingBoxMaxZ(doubleValue); break;
-                }
-            } else if (entity instanceof SurfaceEntity) {
-                SurfaceEntity surface = (SurfaceEntity) entity;
-                switch (groupCode) {
-                    case 71: surface.setUDegree(safeDoubleToInt(doubleValue)); break;
-                    case 72: surface.setVDegree(safeDoubleToInt(doubleValue)); break;
-                    case 73: surface.setNumUControlPoints(safeDoubleToInt(doubleValue)); break;
-                    case 74: surface.setNumVControlPoints(safeDoubleToInt(doubleValue)); break;
-                }
-            } else if (entity instanceof BodyEntity) {
-                BodyEntity body = (BodyEntity) entity;
-                if (groupCode == 70) {
-                    body.setVersion(safeDoubleToInt(doubleValue));
-                }
-            } else if (entity instanceof RegionEntity) {
-                RegionEntity region = (RegionEntity) entity;
-                if (groupCode == GROUP_CODE_X_START) {
-                    region.addVertex(doubleValue, 0);
-                } else if (groupCode == GROUP_CODE_Y_START && region.getVertexCount() > 0) {
-                    List<Double> vertices = region.getVertices();
-                    vertices.set(vertices.size() - 1, doubleValue);
-                }
+        // Coordinates, sizes, angles and counts: no entity reads a number outside 10-99
+        if (groupCode >= MIN_NUMERIC_GROUP_CODE && groupCode <= MAX_NUMERIC_GROUP_CODE) {
+            double doubleValue = tokenizer.doubleValue();
+            if (Double.isNaN(doubleValue)) {
+                return; // Skip invalid numeric values
+            }
+            try {
+                parseNumericProperty(entity, groupCode, doubleValue);
+            } catch (NumberFormatException e) {
+                // Skip integer values out of range
             }
-        } catch (NumberFormatException e) {
-            // Skip invalid numeric values
+            return;
         }
         
         // Handle string values (block names, attribute tags, etc.)
         if (groupCode == GROUP_CODE_BLOCK_NAME) {
+            String value = tokenizer.stringValue();
             if (entity instanceof BlockEntity) {
                 ((BlockEntity) entity).setName(value);
             } else if (entity instanceof InsertEntity) {
@@ -526,17 +391,247 @@ public class DxfEntityParser {
             }
         } else if (groupCode == 3) { // Prompt for attributes
             if (entity instanceof AttributeEntity) {
-                ((AttributeEntity) entity).setPrompt(value);
-            }
-        } else if (groupCode == GROUP_CODE_TEXT_VALUE) {
-            if (entity instanceof XRefEntity) {
-                ((XRefEntity) entity).setFilePath(value);
-            } else if (entity instanceof Solid3DEntity) {
-                ((Solid3DEntity) entity).setProprietaryData(value);
-            } else if (entity instanceof SurfaceEntity) {
-                ((SurfaceEntity) entity).setSurfaceData(value);
-            } else if (entity instanceof BodyEntity) {
-                ((BodyEntity) entity).setAcisData(value);
+                ((AttributeEntity) entity).setPrompt(tokenizer.stringValue());
+            }
+        }
+    }
+    
+    /**
+     * Applies a numeric group code to an entity.
+     *
+     * @throws NumberFormatException if an integer property is out of range
+     */
+    private void parseNumericProperty(DxfEntity entity, int groupCode, double doubleValue) {
+        if (entity instanceof LineEntity) {
+            LineEntity line = (LineEntity) entity;
+            switch (groupCode) {
+                case GROUP_CODE_X_START: line.setX1(doubleValue); break;
+                case GROUP_CODE_Y_START: line.setY1(doubleValue); break;
+                case GROUP_CODE_X_END: line.setX2(doubleValue); break;
+                case GROUP_CODE_Y_END: line.setY2(doubleValue); break;
+            }
+        } else if (entity instanceof CircleEntity) {
+            CircleEntity circle = (CircleEntity) entity;
+            switch (groupCode) {
+                case GROUP_CODE_X_START: circle.setCenterX(doubleValue); break;
+                case GROUP_CODE_Y_START: circle.setCenterY(doubleValue); break;
+                case GROUP_CODE_RADIUS: circle.setRadius(doubleValue); break;
+            }
+        } else if (entity instanceof ArcEntity) {
+            ArcEntity arc = (ArcEntity) entity;
+            switch (groupCode) {
+                case GROUP_CODE_X_START: arc.setCenterX(doubleValue); break;
+                case GROUP_CODE_Y_START: arc.setCenterY(doubleValue); break;
+                case GROUP_CODE_RADIUS: arc.setRadius(doubleValue); break;
+                case GROUP_CODE_START_ANGLE: arc.setStartAngle(doubleValue); break;
+                case GROUP_CODE_END_ANGLE: arc.setEndAngle(doubleValue); break;
+            }
+        } else if (entity instanceof PointEntity) {
+            PointEntity point = (PointEntity) entity;
+            switch (groupCode) {
+                case GROUP_CODE_X_START: point.setX(doubleValue); break;
+                case GROUP_CODE_Y_START: point.setY(doubleValue); break;
+            }
+        } else if (entity instanceof PolylineEntity) {
+            PolylineEntity polyline = (PolylineEntity) entity;
+            if (groupCode == GROUP_CODE_X_START) {
+                polyline.addVertex(doubleValue, 0); // Will be updated with Y
+            } else if (groupCode == GROUP_CODE_Y_START && polyline.getVertexCount() > 0) {
+                CoordinateArray vertices = polyline.getVertices();
+                vertices.set(vertices.size() - 1, doubleValue);
+            }
+        } else if (entity instanceof EllipseEntity) {
+            EllipseEntity ellipse = (EllipseEntity) entity;
+            switch (groupCode) {
+                case GROUP_CODE_X_START: ellipse.setCenterX(doubleValue); break;
+                case GROUP_CODE_Y_START: ellipse.setCenterY(doubleValue); break;
+                case GROUP_CODE_X_END: ellipse.setMajorAxisX(doubleValue); break;
+                case GROUP_CODE_Y_END: ellipse.setMajorAxisY(doubleValue); break;
+                case GROUP_CODE_RADIUS: ellipse.setRatio(doubleValue); break;
+            }
+        } else if (entity instanceof SolidEntity) {
+            SolidEntity solid = (SolidEntity) entity;
+            switch (groupCode) {
+                case GROUP_CODE_X_START: solid.setX1(doubleValue); break;
+                case GROUP_CODE_Y_START: solid.setY1(doubleValue); break;
+                case GROUP_CODE_X_END: solid.setX2(doubleValue); break;
+                case GROUP_CODE_Y_END: solid.setY2(doubleValue); break;
+                case GROUP_CODE_X2: solid.setX3(doubleValue); break;
+                case GROUP_CODE_Y2: solid.setY3(doubleValue); break;
+                case GROUP_CODE_X3: solid.setX4(doubleValue); break;
+                case GROUP_CODE_Y3: solid.setY4(doubleValue); break;
+            }
+        } else if (entity instanceof TextEntity) {
+            TextEntity text = (TextEntity) entity;
+            switch (groupCode) {
+                case GROUP_CODE_X_START: text.setX(doubleValue); break;
+                case GROUP_CODE_Y_START: text.setY(doubleValue); break;
+                case 40: text.setHeight(doubleValue); break; // Text height
+                case 50: text.setRotationAngle(doubleValue); break; // Rotation angle
+            }
+        } else if (entity instanceof MTextEntity) {
+            MTextEntity mtext = (MTextEntity) entity;
+            switch (groupCode) {
+                case GROUP_CODE_X_START: mtext.setX(doubleValue); break;
+                case GROUP_CODE_Y_START: mtext.setY(doubleValue); break;
+                case 40: mtext.setHeight(doubleValue); break; // Initial text height
+                case 41: mtext.setWidth(doubleValue); break; // Reference column width
+            }
+        } else if (entity instanceof DimensionEntity) {
+            DimensionEntity dim = (DimensionEntity) entity;
+            switch (groupCode) {
+                case 70: dim.setDimensionType(safeDoubleToInt(doubleValue)); break;
+                case GROUP_CODE_X_START: dim.setX1(doubleValue); break;
+                case GROUP_CODE_Y_START: dim.setY1(doubleValue); break;
+                case GROUP_CODE_X_END: dim.setX2(doubleValue); break;
+                case GROUP_CODE_Y_END: dim.setY2(doubleValue); break;
+                case 13: dim.setTextX(doubleValue); break;
+                case 23: dim.setTextY(doubleValue); break;
+                case 42: dim.setMeasurement(doubleValue); break;
+            }
+        } else if (entity instanceof LeaderEntity) {
+            LeaderEntity leader = (LeaderEntity) entity;
+            if (groupCode == GROUP_CODE_X_START) {
+                leader.addVertex(doubleValue, 0);
+            } else if (groupCode == GROUP_CODE_Y_START && leader.getVertexCount() > 0) {
+                CoordinateArray vertices = leader.getVertices();
+                vertices.set(vertices.size() - 1, doubleValue);
+            } else if (groupCode == 13) {
+                leader.setTextX(doubleValue);
+            } else if (groupCode == 23) {
+                leader.setTextY(doubleValue);
+            }
+        } else if (entity instanceof ToleranceEntity) {
+            ToleranceEntity tolerance = (ToleranceEntity) entity;
+            switch (groupCode) {
+                case GROUP_CODE_X_START: tolerance.setX(doubleValue); break;
+                case GROUP_CODE_Y_START: tolerance.setY(doubleValue); break;
+                case 40: tolerance.setHeight(doubleValue); break;
+            }
+        } else if (entity instanceof TableEntity) {
+            TableEntity table = (TableEntity) entity;
+            switch (groupCode) {
+                case GROUP_CODE_X_START: table.setX(doubleValue); break;
+                case GROUP_CODE_Y_START: table.setY(doubleValue); break;
+                case 90: table.setRows(safeDoubleToInt(doubleValue)); break;
+                case 91: table.setColumns(safeDoubleToInt(doubleValue)); break;
+                case 40: table.setCellHeight(doubleValue); break;
+                case 41: table.setCellWidth(doubleValue); break;
+            }
+        } else if (entity instanceof BlockEntity) {
+            BlockEntity block = (BlockEntity) entity;
+            if (groupCode == GROUP_CODE_BLOCK_NAME) {
+                // Block name is handled as string, not double
+            } else {
+                switch (groupCode) {
+                    case GROUP_CODE_X_START: block.setBaseX(doubleValue); break;
+                    case GROUP_CODE_Y_START: block.setBaseY(doubleValue); break;
+                }
+            }
+        } else if (entity instanceof InsertEntity) {
+            InsertEntity insert = (InsertEntity) entity;
+            if (groupCode == GROUP_CODE_BLOCK_NAME) {
+                // Block name handled as string
+            } else {
+                switch (groupCode) {
+                    case GROUP_CODE_X_START: insert.setInsertX(doubleValue); break;
+                    case GROUP_CODE_Y_START: insert.setInsertY(doubleValue); break;
+                    case 41: insert.setScaleX(doubleValue); break;
+                    case 42: insert.setScaleY(doubleValue); break;
+                    case 50: insert.setRotation(doubleValue); break;
+                }
+            }
+        } else if (entity instanceof AttributeEntity) {
+            AttributeEntity attr = (AttributeEntity) entity;
+            switch (groupCode) {
+                case GROUP_CODE_X_START: attr.setX(doubleValue); break;
+                case GROUP_CODE_Y_START: attr.setY(doubleValue); break;
+                case 40: attr.setHeight(doubleValue); break;
+            }
+        } else if (entity instanceof XRefEntity) {
+            XRefEntity xref = (XRefEntity) entity;
+            switch (groupCode) {
+                case GROUP_CODE_X_START: xref.setInsertX(doubleValue); break;
+                case GROUP_CODE_Y_START: xref.setInsertY(doubleValue); break;
+            }
+        } else if (entity instanceof WipeoutEntity) {
+            WipeoutEntity wipeout = (WipeoutEntity) entity;
+            if (groupCode == GROUP_CODE_X_START) {
+                wipeout.addVertex(doubleValue, 0);
+            } else if (groupCode == GROUP_CODE_Y_START && wipeout.getVertexCount() > 0) {
+                CoordinateArray vertices = wipeout.getVertices();
+                vertices.set(vertices.size() - 1, doubleValue);
+            }
+        } else if (entity instanceof Face3DEntity) {
+            Face3DEntity face3d = (Face3DEntity) entity;
+            switch (groupCode) {
+                case GROUP_CODE_X_START: face3d.setX1(doubleValue); break;
+                case GROUP_CODE_Y_START: face3d.setY1(doubleValue); break;
+                case 30: face3d.setZ1(doubleValue); break; // Z coordinate
+                case GROUP_CODE_X_END: face3d.setX2(doubleValue); break;
+                case GROUP_CODE_Y_END: face3d.setY2(doubleValue); break;
+                case 31: face3d.setZ2(doubleValue); break;
+                case GROUP_CODE_X2: face3d.setX3(doubleValue); break;
+                case GROUP_CODE_Y2: face3d.setY3(doubleValue); break;
+                case 32: face3d.setZ3(doubleValue); break;
+                case GROUP_CODE_X3: face3d.setX4(doubleValue); break;
+                case GROUP_CODE_Y3: face3d.setY4(doubleValue); break;
+                case 33: face3d.setZ4(doubleValue); break;
+            }
+        } else if (entity instanceof PolyfaceMeshEntity) {
+            PolyfaceMeshEntity mesh = (PolyfaceMeshEntity) entity;
+            if (groupCode == GROUP_CODE_X_START) {
+                mesh.addVertex(doubleValue, 0, 0);
+            } else if (groupCode == GROUP_CODE_Y_START && mesh.getVertexCount() > 0) {
+                CoordinateArray vertices = mesh.getVertices();
+                vertices.set(vertices.size() - 2, doubleValue);
+            } else if (groupCode == 30 && mesh.getVertexCount() > 0) { // Z coordinate
+                CoordinateArray vertices = mesh.getVertices();
+                vertices.set(vertices.size() - 1, doubleValue);
+            }
+        } else if (entity instanceof MeshEntity) {
+            MeshEntity mesh = (MeshEntity) entity;
+            if (groupCode == GROUP_CODE_X_START) {
+                mesh.addVertex(doubleValue, 0, 0);
+            } else if (groupCode == GROUP_CODE_Y_START && mesh.getVertexCount() > 0) {
+                CoordinateArray vertices = mesh.getVertices();
+                vertices.set(vertices.size() - 2, doubleValue);
+            } else if (groupCode == 30 && mesh.getVertexCount() > 0) {
+                CoordinateArray vertices = mesh.getVertices();
+                vertices.set(vertices.size() - 1, doubleValue);
+            } else if (groupCode == 92) {
+                mesh.setSubdivisionLevel(safeDoubleToInt(doubleValue));
+            }
+        } else if (entity instanceof Solid3DEntity) {
+            Solid3DEntity solid = (Solid3DEntity) entity;
+            switch (groupCode) {
+                case GROUP_CODE_X_START: solid.setBoundingBoxMinX(doubleValue); break;
+                case GROUP_CODE_Y_START: solid.setBoundingBoxMinY(doubleValue); break;
+                case 30: solid.setBoundingBoxMinZ(doubleValue); break;
+                case GROUP_CODE_X_END: solid.setBoundingBoxMaxX(doubleValue); break;
+                case GROUP_CODE_Y_END: solid.setBoundingBoxMaxY(doubleValue); break;
+                case 31: solid.setBoundingBoxMaxZ(doubleValue); break;
+            }
+        } else if (entity instanceof SurfaceEntity) {
+            SurfaceEntity surface = (SurfaceEntity) entity;
+            switch (groupCode) {
+                case 71: surface.setUDegree(safeDoubleToInt(doubleValue)); break;
+                case 72: surface.setVDegree(safeDoubleToInt(doubleValue)); break;
+                case 73: surface.setNumUControlPoints(safeDoubleToInt(doubleValue)); break;
+                case 74: surface.setNumVControlPoints(safeDoubleToInt(doubleValue)); break;
+            }
+        } else if (entity instanceof BodyEntity) {
+            BodyEntity body = (BodyEntity) entity;
+            if (groupCode == 70) {
+                body.setVersion(safeDoubleToInt(doubleValue));
+            }
+        } else if (entity instanceof RegionEntity) {
+            RegionEntity region = (RegionEntity) entity;
+            if (groupCode == GROUP_CODE_X_START) {
+                region.addVertex(doubleValue, 0);
+            } else if (groupCode == GROUP_CODE_Y_START && region.getVertexCount() > 0) {
+                CoordinateArray vertices = region.getVertices();
+                vertices.set(vertices.size() - 1, doubleValue);
             }
         }
     }
@@ -72,7 +72,7 @@ public class DxfEntityRenderer {
             
         } else if (entity instanceof PolylineEntity) {
             PolylineEntity polyline = (PolylineEntity) entity;
-            List<Double> vertices = polyline.getVertices();
+            CoordinateArray vertices = polyline.getVertices();
             if (vertices.size() >= 4) {
                 renderer.moveTo(offsetX + vertices.get(0) * scale, offsetY + vertices.get(1) * scale);
                 for (int i = 2; i < vertices.size(); i += 2) {
@@ -151,7 +151,7 @@ public class DxfEntityRenderer {
             );
         } else if (entity instanceof LeaderEntity) {
             LeaderEntity leader = (LeaderEntity) entity;
-            List<Double> vertices = leader.getVertices();
+            CoordinateArray vertices = leader.getVertices();
             if (vertices.size() >= 4) {
                 renderer.moveTo(offsetX + vertices.get(0) * scale, offsetY + vertices.get(1) * scale);
                 for (int i = 2; i < vertices.size(); i += 2) {
@@ -225,9 +225,11 @@ public class DxfEntityRenderer {
                 // Note: Full transformation matrix support would require builder enhancement
                 // For now, we render blocks without rotation transformations
                 
+                // Block contents are drawn at the insert's X scale, base point included
+                double blockScale = scale * insert.getScaleX();
                 for (DxfEntity blockEntity : block.getEntities()) {
-                    renderEntity(renderer, blockEntity, scale * insert.getScaleX(), 
-                               insertX - block.getBaseX() * scale, insertY - block.getBaseY() * scale,
+                    renderEntity(renderer, blockEntity, blockScale, 
+                               insertX - block.getBaseX() * blockScale, insertY - block.getBaseY() * blockScale,
                                insert.getScaleX(), insert.getScaleY(), insert.getRotation());
                 }
                 
@@ -259,7 +261,7 @@ public class DxfEntityRenderer {
         } else if (entity instanceof WipeoutEntity) {
             // WIPEOUT - Render filled white polygon as mask
             WipeoutEntity wipeout = (WipeoutEntity) entity;
-            List<Double> vertices = wipeout.getVertices();
+            CoordinateArray vertices = wipeout.getVertices();
             
             if (vertices.size() >= 6) {
                 renderer.saveState();
@@ -295,7 +297,7 @@ public class DxfEntityRenderer {
         } else if (entity instanceof PolyfaceMeshEntity) {
             // POLYFACE MESH - Render as wireframe (connect vertices)
             PolyfaceMeshEntity mesh = (PolyfaceMeshEntity) entity;
-            List<Double> vertices = mesh.getVertices();
+            CoordinateArray vertices = mesh.getVertices();
             
             if (vertices.size() >= 9) { // At least 3 vertices (x,y,z each)
                 renderer.saveState();
@@ -319,7 +321,7 @@ public class DxfEntityRenderer {
         } else if (entity instanceof MeshEntity) {
             // MESH - Render as point cloud or wireframe
             MeshEntity mesh = (MeshEntity) entity;
-            List<Double> vertices = mesh.getVertices();
+            CoordinateArray vertices = mesh.getVertices();
             
             if (vertices.size() >= 3) {
                 renderer.saveState();
@@ -396,7 +398,7 @@ public class DxfEntityRenderer {
         } else if (entity instanceof RegionEntity) {
             // REGION - Render as filled polygon
             RegionEntity region = (RegionEntity) entity;
-            List<Double> vertices = region.getVertices();
+            CoordinateArray vertices = region.getVertices();
             
             if (vertices.size() >= 6) {
                 renderer.saveState();
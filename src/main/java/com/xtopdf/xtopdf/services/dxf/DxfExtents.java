@@ -0,0 +1,20 @@
+package com.xtopdf.xtopdf.services.dxf;
+
+/**
+ * Axis-aligned bounding box of a drawing in DXF coordinates.
+ *
+ * @param minX the smallest X
+ * @param minY the smallest Y
+ * @param maxX the largest X
+ * @param maxY the largest Y
+ */
+public record DxfExtents(double minX, double minY, double maxX, double maxY) {
+
+    public double width() {
+        return maxX - minX;
+    }
+
+    public double height() {
+        return maxY - minY;
+    }
+}
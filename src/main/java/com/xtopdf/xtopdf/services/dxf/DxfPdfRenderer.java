@@ -2,117 +2,154 @@ package com.xtopdf.xtopdf.services.dxf;
 
 import com.xtopdf.xtopdf.pdf.PdfDocumentBuilder;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
 
 /**
  * Helper class for rendering DXF entities to PDF using the abstraction layer.
  * Provides methods that mirror canvas operations for easier migration.
+ *
+ * <p>Paths are built up in primitive arrays and handed to the builder as whole paths.
+ * Consecutive strokes with the same color, width and dash pattern are painted together
+ * with one stroke operator, so a drawing of many lines costs one paint per run of
+ * same-style entities rather than one per segment. The graphics state is tracked here and
+ * only differences are written when something is painted, so {@link #saveState()} and
+ * {@link #restoreState()} pairs and repeated color changes cost nothing in the output.</p>
+ *
+ * <p>Batched strokes are written when something else is painted, on {@link #newPage()} and
+ * on {@link #flush()}, which must be called before the document is saved.</p>
  */
 public class DxfPdfRenderer {
-    
+
+    /** Kappa for approximating a quarter circle with a cubic Bézier curve. */
+    private static final double KAPPA = 0.552284749831;
+
+    /** Path operators held in the buffer. */
+    private static final byte MOVE = 0;
+    private static final byte LINE = 1;
+    private static final byte CURVE = 2;
+    private static final byte CLOSE = 3;
+
+    /** Path operators after which a batch of strokes is painted regardless of what follows. */
+    private static final int MAX_BATCH_OPS = 4096;
+
     private final PdfDocumentBuilder builder;
-    private double currentX;
-    private double currentY;
-    private List<Double> pathX = new ArrayList<>();
-    private List<Double> pathY = new ArrayList<>();
-    private boolean pathStarted = false;
-    
+
+    // Path buffer: [0, pendingOps) is stroked but not yet written, the rest is being built
+    private byte[] ops = new byte[64];
+    private float[] coords = new float[256];
+    private int opCount;
+    private int coordCount;
+    private int pendingOps;
+    private int pendingCoords;
+
+    // What the entities asked for, and what the page has been told
+    private GraphicsState state = new GraphicsState();
+    private final Deque<GraphicsState> savedStates = new ArrayDeque<>();
+    private GraphicsState written = GraphicsState.unknown();
+
     public DxfPdfRenderer(PdfDocumentBuilder builder) {
         this.builder = builder;
     }
-    
+
     public void moveTo(double x, double y) {
-        if (!pathStarted) {
-            pathX.clear();
-            pathY.clear();
-            pathStarted = true;
-        }
-        pathX.add(x);
-        pathY.add(y);
-        currentX = x;
-        currentY = y;
+        append(MOVE, 2);
+        coords[coordCount++] = (float) x;
+        coords[coordCount++] = (float) y;
     }
-    
+
     public void lineTo(double x, double y) {
-        if (pathStarted) {
-            pathX.add(x);
-            pathY.add(y);
-        } else {
+        if (opCount == pendingOps) {
             moveTo(x, y);
+            return;
         }
-        currentX = x;
-        currentY = y;
+        append(LINE, 2);
+        coords[coordCount++] = (float) x;
+        coords[coordCount++] = (float) y;
     }
-    
+
     public void closePath() {
-        if (pathStarted && !pathX.isEmpty()) {
-            pathX.add(pathX.get(0));
-            pathY.add(pathY.get(0));
+        if (opCount > pendingOps) {
+            append(CLOSE, 0);
         }
     }
-    
+
     public void stroke() throws IOException {
-        if (pathStarted && pathX.size() >= 2) {
-            // Draw lines between consecutive points
-            for (int i = 0; i < pathX.size() - 1; i++) {
-                builder.drawLine(
-                    pathX.get(i).floatValue(), 
-                    pathY.get(i).floatValue(),
-                    pathX.get(i + 1).floatValue(), 
-                    pathY.get(i + 1).floatValue()
-                );
-            }
+        if (!hasSegment()) {
+            discardPath();
+            return;
+        }
+        if (pendingOps > 0 && !state.strokesLike(written)) {
+            flushStroke();
+        }
+        writeStrokeState();
+        pendingOps = opCount;
+        pendingCoords = coordCount;
+        if (pendingOps >= MAX_BATCH_OPS) {
+            flushStroke();
         }
-        pathX.clear();
-        pathY.clear();
-        pathStarted = false;
     }
-    
+
+    /**
+     * Fills the current path. Like the builder's filled polygons, the outline is stroked too.
+     */
     public void fill() throws IOException {
-        if (pathStarted && pathX.size() >= 3) {
-            float[] xPoints = new float[pathX.size()];
-            float[] yPoints = new float[pathY.size()];
-            for (int i = 0; i < pathX.size(); i++) {
-                xPoints[i] = pathX.get(i).floatValue();
-                yPoints[i] = pathY.get(i).floatValue();
-            }
-            builder.drawPolygon(xPoints, yPoints, xPoints.length, true);
-        }
-        pathX.clear();
-        pathY.clear();
-        pathStarted = false;
+        fillStroke();
     }
-    
+
     public void fillStroke() throws IOException {
-        if (pathStarted && pathX.size() >= 3) {
-            float[] xPoints = new float[pathX.size()];
-            float[] yPoints = new float[pathY.size()];
-            for (int i = 0; i < pathX.size(); i++) {
-                xPoints[i] = pathX.get(i).floatValue();
-                yPoints[i] = pathY.get(i).floatValue();
+        flushStroke();
+        // A filled shape needs at least three points
+        if (coordCount >= 6 && hasSegment()) {
+            if (ops[opCount - 1] != CLOSE) {
+                append(CLOSE, 0);
             }
-            builder.drawPolygon(xPoints, yPoints, xPoints.length, true);
+            writeStrokeState();
+            writeFillColor();
+            writePath(0, opCount);
+            builder.fillAndStroke();
         }
-        pathX.clear();
-        pathY.clear();
-        pathStarted = false;
+        discardPath();
     }
-    
+
     public void circle(double x, double y, double radius) throws IOException {
-        builder.drawCircle((float)x, (float)y, (float)radius);
+        double k = KAPPA * radius;
+        moveTo(x, y + radius);
+        curveTo(x + k, y + radius, x + radius, y + k, x + radius, y);
+        curveTo(x + radius, y - k, x + k, y - radius, x, y - radius);
+        curveTo(x - k, y - radius, x - radius, y - k, x - radius, y);
+        curveTo(x - radius, y + k, x - k, y + radius, x, y + radius);
+        closePath();
     }
-    
+
     public void arc(double x1, double y1, double x2, double y2, double startAngle, double sweepAngle) throws IOException {
         double width = x2 - x1;
         double height = y2 - y1;
         double centerX = x1 + width / 2;
         double centerY = y1 + height / 2;
         double radius = Math.max(width, height) / 2;
-        builder.drawArc((float)centerX, (float)centerY, (float)radius, 
-                       (float)startAngle, (float)sweepAngle);
+
+        // One curve per quarter turn or less
+        int segments = Math.max(1, (int) Math.ceil(Math.abs(sweepAngle) / 90));
+        double step = Math.toRadians(sweepAngle) / segments;
+        double k = 4.0 / 3.0 * Math.tan(step / 4) * radius;
+        double angle = Math.toRadians(startAngle);
+        double cos = Math.cos(angle);
+        double sin = Math.sin(angle);
+        moveTo(centerX + radius * cos, centerY + radius * sin);
+        for (int i = 0; i < segments; i++) {
+            angle += step;
+            double nextCos = Math.cos(angle);
+            double nextSin = Math.sin(angle);
+            curveTo(centerX + radius * cos - k * sin, centerY + radius * sin + k * cos,
+                    centerX + radius * nextCos + k * nextSin, centerY + radius * nextSin - k * nextCos,
+                    centerX + radius * nextCos, centerY + radius * nextSin);
+            cos = nextCos;
+            sin = nextSin;
+        }
     }
-    
+
     public void ellipse(double x1, double y1, double x2, double y2) throws IOException {
         double width = x2 - x1;
         double height = y2 - y1;
@@ -120,9 +157,16 @@ public class DxfPdfRenderer {
         double centerY = y1 + height / 2;
         double radiusX = width / 2;
         double radiusY = height / 2;
-        builder.drawEllipse((float)centerX, (float)centerY, (float)radiusX, (float)radiusY);
+        double ox = radiusX * KAPPA;
+        double oy = radiusY * KAPPA;
+        moveTo(centerX + radiusX, centerY);
+        curveTo(centerX + radiusX, centerY + oy, centerX + ox, centerY + radiusY, centerX, centerY + radiusY);
+        curveTo(centerX - ox, centerY + radiusY, centerX - radiusX, centerY + oy, centerX - radiusX, centerY);
+        curveTo(centerX - radiusX, centerY - oy, centerX - ox, centerY - radiusY, centerX, centerY - radiusY);
+        curveTo(centerX + ox, centerY - radiusY, centerX + radiusX, centerY - oy, centerX + radiusX, centerY);
+        closePath();
     }
-    
+
     public void rectangle(double x, double y, double width, double height) throws IOException {
         moveTo(x, y);
         lineTo(x + width, y);
@@ -131,34 +175,215 @@ public class DxfPdfRenderer {
         closePath();
         stroke();
     }
-    
+
     public void setStrokeColor(float r, float g, float b) throws IOException {
-        builder.setStrokeColor((int)(r * 255), (int)(g * 255), (int)(b * 255));
+        state.strokeColor = rgb(r, g, b);
     }
-    
+
     public void setFillColor(float r, float g, float b) throws IOException {
-        builder.setFillColor((int)(r * 255), (int)(g * 255), (int)(b * 255));
+        state.fillColor = rgb(r, g, b);
     }
-    
+
     public void setLineWidth(float width) throws IOException {
-        builder.setLineWidth(width);
+        state.lineWidth = width;
     }
-    
+
     public void setLineDash(float dashLength, float gapLength) throws IOException {
-        builder.setLineDash(dashLength, gapLength);
+        state.dashLength = dashLength;
+        state.gapLength = gapLength;
     }
-    
+
     public void saveState() throws IOException {
-        builder.saveState();
+        savedStates.push(state.copy());
     }
-    
+
     public void restoreState() throws IOException {
-        builder.restoreState();
+        if (!savedStates.isEmpty()) {
+            state = savedStates.pop();
+        }
     }
-    
+
     public void addText(double x, double y, String text, float fontSize) throws IOException {
+        flushStroke();
+        writeFillColor();
         // Position text at the specified location
         // Note: Font size is not currently configurable in the abstraction layer
         builder.addText(text, (float)x, (float)y);
     }
+
+    /**
+     * Writes any batched strokes to the page.
+     */
+    public void flush() throws IOException {
+        flushStroke();
+    }
+
+    /**
+     * Finishes the current page and starts a new one. The drawing state carries over and is
+     * written to the new page as it is needed.
+     */
+    public void newPage() throws IOException {
+        flushStroke();
+        discardPath();
+        builder.newPage();
+        written = GraphicsState.unknown();
+    }
+
+    private void curveTo(double x1, double y1, double x2, double y2, double x3, double y3) {
+        append(CURVE, 6);
+        coords[coordCount++] = (float) x1;
+        coords[coordCount++] = (float) y1;
+        coords[coordCount++] = (float) x2;
+        coords[coordCount++] = (float) y2;
+        coords[coordCount++] = (float) x3;
+        coords[coordCount++] = (float) y3;
+    }
+
+    private void append(byte op, int coordinates) {
+        if (opCount == ops.length) {
+            ops = Arrays.copyOf(ops, ops.length * 2);
+        }
+        if (coordCount + coordinates > coords.length) {
+            coords = Arrays.copyOf(coords, coords.length * 2);
+        }
+        ops[opCount++] = op;
+    }
+
+    /** Whether the path being built draws anything. */
+    private boolean hasSegment() {
+        for (int i = pendingOps; i < opCount; i++) {
+            if (ops[i] == LINE || ops[i] == CURVE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void discardPath() {
+        opCount = pendingOps;
+        coordCount = pendingCoords;
+    }
+
+    /**
+     * Paints the batched strokes and moves the path being built to the start of the buffer.
+     */
+    private void flushStroke() throws IOException {
+        if (pendingOps == 0) {
+            return;
+        }
+        writePath(0, pendingOps);
+        builder.stroke();
+        System.arraycopy(ops, pendingOps, ops, 0, opCount - pendingOps);
+        System.arraycopy(coords, pendingCoords, coords, 0, coordCount - pendingCoords);
+        opCount -= pendingOps;
+        coordCount -= pendingCoords;
+        pendingOps = 0;
+        pendingCoords = 0;
+    }
+
+    /**
+     * Hands the path operators in {@code [from, to)} to the builder, which starts at the first
+     * coordinate. Runs of straight segments go as one polyline.
+     */
+    private void writePath(int from, int to) throws IOException {
+        int c = 0;
+        int i = from;
+        while (i < to) {
+            switch (ops[i]) {
+                case MOVE -> {
+                    int points = 1;
+                    while (i + points < to && ops[i + points] == LINE) {
+                        points++;
+                    }
+                    builder.appendPolyline(coords, c, points);
+                    c += 2 * points;
+                    i += points;
+                }
+                case LINE -> {
+                    builder.lineTo(coords[c], coords[c + 1]);
+                    c += 2;
+                    i++;
+                }
+                case CURVE -> {
+                    builder.curveTo(coords[c], coords[c + 1], coords[c + 2], coords[c + 3],
+                            coords[c + 4], coords[c + 5]);
+                    c += 6;
+                    i++;
+                }
+                default -> {
+                    builder.closePath();
+                    i++;
+                }
+            }
+        }
+    }
+
+    private void writeStrokeState() throws IOException {
+        if (state.strokeColor != written.strokeColor) {
+            builder.setStrokeColor(state.strokeColor >> 16, (state.strokeColor >> 8) & 0xFF,
+                    state.strokeColor & 0xFF);
+            written.strokeColor = state.strokeColor;
+        }
+        if (state.lineWidth != written.lineWidth) {
+            builder.setLineWidth(state.lineWidth);
+            written.lineWidth = state.lineWidth;
+        }
+        if (state.dashLength != written.dashLength || state.gapLength != written.gapLength) {
+            if (state.dashLength == 0 && state.gapLength == 0) {
+                builder.resetLineDash();
+            } else {
+                builder.setLineDash(state.dashLength, state.gapLength);
+            }
+            written.dashLength = state.dashLength;
+            written.gapLength = state.gapLength;
+        }
+    }
+
+    private void writeFillColor() throws IOException {
+        if (state.fillColor != written.fillColor) {
+            builder.setFillColor(state.fillColor >> 16, (state.fillColor >> 8) & 0xFF, state.fillColor & 0xFF);
+            written.fillColor = state.fillColor;
+        }
+    }
+
+    private static int rgb(float r, float g, float b) {
+        return (int)(r * 255) << 16 | (int)(g * 255) << 8 | (int)(b * 255);
+    }
+
+    /**
+     * Colors as packed RGB (0-255 each); a solid line has no dash or gap. The defaults are
+     * those of a new PDF page.
+     */
+    private static final class GraphicsState {
+        int strokeColor;
+        int fillColor;
+        float lineWidth = 1;
+        float dashLength;
+        float gapLength;
+
+        /** A state that matches nothing, so every setting is written before it is used. */
+        static GraphicsState unknown() {
+            GraphicsState unknown = new GraphicsState();
+            unknown.strokeColor = -1;
+            unknown.fillColor = -1;
+            unknown.lineWidth = Float.NaN;
+            unknown.dashLength = Float.NaN;
+            return unknown;
+        }
+
+        boolean strokesLike(GraphicsState other) {
+            return strokeColor == other.strokeColor && lineWidth == other.lineWidth
+                    && dashLength == other.dashLength && gapLength == other.gapLength;
+        }
+
+        GraphicsState copy() {
+            GraphicsState copy = new GraphicsState();
+            copy.strokeColor = strokeColor;
+            copy.fillColor = fillColor;
+            copy.lineWidth = lineWidth;
+            copy.dashLength = dashLength;
+            copy.gapLength = gapLength;
+            return copy;
+        }
+    }
 }
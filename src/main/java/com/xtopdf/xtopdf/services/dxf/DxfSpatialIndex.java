@@ -0,0 +1,264 @@
+package com.xtopdf.xtopdf.services.dxf;
+
+import com.xtopdf.xtopdf.entities.DxfEntity;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Static R-tree over the bounding boxes of a drawing's entities, bulk-loaded with
+ * Sort-Tile-Recursive packing: the boxes are sorted into vertical slices by center X, each
+ * slice is sorted by center Y and cut into full nodes, and the nodes are packed the same way
+ * until one root is left.
+ *
+ * <p>Entities are referred to by their position in the list the index was built from.
+ * Searches return those positions as a {@link BitSet}, so callers can visit the hits in
+ * drawing order. Entities without bounds ({@link DxfEntityBounds#of} returned null) are not
+ * in the tree; {@link #unbounded()} lists them.</p>
+ */
+public final class DxfSpatialIndex {
+
+    private static final int NODE_CAPACITY = 16;
+
+    private final int size;
+    private final double[] entityBoxes;
+    private final BitSet scalable;
+    private final BitSet unbounded;
+    private final DxfExtents extents;
+
+    /**
+     * Node boxes per level, four values each. Level 0 holds the entities in packed order;
+     * the last level holds the root.
+     */
+    private final double[][] levelBoxes;
+
+    /**
+     * Per level, the entity position (level 0) or the first child in the level below. Children
+     * are grouped in full runs of {@value #NODE_CAPACITY}, so a node's children are the run
+     * that starts there.
+     */
+    private final int[][] levelChildren;
+
+    private DxfSpatialIndex(int size, double[] entityBoxes, BitSet scalable, BitSet unbounded, DxfExtents extents,
+                            double[][] levelBoxes, int[][] levelChildren) {
+        this.size = size;
+        this.entityBoxes = entityBoxes;
+        this.scalable = scalable;
+        this.unbounded = unbounded;
+        this.extents = extents;
+        this.levelBoxes = levelBoxes;
+        this.levelChildren = levelChildren;
+    }
+
+    /**
+     * Measures the entities and packs them into an index.
+     */
+    public static DxfSpatialIndex build(List<DxfEntity> entities, DxfEntityBounds bounds) {
+        int size = entities.size();
+        double[] entityBoxes = new double[size * 4];
+        BitSet scalable = new BitSet(size);
+        BitSet unbounded = new BitSet(size);
+        int[] bounded = new int[size];
+        int count = 0;
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            DxfEntity entity = entities.get(i);
+            DxfExtents box = bounds.of(entity);
+            if (box == null) {
+                unbounded.set(i);
+                continue;
+            }
+            entityBoxes[i * 4] = box.minX();
+            entityBoxes[i * 4 + 1] = box.minY();
+            entityBoxes[i * 4 + 2] = box.maxX();
+            entityBoxes[i * 4 + 3] = box.maxY();
+            if (bounds.scalesWithDrawing(entity)) {
+                scalable.set(i);
+            }
+            minX = Math.min(minX, box.minX());
+            minY = Math.min(minY, box.minY());
+            maxX = Math.max(maxX, box.maxX());
+            maxY = Math.max(maxY, box.maxY());
+            bounded[count++] = i;
+        }
+        DxfExtents extents = count > 0 ? new DxfExtents(minX, minY, maxX, maxY) : null;
+
+        // Level 0: the bounded entities
+        double[] boxes = new double[count * 4];
+        int[] children = Arrays.copyOf(bounded, count);
+        for (int n = 0; n < count; n++) {
+            System.arraycopy(entityBoxes, children[n] * 4, boxes, n * 4, 4);
+        }
+        double[][] levelBoxes = new double[levels(count)][];
+        int[][] levelChildren = new int[levelBoxes.length][];
+        for (int level = 0; level < levelBoxes.length; level++) {
+            pack(boxes, children, count);
+            levelBoxes[level] = boxes;
+            levelChildren[level] = children;
+            if (count <= 1) {
+                break;
+            }
+            // Group each run of NODE_CAPACITY into a parent
+            int parents = (count + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            double[] parentBoxes = new double[parents * 4];
+            int[] parentChildren = new int[parents];
+            for (int p = 0; p < parents; p++) {
+                int first = p * NODE_CAPACITY;
+                int end = Math.min(first + NODE_CAPACITY, count);
+                parentChildren[p] = first;
+                double nodeMinX = Double.POSITIVE_INFINITY, nodeMinY = Double.POSITIVE_INFINITY;
+                double nodeMaxX = Double.NEGATIVE_INFINITY, nodeMaxY = Double.NEGATIVE_INFINITY;
+                for (int c = first; c < end; c++) {
+                    nodeMinX = Math.min(nodeMinX, boxes[c * 4]);
+                    nodeMinY = Math.min(nodeMinY, boxes[c * 4 + 1]);
+                    nodeMaxX = Math.max(nodeMaxX, boxes[c * 4 + 2]);
+                    nodeMaxY = Math.max(nodeMaxY, boxes[c * 4 + 3]);
+                }
+                parentBoxes[p * 4] = nodeMinX;
+                parentBoxes[p * 4 + 1] = nodeMinY;
+                parentBoxes[p * 4 + 2] = nodeMaxX;
+                parentBoxes[p * 4 + 3] = nodeMaxY;
+            }
+            boxes = parentBoxes;
+            children = parentChildren;
+            count = parents;
+        }
+        return new DxfSpatialIndex(size, entityBoxes, scalable, unbounded, extents, levelBoxes, levelChildren);
+    }
+
+    /**
+     * Number of levels needed to pack {@code count} boxes into a single root.
+     */
+    private static int levels(int count) {
+        int levels = 1;
+        while (count > 1) {
+            count = (count + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            levels++;
+        }
+        return levels;
+    }
+
+    /**
+     * Reorders one level into Sort-Tile-Recursive order. Nodes carry their child pointer with
+     * them, and the pointers stay valid because the level below is already final.
+     */
+    private static void pack(double[] boxes, int[] children, int count) {
+        if (count <= NODE_CAPACITY) {
+            return;
+        }
+        int nodes = (count + NODE_CAPACITY - 1) / NODE_CAPACITY;
+        int slices = (int) Math.ceil(Math.sqrt(nodes));
+        int sliceSize = slices * NODE_CAPACITY;
+
+        long[] keys = new long[count];
+        for (int n = 0; n < count; n++) {
+            keys[n] = sortKey((boxes[n * 4] + boxes[n * 4 + 2]) / 2, n);
+        }
+        Arrays.sort(keys);
+        for (int start = 0; start < count; start += sliceSize) {
+            int end = Math.min(start + sliceSize, count);
+            for (int k = start; k < end; k++) {
+                int n = (int) keys[k];
+                keys[k] = sortKey((boxes[n * 4 + 1] + boxes[n * 4 + 3]) / 2, n);
+            }
+            Arrays.sort(keys, start, end);
+        }
+
+        double[] sortedBoxes = new double[count * 4];
+        int[] sortedChildren = new int[count];
+        for (int k = 0; k < count; k++) {
+            int n = (int) keys[k];
+            System.arraycopy(boxes, n * 4, sortedBoxes, k * 4, 4);
+            sortedChildren[k] = children[n];
+        }
+        System.arraycopy(sortedBoxes, 0, boxes, 0, count * 4);
+        System.arraycopy(sortedChildren, 0, children, 0, count);
+    }
+
+    /**
+     * Packs a coordinate and a node number into one long that sorts by the coordinate. The
+     * coordinate is narrowed to a float, which only affects how well nodes are grouped, not
+     * which entities a search finds.
+     */
+    private static long sortKey(double coordinate, int node) {
+        int bits = Float.floatToIntBits((float) coordinate);
+        bits ^= (bits >> 31) & 0x7fffffff;
+        return ((long) bits << 32) | node;
+    }
+
+    /**
+     * Positions of the entities whose boxes intersect the window (edges included).
+     */
+    public BitSet search(double minX, double minY, double maxX, double maxY) {
+        BitSet hits = new BitSet(size);
+        int top = levelBoxes.length - 1;
+        if (levelBoxes[top].length > 0) {
+            search(top, 0, minX, minY, maxX, maxY, hits);
+        }
+        return hits;
+    }
+
+    private void search(int level, int node, double minX, double minY, double maxX, double maxY, BitSet hits) {
+        double[] boxes = levelBoxes[level];
+        if (boxes[node * 4] > maxX || boxes[node * 4 + 2] < minX
+                || boxes[node * 4 + 1] > maxY || boxes[node * 4 + 3] < minY) {
+            return;
+        }
+        int[] children = levelChildren[level];
+        if (level == 0) {
+            hits.set(children[node]);
+            return;
+        }
+        int first = children[node];
+        int end = Math.min(first + NODE_CAPACITY, levelChildren[level - 1].length);
+        for (int child = first; child < end; child++) {
+            search(level - 1, child, minX, minY, maxX, maxY, hits);
+        }
+    }
+
+    /**
+     * Number of entities the index was built from, including those without bounds.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Box around every bounded entity, or null if none has bounds.
+     */
+    public DxfExtents extents() {
+        return extents;
+    }
+
+    /**
+     * Positions of the entities that have no bounds.
+     */
+    public BitSet unbounded() {
+        return (BitSet) unbounded.clone();
+    }
+
+    public double minX(int entity) {
+        return entityBoxes[entity * 4];
+    }
+
+    public double minY(int entity) {
+        return entityBoxes[entity * 4 + 1];
+    }
+
+    public double maxX(int entity) {
+        return entityBoxes[entity * 4 + 2];
+    }
+
+    public double maxY(int entity) {
+        return entityBoxes[entity * 4 + 3];
+    }
+
+    /**
+     * See {@link DxfEntityBounds#scalesWithDrawing}.
+     */
+    public boolean scalesWithDrawing(int entity) {
+        return scalable.get(entity);
+    }
+}
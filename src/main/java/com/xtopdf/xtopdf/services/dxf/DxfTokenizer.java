@@ -0,0 +1,491 @@
+package com.xtopdf.xtopdf.services.dxf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+/**
+ * Reads the group code/value pairs of an ASCII or binary DXF file straight from its bytes.
+ *
+ * <p>Lines are found in a reusable read buffer and trimmed in place, group codes are parsed
+ * as integers from the bytes, and numeric values are parsed by {@link #doubleValue()}
+ * without creating a string; only {@link #stringValue()} decodes text. Lines end with LF,
+ * CR or CRLF, and leading and trailing characters up to U+0020 are ignored, as with
+ * {@code BufferedReader.readLine().trim()}. A line that is not a valid group code is
+ * skipped and the next line is tried in its place.</p>
+ *
+ * <p>Binary DXF is recognised by its sentinel. Its group codes are one byte (255 followed by
+ * a 16-bit code for larger ones) in R12 files and 16 bits from R13 on, told apart by the
+ * first group code; values are little-endian numbers, NUL-terminated strings or
+ * length-prefixed binary chunks depending on the group code. Numbers are returned by
+ * {@link #doubleValue()} as they are and by {@link #stringValue()} as decimal text, and
+ * binary chunks as hexadecimal text, as an ASCII file would hold them.</p>
+ */
+final class DxfTokenizer {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte[] BINARY_SENTINEL = "AutoCAD Binary DXF\r\n\u001a\0".getBytes(StandardCharsets.US_ASCII);
+    private static final int EXTENDED_GROUP_CODE = 255;
+    private static final int MAX_EXACT_POWER = 22;
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = new double[MAX_EXACT_POWER + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i <= MAX_EXACT_POWER; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final InputStream in;
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+    private boolean skipLineFeed;
+
+    private int lineStart;
+    private int lineEnd;
+
+    private boolean formatDetected;
+    private boolean binary;
+    private boolean twoByteGroupCodes;
+
+    private int groupCode;
+    private int valueStart;
+    private int valueEnd;
+    private ValueType valueType = ValueType.TEXT;
+    private double numericValue;
+
+    /** How the current value is stored; ASCII values are always text. */
+    private enum ValueType { TEXT, BINARY_CHUNK, INTEGER, DOUBLE }
+
+    DxfTokenizer(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Advances to the next group code/value pair.
+     *
+     * @return false at the end of the input, or if the last group code has no value (or, in
+     *         a binary file, a truncated one)
+     */
+    boolean next() throws IOException {
+        if (!formatDetected) {
+            detectFormat();
+        }
+        return binary ? nextBinary() : nextAscii();
+    }
+
+    /**
+     * Whether the input is a binary DXF file; known once {@link #next()} has been called.
+     */
+    boolean isBinary() {
+        return binary;
+    }
+
+    private boolean nextAscii() throws IOException {
+        while (readLine()) {
+            long code = parseGroupCode(lineStart, lineEnd);
+            if (code == Long.MIN_VALUE) {
+                continue;
+            }
+            if (!readLine()) {
+                return false;
+            }
+            groupCode = (int) code;
+            valueStart = lineStart;
+            valueEnd = lineEnd;
+            return true;
+        }
+        return false;
+    }
+
+    int groupCode() {
+        return groupCode;
+    }
+
+    /**
+     * Returns the current value decoded as UTF-8.
+     */
+    String stringValue() {
+        return switch (valueType) {
+            case TEXT -> new String(buffer, valueStart, valueEnd - valueStart, StandardCharsets.UTF_8);
+            case BINARY_CHUNK -> HexFormat.of().withUpperCase().formatHex(buffer, valueStart, valueEnd);
+            case INTEGER -> Long.toString((long) numericValue);
+            case DOUBLE -> Double.toString(numericValue);
+        };
+    }
+
+    /**
+     * Whether the current value is exactly the given ASCII text.
+     */
+    boolean valueIs(byte[] ascii) {
+        return valueType == ValueType.TEXT && Arrays.equals(buffer, valueStart, valueEnd, ascii, 0, ascii.length);
+    }
+
+    /**
+     * Returns the current value as a number, or NaN if it is not a finite number in the
+     * syntax {@link Double#parseDouble} accepts.
+     *
+     * <p>Plain decimals with at most 18 significant digits whose value is exact in a double
+     * (mantissa below 2<sup>53</sup>, power of ten within 10<sup>&plusmn;22</sup>) are
+     * computed with one multiplication or division, which rounds correctly; anything else is
+     * left to {@link Double#parseDouble}, so results are identical to it.</p>
+     */
+    double doubleValue() {
+        if (valueType == ValueType.INTEGER || valueType == ValueType.DOUBLE) {
+            return Double.isFinite(numericValue) ? numericValue : Double.NaN;
+        }
+        if (valueType == ValueType.BINARY_CHUNK) {
+            return Double.NaN;
+        }
+        int i = valueStart;
+        int end = valueEnd;
+        boolean negative = false;
+        if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+            negative = buffer[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean digits = false;
+        for (; i < end && isDigit(buffer[i]); i++) {
+            digits = true;
+            if (mantissa != 0 || buffer[i] != '0') {
+                mantissa = mantissa * 10 + (buffer[i] - '0');
+                if (++significantDigits > 18) {
+                    return parseSlowly();
+                }
+            }
+        }
+        if (i < end && buffer[i] == '.') {
+            for (i++; i < end && isDigit(buffer[i]); i++) {
+                digits = true;
+                if (mantissa != 0 || buffer[i] != '0') {
+                    mantissa = mantissa * 10 + (buffer[i] - '0');
+                    if (++significantDigits > 18) {
+                        return parseSlowly();
+                    }
+                }
+                exponent--;
+            }
+        }
+        if (!digits) {
+            return parseSlowly();
+        }
+        if (i < end && (buffer[i] == 'e' || buffer[i] == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+                negativeExponent = buffer[i] == '-';
+                i++;
+            }
+            int exponentStart = i;
+            int explicitExponent = 0;
+            for (; i < end && isDigit(buffer[i]) && i - exponentStart < 4; i++) {
+                explicitExponent = explicitExponent * 10 + (buffer[i] - '0');
+            }
+            if (i == exponentStart) {
+                return parseSlowly();
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+        if (i != end || mantissa >= MAX_EXACT_MANTISSA || Math.abs(exponent) > MAX_EXACT_POWER) {
+            return parseSlowly();
+        }
+        double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+        return negative ? -value : value;
+    }
+
+    private double parseSlowly() {
+        try {
+            double value = Double.parseDouble(
+                    new String(buffer, valueStart, valueEnd - valueStart, StandardCharsets.ISO_8859_1));
+            return Double.isFinite(value) ? value : Double.NaN;
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Checks for the binary sentinel and, in a binary file, whether group codes take one
+     * byte or two.
+     */
+    private void detectFormat() throws IOException {
+        formatDetected = true;
+        if (!ensure(BINARY_SENTINEL.length)
+                || !Arrays.equals(buffer, position, position + BINARY_SENTINEL.length,
+                        BINARY_SENTINEL, 0, BINARY_SENTINEL.length)) {
+            return;
+        }
+        binary = true;
+        position += BINARY_SENTINEL.length;
+        // The first pair is 0/SECTION: a zero byte then 'S' in R12, two zero bytes from R13 on
+        twoByteGroupCodes = ensure(2) && buffer[position] == 0 && buffer[position + 1] == 0;
+    }
+
+    private boolean nextBinary() throws IOException {
+        int code;
+        if (twoByteGroupCodes) {
+            if (!ensure(2)) {
+                return false;
+            }
+            code = readShort();
+        } else {
+            if (!ensure(1)) {
+                return false;
+            }
+            code = buffer[position++] & 0xff;
+            if (code == EXTENDED_GROUP_CODE) {
+                if (!ensure(2)) {
+                    return false;
+                }
+                code = readShort();
+            }
+        }
+        if (!readBinaryValue(code)) {
+            return false;
+        }
+        groupCode = code;
+        return true;
+    }
+
+    private boolean readBinaryValue(int code) throws IOException {
+        switch (binaryValueType(code)) {
+            case TEXT -> {
+                return readString();
+            }
+            case BINARY_CHUNK -> {
+                if (!ensure(1)) {
+                    return false;
+                }
+                int length = buffer[position] & 0xff;
+                if (!ensure(1 + length)) {
+                    return false;
+                }
+                valueType = ValueType.BINARY_CHUNK;
+                valueStart = position + 1;
+                valueEnd = valueStart + length;
+                position = valueEnd;
+                return true;
+            }
+            case DOUBLE -> {
+                if (!ensure(Double.BYTES)) {
+                    return false;
+                }
+                valueType = ValueType.DOUBLE;
+                numericValue = Double.longBitsToDouble(readLittleEndian(Double.BYTES));
+                return true;
+            }
+            default -> {
+                int size = integerSize(code);
+                if (!ensure(size)) {
+                    return false;
+                }
+                long value = readLittleEndian(size);
+                // Sign-extend 16- and 32-bit values; booleans are a single unsigned byte
+                if (size == Short.BYTES) {
+                    value = (short) value;
+                } else if (size == Integer.BYTES) {
+                    value = (int) value;
+                }
+                valueType = ValueType.INTEGER;
+                numericValue = value;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * How a binary DXF file stores the value of a group code, following the group code
+     * value types of the DXF reference.
+     */
+    private static ValueType binaryValueType(int code) {
+        if ((code >= 10 && code <= 59) || (code >= 110 && code <= 149) || (code >= 210 && code <= 239)
+                || (code >= 460 && code <= 469) || (code >= 1010 && code <= 1059)) {
+            return ValueType.DOUBLE;
+        }
+        if ((code >= 310 && code <= 319) || code == 1004) {
+            return ValueType.BINARY_CHUNK;
+        }
+        return integerSize(code) > 0 ? ValueType.INTEGER : ValueType.TEXT;
+    }
+
+    /**
+     * Size in bytes of an integer group code's value, or 0 if the group code is not an
+     * integer.
+     */
+    private static int integerSize(int code) {
+        if ((code >= 60 && code <= 79) || (code >= 170 && code <= 179) || (code >= 270 && code <= 289)
+                || (code >= 370 && code <= 389) || (code >= 400 && code <= 409) || (code >= 1060 && code <= 1070)) {
+            return Short.BYTES;
+        }
+        if ((code >= 90 && code <= 99) || (code >= 420 && code <= 429) || (code >= 440 && code <= 459)
+                || code == 1071) {
+            return Integer.BYTES;
+        }
+        if (code >= 160 && code <= 169) {
+            return Long.BYTES;
+        }
+        if (code >= 290 && code <= 299) {
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Reads a NUL-terminated string value.
+     */
+    private boolean readString() throws IOException {
+        int scan = position;
+        while (true) {
+            while (scan < limit && buffer[scan] != 0) {
+                scan++;
+            }
+            if (scan < limit) {
+                valueType = ValueType.TEXT;
+                valueStart = position;
+                valueEnd = scan;
+                position = scan + 1;
+                return true;
+            }
+            if (endOfInput) {
+                return false;
+            }
+            scan -= position;
+            fill();
+        }
+    }
+
+    private int readShort() {
+        return (short) readLittleEndian(Short.BYTES);
+    }
+
+    private long readLittleEndian(int size) {
+        long value = 0;
+        for (int i = size - 1; i >= 0; i--) {
+            value = (value << 8) | (buffer[position + i] & 0xff);
+        }
+        position += size;
+        return value;
+    }
+
+    /**
+     * Reads until at least {@code count} unread bytes are in the buffer.
+     *
+     * @return false if the input ends first
+     */
+    private boolean ensure(int count) throws IOException {
+        while (limit - position < count) {
+            if (endOfInput) {
+                return false;
+            }
+            fill();
+        }
+        return true;
+    }
+
+    /**
+     * Parses a group code line, returning {@code Long.MIN_VALUE} if it is not an integer in
+     * {@code int} range.
+     */
+    private long parseGroupCode(int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+            negative = buffer[i] == '-';
+            i++;
+        }
+        if (i == end) {
+            return Long.MIN_VALUE;
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            if (!isDigit(buffer[i])) {
+                return Long.MIN_VALUE;
+            }
+            value = value * 10 + (buffer[i] - '0');
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                return Long.MIN_VALUE;
+            }
+        }
+        value = negative ? -value : value;
+        return value > Integer.MAX_VALUE ? Long.MIN_VALUE : value;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    /**
+     * Finds the next line and sets {@link #lineStart} and {@link #lineEnd} to its trimmed
+     * bounds in the buffer.
+     */
+    private boolean readLine() throws IOException {
+        int scan = position;
+        while (true) {
+            if (skipLineFeed && position < limit) {
+                skipLineFeed = false;
+                if (buffer[position] == '\n') {
+                    position++;
+                    scan = position;
+                }
+            }
+            while (scan < limit && buffer[scan] != '\n' && buffer[scan] != '\r') {
+                scan++;
+            }
+            if (scan < limit) {
+                setLine(position, scan);
+                skipLineFeed = buffer[scan] == '\r';
+                position = scan + 1;
+                return true;
+            }
+            if (endOfInput) {
+                if (position == limit) {
+                    return false;
+                }
+                setLine(position, limit);
+                position = limit;
+                return true;
+            }
+            scan -= position;
+            fill();
+        }
+    }
+
+    private void setLine(int start, int end) {
+        while (start < end && (buffer[start] & 0xff) <= ' ') {
+            start++;
+        }
+        while (end > start && (buffer[end - 1] & 0xff) <= ' ') {
+            end--;
+        }
+        lineStart = start;
+        lineEnd = end;
+    }
+
+    /**
+     * Moves the unread bytes to the front of the buffer, growing it if a single line fills
+     * it, and reads more input after them.
+     */
+    private void fill() throws IOException {
+        int remaining = limit - position;
+        if (remaining == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        } else if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, remaining);
+        }
+        position = 0;
+        limit = remaining;
+        int read = in.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            endOfInput = true;
+        } else {
+            limit += read;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.xtopdf.xtopdf.services.dxf;
+
+/**
+ * One output page of a DXF drawing: page point = offset + drawing coordinate * scale.
+ *
+ * <p>Culling works on entity bounds in drawing coordinates. An entity is off the page when
+ * its box, mapped onto the page and widened by a margin, misses the page. The margin covers
+ * the line width and joins for geometry ({@link #STROKE_MARGIN}), and point crosses, arrowheads,
+ * labels and placeholder frames, which are drawn at a fixed size, for everything else
+ * ({@link #MARK_MARGIN}).</p>
+ *
+ * @param scale      page points per drawing unit
+ * @param offsetX    page X of the drawing origin
+ * @param offsetY    page Y of the drawing origin
+ * @param pageWidth  page width in points
+ * @param pageHeight page height in points
+ */
+public record DxfViewport(double scale, double offsetX, double offsetY, double pageWidth, double pageHeight) {
+
+    /** Page-space slack around geometry that scales with the drawing: a mitered 1pt line. */
+    static final double STROKE_MARGIN = 5;
+
+    /** Page-space slack around entities with fixed-size marks or text. */
+    static final double MARK_MARGIN = 64;
+
+    /**
+     * Whether nothing drawn for an entity with this box can reach the page.
+     */
+    public boolean isOffPage(double minX, double minY, double maxX, double maxY, boolean scalesWithDrawing) {
+        double margin = scalesWithDrawing ? STROKE_MARGIN : MARK_MARGIN;
+        return offsetX + maxX * scale < -margin || offsetX + minX * scale > pageWidth + margin
+                || offsetY + maxY * scale < -margin || offsetY + minY * scale > pageHeight + margin;
+    }
+
+    /**
+     * Whether an entity whose drawing scales with the page is smaller than
+     * {@code minimumSize} points in both directions. Entities with fixed-size marks or text
+     * are never below size.
+     */
+    public boolean isBelowSize(double minX, double minY, double maxX, double maxY, boolean scalesWithDrawing,
+                               double minimumSize) {
+        return scalesWithDrawing && (maxX - minX) * scale < minimumSize && (maxY - minY) * scale < minimumSize;
+    }
+
+    /**
+     * The page, widened by the larger culling margin, in drawing coordinates. Every entity
+     * that is not off the page intersects this window.
+     */
+    public DxfExtents window() {
+        return new DxfExtents(
+                (-MARK_MARGIN - offsetX) / scale, (-MARK_MARGIN - offsetY) / scale,
+                (pageWidth + MARK_MARGIN - offsetX) / scale, (pageHeight + MARK_MARGIN - offsetY) / scale);
+    }
+}
@@ -0,0 +1,288 @@
+package com.xtopdf.xtopdf.services.jobs;
+
+import com.xtopdf.xtopdf.dto.ConversionJob;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Embedded job store backed by an append-only journal, so jobs survive restarts.
+ *
+ * <p>Every change to a job appends a record to {@code jobs.journal}:
+ * {@code [magic:int][length:int][crc32:int][payload]}, where the payload is either the full
+ * job (a put) or just its ID (a delete). The journal is forced to disk after each append.
+ * On startup the journal is replayed into memory; a torn or corrupt record at the end (e.g.
+ * after a crash mid-write) is truncated away. The journal is rewritten with only the live
+ * jobs on startup and whenever superseded records outnumber live ones by a wide margin.</p>
+ *
+ * <p>Uploads and results are plain files next to the journal; see {@link JobPayloads}.
+ * This is the default store ({@code xtopdf.jobs.store=file}).</p>
+ *
+ * <p>Thread-safety: appends and compaction are serialized by a lock; lookups read a
+ * concurrent map and never block.</p>
+ */
+@Component
+@ConditionalOnProperty(name = "xtopdf.jobs.store", havingValue = "file", matchIfMissing = true)
+@Slf4j
+public class FileJobStore implements JobStore {
+
+    private static final int RECORD_MAGIC = 0x584A4231; // "XJB1"
+    private static final int HEADER_BYTES = 12;
+    private static final int MAX_RECORD_BYTES = 1024 * 1024;
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+    private static final int COMPACTION_MIN_RECORDS = 1_000;
+    private static final String JOURNAL = "jobs.journal";
+
+    private final Path journal;
+    private final JobPayloads payloads;
+    private final Map<String, ConversionJob> jobs = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private FileChannel channel;
+    private long records;
+
+    public FileJobStore(@Value("${xtopdf.jobs.directory:${java.io.tmpdir}/xtopdf-jobs}") String directory) {
+        Path root = Path.of(directory);
+        this.payloads = new JobPayloads(root);
+        this.journal = root.resolve(JOURNAL);
+        try {
+            replay();
+            compact();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open job journal " + journal, e);
+        }
+        log.info("Job store opened at {} with {} jobs", root, jobs.size());
+    }
+
+    @Override
+    public void save(ConversionJob job) {
+        append(OP_PUT, job.id(), job);
+    }
+
+    @Override
+    public Optional<ConversionJob> find(String jobId) {
+        return jobId == null ? Optional.empty() : Optional.ofNullable(jobs.get(jobId));
+    }
+
+    @Override
+    public Collection<ConversionJob> findAll() {
+        return List.copyOf(jobs.values());
+    }
+
+    @Override
+    public void delete(String jobId) {
+        if (jobs.containsKey(jobId)) {
+            append(OP_DELETE, jobId, null);
+        }
+        payloads.delete(jobId);
+    }
+
+    @Override
+    public Path inputPath(String jobId) {
+        return payloads.inputPath(jobId);
+    }
+
+    @Override
+    public Path resultPath(String jobId) {
+        return payloads.resultPath(jobId);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void append(byte op, String jobId, ConversionJob job) {
+        ByteBuffer record = encode(op, jobId, job);
+        lock.lock();
+        try {
+            if (channel == null) {
+                throw new IllegalStateException("Job store is closed");
+            }
+            write(record);
+            records++;
+            if (op == OP_PUT) {
+                jobs.put(jobId, job);
+            } else {
+                jobs.remove(jobId);
+            }
+            if (records > Math.max(COMPACTION_MIN_RECORDS, 4L * jobs.size())) {
+                compact();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write job journal " + journal, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends a record and forces it to disk. A partially written record is cut off again,
+     * so a failed write cannot hide the records appended after it from replay.
+     */
+    private void write(ByteBuffer record) throws IOException {
+        long start = channel.size();
+        try {
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            try {
+                channel.truncate(start);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Rebuilds the in-memory state from the journal, truncating a torn tail.
+     */
+    private void replay() throws IOException {
+        if (!Files.exists(journal)) {
+            return;
+        }
+        long valid = 0;
+        try (InputStream file = Files.newInputStream(journal);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+            while (true) {
+                byte[] payload = readRecord(in);
+                if (payload == null) {
+                    break;
+                }
+                apply(payload);
+                valid += HEADER_BYTES + payload.length;
+                records++;
+            }
+        }
+        long size = Files.size(journal);
+        if (valid < size) {
+            log.warn("Truncating {} bytes of incomplete or corrupt records from job journal {}", size - valid, journal);
+            try (FileChannel truncate = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+                truncate.truncate(valid);
+            }
+        }
+    }
+
+    /**
+     * Reads one record's payload, or returns {@code null} at the end of the valid journal.
+     */
+    private static byte[] readRecord(DataInputStream in) throws IOException {
+        try {
+            if (in.readInt() != RECORD_MAGIC) {
+                return null;
+            }
+            int length = in.readInt();
+            int crc = in.readInt();
+            if (length <= 0 || length > MAX_RECORD_BYTES) {
+                return null;
+            }
+            byte[] payload = in.readNBytes(length);
+            if (payload.length < length || crc32(payload) != crc) {
+                return null;
+            }
+            return payload;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private void apply(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        if (in.readByte() == OP_DELETE) {
+            jobs.remove(JobRecordCodec.readString(in));
+            return;
+        }
+        ConversionJob job = JobRecordCodec.readJob(in);
+        jobs.put(job.id(), job);
+    }
+
+    /**
+     * Rewrites the journal with one record per live job and reopens it for appending.
+     */
+    private void compact() throws IOException {
+        Path compacted = journal.resolveSibling(JOURNAL + ".tmp");
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (ConversionJob job : jobs.values()) {
+                ByteBuffer record = encode(OP_PUT, job.id(), job);
+                while (record.hasRemaining()) {
+                    out.write(record);
+                }
+            }
+            out.force(true);
+        }
+        if (channel != null) {
+            channel.close();
+        }
+        Files.move(compacted, journal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(journal, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        records = jobs.size();
+        log.debug("Compacted job journal {} to {} records", journal, records);
+    }
+
+    private static ByteBuffer encode(byte op, String jobId, ConversionJob job) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(op);
+            if (op == OP_PUT) {
+                JobRecordCodec.writeJob(out, job);
+            } else {
+                JobRecordCodec.writeString(out, jobId);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] payload = bytes.toByteArray();
+        if (payload.length > MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("Job record too large: " + jobId);
+        }
+        return ByteBuffer.allocate(HEADER_BYTES + payload.length)
+                .putInt(RECORD_MAGIC)
+                .putInt(payload.length)
+                .putInt(crc32(payload))
+                .put(payload)
+                .flip();
+    }
+
+    private static int crc32(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,71 @@
+package com.xtopdf.xtopdf.services.jobs;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.xtopdf.xtopdf.dto.ConversionJob;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Job store that keeps job records in a bounded Caffeine cache. Records are lost on restart.
+ * Uploads and results are still kept on disk, and are deleted when their record is evicted.
+ * Selected with {@code xtopdf.jobs.store=memory}.
+ */
+@Component
+@ConditionalOnProperty(name = "xtopdf.jobs.store", havingValue = "memory")
+public class InMemoryJobStore implements JobStore {
+
+    private final JobPayloads payloads;
+    private final Cache<String, ConversionJob> jobs;
+
+    public InMemoryJobStore(@Value("${xtopdf.jobs.directory:${java.io.tmpdir}/xtopdf-jobs}") String directory) {
+        this.payloads = new JobPayloads(Path.of(directory));
+        this.jobs = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofHours(2))
+                .<String, ConversionJob>removalListener((jobId, job, cause) -> {
+                    if (jobId != null && cause.wasEvicted()) {
+                        payloads.delete(jobId);
+                    }
+                })
+                .build();
+    }
+
+    @Override
+    public void save(ConversionJob job) {
+        jobs.put(job.id(), job);
+    }
+
+    @Override
+    public Optional<ConversionJob> find(String jobId) {
+        return Optional.ofNullable(jobs.getIfPresent(jobId));
+    }
+
+    @Override
+    public Collection<ConversionJob> findAll() {
+        return List.copyOf(jobs.asMap().values());
+    }
+
+    @Override
+    public void delete(String jobId) {
+        jobs.invalidate(jobId);
+        payloads.delete(jobId);
+    }
+
+    @Override
+    public Path inputPath(String jobId) {
+        return payloads.inputPath(jobId);
+    }
+
+    @Override
+    public Path resultPath(String jobId) {
+        return payloads.resultPath(jobId);
+    }
+}
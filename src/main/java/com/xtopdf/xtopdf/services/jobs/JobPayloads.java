@@ -0,0 +1,75 @@
+package com.xtopdf.xtopdf.services.jobs;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Pattern;
+
+/**
+ * Layout of job payload files: {@code inputs/<jobId>} for spooled uploads and
+ * {@code results/<jobId>.pdf} for converted PDFs, under the job store directory.
+ */
+@Slf4j
+class JobPayloads {
+
+    private static final Pattern JOB_ID = Pattern.compile("[A-Za-z0-9-]{1,64}");
+
+    private final Path inputs;
+    private final Path results;
+
+    JobPayloads(Path directory) {
+        this.inputs = directory.resolve("inputs");
+        this.results = directory.resolve("results");
+        try {
+            Files.createDirectories(inputs);
+            Files.createDirectories(results);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create job store directory " + directory, e);
+        }
+    }
+
+    Path inputPath(String jobId) {
+        return inputs.resolve(checkId(jobId));
+    }
+
+    Path resultPath(String jobId) {
+        return results.resolve(checkId(jobId) + ".pdf");
+    }
+
+    /**
+     * Deletes the job's upload and result, if present. An invalid ID has no files to delete.
+     */
+    void delete(String jobId) {
+        if (!isValidId(jobId)) {
+            return;
+        }
+        deleteQuietly(inputPath(jobId));
+        deleteQuietly(resultPath(jobId));
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete job file {}: {}", file, e.getMessage());
+        }
+    }
+
+    static String checkId(String jobId) {
+        // Job IDs end up in file names, so never let one escape the payload directories
+        if (!isValidId(jobId)) {
+            throw new IllegalArgumentException("Invalid job ID");
+        }
+        return jobId;
+    }
+
+    /**
+     * Whether a job ID is safe to use in a file name; no job can have any other ID.
+     */
+    static boolean isValidId(String jobId) {
+        return jobId != null && JOB_ID.matcher(jobId).matches();
+    }
+}
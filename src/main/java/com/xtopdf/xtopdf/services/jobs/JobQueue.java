@@ -0,0 +1,78 @@
+package com.xtopdf.xtopdf.services.jobs;
+
+import java.util.List;
+
+/**
+ * Queue of async jobs waiting to be converted, from which a node claims the jobs it runs.
+ *
+ * <p>A job is published once its upload is spooled and stays in the queue until the node
+ * that claimed it completes it. A claim is a lease: it is renewed while the conversion runs
+ * and, in a shared queue, expires when the holder stops renewing it (e.g. because it crashed),
+ * after which any node may claim the job again. Jobs may therefore be converted more than
+ * once, but are never stranded.</p>
+ *
+ * <p>The implementation is selected with {@code xtopdf.jobs.queue}: {@code local} (the default)
+ * keeps the queue in this process; {@code shared} keeps it in a directory that every replica
+ * mounts, so idle replicas can take over work submitted to busy ones.</p>
+ */
+public interface JobQueue {
+
+    /**
+     * A job waiting to be claimed.
+     *
+     * @param jobId the job ID
+     * @param publishedBy the ID of the node the job was submitted to
+     */
+    record QueuedJob(String jobId, String publishedBy) {
+    }
+
+    /**
+     * Returns the ID of this node.
+     */
+    String nodeId();
+
+    /**
+     * Whether other nodes share this queue.
+     */
+    boolean isShared();
+
+    /**
+     * Makes a job available to be claimed.
+     *
+     * @param jobId the job ID
+     */
+    void publish(String jobId);
+
+    /**
+     * Tries to claim a published job for this node.
+     *
+     * @param jobId the job ID
+     * @return true if this node now holds the job's lease; false if the job is not published
+     *         or another node holds a live lease on it
+     */
+    boolean tryClaim(String jobId);
+
+    /**
+     * Returns the published jobs that no node holds a live lease on.
+     */
+    List<QueuedJob> claimable();
+
+    /**
+     * Extends the leases this node holds. Called periodically while claimed jobs run.
+     */
+    void renewLeases();
+
+    /**
+     * Gives up this node's claim on a job, leaving it published for another node.
+     *
+     * @param jobId the job ID
+     */
+    void release(String jobId);
+
+    /**
+     * Removes a job from the queue, together with any claim on it.
+     *
+     * @param jobId the job ID
+     */
+    void complete(String jobId);
+}
@@ -0,0 +1,75 @@
+package com.xtopdf.xtopdf.services.jobs;
+
+import com.xtopdf.xtopdf.dto.ConversionJob;
+import com.xtopdf.xtopdf.dto.ConversionJob.JobStatus;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Binary encoding of job records shared by the file-based stores. Strings are written as a
+ * length-prefixed UTF-8 byte array (length -1 for {@code null}), instants as epoch seconds
+ * and nanos behind a presence flag.
+ */
+final class JobRecordCodec {
+
+    private JobRecordCodec() {
+    }
+
+    static void writeJob(DataOutputStream out, ConversionJob job) throws IOException {
+        writeString(out, job.id());
+        writeString(out, job.status().name());
+        writeString(out, job.inputFileName());
+        writeString(out, job.outputFileName());
+        writeInstant(out, job.createdAt());
+        writeInstant(out, job.completedAt());
+        writeString(out, job.errorMessage());
+        writeString(out, job.webhookUrl());
+    }
+
+    static ConversionJob readJob(DataInputStream in) throws IOException {
+        String jobId = readString(in);
+        JobStatus status = JobStatus.valueOf(readString(in));
+        String inputFileName = readString(in);
+        String outputFileName = readString(in);
+        Instant createdAt = readInstant(in);
+        Instant completedAt = readInstant(in);
+        String errorMessage = readString(in);
+        String webhookUrl = readString(in);
+        return new ConversionJob(jobId, status, inputFileName, outputFileName,
+                createdAt, completedAt, errorMessage, webhookUrl);
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    private static void writeInstant(DataOutputStream out, Instant value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.getEpochSecond());
+            out.writeInt(value.getNano());
+        }
+    }
+
+    private static Instant readInstant(DataInputStream in) throws IOException {
+        return in.readBoolean() ? Instant.ofEpochSecond(in.readLong(), in.readInt()) : null;
+    }
+}
@@ -0,0 +1,60 @@
+package com.xtopdf.xtopdf.services.jobs;
+
+import com.xtopdf.xtopdf.dto.ConversionJob;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Storage for async conversion jobs: the job records plus the location of each job's
+ * spooled upload and converted PDF.
+ *
+ * <p>Payloads always live on disk, so neither uploads nor results occupy the heap; stores
+ * differ in whether job records survive a restart and whether several replicas can share
+ * them. The implementation is selected with {@code xtopdf.jobs.store}: {@code file} (the
+ * default), {@code memory} or {@code shared}.</p>
+ */
+public interface JobStore {
+
+    /**
+     * Inserts or replaces a job record.
+     *
+     * @param job the job in its current state
+     */
+    void save(ConversionJob job);
+
+    /**
+     * Looks up a job record.
+     *
+     * @param jobId the job ID
+     * @return the job if known, empty otherwise
+     */
+    Optional<ConversionJob> find(String jobId);
+
+    /**
+     * Returns a snapshot of all job records.
+     */
+    Collection<ConversionJob> findAll();
+
+    /**
+     * Removes a job record together with its upload and result files.
+     *
+     * @param jobId the job ID
+     */
+    void delete(String jobId);
+
+    /**
+     * Returns where the job's upload is spooled. The file may not exist yet.
+     *
+     * @param jobId the job ID
+     */
+    Path inputPath(String jobId);
+
+    /**
+     * Returns where the job's converted PDF is kept. The file may not exist yet.
+     *
+     * @param jobId the job ID
+     */
+    Path resultPath(String jobId);
+}
@@ -0,0 +1,65 @@
+package com.xtopdf.xtopdf.services.jobs;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Job queue for a single node. Claims never expire, since they die with the process that
+ * holds them. Selected with {@code xtopdf.jobs.queue=local}, the default.
+ */
+@Component
+@ConditionalOnProperty(name = "xtopdf.jobs.queue", havingValue = "local", matchIfMissing = true)
+public class LocalJobQueue implements JobQueue {
+
+    private static final String NODE_ID = "local";
+
+    // Job ID -> whether the job is claimed
+    private final Map<String, Boolean> jobs = new ConcurrentHashMap<>();
+
+    @Override
+    public String nodeId() {
+        return NODE_ID;
+    }
+
+    @Override
+    public boolean isShared() {
+        return false;
+    }
+
+    @Override
+    public void publish(String jobId) {
+        jobs.putIfAbsent(jobId, Boolean.FALSE);
+    }
+
+    @Override
+    public boolean tryClaim(String jobId) {
+        return jobs.replace(jobId, Boolean.FALSE, Boolean.TRUE);
+    }
+
+    @Override
+    public List<QueuedJob> claimable() {
+        return jobs.entrySet().stream()
+                .filter(entry -> !entry.getValue())
+                .map(entry -> new QueuedJob(entry.getKey(), NODE_ID))
+                .toList();
+    }
+
+    @Override
+    public void renewLeases() {
+        // Claims are held for as long as the process lives
+    }
+
+    @Override
+    public void release(String jobId) {
+        jobs.replace(jobId, Boolean.TRUE, Boolean.FALSE);
+    }
+
+    @Override
+    public void complete(String jobId) {
+        jobs.remove(jobId);
+    }
+}
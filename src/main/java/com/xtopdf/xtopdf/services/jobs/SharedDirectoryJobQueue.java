@@ -0,0 +1,333 @@
+package com.xtopdf.xtopdf.services.jobs;
+
+import com.xtopdf.xtopdf.config.MetricsConfiguration.ConversionMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Job queue kept in a directory shared by every replica, e.g. a ReadWriteMany volume.
+ *
+ * <p>Publishing a job creates {@code queue/<jobId>}, holding the ID of the node it was
+ * submitted to. A claim is the file {@code leases/<jobId>}, holding the claiming node's ID and
+ * the lease expiry; it is created with {@code CREATE_NEW}, so of several nodes racing for a job
+ * exactly one wins. The holder rewrites the lease while the conversion runs. A lease past its
+ * expiry is broken by renaming it aside, which again only one node can do, and the job is
+ * claimed afresh. Leases held under this node's ID that this process did not take (left over
+ * from a previous run with the same {@code xtopdf.jobs.node-id}) count as expired.</p>
+ *
+ * <p>Lease timing relies on the replicas' clocks agreeing to well within the lease duration
+ * ({@code xtopdf.jobs.lease-seconds}). Selected with {@code xtopdf.jobs.queue=shared}; use it
+ * together with {@code xtopdf.jobs.store=shared} on the same directory.</p>
+ */
+@Component
+@ConditionalOnProperty(name = "xtopdf.jobs.queue", havingValue = "shared")
+@Slf4j
+public class SharedDirectoryJobQueue implements JobQueue {
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path queue;
+    private final Path leases;
+    private final String nodeId;
+    private final Duration leaseDuration;
+    private final ConversionMetrics conversionMetrics;
+    private final Clock clock;
+    // Job ID -> expiry (epoch millis) of the lease this node last wrote
+    private final Map<String, Long> held = new ConcurrentHashMap<>();
+
+    @Autowired
+    public SharedDirectoryJobQueue(
+            @Value("${xtopdf.jobs.directory:${java.io.tmpdir}/xtopdf-jobs}") String directory,
+            @Value("${xtopdf.jobs.node-id:}") String nodeId,
+            @Value("${xtopdf.jobs.lease-seconds:60}") long leaseSeconds,
+            ConversionMetrics conversionMetrics) {
+        this(Path.of(directory), nodeId.isBlank() ? defaultNodeId() : nodeId,
+                Duration.ofSeconds(leaseSeconds), conversionMetrics, Clock.systemUTC());
+    }
+
+    SharedDirectoryJobQueue(Path directory, String nodeId, Duration leaseDuration,
+                            ConversionMetrics conversionMetrics, Clock clock) {
+        if (nodeId.isBlank() || nodeId.contains(" ")) {
+            throw new IllegalArgumentException("Invalid node ID: '" + nodeId + "'");
+        }
+        this.queue = directory.resolve("queue");
+        this.leases = directory.resolve("leases");
+        this.nodeId = nodeId;
+        this.leaseDuration = leaseDuration;
+        this.conversionMetrics = conversionMetrics;
+        this.clock = clock;
+        try {
+            Files.createDirectories(queue);
+            Files.createDirectories(leases);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create job queue directory " + directory, e);
+        }
+        log.info("Shared job queue at {} as node {}, lease {}s", directory, nodeId, leaseDuration.toSeconds());
+    }
+
+    @Override
+    public String nodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public boolean isShared() {
+        return true;
+    }
+
+    @Override
+    public void publish(String jobId) {
+        try {
+            writeAtomically(queue.resolve(jobId), nodeId);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to publish job " + jobId, e);
+        }
+    }
+
+    @Override
+    public boolean tryClaim(String jobId) {
+        if (!Files.exists(queue.resolve(jobId))) {
+            return false;
+        }
+        if (createLease(jobId)) {
+            return true;
+        }
+        Lease current = readLease(jobId);
+        if (current != null && !isExpired(jobId, current)) {
+            return false;
+        }
+        if (current != null && !breakLease(jobId)) {
+            return false;
+        }
+        if (!createLease(jobId)) {
+            return false;
+        }
+        if (current != null) {
+            conversionMetrics.incrementJobLeaseExpired();
+            log.info("Took over job {} from node {} whose lease expired", jobId, current.nodeId());
+        }
+        return true;
+    }
+
+    @Override
+    public List<QueuedJob> claimable() {
+        List<Path> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(queue)) {
+            for (Path entry : stream) {
+                String jobId = entry.getFileName().toString();
+                if (!jobId.endsWith(TEMP_SUFFIX) && !held.containsKey(jobId)) {
+                    entries.add(entry);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to list job queue {}: {}", queue, e.getMessage());
+            return List.of();
+        }
+        entries.sort(Comparator.comparing(SharedDirectoryJobQueue::lastModified));
+
+        List<QueuedJob> claimable = new ArrayList<>();
+        for (Path entry : entries) {
+            String jobId = entry.getFileName().toString();
+            Lease lease = readLease(jobId);
+            if (lease == null || isExpired(jobId, lease)) {
+                String publishedBy = readQuietly(entry);
+                if (publishedBy != null) {
+                    claimable.add(new QueuedJob(jobId, publishedBy));
+                }
+            }
+        }
+        return claimable;
+    }
+
+    @Override
+    public void renewLeases() {
+        long now = clock.millis();
+        // Rewrite a lease once a third of it has been used, so a slow renewal never lets it lapse
+        long renewBefore = now + leaseDuration.toMillis() * 2 / 3;
+        for (Map.Entry<String, Long> entry : held.entrySet()) {
+            String jobId = entry.getKey();
+            if (entry.getValue() > renewBefore) {
+                continue;
+            }
+            Lease current = readLease(jobId);
+            if (current == null || !current.nodeId().equals(nodeId)) {
+                held.remove(jobId);
+                log.warn("Lost the lease on job {} to {}", jobId, current == null ? "nobody" : current.nodeId());
+                continue;
+            }
+            long expiresAt = now + leaseDuration.toMillis();
+            try {
+                writeAtomically(leases.resolve(jobId), nodeId + " " + expiresAt);
+                held.put(jobId, expiresAt);
+            } catch (IOException e) {
+                log.warn("Failed to renew the lease on job {}: {}", jobId, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void release(String jobId) {
+        if (held.remove(jobId) != null) {
+            deleteQuietly(leases.resolve(jobId));
+        }
+    }
+
+    @Override
+    public void complete(String jobId) {
+        held.remove(jobId);
+        deleteQuietly(queue.resolve(jobId));
+        deleteQuietly(leases.resolve(jobId));
+    }
+
+    /**
+     * Creates the job's lease file; fails if any node already has one.
+     */
+    private boolean createLease(String jobId) {
+        long expiresAt = clock.millis() + leaseDuration.toMillis();
+        try {
+            Files.writeString(leases.resolve(jobId), nodeId + " " + expiresAt,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            held.put(jobId, expiresAt);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        } catch (IOException e) {
+            log.warn("Failed to claim job {}: {}", jobId, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Moves an expired lease out of the way. Returns false if another node got there first,
+     * or if the lease turned out to be fresh (another node broke and re-claimed it between
+     * our read and the rename), in which case it is put back.
+     */
+    private boolean breakLease(String jobId) {
+        Path lease = leases.resolve(jobId);
+        Path broken = leases.resolve(jobId + "." + nodeId + ".expired");
+        try {
+            Files.move(lease, broken, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            log.warn("Failed to break the expired lease on job {}: {}", jobId, e.getMessage());
+            return false;
+        }
+        Lease moved = parseLease(jobId, broken);
+        if (moved != null && !isExpired(jobId, moved)) {
+            try {
+                Files.move(broken, lease);
+            } catch (IOException e) {
+                log.warn("Failed to restore the lease on job {}: {}", jobId, e.getMessage());
+            }
+            return false;
+        }
+        deleteQuietly(broken);
+        return true;
+    }
+
+    private boolean isExpired(String jobId, Lease lease) {
+        if (lease.nodeId().equals(nodeId) && !held.containsKey(jobId)) {
+            // Left behind by an earlier process with this node ID
+            return true;
+        }
+        return lease.expiresAt() <= clock.millis();
+    }
+
+    private Lease readLease(String jobId) {
+        return parseLease(jobId, leases.resolve(jobId));
+    }
+
+    /**
+     * Reads a lease file, or returns {@code null} if there is none. A lease that is still
+     * being written has no content yet; it is dated from the file's modification time.
+     */
+    private Lease parseLease(String jobId, Path file) {
+        String content = readQuietly(file);
+        if (content == null) {
+            return null;
+        }
+        int separator = content.indexOf(' ');
+        if (separator > 0) {
+            try {
+                return new Lease(content.substring(0, separator), Long.parseLong(content.substring(separator + 1).trim()));
+            } catch (NumberFormatException e) {
+                log.debug("Malformed lease on job {}: '{}'", jobId, content);
+            }
+        }
+        return new Lease("", lastModified(file).toMillis() + leaseDuration.toMillis());
+    }
+
+    private void writeAtomically(Path target, String content) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + "." + UUID.randomUUID() + TEMP_SUFFIX);
+        try {
+            Files.writeString(temp, content, StandardCharsets.UTF_8);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static String readQuietly(Path file) {
+        try {
+            return Files.readString(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete job queue file {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "node";
+        }
+        // Unique per process, so two instances on one host never share leases
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    private record Lease(String nodeId, long expiresAt) {
+    }
+}
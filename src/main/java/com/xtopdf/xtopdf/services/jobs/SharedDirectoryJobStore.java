@@ -0,0 +1,163 @@
+package com.xtopdf.xtopdf.services.jobs;
+
+import com.xtopdf.xtopdf.dto.ConversionJob;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Job store for several replicas sharing one directory, e.g. a ReadWriteMany volume.
+ *
+ * <p>Each job is its own file, {@code records/<jobId>.job}, replaced atomically (written to a
+ * temporary file, then renamed over the old one) on every change, so any replica reads the
+ * latest complete record without coordinating with the others. Lookups always go to the
+ * directory; there is no cache that could disagree with another replica. Uploads and results
+ * live next to the records (see {@link JobPayloads}), so whichever replica converts a job, any
+ * replica can serve its status and result.</p>
+ *
+ * <p>Selected with {@code xtopdf.jobs.store=shared}; use it together with
+ * {@code xtopdf.jobs.queue=shared} on the same directory.</p>
+ */
+@Component
+@ConditionalOnProperty(name = "xtopdf.jobs.store", havingValue = "shared")
+@Slf4j
+public class SharedDirectoryJobStore implements JobStore {
+
+    private static final int RECORD_MAGIC = 0x584A5231; // "XJR1"
+    private static final String RECORD_SUFFIX = ".job";
+
+    private final Path records;
+    private final JobPayloads payloads;
+
+    public SharedDirectoryJobStore(@Value("${xtopdf.jobs.directory:${java.io.tmpdir}/xtopdf-jobs}") String directory) {
+        Path root = Path.of(directory);
+        this.payloads = new JobPayloads(root);
+        this.records = root.resolve("records");
+        try {
+            Files.createDirectories(records);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create job store directory " + root, e);
+        }
+        log.info("Shared job store at {}", root);
+    }
+
+    @Override
+    public void save(ConversionJob job) {
+        Path target = recordPath(job.id());
+        Path temp = records.resolve(job.id() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            Files.write(temp, encode(job), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE,
+                    StandardOpenOption.DSYNC);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write job record " + target, e);
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
+
+    @Override
+    public Optional<ConversionJob> find(String jobId) {
+        // No job is saved under an ID that could not be a file name, as with the other stores
+        if (!JobPayloads.isValidId(jobId)) {
+            return Optional.empty();
+        }
+        return read(recordPath(jobId));
+    }
+
+    @Override
+    public Collection<ConversionJob> findAll() {
+        List<ConversionJob> jobs = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(records, "*" + RECORD_SUFFIX)) {
+            for (Path record : stream) {
+                read(record).ifPresent(jobs::add);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list job records in " + records, e);
+        }
+        return jobs;
+    }
+
+    @Override
+    public void delete(String jobId) {
+        if (!JobPayloads.isValidId(jobId)) {
+            return;
+        }
+        deleteQuietly(recordPath(jobId));
+        payloads.delete(jobId);
+    }
+
+    @Override
+    public Path inputPath(String jobId) {
+        return payloads.inputPath(jobId);
+    }
+
+    @Override
+    public Path resultPath(String jobId) {
+        return payloads.resultPath(jobId);
+    }
+
+    private Path recordPath(String jobId) {
+        return records.resolve(JobPayloads.checkId(jobId) + RECORD_SUFFIX);
+    }
+
+    private Optional<ConversionJob> read(Path record) {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(record);
+        } catch (NoSuchFileException e) {
+            // Not created yet, or deleted by another replica
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read job record " + record, e);
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (in.readInt() != RECORD_MAGIC) {
+                log.warn("Ignoring job record {} with an unknown format", record);
+                return Optional.empty();
+            }
+            return Optional.of(JobRecordCodec.readJob(in));
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Ignoring unreadable job record {}: {}", record, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static byte[] encode(ConversionJob job) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(RECORD_MAGIC);
+            JobRecordCodec.writeJob(out, job);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete job file {}: {}", file, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.xtopdf.xtopdf.services.model;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * A converted PDF that has not been written yet, returned by
+ * {@code FileConversionService.convertForStreaming} so the controller can write it
+ * straight into the HTTP response.
+ *
+ * <p>{@link #writeTo(OutputStream)} is called once and releases whatever the result holds
+ * (an open document or a temporary file). {@link #close()} releases it without writing,
+ * for when the response is abandoned.</p>
+ */
+@FunctionalInterface
+public interface StreamedPdf extends Closeable {
+
+    /**
+     * Writes the PDF to the stream and releases the result. The stream is left open.
+     *
+     * @param out the destination stream
+     * @throws IOException if writing fails
+     */
+    void writeTo(OutputStream out) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+        // Nothing held by default
+    }
+
+    /**
+     * Wraps an open document and the resources it depends on (e.g. merged source documents).
+     */
+    static StreamedPdf ofDocument(PDDocument document, List<Closeable> resources) {
+        return new DocumentPdf(document, resources);
+    }
+
+    /**
+     * Wraps a temporary PDF file that is deleted once written or closed.
+     */
+    static StreamedPdf ofTemporaryFile(Path file) {
+        return new TemporaryFilePdf(file);
+    }
+
+    @Slf4j
+    final class DocumentPdf implements StreamedPdf {
+        private final PDDocument document;
+        private final List<Closeable> resources;
+        private boolean closed = false;
+
+        private DocumentPdf(PDDocument document, List<Closeable> resources) {
+            this.document = document;
+            this.resources = resources;
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            try {
+                document.save(out);
+            } finally {
+                close();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                document.close();
+            } finally {
+                for (Closeable resource : resources) {
+                    try {
+                        resource.close();
+                    } catch (IOException e) {
+                        log.warn("Failed to close resource of streamed PDF: {}", e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    final class TemporaryFilePdf implements StreamedPdf {
+        private final Path file;
+
+        private TemporaryFilePdf(Path file) {
+            this.file = file;
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            try {
+                Files.copy(file, out);
+            } finally {
+                close();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -89,47 +89,7 @@ public class PageNumberService {
             tempFile = File.createTempFile("temp_", ".pdf");
             
             try (PDDocument document = Loader.loadPDF(pdfFile)) {
-                PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
-                int pageNum = 1;
-                int totalPages = document.getNumberOfPages();
-                
-                for (PDPage page : document.getPages()) {
-                    float pageWidth = page.getMediaBox().getWidth();
-                    float pageHeight = page.getMediaBox().getHeight();
-                    
-                    // Determine position
-                    float yPosition;
-                    if (config.getPosition() == PageNumberPosition.TOP) {
-                        yPosition = pageHeight - MARGIN;
-                    } else {
-                        yPosition = MARGIN;
-                    }
-                    
-                    // Format page number based on style
-                    String pageNumberText = formatPageNumber(pageNum, config.getStyle());
-                    
-                    // Calculate x position based on alignment
-                    float textWidth = font.getStringWidth(pageNumberText) / 1000 * DEFAULT_FONT_SIZE;
-                    float xPosition = switch (config.getAlignment()) {
-                        case LEFT -> MARGIN;
-                        case RIGHT -> pageWidth - MARGIN - textWidth;
-                        case CENTER -> (pageWidth - textWidth) / 2;
-                    };
-                    
-                    try (PDPageContentStream contentStream = new PDPageContentStream(
-                            document, page, PDPageContentStream.AppendMode.APPEND, true)) {
-                        
-                        // Draw page number
-                        contentStream.beginText();
-                        contentStream.setFont(font, DEFAULT_FONT_SIZE);
-                        contentStream.newLineAtOffset(xPosition, yPosition);
-                        contentStream.showText(pageNumberText);
-                        contentStream.endText();
-                    }
-                    
-                    pageNum++;
-                }
-                
+                addPageNumbers(document, config);
                 document.save(tempFile);
             }
             
@@ -163,6 +123,61 @@ public class PageNumberService {
         }
     }
     
+    /**
+     * Adds page numbers to an already-open document without saving it.
+     * Used by {@link PdfPostProcessingPipeline} so that several post-processing steps
+     * share one load and one save.
+     *
+     * @param document the document to modify
+     * @param config the page number configuration (position, alignment, style)
+     * @throws IOException if a page content stream cannot be written
+     */
+    public void addPageNumbers(PDDocument document, PageNumberConfig config) throws IOException {
+        if (!config.isEnabled()) {
+            return;
+        }
+
+        PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+        int pageNum = 1;
+
+        for (PDPage page : document.getPages()) {
+            float pageWidth = page.getMediaBox().getWidth();
+            float pageHeight = page.getMediaBox().getHeight();
+
+            // Determine position
+            float yPosition;
+            if (config.getPosition() == PageNumberPosition.TOP) {
+                yPosition = pageHeight - MARGIN;
+            } else {
+                yPosition = MARGIN;
+            }
+
+            // Format page number based on style
+            String pageNumberText = formatPageNumber(pageNum, config.getStyle());
+
+            // Calculate x position based on alignment
+            float textWidth = font.getStringWidth(pageNumberText) / 1000 * DEFAULT_FONT_SIZE;
+            float xPosition = switch (config.getAlignment()) {
+                case LEFT -> MARGIN;
+                case RIGHT -> pageWidth - MARGIN - textWidth;
+                case CENTER -> (pageWidth - textWidth) / 2;
+            };
+
+            try (PDPageContentStream contentStream = new PDPageContentStream(
+                    document, page, PDPageContentStream.AppendMode.APPEND, true)) {
+
+                // Draw page number
+                contentStream.beginText();
+                contentStream.setFont(font, DEFAULT_FONT_SIZE);
+                contentStream.newLineAtOffset(xPosition, yPosition);
+                contentStream.showText(pageNumberText);
+                contentStream.endText();
+            }
+
+            pageNum++;
+        }
+    }
+
     /**
      * Formats a page number according to the specified style.
      * 
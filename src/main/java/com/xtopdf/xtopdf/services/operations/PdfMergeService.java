@@ -2,12 +2,17 @@ package com.xtopdf.xtopdf.services.operations;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.pdfbox.multipdf.PDFMergerUtility;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageTree;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 @Service
 @Slf4j
@@ -78,4 +83,36 @@ public class PdfMergeService {
             }
         }
     }
+
+    /**
+     * Merges an already-open existing PDF into an already-open converted document.
+     * The converted document is modified in place and is not saved, so this can run
+     * as one stage of {@link PdfPostProcessingPipeline}.
+     *
+     * <p>The existing document must stay open until the converted document has been
+     * saved, because imported pages share its resources.</p>
+     *
+     * @param convertedDocument the newly converted document (receives the pages)
+     * @param existingDocument the existing document to merge
+     * @param position the position to add the existing PDF ("front" or "back")
+     * @throws IOException if there's an error during the merge process
+     */
+    public void mergePdfs(PDDocument convertedDocument, PDDocument existingDocument, String position) throws IOException {
+        int convertedPageCount = convertedDocument.getNumberOfPages();
+        new PDFMergerUtility().appendDocument(convertedDocument, existingDocument);
+
+        if ("front".equalsIgnoreCase(position) && convertedPageCount > 0) {
+            // appendDocument always appends; move the imported pages ahead of the converted ones
+            PDPageTree pages = convertedDocument.getPages();
+            PDPage firstConverted = pages.get(0);
+            List<PDPage> imported = new ArrayList<>();
+            for (int i = convertedPageCount; i < pages.getCount(); i++) {
+                imported.add(pages.get(i));
+            }
+            for (PDPage page : imported) {
+                pages.remove(page);
+                pages.insertBefore(page, firstConverted);
+            }
+        }
+    }
 }
@@ -0,0 +1,233 @@
+package com.xtopdf.xtopdf.services.operations;
+
+import com.xtopdf.xtopdf.config.MetricsConfiguration.ConversionMetrics;
+import com.xtopdf.xtopdf.dto.ConversionParameters;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies page numbers, watermark and merge to a converted PDF in a single pass.
+ *
+ * <p>Running {@link PageNumberService}, {@link WatermarkService} and {@link PdfMergeService}
+ * one after another on a file parses and serializes the document once per step. This pipeline
+ * loads the document once, applies each enabled step as a stage on the in-memory
+ * {@link PDDocument}, and saves exactly once.</p>
+ *
+ * <p>Stage order matches the previous behaviour: page numbers, then watermark, then merge,
+ * so page numbers and watermark only apply to the converted pages.</p>
+ *
+ * <p>Converters that can hand over an open document skip the load entirely:
+ * {@link #processAndWrite(PDDocument, ConversionParameters, OutputStream)} applies the
+ * stages to that document and writes it once, to a file or straight to a response stream.</p>
+ *
+ * <p>Timings for loading, each stage, and saving are recorded through
+ * {@link ConversionMetrics#recordPostProcessingStage(String, long)}.</p>
+ */
+@Service
+@Slf4j
+public class PdfPostProcessingPipeline {
+
+    static final String STAGE_LOAD = "load";
+    static final String STAGE_PAGE_NUMBERS = "page_numbers";
+    static final String STAGE_WATERMARK = "watermark";
+    static final String STAGE_MERGE = "merge";
+    static final String STAGE_SAVE = "save";
+
+    private final PageNumberService pageNumberService;
+    private final WatermarkService watermarkService;
+    private final PdfMergeService pdfMergeService;
+    private final ConversionMetrics conversionMetrics;
+
+    public PdfPostProcessingPipeline(
+            PageNumberService pageNumberService,
+            WatermarkService watermarkService,
+            PdfMergeService pdfMergeService,
+            ConversionMetrics conversionMetrics) {
+        this.pageNumberService = pageNumberService;
+        this.watermarkService = watermarkService;
+        this.pdfMergeService = pdfMergeService;
+        this.conversionMetrics = conversionMetrics;
+    }
+
+    /**
+     * One post-processing step applied to the in-memory document.
+     */
+    @FunctionalInterface
+    interface Stage {
+        void apply(PDDocument document) throws IOException;
+    }
+
+    private record NamedStage(String name, String description, Stage stage) {}
+
+    /**
+     * Returns whether the request enables any post-processing step.
+     *
+     * @param params the conversion parameters
+     * @return true if at least one stage would run
+     */
+    public boolean hasStages(ConversionParameters params) {
+        return params.pageNumberConfig().isEnabled()
+                || params.watermarkConfig().isEnabled()
+                || hasExistingPdf(params);
+    }
+
+    /**
+     * Loads the PDF once, applies all enabled stages, and replaces the file with a single save.
+     *
+     * @param pdfFile the converted PDF file to post-process in place
+     * @param params the conversion parameters describing the enabled stages
+     * @throws IOException if loading, any stage, or saving fails
+     */
+    public void process(File pdfFile, ConversionParameters params) throws IOException {
+        if (!hasStages(params)) {
+            return;
+        }
+
+        Path target = pdfFile.toPath().toAbsolutePath();
+        Path tempFile = Files.createTempFile(target.getParent(), "postprocess_", ".pdf");
+        List<Closeable> resources = new ArrayList<>();
+        try {
+            long loadStart = System.nanoTime();
+            try (PDDocument document = Loader.loadPDF(pdfFile)) {
+                conversionMetrics.recordPostProcessingStage(STAGE_LOAD, System.nanoTime() - loadStart);
+
+                apply(document, params, resources);
+
+                long saveStart = System.nanoTime();
+                document.save(tempFile.toFile());
+                conversionMetrics.recordPostProcessingStage(STAGE_SAVE, System.nanoTime() - saveStart);
+            } finally {
+                closeAll(resources);
+            }
+
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+            tempFile = null;
+        } finally {
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException e) {
+                    log.warn("Failed to delete temporary file: {}", tempFile);
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies all enabled stages to a document handed over by a converter and saves it to a file.
+     * Takes ownership of {@code document} and closes it.
+     *
+     * @param document the converted document
+     * @param params the conversion parameters describing the enabled stages
+     * @param pdfFile the file to write the final PDF to
+     * @throws IOException if any stage or the save fails
+     */
+    public void processAndWrite(PDDocument document, ConversionParameters params, File pdfFile) throws IOException {
+        OutputStream out;
+        try {
+            out = new BufferedOutputStream(Files.newOutputStream(pdfFile.toPath()));
+        } catch (IOException e) {
+            document.close();
+            throw e;
+        }
+        try (out) {
+            processAndWrite(document, params, out);
+        }
+    }
+
+    /**
+     * Applies all enabled stages to a document handed over by a converter and writes it to a stream.
+     * Takes ownership of {@code document} and closes it; the stream is left open.
+     *
+     * @param document the converted document
+     * @param params the conversion parameters describing the enabled stages
+     * @param out the stream to write the final PDF to
+     * @throws IOException if any stage or the write fails
+     */
+    public void processAndWrite(PDDocument document, ConversionParameters params, OutputStream out) throws IOException {
+        List<Closeable> resources = new ArrayList<>();
+        try (document) {
+            apply(document, params, resources);
+
+            long saveStart = System.nanoTime();
+            document.save(out);
+            conversionMetrics.recordPostProcessingStage(STAGE_SAVE, System.nanoTime() - saveStart);
+        } finally {
+            closeAll(resources);
+        }
+    }
+
+    /**
+     * Applies all enabled stages to an open document without saving it.
+     * Documents opened by a stage (e.g. the existing PDF for a merge) are added to
+     * {@code resources} and must be closed by the caller after the document is saved.
+     *
+     * @param document the document to modify
+     * @param params the conversion parameters describing the enabled stages
+     * @param resources collects resources that must outlive the save
+     * @throws IOException if any stage fails
+     */
+    public void apply(PDDocument document, ConversionParameters params, List<Closeable> resources) throws IOException {
+        for (NamedStage stage : stagesFor(params, resources)) {
+            long start = System.nanoTime();
+            try {
+                stage.stage().apply(document);
+            } catch (IOException e) {
+                throw new IOException("Failed to " + stage.description() + ": " + e.getMessage(), e);
+            }
+            conversionMetrics.recordPostProcessingStage(stage.name(), System.nanoTime() - start);
+        }
+    }
+
+    private List<NamedStage> stagesFor(ConversionParameters params, List<Closeable> resources) {
+        List<NamedStage> stages = new ArrayList<>(3);
+        if (params.pageNumberConfig().isEnabled()) {
+            stages.add(new NamedStage(STAGE_PAGE_NUMBERS, "add page numbers",
+                    document -> pageNumberService.addPageNumbers(document, params.pageNumberConfig())));
+        }
+        if (params.watermarkConfig().isEnabled()) {
+            stages.add(new NamedStage(STAGE_WATERMARK, "add watermark",
+                    document -> watermarkService.addWatermark(document, params.watermarkConfig())));
+        }
+        if (hasExistingPdf(params)) {
+            stages.add(new NamedStage(STAGE_MERGE, "merge PDF files", document -> {
+                PDDocument existing;
+                try (InputStream in = params.existingPdf().getInputStream()) {
+                    existing = Loader.loadPDF(new RandomAccessReadBuffer(in));
+                }
+                resources.add(existing);
+                pdfMergeService.mergePdfs(document, existing, params.position());
+            }));
+        }
+        return stages;
+    }
+
+    private static boolean hasExistingPdf(ConversionParameters params) {
+        return params.existingPdf() != null && !params.existingPdf().isEmpty();
+    }
+
+    private static void closeAll(List<Closeable> resources) {
+        for (Closeable resource : resources) {
+            try {
+                resource.close();
+            } catch (IOException e) {
+                log.warn("Failed to close post-processing resource: {}", e.getMessage());
+            }
+        }
+    }
+}
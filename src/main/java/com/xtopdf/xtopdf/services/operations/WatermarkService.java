@@ -92,52 +92,7 @@ public class WatermarkService {
             tempFile = File.createTempFile("temp_", ".pdf");
             
             try (PDDocument document = Loader.loadPDF(pdfFile)) {
-                PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
-                
-                for (PDPage page : document.getPages()) {
-                    float pageWidth = page.getMediaBox().getWidth();
-                    float pageHeight = page.getMediaBox().getHeight();
-                    
-                    // Determine if we're adding to background or foreground
-                    boolean append = (config.getLayer() == WatermarkLayer.FOREGROUND);
-                    
-                    try (PDPageContentStream contentStream = new PDPageContentStream(
-                            document, page, 
-                            append ? PDPageContentStream.AppendMode.APPEND : PDPageContentStream.AppendMode.PREPEND,
-                            true)) {
-                        
-                        // Set transparency
-                        PDExtendedGraphicsState gs = new PDExtendedGraphicsState();
-                        gs.setNonStrokingAlphaConstant(DEFAULT_OPACITY);
-                        gs.setStrokingAlphaConstant(DEFAULT_OPACITY);
-                        contentStream.setGraphicsStateParameters(gs);
-                        
-                        // Calculate position (center of page)
-                        float centerX = pageWidth / 2;
-                        float centerY = pageHeight / 2;
-                        
-                        // Get rotation angle
-                        float rotationAngle = getRotationAngle(config.getOrientation(), pageWidth, pageHeight);
-                        
-                        // Set up transformation matrix for rotation around center
-                        contentStream.saveGraphicsState();
-                        contentStream.transform(Matrix.getTranslateInstance(centerX, centerY));
-                        contentStream.transform(Matrix.getRotateInstance(Math.toRadians(rotationAngle), 0, 0));
-                        
-                        // Draw watermark text
-                        contentStream.beginText();
-                        contentStream.setFont(font, config.getFontSize());
-                        
-                        // Calculate text width for centering
-                        float textWidth = font.getStringWidth(config.getText()) / 1000 * config.getFontSize();
-                        contentStream.newLineAtOffset(-textWidth / 2, 0);
-                        contentStream.showText(config.getText());
-                        contentStream.endText();
-                        
-                        contentStream.restoreGraphicsState();
-                    }
-                }
-                
+                addWatermark(document, config);
                 document.save(tempFile);
             }
             
@@ -171,6 +126,67 @@ public class WatermarkService {
         }
     }
     
+    /**
+     * Adds a watermark to an already-open document without saving it.
+     * Used by {@link PdfPostProcessingPipeline} so that several post-processing steps
+     * share one load and one save.
+     *
+     * @param document the document to modify
+     * @param config the watermark configuration (text, size, layer, orientation)
+     * @throws IOException if a page content stream cannot be written
+     */
+    public void addWatermark(PDDocument document, WatermarkConfig config) throws IOException {
+        if (!config.isEnabled() || config.getText() == null || config.getText().trim().isEmpty()) {
+            return;
+        }
+
+        PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+        
+        for (PDPage page : document.getPages()) {
+            float pageWidth = page.getMediaBox().getWidth();
+            float pageHeight = page.getMediaBox().getHeight();
+            
+            // Determine if we're adding to background or foreground
+            boolean append = (config.getLayer() == WatermarkLayer.FOREGROUND);
+            
+            try (PDPageContentStream contentStream = new PDPageContentStream(
+                    document, page, 
+                    append ? PDPageContentStream.AppendMode.APPEND : PDPageContentStream.AppendMode.PREPEND,
+                    true)) {
+                
+                // Set transparency
+                PDExtendedGraphicsState gs = new PDExtendedGraphicsState();
+                gs.setNonStrokingAlphaConstant(DEFAULT_OPACITY);
+                gs.setStrokingAlphaConstant(DEFAULT_OPACITY);
+                contentStream.setGraphicsStateParameters(gs);
+                
+                // Calculate position (center of page)
+                float centerX = pageWidth / 2;
+                float centerY = pageHeight / 2;
+                
+                // Get rotation angle
+                float rotationAngle = getRotationAngle(config.getOrientation(), pageWidth, pageHeight);
+                
+                // Set up transformation matrix for rotation around center
+                contentStream.saveGraphicsState();
+                contentStream.transform(Matrix.getTranslateInstance(centerX, centerY));
+                contentStream.transform(Matrix.getRotateInstance(Math.toRadians(rotationAngle), 0, 0));
+                
+                // Draw watermark text
+                contentStream.beginText();
+                contentStream.setFont(font, config.getFontSize());
+                
+                // Calculate text width for centering
+                float textWidth = font.getStringWidth(config.getText()) / 1000 * config.getFontSize();
+                contentStream.newLineAtOffset(-textWidth / 2, 0);
+                contentStream.showText(config.getText());
+                contentStream.endText();
+                
+                contentStream.restoreGraphicsState();
+            }
+        }
+    }
+
     /**
      * Calculates the rotation angle for the watermark based on orientation and page dimensions.
      * 
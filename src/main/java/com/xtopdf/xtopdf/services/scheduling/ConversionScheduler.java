@@ -0,0 +1,505 @@
+package com.xtopdf.xtopdf.services.scheduling;
+
+import com.xtopdf.xtopdf.config.MetricsConfiguration.ConversionMetrics;
+import com.xtopdf.xtopdf.exceptions.ConversionRejectedException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Central admission control for CPU-heavy conversion work.
+ *
+ * <p>Every conversion runs on a virtual thread, but only once it holds enough CPU permits.
+ * The number of permits is configurable ({@code xtopdf.scheduler.cpu-permits}, default: one per
+ * available processor) and each format has a weight ({@code xtopdf.scheduler.format-weights},
+ * e.g. {@code svg=4}), so expensive formats such as SVG rasterization take a larger share than
+ * plain text. Formats without a configured weight cost one permit.</p>
+ *
+ * <p>Conversions that cannot start immediately wait in a single bounded queue ordered by
+ * {@link Priority} (synchronous requests first, then async jobs, then batch files) and by
+ * arrival within a priority. The head of the queue is always started next, so a heavy
+ * conversion is never starved by a stream of light ones. When the queue is full,
+ * {@link #submit} fails fast with {@link ConversionRejectedException}, which the API maps to
+ * 503 Service Unavailable; a higher-priority conversion instead displaces the newest queued
+ * conversion of the lowest priority, whose future fails with the same exception.</p>
+ *
+ * <p>Each conversion also reserves its predicted heap cost ({@link HeapCostModel}) from a shared
+ * memory budget ({@code xtopdf.memory.budget-mb}, default 60% of the maximum heap) before it
+ * starts, and returns it when it finishes. A conversion whose reservation does not fit waits in
+ * the queue like one waiting for CPU permits, so a handful of large spreadsheets queue up instead
+ * of exhausting the heap together. A single conversion predicted to need more than the whole
+ * budget is capped at the budget and runs alone. Conversions that ran alone have the growth of
+ * their live heap measured after garbage collections and fed back into the model.</p>
+ *
+ * <p>Work submitted from a thread that is already running a scheduled conversion (for example
+ * {@code FileConversionService} called from an async job or a batch file) runs straight away on
+ * its own virtual thread: the outer task already holds the permits, and waiting for more would
+ * deadlock once every permit is held by an outer task.</p>
+ *
+ * <p>A conversion that hands work to threads of its own should keep no more of them busy than
+ * the permits it holds ({@link #permitsHeld()}); nested work counts against the outer task's.</p>
+ */
+@Service
+@Slf4j
+public class ConversionScheduler {
+
+    /**
+     * Scheduling priority, highest first.
+     */
+    public enum Priority {
+        SYNC, ASYNC, BATCH;
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /** Permits held by the conversion running on this thread; unset outside scheduled work. */
+    private static final ThreadLocal<Integer> PERMITS_HELD = new ThreadLocal<>();
+    private static final double DEFAULT_BUDGET_FRACTION = 0.6;
+
+    private final ConversionMetrics conversionMetrics;
+    private final HeapCostModel heapCostModel;
+    private final HeapUsageProbe heapUsageProbe = new HeapUsageProbe();
+    private final long memoryBudgetBytes;
+    private final int cpuPermits;
+    private final int queueCapacity;
+    private final Map<String, Integer> formatWeights;
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<ScheduledConversion<?>> queue = new PriorityQueue<>();
+    private final int[] queuedByPriority = new int[Priority.values().length];
+    private int permitsInUse = 0;
+    private long reservedBytes = 0;
+    private int running = 0;
+    private long starts = 0;
+    private long sequence = 0;
+
+    public ConversionScheduler(
+            ConversionMetrics conversionMetrics,
+            HeapCostModel heapCostModel,
+            @Value("${xtopdf.scheduler.cpu-permits:0}") int cpuPermits,
+            @Value("${xtopdf.scheduler.queue-capacity:100}") int queueCapacity,
+            @Value("${xtopdf.scheduler.format-weights:}") List<String> formatWeights,
+            @Value("${xtopdf.memory.budget-mb:0}") long memoryBudgetMb) {
+        this.conversionMetrics = conversionMetrics;
+        this.heapCostModel = heapCostModel;
+        this.memoryBudgetBytes = memoryBudgetMb > 0
+                ? memoryBudgetMb * 1024 * 1024
+                : (long) (Runtime.getRuntime().maxMemory() * DEFAULT_BUDGET_FRACTION);
+        this.cpuPermits = cpuPermits > 0 ? cpuPermits : Runtime.getRuntime().availableProcessors();
+        this.queueCapacity = Math.max(0, queueCapacity);
+        this.formatWeights = parseWeights(formatWeights);
+
+        conversionMetrics.registerSchedulerGauges(
+                tag -> queuedCount(Priority.valueOf(tag.toUpperCase(Locale.ROOT))),
+                Arrays.stream(Priority.values()).map(Priority::tag).toList(),
+                this::permitsInUse);
+        conversionMetrics.registerMemoryGauges(this::reservedBytes, () -> memoryBudgetBytes);
+        log.info("Conversion scheduler: {} CPU permits, {} MB heap budget, queue capacity {}, format weights {}",
+                this.cpuPermits, memoryBudgetBytes / (1024 * 1024), this.queueCapacity, this.formatWeights);
+    }
+
+    /**
+     * Submits a conversion task whose input size is unknown; only the baseline heap cost is reserved.
+     *
+     * @see #submit(String, long, Priority, Callable)
+     */
+    public <T> Future<T> submit(String format, Priority priority, Callable<T> task) {
+        return submit(format, 0, priority, task);
+    }
+
+    /**
+     * Submits a conversion task. It starts as soon as enough permits and heap budget are free
+     * and no higher-priority or earlier task is waiting.
+     *
+     * <p>Cancelling the returned future removes a queued task from the queue, or interrupts a
+     * running one. Permits and heap reservations are released only when the task actually finishes.</p>
+     *
+     * @param format the input format (extension without the dot), used to look up the weight
+     * @param inputBytes the input size, used to predict the heap cost
+     * @param priority the scheduling priority
+     * @param task the conversion work
+     * @return a future for the task's result
+     * @throws ConversionRejectedException if the task cannot start now and the queue is full of
+     *                                     conversions of the same or higher priority
+     * @see #submit(String, long, Priority, Callable, Consumer)
+     */
+    public <T> Future<T> submit(String format, long inputBytes, Priority priority, Callable<T> task) {
+        return submit(format, inputBytes, priority, task, rejected -> { });
+    }
+
+    /**
+     * Submits a conversion task that may give up its place in a full queue to a conversion of
+     * higher priority.
+     *
+     * <p>When the queue is full, a task of higher priority than the last one in line takes its
+     * place. The displaced task never runs: its future fails with
+     * {@link ConversionRejectedException} and {@code onDisplaced} is called on the submitting
+     * thread of the task that displaced it, so the caller can undo what it did for the task.</p>
+     *
+     * @param onDisplaced called if this task is displaced after it was accepted
+     * @see #submit(String, long, Priority, Callable)
+     */
+    public <T> Future<T> submit(String format, long inputBytes, Priority priority, Callable<T> task,
+                                Consumer<ConversionRejectedException> onDisplaced) {
+        Integer outerPermits = PERMITS_HELD.get();
+        if (outerPermits != null) {
+            // The calling task already holds permits and heap for this work
+            ScheduledConversion<T> nested = new ScheduledConversion<>(
+                    task, onDisplaced, priority, format, 0, 0, 0, -1, outerPermits);
+            workers.execute(() -> run(nested));
+            return nested;
+        }
+
+        int weight = weightOf(format);
+        long predictedBytes = heapCostModel.estimate(format, inputBytes);
+        ScheduledConversion<T> conversion;
+        ScheduledConversion<?> displaced = null;
+        ConversionRejectedException full = null;
+        lock.lock();
+        try {
+            conversion = new ScheduledConversion<>(task, onDisplaced, priority, normalize(format), inputBytes,
+                    weight, predictedBytes, sequence++, weight);
+            enqueue(conversion);
+            dispatch();
+            if (queue.size() > queueCapacity) {
+                ScheduledConversion<?> rejected = lastInLine();
+                dequeue(rejected);
+                conversionMetrics.incrementSchedulerRejected(rejected.priority.tag());
+                log.warn("Conversion queue full ({} waiting), rejecting {} {} conversion",
+                        queueCapacity, rejected.priority.tag(), rejected.format);
+                full = new ConversionRejectedException(
+                        "Conversion queue is full (" + queueCapacity + " waiting), try again later");
+                if (rejected == conversion) {
+                    throw full;
+                }
+                displaced = rejected;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (displaced != null) {
+            // Made room for a higher-priority conversion
+            displaced.reject(full);
+        }
+        return conversion;
+    }
+
+    /**
+     * Returns the number of permits a conversion of the given format takes,
+     * capped at the total so every format can eventually run.
+     */
+    public int weightOf(String format) {
+        return Math.min(formatWeights.getOrDefault(normalize(format), 1), cpuPermits);
+    }
+
+    /**
+     * Returns the lowercase extension of a file name without the dot,
+     * or an empty string if it has none.
+     */
+    public static String formatOf(String fileName) {
+        if (fileName == null) {
+            return "";
+        }
+        int dotIndex = fileName.lastIndexOf('.');
+        return dotIndex >= 0 ? fileName.substring(dotIndex + 1).toLowerCase(Locale.ROOT) : "";
+    }
+
+    public int getCpuPermits() {
+        return cpuPermits;
+    }
+
+    /**
+     * Returns the CPU permits held by the conversion running on the calling thread, or 0 if the
+     * thread is not running scheduled work. Nested conversions report their outer task's permits.
+     */
+    public static int permitsHeld() {
+        Integer permits = PERMITS_HELD.get();
+        return permits != null ? permits : 0;
+    }
+
+    /**
+     * Returns the number of conversions waiting for permits.
+     */
+    public int queuedCount() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of conversions of the given priority waiting for permits.
+     */
+    public int queuedCount(Priority priority) {
+        lock.lock();
+        try {
+            return queuedByPriority[priority.ordinal()];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the heap, in bytes, reserved by running conversions.
+     */
+    public long reservedBytes() {
+        lock.lock();
+        try {
+            return reservedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getMemoryBudgetBytes() {
+        return memoryBudgetBytes;
+    }
+
+    /**
+     * Returns the number of permits held by running conversions.
+     */
+    public int permitsInUse() {
+        lock.lock();
+        try {
+            return permitsInUse;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Cancels queued conversions and waits up to 30 seconds for running ones to finish.
+     */
+    @PreDestroy
+    public void shutdown() {
+        List<ScheduledConversion<?>> pending;
+        lock.lock();
+        try {
+            pending = new ArrayList<>(queue);
+        } finally {
+            lock.unlock();
+        }
+        pending.forEach(conversion -> conversion.cancel(false));
+
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        heapUsageProbe.close();
+    }
+
+    /**
+     * Starts queued conversions in order while the head fits in the free permits and heap budget.
+     * Must be called with the lock held.
+     */
+    private void dispatch() {
+        ScheduledConversion<?> next;
+        while ((next = queue.peek()) != null
+                && permitsInUse + next.weight <= cpuPermits
+                && reservedBytes + next.reservedBytes <= memoryBudgetBytes) {
+            dequeue(next);
+            permitsInUse += next.weight;
+            reservedBytes += next.reservedBytes;
+            starts++;
+            if (running++ == 0) {
+                // Nothing else is running, so heap growth from here on belongs to this conversion
+                heapUsageProbe.start();
+                next.startedAt = starts;
+            }
+            conversionMetrics.recordSchedulerWait(next.priority.tag(), System.nanoTime() - next.enqueuedAt);
+            conversionMetrics.recordMemoryReservation(next.format, next.reservedBytes);
+            ScheduledConversion<?> conversion = next;
+            try {
+                workers.execute(() -> run(conversion));
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+                finish(conversion);
+                conversion.cancel(false);
+            }
+        }
+    }
+
+    private void run(ScheduledConversion<?> conversion) {
+        PERMITS_HELD.set(conversion.permitsHeld);
+        try {
+            conversion.run();
+        } finally {
+            PERMITS_HELD.remove();
+            if (conversion.sequence >= 0) {
+                release(conversion);
+            }
+        }
+    }
+
+    private void release(ScheduledConversion<?> conversion) {
+        lock.lock();
+        try {
+            finish(conversion);
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a conversion's permits and reservation, and feeds its measured heap cost back
+     * into the model if it ran alone from start to finish. Must be called with the lock held.
+     */
+    private void finish(ScheduledConversion<?> conversion) {
+        permitsInUse -= conversion.weight;
+        reservedBytes -= conversion.reservedBytes;
+        running--;
+        if (conversion.startedAt > 0 && conversion.startedAt == starts && !conversion.isCancelled()) {
+            heapUsageProbe.retained().ifPresent(observed -> heapCostModel.record(
+                    conversion.format, conversion.inputBytes, conversion.predictedBytes, observed));
+        }
+    }
+
+    private void enqueue(ScheduledConversion<?> conversion) {
+        queue.add(conversion);
+        conversion.queued = true;
+        queuedByPriority[conversion.priority.ordinal()]++;
+    }
+
+    private void dequeue(ScheduledConversion<?> conversion) {
+        if (conversion.queued && queue.remove(conversion)) {
+            conversion.queued = false;
+            queuedByPriority[conversion.priority.ordinal()]--;
+        }
+    }
+
+    /**
+     * Returns the queued conversion that would start last: the newest of the lowest priority.
+     * Must be called with the lock held.
+     */
+    private ScheduledConversion<?> lastInLine() {
+        ScheduledConversion<?> last = null;
+        for (ScheduledConversion<?> conversion : queue) {
+            if (last == null || conversion.compareTo(last) > 0) {
+                last = conversion;
+            }
+        }
+        return last;
+    }
+
+    private void removeCancelled(ScheduledConversion<?> conversion) {
+        lock.lock();
+        try {
+            dequeue(conversion);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String normalize(String format) {
+        String key = format == null ? "" : format.toLowerCase(Locale.ROOT);
+        return key.startsWith(".") ? key.substring(1) : key;
+    }
+
+    private static Map<String, Integer> parseWeights(List<String> entries) {
+        Map<String, Integer> weights = new HashMap<>();
+        if (entries == null) {
+            return weights;
+        }
+        for (String entry : entries) {
+            if (entry == null || entry.isBlank()) {
+                continue;
+            }
+            int separator = entry.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Invalid format weight '" + entry + "', expected format=weight");
+            }
+            String format = entry.substring(0, separator).trim().toLowerCase(Locale.ROOT);
+            int weight = Integer.parseInt(entry.substring(separator + 1).trim());
+            if (weight < 1) {
+                throw new IllegalArgumentException("Format weight must be at least 1: " + entry);
+            }
+            weights.put(format, weight);
+        }
+        return Map.copyOf(weights);
+    }
+
+    /**
+     * A submitted conversion. Ordered by priority, then by submission order.
+     */
+    private final class ScheduledConversion<T> extends FutureTask<T> implements Comparable<ScheduledConversion<?>> {
+        private final Consumer<ConversionRejectedException> onDisplaced;
+        private final Priority priority;
+        private final String format;
+        private final long inputBytes;
+        private final int weight;
+        private final long predictedBytes;
+        private final long reservedBytes;
+        private final long sequence;
+        private final int permitsHeld;
+        private final long enqueuedAt = System.nanoTime();
+        private boolean queued = false;
+        private long startedAt = 0;
+
+        private ScheduledConversion(Callable<T> task, Consumer<ConversionRejectedException> onDisplaced,
+                                    Priority priority, String format, long inputBytes,
+                                    int weight, long predictedBytes, long sequence, int permitsHeld) {
+            super(task);
+            this.onDisplaced = onDisplaced;
+            this.priority = priority;
+            this.format = format;
+            this.inputBytes = inputBytes;
+            this.weight = weight;
+            this.predictedBytes = predictedBytes;
+            this.reservedBytes = Math.min(predictedBytes, memoryBudgetBytes);
+            this.sequence = sequence;
+            this.permitsHeld = permitsHeld;
+        }
+
+        private void reject(ConversionRejectedException e) {
+            setException(e);
+            try {
+                onDisplaced.accept(e);
+            } catch (RuntimeException callbackFailure) {
+                log.warn("Cleanup after displacing a {} {} conversion failed: {}",
+                        priority.tag(), format, callbackFailure.getMessage(), callbackFailure);
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) {
+                removeCancelled(this);
+            }
+        }
+
+        @Override
+        public int compareTo(ScheduledConversion<?> other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.xtopdf.xtopdf.services.scheduling;
+
+import com.xtopdf.xtopdf.config.MetricsConfiguration.ConversionMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Predicts how much heap a conversion needs from its format and input size.
+ *
+ * <p>The prediction is {@code baseline + multiplier(format) * inputBytes}. Multipliers start
+ * from {@code xtopdf.memory.multipliers} (e.g. {@code xls=12}; unlisted formats use
+ * {@code xtopdf.memory.default-multiplier}) and are then learned from observed runs with an
+ * exponentially weighted moving average, so a format that consistently needs more or less
+ * heap than configured converges on what it really uses.</p>
+ *
+ * <p>Observations come from {@link ConversionScheduler}, which only measures conversions that
+ * had the heap to themselves; see {@link HeapUsageProbe}. An observation is the live heap the
+ * conversion added, divided by its input size; the baseline stays as headroom for what every
+ * conversion allocates and is not taken out of the observation.</p>
+ */
+@Component
+@Slf4j
+public class HeapCostModel {
+
+    /** Inputs smaller than this are dominated by the baseline and do not update multipliers. */
+    static final long MIN_LEARNING_INPUT_BYTES = 64 * 1024;
+    static final double MIN_MULTIPLIER = 0.5;
+    static final double MAX_MULTIPLIER = 500;
+
+    private final ConversionMetrics conversionMetrics;
+    private final double defaultMultiplier;
+    private final long baselineBytes;
+    private final double learningRate;
+    private final Map<String, Double> multipliers = new ConcurrentHashMap<>();
+
+    public HeapCostModel(
+            ConversionMetrics conversionMetrics,
+            @Value("${xtopdf.memory.default-multiplier:4}") double defaultMultiplier,
+            @Value("${xtopdf.memory.baseline-mb:16}") int baselineMb,
+            @Value("${xtopdf.memory.learning-rate:0.2}") double learningRate,
+            @Value("${xtopdf.memory.multipliers:}") List<String> multipliers) {
+        if (learningRate <= 0 || learningRate > 1) {
+            throw new IllegalArgumentException("Learning rate must be in (0, 1]: " + learningRate);
+        }
+        this.conversionMetrics = conversionMetrics;
+        this.defaultMultiplier = clamp(defaultMultiplier);
+        this.baselineBytes = Math.max(0, baselineMb) * 1024L * 1024L;
+        this.learningRate = learningRate;
+        this.multipliers.putAll(parseMultipliers(multipliers));
+    }
+
+    /**
+     * Returns the predicted peak heap use of a conversion, in bytes.
+     *
+     * @param format the input format (extension without the dot)
+     * @param inputBytes the input size in bytes
+     */
+    public long estimate(String format, long inputBytes) {
+        return baselineBytes + (long) Math.ceil(multiplier(format) * Math.max(0, inputBytes));
+    }
+
+    /**
+     * Returns the current multiplier for a format.
+     */
+    public double multiplier(String format) {
+        return multipliers.getOrDefault(normalize(format), defaultMultiplier);
+    }
+
+    /**
+     * Records the heap a conversion actually used and moves the format's multiplier towards it.
+     * An observation of zero or less carries no information and is ignored.
+     *
+     * @param format the input format
+     * @param inputBytes the input size in bytes
+     * @param predictedBytes the estimate the reservation was based on
+     * @param observedBytes the measured growth of live heap during the conversion
+     */
+    public void record(String format, long inputBytes, long predictedBytes, long observedBytes) {
+        if (observedBytes <= 0) {
+            return;
+        }
+        String key = normalize(format);
+        if (predictedBytes > 0) {
+            conversionMetrics.recordHeapCostRatio(key, (double) observedBytes / predictedBytes);
+        }
+        if (inputBytes < MIN_LEARNING_INPUT_BYTES) {
+            return;
+        }
+        double observedMultiplier = clamp((double) observedBytes / inputBytes);
+        double updated = multipliers.compute(key, (k, current) -> {
+            double previous = current != null ? current : defaultMultiplier;
+            return clamp(previous + learningRate * (observedMultiplier - previous));
+        });
+        log.debug("Heap cost multiplier for {} is now {} (observed {} for {} input bytes)",
+                key, String.format("%.2f", updated), String.format("%.2f", observedMultiplier), inputBytes);
+    }
+
+    private static String normalize(String format) {
+        String key = format == null ? "" : format.toLowerCase(Locale.ROOT);
+        return key.startsWith(".") ? key.substring(1) : key;
+    }
+
+    private static double clamp(double multiplier) {
+        return Math.max(MIN_MULTIPLIER, Math.min(MAX_MULTIPLIER, multiplier));
+    }
+
+    private static Map<String, Double> parseMultipliers(List<String> entries) {
+        Map<String, Double> parsed = new HashMap<>();
+        if (entries == null) {
+            return parsed;
+        }
+        for (String entry : entries) {
+            if (entry == null || entry.isBlank()) {
+                continue;
+            }
+            int separator = entry.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Invalid heap multiplier '" + entry + "', expected format=multiplier");
+            }
+            String format = normalize(entry.substring(0, separator).trim());
+            double multiplier = Double.parseDouble(entry.substring(separator + 1).trim());
+            if (multiplier <= 0) {
+                throw new IllegalArgumentException("Heap multiplier must be positive: " + entry);
+            }
+            parsed.put(format, clamp(multiplier));
+        }
+        return parsed;
+    }
+}
@@ -0,0 +1,156 @@
+package com.xtopdf.xtopdf.services.scheduling;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Measures how much heap a conversion keeps live, from the heap in use right after each garbage
+ * collection that ran during it.
+ *
+ * <p>Heap in use after a collection is what the collector could not free, so it covers the
+ * workbook or document a conversion holds while it runs and leaves out the garbage it churns
+ * through, whichever generation either is in. The measurement is the highest such value seen
+ * during the conversion, less the lowest after the last {@value #RECENT_COLLECTIONS} collections
+ * before it started: the most recent one alone often ran while the previous conversion still
+ * held its data. A conversion that ran without any collection, or whose live heap did not grow,
+ * gives no measurement rather than zero: its footprint was simply not observed.</p>
+ *
+ * <p>The counters are JVM-wide, so a measurement is only meaningful for a conversion that ran
+ * while no other conversion did; {@link ConversionScheduler} enforces that.</p>
+ */
+class HeapUsageProbe implements AutoCloseable {
+
+    static final int RECENT_COLLECTIONS = 8;
+
+    private final List<MemoryPoolMXBean> heapPools;
+    private final Set<String> heapPoolNames;
+    private final List<GarbageCollectorMXBean> collectors;
+    private final NotificationListener listener = this::onCollection;
+    private final AtomicLong peakAfterCollection = new AtomicLong();
+    private final long[] recentLive = new long[RECENT_COLLECTIONS];
+    private int recentCount;
+    private int recentNext;
+    private volatile long liveAtStart;
+    private volatile long collectionsAtStart;
+
+    HeapUsageProbe() {
+        this(ManagementFactory.getMemoryPoolMXBeans(), ManagementFactory.getGarbageCollectorMXBeans());
+    }
+
+    HeapUsageProbe(List<MemoryPoolMXBean> memoryPools, List<GarbageCollectorMXBean> collectors) {
+        this.heapPools = memoryPools.stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+        this.heapPoolNames = heapPools.stream().map(MemoryPoolMXBean::getName).collect(Collectors.toSet());
+        this.collectors = collectors;
+        for (GarbageCollectorMXBean collector : collectors) {
+            if (collector instanceof NotificationEmitter emitter) {
+                emitter.addNotificationListener(listener, null, null);
+            }
+        }
+    }
+
+    /**
+     * Starts measuring a conversion.
+     */
+    void start() {
+        // Unknown until a collection has been seen; the pools' own collection usage is no
+        // substitute, as G1 only updates the old generation's on old collections
+        long floor = -1;
+        synchronized (recentLive) {
+            for (int i = 0; i < recentCount; i++) {
+                floor = floor < 0 ? recentLive[i] : Math.min(floor, recentLive[i]);
+            }
+        }
+        liveAtStart = floor;
+        collectionsAtStart = collections();
+        peakAfterCollection.set(0);
+    }
+
+    /**
+     * Returns the growth of live heap since {@link #start()}, or empty if no collection ran
+     * before or since then, or the live heap did not grow.
+     */
+    OptionalLong retained() {
+        if (liveAtStart < 0 || collections() == collectionsAtStart) {
+            return OptionalLong.empty();
+        }
+        // Notifications arrive asynchronously; the pools already reflect the latest collection
+        long peak = Math.max(peakAfterCollection.get(), liveAfterLastCollection());
+        long growth = peak - liveAtStart;
+        return growth > 0 ? OptionalLong.of(growth) : OptionalLong.empty();
+    }
+
+    @Override
+    public void close() {
+        for (GarbageCollectorMXBean collector : collectors) {
+            if (collector instanceof NotificationEmitter emitter) {
+                try {
+                    emitter.removeNotificationListener(listener);
+                } catch (ListenerNotFoundException e) {
+                    // Never added
+                }
+            }
+        }
+    }
+
+    private void onCollection(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        Map<String, MemoryUsage> afterCollection = GarbageCollectionNotificationInfo
+                .from((CompositeData) notification.getUserData()).getGcInfo().getMemoryUsageAfterGc();
+        long live = 0;
+        for (Map.Entry<String, MemoryUsage> pool : afterCollection.entrySet()) {
+            if (heapPoolNames.contains(pool.getKey())) {
+                live += used(pool.getValue());
+            }
+        }
+        if (live == 0) {
+            // ZGC's pause notifications carry no usage; its cycle notifications do
+            return;
+        }
+        peakAfterCollection.accumulateAndGet(live, Math::max);
+        synchronized (recentLive) {
+            recentLive[recentNext] = live;
+            recentNext = (recentNext + 1) % RECENT_COLLECTIONS;
+            recentCount = Math.min(recentCount + 1, RECENT_COLLECTIONS);
+        }
+    }
+
+    private long liveAfterLastCollection() {
+        long live = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            live += used(pool.getCollectionUsage());
+        }
+        return live;
+    }
+
+    private long collections() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long used(MemoryUsage usage) {
+        return usage != null ? usage.getUsed() : 0;
+    }
+}
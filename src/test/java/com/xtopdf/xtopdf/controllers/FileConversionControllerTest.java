@@ -20,9 +20,13 @@ import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -493,4 +497,52 @@ class FileConversionControllerTest {
                 .andExpect(jsonPath("$.errorCode").value("INVALID_ARGUMENT"))
                 .andExpect(jsonPath("$.message").value("Invalid request parameters"));
     }
+
+    // --- Streaming endpoint ---
+
+    @Test
+    void testStreamEndpointWritesPdfIntoResponseBody() throws Exception {
+        MockMultipartFile inputFile = new MockMultipartFile("inputFile", "report.docx",
+                MediaType.APPLICATION_OCTET_STREAM_VALUE, "test content".getBytes());
+        byte[] pdfBytes = "%PDF-streamed".getBytes();
+
+        when(fileConversionService.convertForStreaming(any(ConversionParameters.class)))
+                .thenReturn(out -> out.write(pdfBytes));
+
+        MvcResult result = mockMvc.perform(multipart("/api/convert/stream")
+                        .file(inputFile)
+                        .param("addPageNumbers", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_PDF))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"report.pdf\""))
+                .andExpect(content().bytes(pdfBytes));
+
+        verify(fileConversionService).convertForStreaming(argThat(params ->
+                params.outputFile() == null && params.pageNumberConfig().isEnabled()));
+        verify(fileConversionService, never()).convertFile(any());
+    }
+
+    @Test
+    void testStreamEndpointReportsConversionErrorsBeforeStreaming() throws Exception {
+        MockMultipartFile inputFile = new MockMultipartFile("inputFile", "test.docx",
+                MediaType.APPLICATION_OCTET_STREAM_VALUE, "test content".getBytes());
+
+        when(fileConversionService.convertForStreaming(any(ConversionParameters.class)))
+                .thenThrow(new FileConversionException("Conversion failed: corrupt file"));
+
+        mockMvc.perform(multipart("/api/convert/stream").file(inputFile))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode").value("CONVERSION_ERROR"));
+    }
+
+    @Test
+    void testPdfFileNameReplacesExtension() {
+        assertThat(FileConversionController.pdfFileName("report.final.xlsx")).isEqualTo("report.final.pdf");
+        assertThat(FileConversionController.pdfFileName("README")).isEqualTo("README.pdf");
+        assertThat(FileConversionController.pdfFileName(null)).isEqualTo("converted.pdf");
+    }
 }
@@ -1,9 +1,11 @@
 package com.xtopdf.xtopdf.controllers;
 
 import com.xtopdf.xtopdf.dto.ErrorResponse;
+import com.xtopdf.xtopdf.exceptions.ConversionRejectedException;
 import com.xtopdf.xtopdf.exceptions.FileConversionException;
 import org.junit.jupiter.api.Test;
 import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BeanPropertyBindingResult;
@@ -64,6 +66,20 @@ class GlobalExceptionHandlerTest {
         assertThat(response.getBody().correlationId()).isNotBlank();
     }
 
+    @Test
+    void testHandleConversionRejectedException() {
+        ConversionRejectedException exception = new ConversionRejectedException("Conversion queue is full (100 waiting)");
+
+        ResponseEntity<ErrorResponse> response = handler.handleConversionRejectedException(exception);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().errorCode()).isEqualTo("SERVER_BUSY");
+        assertThat(response.getBody().message()).doesNotContain("100 waiting");
+        assertThat(response.getBody().correlationId()).isNotBlank();
+    }
+
     @Test
     void testHandleMaxUploadSizeExceededException() {
         MaxUploadSizeExceededException exception = new MaxUploadSizeExceededException(1024 * 1024);
@@ -5,10 +5,14 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import com.xtopdf.xtopdf.converters.ConverterRegistry;
+import com.xtopdf.xtopdf.services.JobTrackingService;
+import com.xtopdf.xtopdf.services.jobs.InMemoryJobStore;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Set;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 /**
  * Unit tests for GraphQL query and mutation resolvers.
@@ -19,10 +23,13 @@ class GraphQLResolverTest {
   private ConversionQueryController queryController;
   private ConversionMutationController mutationController;
 
+  @TempDir
+  Path jobDirectory;
+
   @BeforeEach
   void setup() {
     converterRegistry = mock(ConverterRegistry.class);
-    var jobTrackingService = new com.xtopdf.xtopdf.services.JobTrackingService();
+    var jobTrackingService = new JobTrackingService(new InMemoryJobStore(jobDirectory.toString()), 120);
     queryController = new ConversionQueryController(converterRegistry, jobTrackingService);
     mutationController = new ConversionMutationController(jobTrackingService);
   }
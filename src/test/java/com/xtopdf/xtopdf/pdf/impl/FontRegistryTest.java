@@ -0,0 +1,73 @@
+package com.xtopdf.xtopdf.pdf.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for FontRegistry, the fonts shared by PdfBoxDocumentBuilder instances.
+ */
+class FontRegistryTest {
+
+    @Test
+    void classpathFontsAreParsedOnce() {
+        FontRegistry fonts = FontRegistry.classpath();
+
+        assertSame(fonts, FontRegistry.classpath());
+        assertNotNull(fonts.regular(), "NotoSans-Regular.ttf is on the classpath");
+        assertNotNull(fonts.bold(), "NotoSans-Bold.ttf is on the classpath");
+    }
+
+    @Test
+    void buildersOverSharedFontsLoadTheirOwnDocumentFonts() throws IOException {
+        FontRegistry fonts = FontRegistry.classpath();
+
+        try (PdfBoxDocumentBuilder first = new PdfBoxDocumentBuilder(fonts);
+             PdfBoxDocumentBuilder second = new PdfBoxDocumentBuilder(fonts)) {
+            assertTrue(first.isFontsLoaded());
+            assertTrue(second.isFontsLoaded());
+            first.addParagraph("First document");
+            second.addParagraph("Second document");
+        }
+    }
+
+    @Test
+    void cjkFontIsOnlyReadWhenACharacterNeedsIt() throws IOException {
+        AtomicInteger reads = new AtomicInteger();
+        FontRegistry fonts = new FontRegistry(
+                FontRegistry.readResource(FontRegistry.REGULAR_FONT),
+                FontRegistry.readResource(FontRegistry.BOLD_FONT),
+                () -> {
+                    reads.incrementAndGet();
+                    return FontRegistry.readCjkResource();
+                });
+
+        try (PdfBoxDocumentBuilder builder = new PdfBoxDocumentBuilder(fonts)) {
+            builder.addFormattedText("Latin only", false, false, 12f);
+            builder.endParagraph();
+            assertEquals(0, reads.get(), "Latin text should not load the CJK font");
+
+            builder.addFormattedText("漢字", false, false, 12f);
+            builder.endParagraph();
+            assertEquals(1, reads.get(), "The first CJK character should load the CJK font");
+        }
+
+        try (PdfBoxDocumentBuilder builder = new PdfBoxDocumentBuilder(fonts)) {
+            builder.addFormattedText("漢字", false, false, 12f);
+            builder.endParagraph();
+        }
+        assertEquals(1, reads.get(), "The CJK font should be read once per registry");
+    }
+
+    @Test
+    void missingFontBytesAreLeftOut() {
+        FontRegistry fonts = new FontRegistry(null, new byte[]{1, 2, 3}, () -> null);
+
+        assertNull(fonts.regular());
+        assertNull(fonts.bold(), "Unparseable bytes should be skipped");
+        assertNull(fonts.cjk());
+    }
+}
@@ -0,0 +1,51 @@
+package com.xtopdf.xtopdf.pdf.impl;
+
+import net.jqwik.api.*;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for GlyphWidths, the shared glyph-advance cache.
+ */
+class GlyphWidthsTest {
+
+    private final PDFont helvetica = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+
+    @Test
+    void fontsWithTheSameNameShareOneCache() {
+        PDFont other = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+
+        assertSame(GlyphWidths.of(helvetica), GlyphWidths.of(other));
+        assertNotSame(GlyphWidths.of(helvetica),
+                GlyphWidths.of(new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD)));
+    }
+
+    @Test
+    void unencodableCharactersAreReportedAndMeasuredAsSpaces() throws IOException {
+        GlyphWidths widths = GlyphWidths.of(helvetica);
+
+        assertFalse(widths.canEncode(helvetica, '漢'));
+        assertEquals(-1f, widths.advance(helvetica, '漢'));
+        assertEquals(helvetica.getStringWidth("a a"), widths.width(helvetica, "a漢a"), 0.001f);
+    }
+
+    /**
+     * The cached sum of advances matches PDFBox's own measurement of the whole string.
+     */
+    @Property(tries = 200)
+    @Label("Cached widths match PDFont.getStringWidth")
+    void matchesGetStringWidth(@ForAll("latinText") String text) throws IOException {
+        assertEquals(helvetica.getStringWidth(text), GlyphWidths.of(helvetica).width(helvetica, text), 0.01f);
+    }
+
+    @Provide
+    Arbitrary<String> latinText() {
+        return Arbitraries.strings().withCharRange(' ', '~').withChars("éüñ€").ofMaxLength(200);
+    }
+}
@@ -145,4 +145,26 @@ class PdfBoxBackendTest {
             assertThat(doc.getNumberOfPages()).isEqualTo(1);
         }
     }
+
+    // ---------------------------------------------------------------
+    // 5. Memory limit — builders still produce complete documents
+    // ---------------------------------------------------------------
+
+    @Test
+    void builderWithMemoryLimitShouldProduceValidPdf() throws Exception {
+        backend.setMemoryLimit(0, tempDir.toFile());
+        File outputFile = tempDir.resolve("limited.pdf").toFile();
+
+        try (PdfDocumentBuilder builder = backend.createBuilder()) {
+            for (int i = 0; i < 20; i++) {
+                builder.addParagraph("Paragraph " + i);
+                builder.newPage();
+            }
+            builder.save(outputFile);
+        }
+
+        try (PDDocument doc = Loader.loadPDF(outputFile)) {
+            assertThat(doc.getNumberOfPages()).isEqualTo(21);
+        }
+    }
 }
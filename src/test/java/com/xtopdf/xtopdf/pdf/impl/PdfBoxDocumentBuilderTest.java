@@ -1,14 +1,20 @@
 package com.xtopdf.xtopdf.pdf.impl;
 
 import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -437,6 +443,233 @@ class PdfBoxDocumentBuilderTest {
                 "Text should be rendered using Helvetica fallback");
     }
 
+    // ---------------------------------------------------------------
+    // Document handoff — detachDocument keeps the document open after close
+    // ---------------------------------------------------------------
+
+    @Test
+    void detachedDocumentSurvivesBuilderClose() throws IOException {
+        PDDocument detached;
+        try (PdfBoxDocumentBuilder builder = new PdfBoxDocumentBuilder()) {
+            builder.addParagraph("Handed over in memory");
+            detached = builder.detachDocument();
+            assertThrows(IllegalStateException.class, builder::detachDocument);
+        }
+
+        try (detached) {
+            assertEquals(1, detached.getNumberOfPages());
+            String text = new PDFTextStripper().getText(detached);
+            assertTrue(text.contains("Handed over in memory"), "Detached document should keep its content");
+        }
+    }
+
+    @Test
+    void saveToOutputStreamProducesSameDocumentAsFileSave() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PdfBoxDocumentBuilder builder = new PdfBoxDocumentBuilder()) {
+            builder.addParagraph("Streamed paragraph");
+            builder.save(out);
+        }
+
+        try (PDDocument doc = Loader.loadPDF(out.toByteArray())) {
+            assertTrue(new PDFTextStripper().getText(doc).contains("Streamed paragraph"),
+                    "Stream output should contain the rendered text");
+        }
+    }
+
+    // ---------------------------------------------------------------
+    // Joining parts — appendPages copies pages and reuses this builder's fonts
+    // ---------------------------------------------------------------
+
+    @Test
+    void appendPagesAddsPartPagesInOrderAfterPartIsClosed() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PdfBoxDocumentBuilder builder = new PdfBoxDocumentBuilder()) {
+            builder.addParagraph("First part");
+            try (PdfBoxDocumentBuilder part = new PdfBoxDocumentBuilder()) {
+                part.addParagraph("Second part");
+                part.newPage();
+                part.addParagraph("Third part");
+                builder.appendPages(part);
+            }
+            builder.addParagraph("After the join");
+            builder.save(out);
+        }
+
+        try (PDDocument doc = Loader.loadPDF(out.toByteArray())) {
+            assertEquals(3, doc.getNumberOfPages());
+            String text = new PDFTextStripper().getText(doc);
+            int first = text.indexOf("First part");
+            int second = text.indexOf("Second part");
+            int third = text.indexOf("Third part");
+            int after = text.indexOf("After the join");
+            assertTrue(first >= 0 && first < second && second < third && third < after,
+                    "Pages should follow in append order, with drawing continuing on the last page: " + text);
+        }
+    }
+
+    @Test
+    void appendPagesDoesNotEmbedThePartsFontsAgain() throws IOException {
+        ByteArrayOutputStream single = new ByteArrayOutputStream();
+        try (PdfBoxDocumentBuilder builder = new PdfBoxDocumentBuilder()) {
+            builder.addParagraph("Only part");
+            builder.save(single);
+        }
+
+        ByteArrayOutputStream joined = new ByteArrayOutputStream();
+        try (PdfBoxDocumentBuilder builder = new PdfBoxDocumentBuilder()) {
+            builder.addParagraph("First part");
+            for (int i = 0; i < 3; i++) {
+                try (PdfBoxDocumentBuilder part = new PdfBoxDocumentBuilder()) {
+                    part.addParagraph("Part " + i);
+                    builder.appendPages(part);
+                }
+            }
+            builder.save(joined);
+        }
+
+        // Each builder embeds the full NotoSans fonts; copying them per part would multiply the size
+        assertTrue(joined.size() < single.size() * 3 / 2,
+                "Joined document (" + joined.size() + " bytes) should embed its fonts once (single part: "
+                        + single.size() + " bytes)");
+    }
+
+    @Test
+    void appendPagesRejectsItself() throws IOException {
+        try (PdfBoxDocumentBuilder builder = new PdfBoxDocumentBuilder()) {
+            assertThrows(IllegalArgumentException.class, () -> builder.appendPages(builder));
+        }
+    }
+
+    // ---------------------------------------------------------------
+    // Tables — fitted column widths and repeated header rows
+    // ---------------------------------------------------------------
+
+    @Test
+    void addTableRepeatsHeaderRowsOnEveryPage() throws IOException {
+        String[][] data = new String[120][];
+        data[0] = new String[]{"Id", "Header"};
+        for (int i = 1; i < data.length; i++) {
+            data[i] = new String[]{String.valueOf(i), "value " + i};
+        }
+        File outputFile = tempDir.resolve("header.pdf").toFile();
+
+        try (PdfBoxDocumentBuilder builder = new PdfBoxDocumentBuilder()) {
+            builder.addTable(data, 1);
+            builder.continueTable(new String[][]{{"120", "continued"}});
+            builder.save(outputFile);
+        }
+
+        try (PDDocument doc = Loader.loadPDF(outputFile)) {
+            assertTrue(doc.getNumberOfPages() > 1, "120 rows should span several pages");
+            PDFTextStripper stripper = new PDFTextStripper();
+            for (int page = 1; page <= doc.getNumberOfPages(); page++) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                assertTrue(stripper.getText(doc).contains("Header"), "Page " + page + " should start with the header");
+            }
+            assertTrue(extractTextFromPdf(outputFile).contains("continued"));
+        }
+    }
+
+    @Test
+    void addTableGivesNarrowColumnsRoomForTheWideOne() throws IOException {
+        String longText = "A description longer than a quarter of the page";
+        File outputFile = tempDir.resolve("widths.pdf").toFile();
+
+        try (PdfBoxDocumentBuilder builder = new PdfBoxDocumentBuilder()) {
+            builder.addTable(new String[][]{
+                    {"1", "a", "b", longText},
+                    {"2", "c", "d", "short"}});
+            builder.save(outputFile);
+        }
+
+        assertTrue(extractTextFromPdf(outputFile).contains(longText),
+                "The wide column should fit its text once the narrow ones take only what they need");
+    }
+
+    @Test
+    void addTableTruncatesCellsWiderThanTheirColumn() throws IOException {
+        String[] row = new String[8];
+        java.util.Arrays.fill(row, "abcdefghij".repeat(30));
+        File outputFile = tempDir.resolve("truncated.pdf").toFile();
+
+        try (PdfBoxDocumentBuilder builder = new PdfBoxDocumentBuilder()) {
+            builder.addTable(new String[][]{row});
+            builder.save(outputFile);
+        }
+
+        String text = extractTextFromPdf(outputFile);
+        assertTrue(text.contains("..."), "Cells should end with an ellipsis: " + text);
+        assertFalse(text.contains(row[0]), "No cell should be drawn in full");
+    }
+
+    // ---------------------------------------------------------------
+    // Paths — many segments painted with one operator
+    // ---------------------------------------------------------------
+
+    @Test
+    void pathOfManySegmentsIsStrokedOnce() throws IOException {
+        float[] coordinates = new float[400];
+        for (int i = 0; i < coordinates.length; i += 2) {
+            coordinates[i] = 50 + i;
+            coordinates[i + 1] = 100 + (i % 4) * 10;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (PdfBoxDocumentBuilder builder = new PdfBoxDocumentBuilder()) {
+            builder.appendPolyline(coordinates, 0, 100);
+            builder.appendPolyline(coordinates, 200, 100);
+            builder.moveTo(10, 10);
+            builder.curveTo(20, 20, 30, 20, 40, 10);
+            builder.closePath();
+            builder.stroke();
+            builder.save(out);
+        }
+
+        try (PDDocument doc = Loader.loadPDF(out.toByteArray())) {
+            List<Object> tokens = new PDFStreamParser(doc.getPage(0)).parse();
+            assertEquals(1, countOperators(tokens, "S"));
+            assertEquals(3, countOperators(tokens, "m"));
+            assertEquals(198, countOperators(tokens, "l"));
+            assertEquals(1, countOperators(tokens, "c"));
+        }
+    }
+
+    private static long countOperators(List<Object> tokens, String name) {
+        return tokens.stream().filter(t -> t instanceof Operator op && op.getName().equals(name)).count();
+    }
+
+    // ---------------------------------------------------------------
+    // Scratch file — page content spilled to disk during generation
+    // ---------------------------------------------------------------
+
+    @Test
+    void scratchFileSettingKeepsStreamsOnDiskUntilTheBuilderCloses() throws IOException {
+        Path scratch = Files.createDirectories(tempDir.resolve("scratch"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (PdfBoxDocumentBuilder builder = new PdfBoxDocumentBuilder(FontRegistry.classpath(),
+                MemoryUsageSetting.setupTempFileOnly().setTempDir(scratch.toFile()))) {
+            for (int i = 0; i < 200; i++) {
+                builder.addParagraph("Page " + i);
+                builder.newPage();
+            }
+            try (var files = Files.list(scratch)) {
+                assertTrue(files.findAny().isPresent(), "Finished pages should be in a scratch file");
+            }
+            builder.save(out);
+        }
+
+        try (var files = Files.list(scratch)) {
+            assertFalse(files.findAny().isPresent(), "The scratch file should be deleted with the document");
+        }
+        try (PDDocument doc = Loader.loadPDF(out.toByteArray())) {
+            assertEquals(201, doc.getNumberOfPages());
+            assertTrue(new PDFTextStripper().getText(doc).contains("Page 199"));
+        }
+    }
+
     private byte[] loadClasspathResource(String path) throws IOException {
         try (java.io.InputStream is = getClass().getResourceAsStream(path)) {
             if (is == null) {
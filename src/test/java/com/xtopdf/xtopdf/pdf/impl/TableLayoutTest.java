@@ -0,0 +1,55 @@
+package com.xtopdf.xtopdf.pdf.impl;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for TableLayout row sampling and column fitting.
+ */
+class TableLayoutTest {
+
+    @Test
+    void smallTablesAreMeasuredInFull() {
+        assertArrayEquals(new int[]{0, 1, 2, 3}, TableLayout.sampleRows(4, 1, 100));
+    }
+
+    @Test
+    void largeTablesAreSampledEvenlyAfterTheHeader() {
+        int[] rows = TableLayout.sampleRows(100_000, 2, 10);
+
+        assertEquals(10, rows.length);
+        assertEquals(0, rows[0]);
+        assertEquals(1, rows[1]);
+        assertEquals(2, rows[2]);
+        for (int i = 1; i < rows.length; i++) {
+            assertTrue(rows[i] > rows[i - 1], "Samples should be in ascending order");
+        }
+        assertTrue(rows[9] > 80_000, "Samples should reach the end of the table: " + rows[9]);
+    }
+
+    @Test
+    void narrowColumnsKeepTheirWidthAndWideOnesShareTheRest() {
+        float[] widths = TableLayout.fitColumnWidths(new float[]{30, 40, 900, 600}, 500);
+
+        assertEquals(30, widths[0], 0.01);
+        assertEquals(40, widths[1], 0.01);
+        assertEquals(215, widths[2], 0.01);
+        assertEquals(215, widths[3], 0.01);
+    }
+
+    @Test
+    void spareWidthIsSpreadWhenEverythingFits() {
+        float[] widths = TableLayout.fitColumnWidths(new float[]{50, 100}, 300);
+
+        assertEquals(125, widths[0], 0.01);
+        assertEquals(175, widths[1], 0.01);
+    }
+
+    @Test
+    void allWideColumnsGetEqualWidths() {
+        float[] widths = TableLayout.fitColumnWidths(new float[]{400, 500, 600}, 300);
+
+        assertArrayEquals(new float[]{100, 100, 100}, widths, 0.01f);
+    }
+}
@@ -2,8 +2,15 @@ package com.xtopdf.xtopdf.services;
 
 import com.xtopdf.xtopdf.dto.ConversionJob;
 import com.xtopdf.xtopdf.dto.ConversionJob.JobStatus;
+import com.xtopdf.xtopdf.services.jobs.FileJobStore;
 import net.jqwik.api.*;
+import net.jqwik.api.lifecycle.AfterProperty;
 import net.jqwik.api.lifecycle.BeforeProperty;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -14,11 +21,21 @@ import static org.assertj.core.api.Assertions.assertThat;
  */
 class AsyncConversionPropertyTest {
 
+    private Path jobDirectory;
+    private FileJobStore jobStore;
     private JobTrackingService jobTrackingService;
 
     @BeforeProperty
-    void setup() {
-        jobTrackingService = new JobTrackingService();
+    void setup() throws IOException {
+        jobDirectory = Files.createTempDirectory("jobs-test");
+        jobStore = new FileJobStore(jobDirectory.toString());
+        jobTrackingService = new JobTrackingService(jobStore, 120);
+    }
+
+    @AfterProperty
+    void tearDown() throws IOException {
+        jobStore.close();
+        FileSystemUtils.deleteRecursively(jobDirectory);
     }
 
     /**
@@ -71,12 +88,13 @@ class AsyncConversionPropertyTest {
     @Property(tries = 25)
     @Tag("Feature: advanced-improvements, Property 30: Job Completion Status")
     void completedJobHasCorrectStatus(
-            @ForAll("fileNames") String inputFileName) {
+            @ForAll("fileNames") String inputFileName) throws IOException {
         var job = jobTrackingService.submit(inputFileName, inputFileName + ".pdf", null);
         byte[] pdfBytes = "fake-pdf-content".getBytes();
+        Path pdfFile = Files.write(jobDirectory.resolve("converted.pdf"), pdfBytes);
 
         jobTrackingService.markProcessing(job.id());
-        jobTrackingService.markCompleted(job.id(), pdfBytes);
+        jobTrackingService.markCompleted(job.id(), pdfFile);
 
         var status = jobTrackingService.getStatus(job.id());
         assertThat(status).isPresent();
@@ -85,7 +103,8 @@ class AsyncConversionPropertyTest {
 
         var result = jobTrackingService.getResult(job.id());
         assertThat(result).isPresent();
-        assertThat(result.get()).isEqualTo(pdfBytes);
+        assertThat(result.get().getContentAsByteArray()).isEqualTo(pdfBytes);
+        assertThat(pdfFile).doesNotExist();
     }
 
     /**
@@ -1,16 +1,22 @@
 package com.xtopdf.xtopdf.services;
 
 import com.xtopdf.xtopdf.config.BatchConfig;
+import com.xtopdf.xtopdf.config.MetricsConfiguration.ConversionMetrics;
 import com.xtopdf.xtopdf.dto.BatchConversionResult;
 import com.xtopdf.xtopdf.dto.ConversionParameters;
 import com.xtopdf.xtopdf.exceptions.FileConversionException;
+import com.xtopdf.xtopdf.services.scheduling.ConversionScheduler;
+import com.xtopdf.xtopdf.services.scheduling.HeapCostModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import net.jqwik.api.*;
+import net.jqwik.api.lifecycle.AfterProperty;
 import net.jqwik.api.lifecycle.BeforeProperty;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -28,6 +34,7 @@ class BatchConversionPropertyTest {
     private BatchConversionService batchConversionService;
     private FileConversionService fileConversionService;
     private BatchConfig batchConfig;
+    private ConversionScheduler conversionScheduler;
 
     @BeforeProperty
     void setup() {
@@ -36,8 +43,16 @@ class BatchConversionPropertyTest {
         ReflectionTestUtils.setField(batchConfig, "maxBatchSize", 10);
         ReflectionTestUtils.setField(batchConfig, "parallelWorkers", 4);
         ReflectionTestUtils.setField(batchConfig, "timeoutPerFileSeconds", 300);
+        ConversionMetrics metrics = new ConversionMetrics(new SimpleMeterRegistry());
+        conversionScheduler = new ConversionScheduler(
+                metrics, new HeapCostModel(metrics, 4, 16, 0.2, List.of()), 8, 100, List.of(), 0);
         batchConversionService = new BatchConversionService(
-                fileConversionService, batchConfig, "/safe/output/directory");
+                fileConversionService, batchConfig, conversionScheduler, "/safe/output/directory");
+    }
+
+    @AfterProperty
+    void tearDown() {
+        conversionScheduler.shutdown();
     }
 
     /**
@@ -152,6 +167,37 @@ class BatchConversionPropertyTest {
         }
     }
 
+    /**
+     * Property 24: No more than parallelWorkers files of one batch convert at the same time,
+     * even when the scheduler has more CPU permits free.
+     */
+    @Property(tries = 10)
+    @Tag("Feature: advanced-improvements, Property 24: Parallel Worker Limit")
+    void parallelWorkersLimitConcurrentConversions(
+            @ForAll("batchSizes") int batchSize) throws FileConversionException {
+        ReflectionTestUtils.setField(batchConfig, "parallelWorkers", 2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        doAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(5);
+            running.decrementAndGet();
+            return null;
+        }).when(fileConversionService).convertFile(any(ConversionParameters.class));
+
+        List<MultipartFile> files = IntStream.range(0, batchSize)
+                .mapToObj(i -> new MockMultipartFile(
+                        "file" + i, "test" + i + ".docx",
+                        "application/octet-stream", "content".getBytes()))
+                .map(f -> (MultipartFile) f)
+                .toList();
+
+        BatchConversionResult result = batchConversionService.convertBatch(files);
+
+        assertThat(result.successCount()).isEqualTo(batchSize);
+        assertThat(maxRunning.get()).isLessThanOrEqualTo(2);
+    }
+
     @Provide
     Arbitrary<Integer> batchSizes() {
         return Arbitraries.integers().between(1, 10);
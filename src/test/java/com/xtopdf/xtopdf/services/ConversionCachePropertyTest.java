@@ -19,7 +19,7 @@ class ConversionCachePropertyTest {
     void setup() {
         cacheService = new ConversionCacheService();
         ReflectionTestUtils.setField(cacheService, "cacheEnabled", true);
-        ReflectionTestUtils.setField(cacheService, "maxSize", 100);
+        ReflectionTestUtils.setField(cacheService, "maxMemoryMb", 64);
         ReflectionTestUtils.setField(cacheService, "ttlMinutes", 60);
         cacheService.initCache();
     }
@@ -92,7 +92,7 @@ class ConversionCachePropertyTest {
         // Create a disabled cache service
         ConversionCacheService disabledCache = new ConversionCacheService();
         ReflectionTestUtils.setField(disabledCache, "cacheEnabled", false);
-        ReflectionTestUtils.setField(disabledCache, "maxSize", 100);
+        ReflectionTestUtils.setField(disabledCache, "maxMemoryMb", 64);
         ReflectionTestUtils.setField(disabledCache, "ttlMinutes", 60);
         disabledCache.initCache();
 
@@ -0,0 +1,130 @@
+package com.xtopdf.xtopdf.services;
+
+import com.xtopdf.xtopdf.pdf.impl.PdfBoxBackend;
+import com.xtopdf.xtopdf.services.conversion.cad.DxfToPdfService;
+import com.xtopdf.xtopdf.services.dxf.DxfCoordinateCalculator;
+import com.xtopdf.xtopdf.services.dxf.DxfDrawing;
+import com.xtopdf.xtopdf.services.dxf.DxfEntityParser;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Stress tests for concurrent DXF conversions sharing one parser and one service, as the
+ * Spring singletons are shared in production.
+ *
+ * Every drawing defines a block with a unique name and marker text and inserts it, so a
+ * block table leaking between parses shows up as a missing or foreign marker.
+ */
+class DxfConcurrencyTest {
+
+    private static final int DRAWINGS = 16;
+    private static final int ROUNDS = 4;
+
+    @TempDir
+    Path tempDir;
+
+    private final DxfEntityParser parser = new DxfEntityParser();
+
+    @Test
+    void concurrentParsesKeepTheirOwnBlocks() throws Exception {
+        List<Callable<DxfDrawing>> parses = new ArrayList<>();
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int i = 0; i < DRAWINGS; i++) {
+                MockMultipartFile file = drawing(i);
+                parses.add(() -> parser.parse(file));
+            }
+        }
+
+        List<Future<DxfDrawing>> results = runAll(parses);
+
+        for (int n = 0; n < results.size(); n++) {
+            int i = n % DRAWINGS;
+            DxfDrawing drawing = results.get(n).get();
+            assertThat(drawing.blocks().keySet()).as("blocks of drawing %d", i).isEqualTo(Set.of(blockName(i)));
+            assertThat(drawing.blocks().get(blockName(i)).getEntities()).hasSize(2);
+            assertThat(drawing.entities()).hasSize(2);
+        }
+    }
+
+    @Test
+    void concurrentConversionsRenderTheirOwnBlocks() throws Exception {
+        DxfToPdfService service = new DxfToPdfService(new PdfBoxBackend(), parser, new DxfCoordinateCalculator());
+        List<Callable<File>> conversions = new ArrayList<>();
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int i = 0; i < DRAWINGS; i++) {
+                MockMultipartFile file = drawing(i);
+                File pdf = tempDir.resolve("drawing-" + round + "-" + i + ".pdf").toFile();
+                conversions.add(() -> {
+                    service.convertDxfToPdf(file, pdf);
+                    return pdf;
+                });
+            }
+        }
+
+        List<Future<File>> results = runAll(conversions);
+
+        for (int n = 0; n < results.size(); n++) {
+            int i = n % DRAWINGS;
+            String text;
+            try (PDDocument doc = Loader.loadPDF(results.get(n).get())) {
+                text = new PDFTextStripper().getText(doc);
+            }
+            assertThat(text).as("PDF of drawing %d", i).contains(marker(i));
+            for (int other = 0; other < DRAWINGS; other++) {
+                if (other != i) {
+                    assertThat(text).as("PDF of drawing %d", i).doesNotContain(marker(other));
+                }
+            }
+        }
+    }
+
+    private static <T> List<Future<T>> runAll(List<Callable<T>> tasks) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(DRAWINGS);
+        try {
+            return executor.invokeAll(tasks);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * A drawing with one block (a line and the drawing's marker text) and an INSERT of it.
+     */
+    private static MockMultipartFile drawing(int i) {
+        String content = "0\nSECTION\n2\nENTITIES\n"
+                + "0\nBLOCK\n2\n" + blockName(i) + "\n10\n0.0\n20\n0.0\n"
+                + "0\nLINE\n8\n0\n10\n0.0\n20\n0.0\n11\n" + (10 + i) + ".0\n21\n10.0\n"
+                + "0\nTEXT\n8\n0\n10\n0.0\n20\n20.0\n40\n10.0\n1\n" + marker(i) + "\n"
+                + "0\nENDBLK\n"
+                + "0\nINSERT\n2\n" + blockName(i) + "\n10\n100.0\n20\n100.0\n41\n1.0\n42\n1.0\n50\n0.0\n"
+                + "0\nLINE\n8\n0\n10\n0.0\n20\n0.0\n11\n400.0\n21\n400.0\n"
+                + "0\nENDSEC\n0\nEOF\n";
+        return new MockMultipartFile("file", "drawing" + i + ".dxf", "application/octet-stream",
+                content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String blockName(int i) {
+        return "Block" + i;
+    }
+
+    private static String marker(int i) {
+        return String.format("Marker%02dEnd", i);
+    }
+}
@@ -1,6 +1,8 @@
 package com.xtopdf.xtopdf.services;
 
 import com.xtopdf.xtopdf.services.dxf.DxfCoordinateCalculator;
+import com.xtopdf.xtopdf.services.dxf.DxfExtents;
+import com.xtopdf.xtopdf.services.dxf.DxfViewport;
 import com.xtopdf.xtopdf.entities.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -125,4 +127,67 @@ class DxfCoordinateCalculatorTest {
         assertTrue(scaledWidth <= pageWidth - 100, "Scaled width should fit on page with margins");
         assertTrue(scaledHeight <= pageHeight - 100, "Scaled height should fit on page with margins");
     }
+
+    @Test
+    void testCalculateScale_NegativeCoordinates() {
+        List<DxfEntity> entities = new ArrayList<>();
+        LineEntity line = new LineEntity();
+        line.setX1(-200);
+        line.setY1(-100);
+        line.setX2(-100);
+        line.setY2(-50);
+        entities.add(line);
+
+        // 100 x 50 units: the 495pt wide area is the limit
+        assertEquals(4.95, calculator.calculateScale(entities, 595, 842), 1e-9);
+    }
+
+    @Test
+    void testCalculateScale_MeasuresEveryEntityType() {
+        List<DxfEntity> entities = new ArrayList<>();
+        MTextEntity mtext = new MTextEntity();
+        mtext.setX(0);
+        mtext.setY(0);
+        mtext.setWidth(990);
+        mtext.setHeight(10);
+        entities.add(mtext);
+
+        assertEquals(0.5, calculator.calculateScale(entities, 595, 842), 1e-9);
+    }
+
+    @Test
+    void testLayout_PlacesDrawingAtTheMargin() {
+        List<DxfViewport> pages = calculator.layout(new DxfExtents(1000, 2000, 1100, 2050), 595, 842, 1);
+
+        assertEquals(1, pages.size());
+        DxfViewport page = pages.get(0);
+        assertEquals(50, page.offsetX() + 1000 * page.scale(), 1e-9);
+        assertEquals(50, page.offsetY() + 2000 * page.scale(), 1e-9);
+    }
+
+    @Test
+    void testLayout_WithoutExtentsUsesUnitScale() {
+        List<DxfViewport> pages = calculator.layout(null, 595, 842, 3);
+
+        assertEquals(List.of(new DxfViewport(1.0, 50, 50, 595, 842)), pages);
+    }
+
+    @Test
+    void testLayout_TilesAtMultipleOfThePageScale() {
+        DxfExtents extents = new DxfExtents(0, 0, 1000, 1000);
+        double singlePageScale = calculator.calculateScale(extents, 595, 842);
+
+        List<DxfViewport> pages = calculator.layout(extents, 595, 842, 2);
+
+        // 990pt square at twice the scale: two 495pt columns and two 742pt rows
+        assertEquals(4, pages.size());
+        for (DxfViewport page : pages) {
+            assertEquals(2 * singlePageScale, page.scale(), 1e-9);
+        }
+        // Top left first; the last page has the drawing's origin at its margin
+        assertEquals(50, pages.get(0).offsetX(), 1e-9);
+        assertEquals(50 - 742, pages.get(0).offsetY(), 1e-9);
+        assertEquals(50 - 495, pages.get(3).offsetX(), 1e-9);
+        assertEquals(50, pages.get(2).offsetY(), 1e-9);
+    }
 }
@@ -1,14 +1,21 @@
 package com.xtopdf.xtopdf.services;
 
+import com.xtopdf.xtopdf.services.dxf.DxfCoordinateCalculator;
+import com.xtopdf.xtopdf.services.dxf.DxfDrawing;
 import com.xtopdf.xtopdf.services.dxf.DxfEntityParser;
+import com.xtopdf.xtopdf.services.dxf.DxfExtents;
 import com.xtopdf.xtopdf.entities.*;
+import com.xtopdf.xtopdf.utils.BinaryDxfWriter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -125,8 +132,9 @@ class DxfEntityParserTest {
         var content = "0\nSECTION\n2\nENTITIES\n0\nLINE\n8\n0\n10\n0.0\n20\n0.0\n11\n100.0\n21\n100.0\n0\nENDSEC\n0\nEOF\n";
         var dxfFile = new MockMultipartFile("file", "test.dxf", MediaType.APPLICATION_OCTET_STREAM_VALUE, content.getBytes());
 
-        parser.parseDxfEntities(dxfFile);
-        assertNotNull(parser.getBlockRegistry(), "Block registry should not be null");
+        DxfDrawing drawing = parser.parse(dxfFile);
+        assertNotNull(drawing.blocks(), "Block registry should not be null");
+        assertTrue(drawing.blocks().isEmpty(), "Block registry should be empty");
     }
 
     @Test
@@ -156,6 +164,21 @@ class DxfEntityParserTest {
         assertTrue(polyline.getVertexCount() >= 3, "Should have vertices");
     }
 
+    @Test
+    void testParseDxfEntities_LwPolylineVertices_CrLfLineEndings() throws IOException {
+        var content = "  0\r\nSECTION\r\n  2\r\nENTITIES\r\n  0\r\nLWPOLYLINE\r\n  8\r\n0\r\n 90\r\n3\r\n"
+                + " 10\r\n1.25\r\n 20\r\n-2.5\r\n 10\r\n1e2\r\n 20\r\n0.000001\r\n 10\r\n-7\r\n 20\r\n8.125\r\n"
+                + "  0\r\nENDSEC\r\n  0\r\nEOF\r\n";
+        var dxfFile = new MockMultipartFile("file", "lwpolyline.dxf", MediaType.APPLICATION_OCTET_STREAM_VALUE, content.getBytes());
+
+        List<DxfEntity> entities = parser.parseDxfEntities(dxfFile);
+        assertEquals(1, entities.size(), "Should parse one polyline entity");
+        
+        PolylineEntity polyline = (PolylineEntity) entities.get(0);
+        assertArrayEquals(new double[] {1.25, -2.5, 100.0, 0.000001, -7.0, 8.125}, polyline.getVertices().toArray(),
+                "Vertices should be stored as x, y pairs");
+    }
+
     @Test
     void testParseDxfEntities_EllipseEntity() throws IOException {
         var content = "0\nSECTION\n2\nENTITIES\n0\nELLIPSE\n8\n0\n10\n50.0\n20\n50.0\n11\n30.0\n21\n0.0\n40\n0.5\n0\nENDSEC\n0\nEOF\n";
@@ -223,10 +246,107 @@ class DxfEntityParserTest {
         var content = "0\nSECTION\n2\nENTITIES\n0\nBLOCK\n2\nTestBlock\n10\n0.0\n20\n0.0\n0\nLINE\n10\n0.0\n20\n0.0\n11\n10.0\n21\n10.0\n0\nENDBLK\n0\nINSERT\n2\nTestBlock\n10\n50.0\n20\n50.0\n41\n1.0\n42\n1.0\n50\n0.0\n0\nENDSEC\n0\nEOF\n";
         var dxfFile = new MockMultipartFile("file", "block.dxf", MediaType.APPLICATION_OCTET_STREAM_VALUE, content.getBytes());
 
-        List<DxfEntity> entities = parser.parseDxfEntities(dxfFile);
-        assertTrue(entities.size() > 0, "Should parse insert entity");
+        DxfDrawing drawing = parser.parse(dxfFile);
+        assertTrue(drawing.entities().size() > 0, "Should parse insert entity");
         
         // Check that block was registered
-        assertNotNull(parser.getBlockRegistry(), "Block registry should not be null");
+        assertNotNull(drawing.blocks(), "Block registry should not be null");
+        assertEquals(1, drawing.blocks().get("TestBlock").getEntities().size(), "Block should hold its line");
+    }
+
+    private static final String HEADER_WITH_EXTENTS = "0\nSECTION\n2\nHEADER\n9\n$ACADVER\n1\nAC1015\n"
+            + "9\n$EXTMIN\n10\n-5.0\n20\n-10.0\n30\n0.0\n9\n$EXTMAX\n10\n200.0\n20\n100.0\n30\n0.0\n0\nENDSEC\n";
+    private static final String BLOCKS_AND_ENTITIES = "0\nSECTION\n2\nBLOCKS\n"
+            + "0\nBLOCK\n2\nTestBlock\n10\n1.0\n20\n2.0\n0\nCIRCLE\n10\n0.0\n20\n0.0\n40\n3.0\n0\nENDBLK\n0\nENDSEC\n"
+            + "0\nSECTION\n2\nENTITIES\n0\nLINE\n8\n0\n10\n10.0\n20\n20.0\n11\n100.0\n21\n100.0\n"
+            + "0\nLWPOLYLINE\n8\n0\n90\n2\n70\n1\n10\n1.25\n20\n-2.5\n10\n7.0\n20\n8.125\n"
+            + "0\nTEXT\n10\n5.0\n20\n6.0\n40\n2.5\n1\nLabel\n"
+            + "0\nINSERT\n2\nTestBlock\n10\n50.0\n20\n50.0\n41\n2.0\n42\n2.0\n0\nENDSEC\n0\nEOF\n";
+
+    @Test
+    void testParse_BinaryDxfMatchesAscii() throws IOException {
+        String ascii = HEADER_WITH_EXTENTS + BLOCKS_AND_ENTITIES;
+        DxfDrawing expected = parser.parse(dxf("ascii.dxf", ascii.getBytes()));
+
+        for (boolean oneByteGroupCodes : new boolean[] {true, false}) {
+            DxfDrawing drawing = parser.parse(dxf("binary.dxf", BinaryDxfWriter.fromAscii(ascii, oneByteGroupCodes)));
+
+            assertEquals(4, drawing.entities().size(), "Should parse the entities of a binary file");
+            assertEquals(expected.entities(), drawing.entities());
+            assertEquals(expected.blocks(), drawing.blocks());
+            assertEquals(expected.headerExtents(), drawing.headerExtents());
+        }
+    }
+
+    @Test
+    void testParse_HeaderExtents() throws IOException {
+        DxfDrawing drawing = parser.parse(dxf("extents.dxf", (HEADER_WITH_EXTENTS + BLOCKS_AND_ENTITIES).getBytes()));
+        assertEquals(new DxfExtents(-5, -10, 200, 100), drawing.headerExtents());
+
+        DxfDrawing withoutHeader = parser.parse(dxf("no-header.dxf", BLOCKS_AND_ENTITIES.getBytes()));
+        assertNull(withoutHeader.headerExtents(), "No extents without $EXTMIN/$EXTMAX");
+
+        var unset = "0\nSECTION\n2\nHEADER\n9\n$EXTMIN\n10\n1e+20\n20\n1e+20\n9\n$EXTMAX\n10\n-1e+20\n20\n-1e+20\n0\nENDSEC\n";
+        assertNull(parser.parse(dxf("unset.dxf", unset.getBytes())).headerExtents(),
+                "AutoCAD's placeholder extents for an empty drawing should be ignored");
+    }
+
+    @Test
+    void testParse_WithHandler_StreamsTopLevelEntities() throws IOException {
+        var dxfFile = dxf("stream.dxf", BLOCKS_AND_ENTITIES.getBytes());
+        List<DxfEntity> streamed = new ArrayList<>();
+
+        DxfDrawing definitions = parser.parse(dxfFile, streamed::add);
+
+        assertEquals(parser.parse(dxfFile).entities(), streamed);
+        assertTrue(definitions.entities().isEmpty(), "Streamed entities should not be kept");
+        assertEquals(1, definitions.blocks().get("TestBlock").getEntities().size());
+    }
+
+    @Test
+    void testParseDefinitions_StopsAtEntitiesWhenHeaderHasExtents() throws IOException {
+        List<DxfEntity> measured = new ArrayList<>();
+
+        DxfDrawing definitions = parser.parseDefinitions(
+                dxf("extents.dxf", (HEADER_WITH_EXTENTS + BLOCKS_AND_ENTITIES).getBytes()), measured::add);
+
+        assertTrue(measured.isEmpty(), "Entities should not be read when the header gives the extents");
+        assertNotNull(definitions.headerExtents());
+        assertTrue(definitions.blocks().containsKey("TestBlock"), "Blocks come before the ENTITIES section");
+    }
+
+    @Test
+    void testParseDefinitions_ReadsEntitiesWithoutHeaderExtents() throws IOException {
+        List<DxfEntity> measured = new ArrayList<>();
+
+        DxfDrawing definitions = parser.parseDefinitions(dxf("no-header.dxf", BLOCKS_AND_ENTITIES.getBytes()), measured::add);
+
+        assertEquals(4, measured.size(), "Entities should be passed on for measuring");
+        assertNull(definitions.headerExtents());
+        assertTrue(definitions.blocks().containsKey("TestBlock"));
+    }
+
+    @Test
+    void testParseDefinitions_InsertsCanBeMeasuredAsTheyArrive() throws IOException {
+        Map<String, BlockEntity> blocks = new HashMap<>();
+        DxfCoordinateCalculator.Bounds insertBounds = new DxfCoordinateCalculator.Bounds(blocks);
+
+        parser.parseDefinitions(dxf("no-header.dxf", BLOCKS_AND_ENTITIES.getBytes()), blocks, entity -> {
+            if (entity instanceof InsertEntity) {
+                insertBounds.include(entity);
+            }
+        });
+
+        // TestBlock's circle of radius 3, based at (1, 2), placed at (50, 50) at twice the size
+        DxfExtents extents = insertBounds.toExtents();
+        assertNotNull(extents, "The block should be known when its INSERT arrives");
+        assertEquals(42, extents.minX(), 1e-9);
+        assertEquals(40, extents.minY(), 1e-9);
+        assertEquals(54, extents.maxX(), 1e-9);
+        assertEquals(52, extents.maxY(), 1e-9);
+    }
+
+    private static MockMultipartFile dxf(String name, byte[] content) {
+        return new MockMultipartFile("file", name, MediaType.APPLICATION_OCTET_STREAM_VALUE, content);
     }
 }
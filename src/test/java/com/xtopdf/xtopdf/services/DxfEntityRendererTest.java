@@ -6,9 +6,11 @@ import com.xtopdf.xtopdf.entities.*;
 import com.xtopdf.xtopdf.pdf.PdfDocumentBuilder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -207,6 +209,33 @@ class DxfEntityRendererTest {
         );
     }
 
+    @Test
+    void testRenderEntity_InsertEntity_BasePointIsScaled() throws IOException {
+        BlockEntity block = new BlockEntity("Offset");
+        block.setBaseX(10);
+        block.setBaseY(10);
+        LineEntity lineInBlock = new LineEntity();
+        lineInBlock.setX1(10);
+        lineInBlock.setY1(10);
+        lineInBlock.setX2(20);
+        lineInBlock.setY2(10);
+        block.addEntity(lineInBlock);
+        blockRegistry.put("Offset", block);
+
+        InsertEntity insert = new InsertEntity("Offset", 100, 100);
+        insert.setScaleX(2);
+        insert.setScaleY(2);
+
+        renderer.renderEntity(mockPdfRenderer, insert, 1.0, 0, 0, 1.0, 1.0, 0.0);
+        mockPdfRenderer.flush();
+
+        // The base point lands on the insertion point at any scale
+        ArgumentCaptor<float[]> coordinates = ArgumentCaptor.forClass(float[].class);
+        verify(mockBuilder).appendPolyline(coordinates.capture(), eq(0), eq(2));
+        assertArrayEquals(new float[]{100f, 100f, 120f, 100f}, Arrays.copyOf(coordinates.getValue(), 4));
+        verify(mockBuilder).stroke();
+    }
+
     @Test
     void testRenderEntity_InsertEntity_BlockNotFound() throws IOException {
         // Create insert entity referencing non-existent block
@@ -1,8 +1,13 @@
 package com.xtopdf.xtopdf.services;
 
+import com.xtopdf.xtopdf.config.MetricsConfiguration.ConversionMetrics;
 import com.xtopdf.xtopdf.services.dxf.DxfEntityParser;
 import com.xtopdf.xtopdf.services.dxf.DxfCoordinateCalculator;
 import com.xtopdf.xtopdf.services.conversion.cad.DxfToPdfService;
+import com.xtopdf.xtopdf.utils.BinaryDxfWriter;
+import org.apache.pdfbox.Loader;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.MediaType;
@@ -10,7 +15,10 @@ import org.springframework.mock.web.MockMultipartFile;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -621,4 +629,125 @@ class DxfToPdfServiceTest {
         assertTrue(pdfFile.exists());
         pdfFile.delete();
     }
+
+    private static final String DRAWING_WITH_BLOCKS = "0\nSECTION\n2\nBLOCKS\n" +
+                      "0\nBLOCK\n2\nTestBlock\n10\n0.0\n20\n0.0\n" +
+                      "0\nLINE\n8\n0\n10\n0.0\n20\n0.0\n11\n10.0\n21\n10.0\n" +
+                      "0\nCIRCLE\n8\n0\n10\n5.0\n20\n5.0\n40\n2.0\n" +
+                      "0\nENDBLK\n0\nENDSEC\n" +
+                      "0\nSECTION\n2\nENTITIES\n" +
+                      "0\nLINE\n8\n0\n10\n0.0\n20\n0.0\n11\n300.0\n21\n200.0\n" +
+                      "0\nLWPOLYLINE\n8\n0\n90\n3\n70\n1\n10\n10.0\n20\n10.0\n10\n50.0\n20\n10.0\n10\n50.0\n20\n40.0\n" +
+                      "0\nTEXT\n8\n0\n10\n20.0\n20\n150.0\n40\n8.0\n1\nStreamed\n" +
+                      "0\nINSERT\n2\nTestBlock\n10\n100.0\n20\n100.0\n41\n2.0\n42\n2.0\n" +
+                      "0\nENDSEC\n0\nEOF\n";
+
+    @Test
+    void testConvertDxfToPdf_StreamingMatchesInMemory() throws Exception {
+        var dxfFile = new MockMultipartFile("file", "stream.dxf", MediaType.APPLICATION_OCTET_STREAM_VALUE, DRAWING_WITH_BLOCKS.getBytes());
+        var streamingService = new DxfToPdfService(
+            new com.xtopdf.xtopdf.pdf.impl.PdfBoxBackend(),
+            new DxfEntityParser(),
+            new DxfCoordinateCalculator(),
+            null,
+            0,
+            1,
+            0.1
+        );
+
+        byte[] inMemory = pageContent(dxfToPdfService, dxfFile);
+        byte[] streamed = pageContent(streamingService, dxfFile);
+
+        assertTrue(inMemory.length > 0);
+        assertArrayEquals(inMemory, streamed, "Both passes should draw what the in-memory conversion draws");
+    }
+
+    @Test
+    void testConvertDxfToPdf_BinaryDxf() throws Exception {
+        var asciiFile = new MockMultipartFile("file", "ascii.dxf", MediaType.APPLICATION_OCTET_STREAM_VALUE, DRAWING_WITH_BLOCKS.getBytes());
+        var binaryFile = new MockMultipartFile("file", "binary.dxf", MediaType.APPLICATION_OCTET_STREAM_VALUE,
+                BinaryDxfWriter.fromAscii(DRAWING_WITH_BLOCKS, false));
+
+        assertArrayEquals(pageContent(dxfToPdfService, asciiFile), pageContent(dxfToPdfService, binaryFile),
+                "A binary DXF file should render like its ASCII form");
+    }
+
+    @Test
+    void testConvertDxfToPdf_TilesDrawingAcrossPages() throws Exception {
+        // Two small circles at opposite corners of a 1000 unit square
+        var content = "0\nSECTION\n2\nENTITIES\n" +
+                      "0\nCIRCLE\n8\n0\n10\n0.0\n20\n0.0\n40\n1.0\n" +
+                      "0\nCIRCLE\n8\n0\n10\n1000.0\n20\n1000.0\n40\n1.0\n" +
+                      "0\nENDSEC\n0\nEOF\n";
+        var dxfFile = new MockMultipartFile("file", "tiled.dxf", MediaType.APPLICATION_OCTET_STREAM_VALUE, content.getBytes());
+        var registry = new SimpleMeterRegistry();
+        var tiledService = new DxfToPdfService(
+            new com.xtopdf.xtopdf.pdf.impl.PdfBoxBackend(),
+            new DxfEntityParser(),
+            new DxfCoordinateCalculator(),
+            new ConversionMetrics(registry),
+            16,
+            2,
+            0.1
+        );
+
+        File output = File.createTempFile("dxf-tiled-", ".pdf");
+        try {
+            tiledService.convertDxfToPdf(dxfFile, output);
+            try (PDDocument pdf = Loader.loadPDF(output)) {
+                assertEquals(4, pdf.getNumberOfPages(), "Twice the scale should need two pages each way");
+            }
+        } finally {
+            output.delete();
+        }
+        // Each circle is on one page and left off the other three
+        assertEquals(6, culled(registry, "off_page"));
+        assertEquals(0, culled(registry, "sub_pixel"));
+    }
+
+    @Test
+    void testConvertDxfToPdf_SkipsGeometryBelowMinimumSize() throws Exception {
+        // A 10000 unit line sets the scale below 0.05pt per unit; the circle is then far below 0.1pt
+        var content = "0\nSECTION\n2\nENTITIES\n" +
+                      "0\nLINE\n8\n0\n10\n0.0\n20\n0.0\n11\n10000.0\n21\n10000.0\n" +
+                      "0\nCIRCLE\n8\n0\n10\n5000.0\n20\n5000.0\n40\n0.01\n" +
+                      "0\nPOINT\n8\n0\n10\n5000.0\n20\n5000.0\n" +
+                      "0\nENDSEC\n0\nEOF\n";
+        var dxfFile = new MockMultipartFile("file", "tiny.dxf", MediaType.APPLICATION_OCTET_STREAM_VALUE, content.getBytes());
+
+        for (long streamingThresholdMb : new long[]{16, 0}) {
+            var registry = new SimpleMeterRegistry();
+            var service = new DxfToPdfService(
+                new com.xtopdf.xtopdf.pdf.impl.PdfBoxBackend(),
+                new DxfEntityParser(),
+                new DxfCoordinateCalculator(),
+                new ConversionMetrics(registry),
+                streamingThresholdMb,
+                1,
+                0.1
+            );
+
+            pageContent(service, dxfFile);
+
+            // The point cross is drawn at a fixed size, so it stays
+            assertEquals(1, culled(registry, "sub_pixel"));
+            assertEquals(0, culled(registry, "off_page"));
+        }
+    }
+
+    private static double culled(SimpleMeterRegistry registry, String reason) {
+        return registry.get("conversion.dxf.entities.culled.total").tag("reason", reason).counter().count();
+    }
+
+    private static byte[] pageContent(DxfToPdfService service, MockMultipartFile dxfFile) throws Exception {
+        File output = File.createTempFile("dxf-content-", ".pdf");
+        try {
+            service.convertDxfToPdf(dxfFile, output);
+            try (PDDocument pdf = Loader.loadPDF(output); InputStream contents = pdf.getPage(0).getContents()) {
+                return contents.readAllBytes();
+            }
+        } finally {
+            output.delete();
+        }
+    }
 }
@@ -4,6 +4,8 @@ import com.xtopdf.xtopdf.converters.ConverterRegistry;
 import com.xtopdf.xtopdf.converters.FileConverter;
 import com.xtopdf.xtopdf.dto.ConversionParameters;
 import com.xtopdf.xtopdf.exceptions.FileConversionException;
+import com.xtopdf.xtopdf.services.scheduling.ConversionScheduler;
+import com.xtopdf.xtopdf.services.scheduling.HeapCostModel;
 import com.xtopdf.xtopdf.validation.FileContentValidator;
 import net.jqwik.api.*;
 import org.mockito.Mockito;
@@ -43,13 +45,13 @@ class ExtractExtensionPropertyTest {
         var converterRegistry = mock(ConverterRegistry.class);
         var contentValidator = mock(FileContentValidator.class);
         var virusScanService = mock(com.xtopdf.xtopdf.services.VirusScanService.class);
-        var pdfMergeService = mock(com.xtopdf.xtopdf.services.operations.PdfMergeService.class);
-        var pageNumberService = mock(com.xtopdf.xtopdf.services.operations.PageNumberService.class);
-        var watermarkService = mock(com.xtopdf.xtopdf.services.operations.WatermarkService.class);
+        var postProcessingPipeline = mock(com.xtopdf.xtopdf.services.operations.PdfPostProcessingPipeline.class);
         var containerOrchestrationService = mock(com.xtopdf.xtopdf.services.orchestration.ContainerOrchestrationService.class);
-        return new FileConversionService(converterRegistry, contentValidator, virusScanService, pdfMergeService, pageNumberService, watermarkService, containerOrchestrationService,
+        return new FileConversionService(converterRegistry, contentValidator, virusScanService, postProcessingPipeline, containerOrchestrationService,
+                new ConversionCacheService(),
                 new com.xtopdf.xtopdf.config.MetricsConfiguration.ConversionMetrics(
-                        new io.micrometer.core.instrument.simple.SimpleMeterRegistry()), 300);
+                        new io.micrometer.core.instrument.simple.SimpleMeterRegistry()),
+                newScheduler(), 300);
     }
 
     private String invokeExtractExtension(FileConversionService service, String fileName) throws Throwable {
@@ -184,4 +186,11 @@ class ExtractExtensionPropertyTest {
                 "test-file.md"
         );
     }
+
+    private static ConversionScheduler newScheduler() {
+        var metrics = new com.xtopdf.xtopdf.config.MetricsConfiguration.ConversionMetrics(
+                new io.micrometer.core.instrument.simple.SimpleMeterRegistry());
+        return new ConversionScheduler(metrics, new HeapCostModel(metrics, 4, 16, 0.2, java.util.List.of()),
+                2, 100, java.util.List.of(), 0);
+    }
 }
@@ -5,19 +5,28 @@ import com.xtopdf.xtopdf.config.WatermarkConfig;
 import com.xtopdf.xtopdf.converters.ConverterRegistry;
 import com.xtopdf.xtopdf.converters.FileConverter;
 import com.xtopdf.xtopdf.dto.ConversionParameters;
+import com.xtopdf.xtopdf.exceptions.ConversionRejectedException;
 import com.xtopdf.xtopdf.exceptions.FileConversionException;
-import com.xtopdf.xtopdf.services.operations.PageNumberService;
-import com.xtopdf.xtopdf.services.operations.PdfMergeService;
-import com.xtopdf.xtopdf.services.operations.WatermarkService;
+import com.xtopdf.xtopdf.services.model.StreamedPdf;
+import com.xtopdf.xtopdf.services.operations.PdfPostProcessingPipeline;
 import com.xtopdf.xtopdf.services.orchestration.ContainerOrchestrationService;
+import com.xtopdf.xtopdf.services.scheduling.ConversionScheduler;
+import com.xtopdf.xtopdf.services.scheduling.HeapCostModel;
 import com.xtopdf.xtopdf.validation.FileContentValidator;
+import org.apache.pdfbox.pdmodel.PDDocument;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -31,16 +40,17 @@ class FileConversionServiceTest {
     @Mock private ConverterRegistry converterRegistry;
     @Mock private FileContentValidator contentValidator;
     @Mock private VirusScanService virusScanService;
-    @Mock private PdfMergeService pdfMergeService;
-    @Mock private PageNumberService pageNumberService;
-    @Mock private WatermarkService watermarkService;
+    @Mock private PdfPostProcessingPipeline postProcessingPipeline;
     @Mock private ContainerOrchestrationService containerOrchestrationService;
     @Mock private FileConverter mockConverter;
 
+    private ConversionScheduler conversionScheduler;
     private FileConversionService fileConversionService;
 
     @BeforeEach
     void setUp() throws Exception {
+        conversionScheduler = newScheduler(4, 100);
+
         // Setup container orchestration to execute locally by default
         lenient().doAnswer(invocation -> {
             Runnable logic = invocation.getArgument(2);
@@ -51,16 +61,19 @@ class FileConversionServiceTest {
         // Default: virus scan returns clean
         lenient().when(virusScanService.scan(any())).thenReturn(VirusScanService.ScanResult.ok());
 
+        // Stage selection is pure logic on the parameters; use the real implementation
+        lenient().when(postProcessingPipeline.hasStages(any())).thenCallRealMethod();
+
         fileConversionService = new FileConversionService(
                 converterRegistry,
                 contentValidator,
                 virusScanService,
-                pdfMergeService,
-                pageNumberService,
-                watermarkService,
+                postProcessingPipeline,
                 containerOrchestrationService,
+                new ConversionCacheService(),
                 new com.xtopdf.xtopdf.config.MetricsConfiguration.ConversionMetrics(
                         new io.micrometer.core.instrument.simple.SimpleMeterRegistry()),
+                conversionScheduler,
                 300
         );
     }
@@ -176,7 +189,7 @@ class FileConversionServiceTest {
 
         fileConversionService.convertFile(params);
 
-        verify(pageNumberService).addPageNumbers(any(java.io.File.class), eq(pageConfig));
+        verify(postProcessingPipeline).process(any(java.io.File.class), eq(params));
     }
 
     @Test
@@ -192,7 +205,7 @@ class FileConversionServiceTest {
 
         fileConversionService.convertFile(params);
 
-        verify(watermarkService).addWatermark(any(java.io.File.class), eq(watermarkConfig));
+        verify(postProcessingPipeline).process(any(java.io.File.class), eq(params));
     }
 
     @Test
@@ -209,7 +222,57 @@ class FileConversionServiceTest {
 
         fileConversionService.convertFile(params);
 
-        verify(pdfMergeService).mergePdfs(any(java.io.File.class), eq(existingPdf), eq("back"));
+        verify(postProcessingPipeline).process(any(java.io.File.class), eq(params));
+    }
+
+    @Test
+    void convertFile_withoutPostProcessingOptions_skipsPipeline() throws Exception {
+        MockMultipartFile inputFile = new MockMultipartFile(
+                "file", "doc.txt", "text/plain", "content".getBytes());
+        ConversionParameters params = ConversionParameters.of(inputFile, "/output/doc.pdf");
+
+        when(converterRegistry.getConverter(".txt")).thenReturn(mockConverter);
+
+        fileConversionService.convertFile(params);
+
+        verify(postProcessingPipeline, never()).process(any(), any());
+    }
+
+    @Test
+    void convertFile_postProcessingFailure_throwsFileConversionException() throws Exception {
+        MockMultipartFile inputFile = new MockMultipartFile(
+                "file", "doc.txt", "text/plain", "content".getBytes());
+        ConversionParameters params = new ConversionParameters(
+                inputFile, "/output/doc.pdf", null, null,
+                PageNumberConfig.builder().enabled(true).build(), WatermarkConfig.disabled(), false);
+
+        when(converterRegistry.getConverter(".txt")).thenReturn(mockConverter);
+        doThrow(new java.io.IOException("Failed to add page numbers: corrupt"))
+                .when(postProcessingPipeline).process(any(), any());
+
+        assertThatThrownBy(() -> fileConversionService.convertFile(params))
+                .isInstanceOf(FileConversionException.class)
+                .hasMessageContaining("Post-processing failed for doc.txt");
+    }
+
+    @Test
+    void convertFile_withDocumentCapableConverter_handsDocumentToPipeline() throws Exception {
+        MockMultipartFile inputFile = new MockMultipartFile(
+                "file", "doc.txt", "text/plain", "content".getBytes());
+        ConversionParameters params = new ConversionParameters(
+                inputFile, "/output/doc.pdf", null, null,
+                PageNumberConfig.builder().enabled(true).build(), WatermarkConfig.disabled(), false);
+        PDDocument document = new PDDocument();
+
+        when(converterRegistry.getConverter(".txt")).thenReturn(mockConverter);
+        when(mockConverter.supportsDocumentOutput()).thenReturn(true);
+        when(mockConverter.convertToDocument(inputFile, false)).thenReturn(document);
+
+        fileConversionService.convertFile(params);
+
+        verify(postProcessingPipeline).processAndWrite(eq(document), eq(params), any(java.io.File.class));
+        verify(postProcessingPipeline, never()).process(any(), any());
+        verify(mockConverter, never()).convertToPDF(any(), any(), anyBoolean());
     }
 
     @Test
@@ -227,4 +290,190 @@ class FileConversionServiceTest {
         verify(mockConverter).convertToPDF(eq(inputFile), eq("/output/spreadsheet.pdf"), eq(true));
     }
 
+    // --- Tests for streaming conversion ---
+
+    @Test
+    void convertForStreaming_documentCapableConverter_writesDocumentWithoutOutputFile() throws Exception {
+        MockMultipartFile inputFile = new MockMultipartFile(
+                "file", "doc.txt", "text/plain", "content".getBytes());
+        ConversionParameters params = ConversionParameters.of(inputFile, null);
+        PDDocument document = new PDDocument();
+        document.addPage(new org.apache.pdfbox.pdmodel.PDPage());
+
+        when(converterRegistry.getConverter(".txt")).thenReturn(mockConverter);
+        when(mockConverter.supportsDocumentOutput()).thenReturn(true);
+        when(mockConverter.convertToDocument(inputFile, false)).thenReturn(document);
+
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        try (StreamedPdf pdf = fileConversionService.convertForStreaming(params)) {
+            pdf.writeTo(out);
+        }
+
+        assertThat(new String(out.toByteArray(), 0, 5)).isEqualTo("%PDF-");
+        verify(postProcessingPipeline).apply(eq(document), eq(params), any());
+        verify(mockConverter, never()).convertToPDF(any(), any(), anyBoolean());
+    }
+
+    @Test
+    void convertForStreaming_fileOnlyConverter_streamsAndDeletesTemporaryFile() throws Exception {
+        MockMultipartFile inputFile = new MockMultipartFile(
+                "file", "drawing.dxf", "application/octet-stream", "content".getBytes());
+        Path[] written = new Path[1];
+
+        when(converterRegistry.getConverter(".dxf")).thenReturn(mockConverter);
+        doAnswer(invocation -> {
+            written[0] = Path.of((String) invocation.getArgument(1));
+            Files.writeString(written[0], "%PDF-from-file");
+            return null;
+        }).when(mockConverter).convertToPDF(any(), any(), anyBoolean());
+
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        try (StreamedPdf pdf = fileConversionService.convertForStreaming(ConversionParameters.of(inputFile, null))) {
+            pdf.writeTo(out);
+        }
+
+        assertThat(out.toString()).isEqualTo("%PDF-from-file");
+        assertThat(written[0]).doesNotExist();
+    }
+
+    @Test
+    void convertForStreaming_conversionFailure_throwsBeforeStreaming() throws Exception {
+        MockMultipartFile inputFile = new MockMultipartFile(
+                "file", "doc.txt", "text/plain", "content".getBytes());
+
+        when(converterRegistry.getConverter(".txt")).thenReturn(mockConverter);
+        when(mockConverter.supportsDocumentOutput()).thenReturn(true);
+        when(mockConverter.convertToDocument(any(), anyBoolean()))
+                .thenThrow(new FileConversionException("Error converting TXT to PDF: broken"));
+
+        assertThatThrownBy(() -> fileConversionService.convertForStreaming(ConversionParameters.of(inputFile, null)))
+                .isInstanceOf(FileConversionException.class)
+                .hasMessageContaining("broken");
+    }
+
+    // --- Tests for scheduler admission ---
+
+    private static ConversionScheduler newScheduler(int cpuPermits, int queueCapacity) {
+        var metrics = new com.xtopdf.xtopdf.config.MetricsConfiguration.ConversionMetrics(
+                new io.micrometer.core.instrument.simple.SimpleMeterRegistry());
+        return new ConversionScheduler(metrics, new HeapCostModel(metrics, 4, 16, 0.2, List.of()),
+                cpuPermits, queueCapacity, List.of(), 0);
+    }
+
+    @Test
+    void convertFile_schedulerQueueFull_rejectsWithoutConverting() throws Exception {
+        ConversionScheduler busyScheduler = newScheduler(1, 0);
+        java.util.concurrent.CountDownLatch release = new java.util.concurrent.CountDownLatch(1);
+        busyScheduler.submit("txt", ConversionScheduler.Priority.SYNC, () -> {
+            release.await();
+            return null;
+        });
+        FileConversionService service = new FileConversionService(
+                converterRegistry, contentValidator, virusScanService, postProcessingPipeline,
+                containerOrchestrationService, new ConversionCacheService(),
+                new com.xtopdf.xtopdf.config.MetricsConfiguration.ConversionMetrics(
+                        new io.micrometer.core.instrument.simple.SimpleMeterRegistry()),
+                busyScheduler, 300);
+        MockMultipartFile inputFile = new MockMultipartFile(
+                "file", "doc.txt", "text/plain", "content".getBytes());
+        when(converterRegistry.getConverter(".txt")).thenReturn(mockConverter);
+
+        try {
+            assertThatThrownBy(() -> service.convertFile(ConversionParameters.of(inputFile, "output.pdf")))
+                    .isInstanceOf(ConversionRejectedException.class);
+            verify(mockConverter, never()).convertToPDF(any(), any(), anyBoolean());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    // --- Tests for the conversion result cache ---
+
+    private FileConversionService serviceWithCache(ConversionCacheService cache) {
+        return new FileConversionService(
+                converterRegistry,
+                contentValidator,
+                virusScanService,
+                postProcessingPipeline,
+                containerOrchestrationService,
+                cache,
+                new com.xtopdf.xtopdf.config.MetricsConfiguration.ConversionMetrics(
+                        new io.micrometer.core.instrument.simple.SimpleMeterRegistry()),
+                conversionScheduler,
+                300
+        );
+    }
+
+    private ConversionCacheService enabledCache() {
+        ConversionCacheService cache = new ConversionCacheService();
+        ReflectionTestUtils.setField(cache, "cacheEnabled", true);
+        ReflectionTestUtils.setField(cache, "maxMemoryMb", 64);
+        ReflectionTestUtils.setField(cache, "ttlMinutes", 60);
+        cache.initCache();
+        return cache;
+    }
+
+    @Test
+    void convertFile_cacheHit_skipsConverterAndWritesCachedBytes(@TempDir Path tempDir) throws Exception {
+        FileConversionService service = serviceWithCache(enabledCache());
+        MockMultipartFile inputFile = new MockMultipartFile(
+                "file", "letterhead.txt", "text/plain", "same content".getBytes());
+        Path first = tempDir.resolve("first.pdf");
+        Path second = tempDir.resolve("second.pdf");
+
+        when(converterRegistry.getConverter(".txt")).thenReturn(mockConverter);
+        doAnswer(invocation -> {
+            Files.writeString(Path.of((String) invocation.getArgument(1)), "%PDF-cached");
+            return null;
+        }).when(mockConverter).convertToPDF(any(), any(), anyBoolean());
+
+        service.convertFile(ConversionParameters.of(inputFile, first.toString()));
+        service.convertFile(ConversionParameters.of(inputFile, second.toString()));
+
+        verify(mockConverter, times(1)).convertToPDF(any(), any(), anyBoolean());
+        assertThat(Files.readString(second)).isEqualTo("%PDF-cached");
+    }
+
+    @Test
+    void convertFile_cacheHit_skipsPostProcessing(@TempDir Path tempDir) throws Exception {
+        FileConversionService service = serviceWithCache(enabledCache());
+        MockMultipartFile inputFile = new MockMultipartFile(
+                "file", "doc.txt", "text/plain", "content".getBytes());
+        PageNumberConfig pageConfig = PageNumberConfig.builder().enabled(true).build();
+
+        when(converterRegistry.getConverter(".txt")).thenReturn(mockConverter);
+        doAnswer(invocation -> {
+            Files.writeString(Path.of((String) invocation.getArgument(1)), "%PDF-numbered");
+            return null;
+        }).when(mockConverter).convertToPDF(any(), any(), anyBoolean());
+
+        for (String name : new String[]{"a.pdf", "b.pdf"}) {
+            service.convertFile(new ConversionParameters(
+                    inputFile, tempDir.resolve(name).toString(), null, null,
+                    pageConfig, WatermarkConfig.disabled(), false));
+        }
+
+        verify(postProcessingPipeline, times(1)).process(any(java.io.File.class), any(ConversionParameters.class));
+    }
+
+    @Test
+    void convertFile_differentOptions_missesCache(@TempDir Path tempDir) throws Exception {
+        FileConversionService service = serviceWithCache(enabledCache());
+        MockMultipartFile inputFile = new MockMultipartFile(
+                "file", "doc.txt", "text/plain", "content".getBytes());
+
+        when(converterRegistry.getConverter(".txt")).thenReturn(mockConverter);
+        doAnswer(invocation -> {
+            Files.writeString(Path.of((String) invocation.getArgument(1)), "%PDF");
+            return null;
+        }).when(mockConverter).convertToPDF(any(), any(), anyBoolean());
+
+        service.convertFile(ConversionParameters.of(inputFile, tempDir.resolve("plain.pdf").toString()));
+        service.convertFile(new ConversionParameters(
+                inputFile, tempDir.resolve("watermarked.pdf").toString(), null, null,
+                PageNumberConfig.disabled(),
+                WatermarkConfig.builder().enabled(true).text("DRAFT").fontSize(48).build(), false));
+
+        verify(mockConverter, times(2)).convertToPDF(any(), any(), anyBoolean());
+    }
 }
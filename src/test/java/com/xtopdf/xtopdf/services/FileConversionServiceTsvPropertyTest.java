@@ -4,10 +4,10 @@ import com.xtopdf.xtopdf.converters.ConverterRegistry;
 import com.xtopdf.xtopdf.converters.FileConverter;
 import com.xtopdf.xtopdf.dto.ConversionParameters;
 import com.xtopdf.xtopdf.exceptions.FileConversionException;
-import com.xtopdf.xtopdf.services.operations.PageNumberService;
-import com.xtopdf.xtopdf.services.operations.PdfMergeService;
-import com.xtopdf.xtopdf.services.operations.WatermarkService;
+import com.xtopdf.xtopdf.services.operations.PdfPostProcessingPipeline;
 import com.xtopdf.xtopdf.services.orchestration.ContainerOrchestrationService;
+import com.xtopdf.xtopdf.services.scheduling.ConversionScheduler;
+import com.xtopdf.xtopdf.services.scheduling.HeapCostModel;
 import com.xtopdf.xtopdf.validation.FileContentValidator;
 import net.jqwik.api.*;
 import org.junit.jupiter.api.Tag;
@@ -45,10 +45,11 @@ class FileConversionServiceTsvPropertyTest {
         FileConversionService service = new FileConversionService(
                 registry, contentValidator,
                 mockVirusScan(),
-                mock(PdfMergeService.class), mock(PageNumberService.class),
-                mock(WatermarkService.class), containerService,
+                mock(PdfPostProcessingPipeline.class), containerService,
+                new ConversionCacheService(),
                 new com.xtopdf.xtopdf.config.MetricsConfiguration.ConversionMetrics(
-                        new io.micrometer.core.instrument.simple.SimpleMeterRegistry()), 300
+                        new io.micrometer.core.instrument.simple.SimpleMeterRegistry()),
+                newScheduler(), 300
         );
 
         MockMultipartFile inputFile = new MockMultipartFile(
@@ -92,10 +93,11 @@ class FileConversionServiceTsvPropertyTest {
         FileConversionService service = new FileConversionService(
                 registry, contentValidator,
                 mockVirusScan(),
-                mock(PdfMergeService.class), mock(PageNumberService.class),
-                mock(WatermarkService.class), containerService,
+                mock(PdfPostProcessingPipeline.class), containerService,
+                new ConversionCacheService(),
                 new com.xtopdf.xtopdf.config.MetricsConfiguration.ConversionMetrics(
-                        new io.micrometer.core.instrument.simple.SimpleMeterRegistry()), 300
+                        new io.micrometer.core.instrument.simple.SimpleMeterRegistry()),
+                newScheduler(), 300
         );
 
         MockMultipartFile inputFile = new MockMultipartFile(
@@ -120,4 +122,11 @@ class FileConversionServiceTsvPropertyTest {
         when(mock.scan(any())).thenReturn(new VirusScanService.ScanResult(true, "OK"));
         return mock;
     }
+
+    private static ConversionScheduler newScheduler() {
+        var metrics = new com.xtopdf.xtopdf.config.MetricsConfiguration.ConversionMetrics(
+                new io.micrometer.core.instrument.simple.SimpleMeterRegistry());
+        return new ConversionScheduler(metrics, new HeapCostModel(metrics, 4, 16, 0.2, java.util.List.of()),
+                2, 100, java.util.List.of(), 0);
+    }
 }
@@ -0,0 +1,112 @@
+package com.xtopdf.xtopdf.services;
+
+import com.xtopdf.xtopdf.dto.ConversionJob;
+import com.xtopdf.xtopdf.dto.ConversionJob.JobStatus;
+import com.xtopdf.xtopdf.services.jobs.FileJobStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JobTrackingServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private FileJobStore jobStore;
+    private JobTrackingService jobTrackingService;
+
+    @BeforeEach
+    void setUp() {
+        jobStore = new FileJobStore(directory.resolve("jobs").toString());
+        jobTrackingService = new JobTrackingService(jobStore, 120);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        jobStore.close();
+    }
+
+    @Test
+    void spooledInputIsStoredOnDiskAndDiscardedOnCompletion() throws IOException {
+        var job = jobTrackingService.submit("report.txt", "report.pdf", null);
+        Path input = jobTrackingService.spoolInput(job.id(),
+                new MockMultipartFile("inputFile", "report.txt", "text/plain", "hello".getBytes()));
+
+        assertThat(input).hasContent("hello");
+        assertThat(jobTrackingService.getInput(job.id())).contains(input);
+
+        Path pdf = Files.writeString(directory.resolve("report.pdf"), "%PDF-1.7");
+        jobTrackingService.markCompleted(job.id(), pdf);
+
+        assertThat(jobTrackingService.getInput(job.id())).isEmpty();
+        assertThat(jobTrackingService.getResult(job.id())).get()
+                .satisfies(result -> assertThat(result.getContentAsByteArray()).isEqualTo("%PDF-1.7".getBytes()));
+    }
+
+    @Test
+    void recovery_resumesInterruptedJobsWithSpooledInput() throws IOException {
+        var withInput = jobTrackingService.submit("a.txt", "a.pdf", null);
+        jobTrackingService.spoolInput(withInput.id(), new MockMultipartFile("inputFile", "a.txt", "text/plain", "a".getBytes()));
+        jobTrackingService.markProcessing(withInput.id());
+        var withoutInput = jobTrackingService.submit("b.txt", "b.pdf", null);
+
+        // Restart: reopen the store from its journal
+        jobStore.close();
+        jobStore = new FileJobStore(directory.resolve("jobs").toString());
+        jobTrackingService = new JobTrackingService(jobStore, 120);
+
+        assertThat(jobTrackingService.recoverInterruptedJobs(true))
+                .extracting(ConversionJob::id)
+                .containsExactly(withInput.id());
+        assertThat(jobTrackingService.getStatus(withoutInput.id()))
+                .map(ConversionJob::status)
+                .contains(JobStatus.FAILED);
+    }
+
+    @Test
+    void recovery_failsEverythingUnfinishedWhenResumeIsDisabled() throws IOException {
+        var job = jobTrackingService.submit("a.txt", "a.pdf", null);
+        jobTrackingService.spoolInput(job.id(), new MockMultipartFile("inputFile", "a.txt", "text/plain", "a".getBytes()));
+
+        assertThat(jobTrackingService.recoverInterruptedJobs(false)).isEmpty();
+        assertThat(jobTrackingService.getStatus(job.id())).map(ConversionJob::errorMessage)
+                .contains("Interrupted by a server restart");
+        assertThat(jobTrackingService.getInput(job.id())).isEmpty();
+    }
+
+    @Test
+    void recovery_failsCompletedJobsWhoseResultIsGone() throws IOException {
+        var job = jobTrackingService.submit("a.txt", "a.pdf", null);
+        jobTrackingService.markCompleted(job.id(), Files.writeString(directory.resolve("a.pdf"), "%PDF"));
+        Files.delete(jobStore.resultPath(job.id()));
+
+        jobTrackingService.recoverInterruptedJobs(true);
+
+        assertThat(jobTrackingService.getStatus(job.id())).map(ConversionJob::status).contains(JobStatus.FAILED);
+    }
+
+    @Test
+    void purge_removesExpiredFinishedJobsAndTheirResults() throws IOException {
+        var expired = new ConversionJob("old", JobStatus.COMPLETED, "a.txt", "a.pdf",
+                Instant.now().minusSeconds(10_000), Instant.now().minusSeconds(9_000), null, null);
+        jobStore.save(expired);
+        Files.writeString(jobStore.resultPath("old"), "%PDF");
+        var recent = jobTrackingService.submit("b.txt", "b.pdf", null);
+        jobTrackingService.markFailed(recent.id(), "Conversion failed");
+
+        jobTrackingService.purgeExpiredJobs();
+
+        assertThat(jobTrackingService.getStatus("old")).isEmpty();
+        assertThat(jobStore.resultPath("old")).doesNotExist();
+        assertThat(jobTrackingService.getStatus(recent.id())).isPresent();
+    }
+}
@@ -1,6 +1,10 @@
 package com.xtopdf.xtopdf.services;
 
 import com.xtopdf.xtopdf.services.conversion.spreadsheet.OdsToPdfService;
+import com.xtopdf.xtopdf.services.conversion.spreadsheet.SheetRenderPool;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -113,4 +117,31 @@ class OdsToPdfServiceTest {
         assertTrue(pdfFile.exists());
         assertTrue(pdfFile.length() > 0);
     }
+
+    @Test
+    void testConvertOdsToPdf_ParallelSheets_MatchSequentialOutput(@TempDir Path tempDir) throws Exception {
+        ClassPathResource resource = new ClassPathResource("test-files/test.ods");
+        MockMultipartFile odsFile = new MockMultipartFile(
+                "file",
+                "test.ods",
+                "application/vnd.oasis.opendocument.spreadsheet",
+                Files.readAllBytes(resource.getFile().toPath())
+        );
+        File sequentialPdf = tempDir.resolve("sequential.pdf").toFile();
+        File parallelPdf = tempDir.resolve("parallel.pdf").toFile();
+
+        odsToPdfService.convertOdsToPdf(odsFile, sequentialPdf);
+        SheetRenderPool pool = new SheetRenderPool(null, 4);
+        try {
+            new OdsToPdfService(pdfBackend, pool).convertOdsToPdf(odsFile, parallelPdf);
+        } finally {
+            pool.shutdown();
+        }
+
+        try (PDDocument sequential = Loader.loadPDF(sequentialPdf);
+             PDDocument parallel = Loader.loadPDF(parallelPdf)) {
+            assertEquals(sequential.getNumberOfPages(), parallel.getNumberOfPages());
+            assertEquals(new PDFTextStripper().getText(sequential), new PDFTextStripper().getText(parallel));
+        }
+    }
 }
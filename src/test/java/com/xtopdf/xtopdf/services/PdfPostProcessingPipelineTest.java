@@ -0,0 +1,186 @@
+package com.xtopdf.xtopdf.services;
+
+import com.xtopdf.xtopdf.config.MetricsConfiguration.ConversionMetrics;
+import com.xtopdf.xtopdf.config.PageNumberConfig;
+import com.xtopdf.xtopdf.config.WatermarkConfig;
+import com.xtopdf.xtopdf.dto.ConversionParameters;
+import com.xtopdf.xtopdf.enums.PageNumberAlignment;
+import com.xtopdf.xtopdf.enums.PageNumberPosition;
+import com.xtopdf.xtopdf.enums.PageNumberStyle;
+import com.xtopdf.xtopdf.enums.WatermarkLayer;
+import com.xtopdf.xtopdf.enums.WatermarkOrientation;
+import com.xtopdf.xtopdf.services.operations.PageNumberService;
+import com.xtopdf.xtopdf.services.operations.PdfMergeService;
+import com.xtopdf.xtopdf.services.operations.PdfPostProcessingPipeline;
+import com.xtopdf.xtopdf.services.operations.WatermarkService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PdfPostProcessingPipelineTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SimpleMeterRegistry registry;
+    private PdfPostProcessingPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        pipeline = new PdfPostProcessingPipeline(
+                new PageNumberService(),
+                new WatermarkService(),
+                new PdfMergeService(),
+                new ConversionMetrics(registry));
+    }
+
+    @Test
+    void hasStages_falseWhenNothingEnabled() {
+        assertThat(pipeline.hasStages(params(PageNumberConfig.disabled(), WatermarkConfig.disabled(), null, null)))
+                .isFalse();
+    }
+
+    @Test
+    void process_appliesAllStagesInOnePass() throws Exception {
+        File converted = createPdf(tempDir.resolve("converted.pdf"), 2, PDRectangle.A4);
+        MockMultipartFile existing = existingPdf(3, PDRectangle.LETTER);
+
+        pipeline.process(converted, params(pageNumbers(), watermark(), existing, "back"));
+
+        try (PDDocument result = Loader.loadPDF(converted)) {
+            assertThat(result.getNumberOfPages()).isEqualTo(5);
+            String firstPage = textOfPage(result, 1);
+            assertThat(firstPage).contains("1").contains("DRAFT");
+            // Merged pages are appended after post-processing and stay untouched
+            assertThat(textOfPage(result, 3)).doesNotContain("DRAFT");
+        }
+        assertThat(registry.find("conversion.postprocess.duration").timers())
+                .extracting(timer -> timer.getId().getTag("stage"))
+                .containsExactlyInAnyOrder("load", "page_numbers", "watermark", "merge", "save");
+    }
+
+    @Test
+    void process_frontMergePlacesExistingPagesFirst() throws Exception {
+        File converted = createPdf(tempDir.resolve("converted.pdf"), 1, PDRectangle.A4);
+        MockMultipartFile existing = existingPdf(2, PDRectangle.LETTER);
+
+        pipeline.process(converted, params(PageNumberConfig.disabled(), WatermarkConfig.disabled(), existing, "front"));
+
+        try (PDDocument result = Loader.loadPDF(converted)) {
+            assertThat(result.getNumberOfPages()).isEqualTo(3);
+            assertThat(result.getPage(0).getMediaBox().getWidth()).isEqualTo(PDRectangle.LETTER.getWidth());
+            assertThat(result.getPage(1).getMediaBox().getWidth()).isEqualTo(PDRectangle.LETTER.getWidth());
+            assertThat(result.getPage(2).getMediaBox().getWidth()).isEqualTo(PDRectangle.A4.getWidth());
+        }
+    }
+
+    @Test
+    void process_leavesNoTemporaryFiles() throws Exception {
+        File converted = createPdf(tempDir.resolve("converted.pdf"), 1, PDRectangle.A4);
+
+        pipeline.process(converted, params(pageNumbers(), WatermarkConfig.disabled(), null, null));
+
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertThat(files).containsExactly(converted.toPath());
+        }
+    }
+
+    @Test
+    void processAndWrite_writesHandedOverDocumentOnceAndClosesIt() throws Exception {
+        PDDocument document = new PDDocument();
+        document.addPage(new PDPage(PDRectangle.A4));
+        MockMultipartFile existing = existingPdf(1, PDRectangle.LETTER);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        pipeline.processAndWrite(document, params(pageNumbers(), WatermarkConfig.disabled(), existing, "back"), out);
+
+        try (PDDocument result = Loader.loadPDF(out.toByteArray())) {
+            assertThat(result.getNumberOfPages()).isEqualTo(2);
+            assertThat(textOfPage(result, 1)).contains("1");
+        }
+        assertThat(registry.find("conversion.postprocess.duration").timers())
+                .extracting(timer -> timer.getId().getTag("stage"))
+                .containsExactlyInAnyOrder("page_numbers", "merge", "save");
+        // The pipeline owns the handed-over document and closes it after writing
+        assertThatThrownBy(() -> document.save(new ByteArrayOutputStream())).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void process_invalidExistingPdf_reportsStageAndKeepsOriginal() throws Exception {
+        File converted = createPdf(tempDir.resolve("converted.pdf"), 1, PDRectangle.A4);
+        byte[] original = Files.readAllBytes(converted.toPath());
+        MockMultipartFile broken = new MockMultipartFile(
+                "existingPdf", "existing.pdf", "application/pdf", "not a pdf".getBytes());
+
+        assertThatThrownBy(() -> pipeline.process(converted,
+                params(PageNumberConfig.disabled(), WatermarkConfig.disabled(), broken, "back")))
+                .isInstanceOf(IOException.class)
+                .hasMessageStartingWith("Failed to merge PDF files");
+
+        assertThat(Files.readAllBytes(converted.toPath())).isEqualTo(original);
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertThat(files).containsExactly(converted.toPath());
+        }
+    }
+
+    private ConversionParameters params(PageNumberConfig pageNumbers, WatermarkConfig watermark,
+                                        MockMultipartFile existing, String position) {
+        MockMultipartFile input = new MockMultipartFile("file", "doc.txt", "text/plain", "content".getBytes());
+        return new ConversionParameters(input, tempDir.resolve("out.pdf").toString(), existing, position,
+                pageNumbers, watermark, false);
+    }
+
+    private static PageNumberConfig pageNumbers() {
+        return new PageNumberConfig(true, PageNumberPosition.BOTTOM, PageNumberAlignment.CENTER, PageNumberStyle.ARABIC);
+    }
+
+    private static WatermarkConfig watermark() {
+        return new WatermarkConfig(true, "DRAFT", 36, WatermarkLayer.FOREGROUND, WatermarkOrientation.HORIZONTAL);
+    }
+
+    private static File createPdf(Path path, int pages, PDRectangle size) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                document.addPage(new PDPage(size));
+            }
+            document.save(path.toFile());
+        }
+        return path.toFile();
+    }
+
+    private static MockMultipartFile existingPdf(int pages, PDRectangle size) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                document.addPage(new PDPage(size));
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            return new MockMultipartFile("existingPdf", "existing.pdf", "application/pdf", out.toByteArray());
+        }
+    }
+
+    private static String textOfPage(PDDocument document, int page) throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper();
+        stripper.setStartPage(page);
+        stripper.setEndPage(page);
+        return stripper.getText(document);
+    }
+}
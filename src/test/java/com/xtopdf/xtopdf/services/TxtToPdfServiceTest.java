@@ -3,6 +3,9 @@ package com.xtopdf.xtopdf.services;
 
 import com.xtopdf.xtopdf.services.conversion.document.TxtToPdfService;
 import com.xtopdf.xtopdf.pdf.impl.PdfBoxBackend;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -10,6 +13,7 @@ import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -167,4 +171,60 @@ class TxtToPdfServiceTest {
         MockMultipartFile txtFile = new MockMultipartFile("file", "test.txt", MediaType.TEXT_PLAIN_VALUE, content.getBytes());
         assertThrows(IOException.class, () -> txtToPdfService.convertTxtToPdf(txtFile, null));
     }
+
+    @Test
+    void testConvertTxtToPdf_ManyLines_LaidOutInOrderAcrossPages(@TempDir Path tempDir) throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 1; i <= 3_000; i++) {
+            content.append("line-").append(i).append("-end\n");
+        }
+        MockMultipartFile txtFile = new MockMultipartFile("file", "big.txt", MediaType.TEXT_PLAIN_VALUE,
+                content.toString().getBytes(StandardCharsets.UTF_8));
+        File pdfFile = tempDir.resolve("big.pdf").toFile();
+
+        txtToPdfService.convertTxtToPdf(txtFile, pdfFile);
+
+        try (PDDocument document = Loader.loadPDF(pdfFile)) {
+            assertTrue(document.getNumberOfPages() > 50, "3,000 lines should fill many pages");
+            String text = new PDFTextStripper().getText(document);
+            int previous = -1;
+            for (int i = 1; i <= 3_000; i += 149) {
+                int position = text.indexOf("line-" + i + "-end");
+                assertTrue(position > previous, "Line " + i + " should follow the lines before it");
+                previous = position;
+            }
+        }
+    }
+
+    @Test
+    void testConvertTxtToPdf_DecodesConfiguredCharsetAndDropsByteOrderMark(@TempDir Path tempDir) throws Exception {
+        TxtToPdfService latin1 = new TxtToPdfService(new PdfBoxBackend(), "windows-1252", false);
+        MockMultipartFile txtFile = new MockMultipartFile("file", "latin1.txt", MediaType.TEXT_PLAIN_VALUE,
+                "Caf\u00e9 cr\u00e8me".getBytes("windows-1252"));
+        File pdfFile = tempDir.resolve("latin1.pdf").toFile();
+
+        latin1.convertTxtToPdf(txtFile, pdfFile);
+
+        assertTrue(extractText(pdfFile).contains("Caf\u00e9 cr\u00e8me"));
+    }
+
+    @Test
+    void testConvertTxtToPdf_LogModeNumbersLines(@TempDir Path tempDir) throws Exception {
+        TxtToPdfService logs = new TxtToPdfService(new PdfBoxBackend(), "UTF-8", true);
+        MockMultipartFile txtFile = new MockMultipartFile("file", "app.log", MediaType.TEXT_PLAIN_VALUE,
+                "\uFEFFstarting\nready\nstopping\n".getBytes(StandardCharsets.UTF_8));
+        File pdfFile = tempDir.resolve("app.pdf").toFile();
+
+        logs.convertTxtToPdf(txtFile, pdfFile);
+
+        String text = extractText(pdfFile);
+        assertTrue(text.matches("(?s).*\\b1\\s+starting.*\\b2\\s+ready.*\\b3\\s+stopping.*"),
+                "Lines should be numbered in order: " + text);
+    }
+
+    private static String extractText(File pdfFile) throws IOException {
+        try (PDDocument document = Loader.loadPDF(pdfFile)) {
+            return new PDFTextStripper().getText(document);
+        }
+    }
 }
@@ -0,0 +1,282 @@
+package com.xtopdf.xtopdf.services.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class SegmentedDiskCacheTest {
+
+    private static final long MB = 1024 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Clock that tests can move forward.
+     */
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2026-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    private static byte[] payload(int size, int seed) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) (i * 31 + seed);
+        }
+        return data;
+    }
+
+    @Test
+    void putThenGet_returnsSameBytes() throws Exception {
+        try (var cache = new SegmentedDiskCache(tempDir, 10 * MB, MB, Duration.ofHours(1), Clock.systemUTC())) {
+            byte[] data = payload(5000, 1);
+            cache.put("key-1", data);
+
+            assertThat(cache.get("key-1")).isEqualTo(data);
+            assertThat(cache.get("missing")).isNull();
+        }
+    }
+
+    @Test
+    void entriesSurviveReopen() throws Exception {
+        byte[] first = payload(3000, 1);
+        byte[] second = payload(4000, 2);
+        try (var cache = new SegmentedDiskCache(tempDir, 10 * MB, 8000, Duration.ofHours(1), Clock.systemUTC())) {
+            cache.put("a", first);
+            cache.put("b", second);
+        }
+
+        try (var reopened = new SegmentedDiskCache(tempDir, 10 * MB, 8000, Duration.ofHours(1), Clock.systemUTC())) {
+            assertThat(reopened.size()).isEqualTo(2);
+            assertThat(reopened.get("a")).isEqualTo(first);
+            assertThat(reopened.get("b")).isEqualTo(second);
+        }
+    }
+
+    @Test
+    void keyRewrittenInOneSegmentCountsOnceAfterReopen() throws Exception {
+        try (var cache = new SegmentedDiskCache(tempDir, 10 * MB, 12_000, Duration.ofHours(1), Clock.systemUTC())) {
+            // Three versions of k fill the first segment; the fourth record starts the next one
+            for (int i = 0; i < 3; i++) {
+                cache.put("k", payload(3_900, i));
+            }
+            cache.put("other", payload(3_900, 9));
+        }
+
+        try (var reopened = new SegmentedDiskCache(tempDir, 10 * MB, 12_000, Duration.ofHours(1), Clock.systemUTC())) {
+            reopened.evictIfNeeded();
+
+            // The first segment is two-thirds dead and compacted away
+            assertThat(reopened.diskBytes()).isLessThan(3 * 3_900);
+            assertThat(segmentFileBytes()).isEqualTo(reopened.diskBytes());
+            assertThat(reopened.get("k")).isEqualTo(payload(3_900, 2));
+            assertThat(reopened.get("other")).isEqualTo(payload(3_900, 9));
+        }
+    }
+
+    @Test
+    void tornRecordIsTruncatedOnReopen() throws Exception {
+        byte[] data = payload(2000, 3);
+        try (var cache = new SegmentedDiskCache(tempDir, 10 * MB, MB, Duration.ofHours(1), Clock.systemUTC())) {
+            cache.put("intact", data);
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(tempDir)) {
+            segment = files.filter(p -> p.getFileName().toString().startsWith("segment-")).findFirst().orElseThrow();
+        }
+        Files.write(segment, new byte[]{0x58, 0x43, 0x50, 0x31, 0, 0}, StandardOpenOption.APPEND);
+
+        try (var reopened = new SegmentedDiskCache(tempDir, 10 * MB, MB, Duration.ofHours(1), Clock.systemUTC())) {
+            assertThat(reopened.get("intact")).isEqualTo(data);
+            reopened.put("after", payload(100, 4));
+            assertThat(reopened.get("after")).isEqualTo(payload(100, 4));
+        }
+    }
+
+    @Test
+    void expiredEntriesAreNotReturned() throws Exception {
+        MutableClock clock = new MutableClock();
+        try (var cache = new SegmentedDiskCache(tempDir, 10 * MB, MB, Duration.ofMinutes(10), clock)) {
+            cache.put("k", payload(100, 5));
+            clock.advance(Duration.ofMinutes(11));
+
+            assertThat(cache.get("k")).isNull();
+            assertThat(cache.contains("k")).isFalse();
+        }
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesAreEvictedWhenOverBudget() throws Exception {
+        MutableClock clock = new MutableClock();
+        try (var cache = new SegmentedDiskCache(tempDir, 40_000, 12_000, Duration.ofHours(1), clock)) {
+            for (int i = 0; i < 3; i++) {
+                cache.put("k" + i, payload(9_000, i));
+                clock.advance(Duration.ofSeconds(1));
+            }
+            // Touch k0 so k1 becomes the least recently used entry
+            assertThat(cache.get("k0")).isNotNull();
+            clock.advance(Duration.ofSeconds(1));
+
+            cache.put("k3", payload(9_000, 3));
+            clock.advance(Duration.ofSeconds(1));
+            cache.put("k4", payload(9_000, 4));
+
+            assertThat(cache.contains("k1")).isFalse();
+            assertThat(cache.get("k0")).isEqualTo(payload(9_000, 0));
+            assertThat(cache.get("k4")).isEqualTo(payload(9_000, 4));
+            assertThat(cache.diskBytes()).isLessThanOrEqualTo(40_000);
+        }
+    }
+
+    @Test
+    void deadRecordsAreCompactedUntilTheFilesFitTheBudget() throws Exception {
+        try (var cache = new SegmentedDiskCache(tempDir, 40_000, 12_000, Duration.ofHours(1), Clock.systemUTC())) {
+            // Three records to a segment; replacing one in each leaves every segment two-thirds live
+            for (int i = 0; i < 8; i++) {
+                cache.put("k" + i, payload(3_900, i));
+            }
+            for (int i : new int[]{0, 3, 6}) {
+                cache.put("k" + i, payload(3_900, i + 10));
+            }
+
+            assertThat(cache.diskBytes()).isLessThanOrEqualTo(40_000);
+            assertThat(segmentFileBytes()).isEqualTo(cache.diskBytes());
+            assertThat(cache.size()).isEqualTo(8);
+            assertThat(cache.get("k1")).isEqualTo(payload(3_900, 1));
+            assertThat(cache.get("k6")).isEqualTo(payload(3_900, 16));
+        }
+    }
+
+    @Test
+    void transferTo_streamsCachedBytes() throws Exception {
+        try (var cache = new SegmentedDiskCache(tempDir, 10 * MB, 6000, Duration.ofHours(1), Clock.systemUTC())) {
+            byte[] data = payload(5000, 6);
+            cache.put("sealed", data);
+            cache.put("active", payload(5000, 7)); // seals the first segment
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            long written = cache.transferTo("sealed", Channels.newChannel(out));
+
+            assertThat(written).isEqualTo(data.length);
+            assertThat(out.toByteArray()).isEqualTo(data);
+            assertThat(cache.transferTo("missing", Channels.newChannel(out))).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    void slowTransferDoesNotHoldUpAppendsOrEviction() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (var cache = new SegmentedDiskCache(tempDir, 40_000, 12_000, Duration.ofHours(1), Clock.systemUTC())) {
+            byte[] data = payload(3_900, 1);
+            cache.put("slow", data);
+            CountDownLatch writing = new CountDownLatch(1);
+            CountDownLatch receive = new CountDownLatch(1);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            WritableByteChannel slowClient = new WritableByteChannel() {
+                @Override
+                public int write(ByteBuffer src) throws IOException {
+                    writing.countDown();
+                    try {
+                        receive.await();
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                    byte[] chunk = new byte[src.remaining()];
+                    src.get(chunk);
+                    out.write(chunk);
+                    return chunk.length;
+                }
+
+                @Override
+                public boolean isOpen() {
+                    return true;
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+
+            Future<Long> transfer = executor.submit(() -> cache.transferTo("slow", slowClient));
+            assertThat(writing.await(10, TimeUnit.SECONDS)).isTrue();
+
+            // Enough appends to roll segments and evict "slow", deleting the segment being read
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                for (int i = 0; i < 12; i++) {
+                    cache.put("k" + i, payload(3_900, i));
+                }
+            });
+            assertThat(cache.contains("slow")).isFalse();
+            assertThat(tempDir.resolve("segment-0.dat")).exists();
+
+            receive.countDown();
+            assertThat(transfer.get(10, TimeUnit.SECONDS)).isEqualTo(data.length);
+            assertThat(out.toByteArray()).isEqualTo(data);
+            assertThat(tempDir.resolve("segment-0.dat")).doesNotExist();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long segmentFileBytes() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            long total = 0;
+            for (Path file : (Iterable<Path>) files::iterator) {
+                total += Files.size(file);
+            }
+            return total;
+        }
+    }
+
+    @Test
+    void putFromFile_copiesFileContent() throws Exception {
+        Path pdf = tempDir.resolve("result.pdf");
+        byte[] data = payload(7000, 8);
+        Files.write(pdf, data);
+
+        try (var cache = new SegmentedDiskCache(tempDir.resolve("cache"), 10 * MB, MB, Duration.ofHours(1), Clock.systemUTC())) {
+            cache.put("file", pdf);
+            assertThat(cache.get("file")).isEqualTo(data);
+        }
+    }
+}
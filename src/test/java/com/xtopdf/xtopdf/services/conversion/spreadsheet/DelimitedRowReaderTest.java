@@ -0,0 +1,160 @@
+package com.xtopdf.xtopdf.services.conversion.spreadsheet;
+
+import net.jqwik.api.*;
+import net.jqwik.api.constraints.IntRange;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for DelimitedRowReader, the byte-level CSV/TSV splitter.
+ */
+class DelimitedRowReaderTest {
+
+    private static List<String[]> readAll(String text, Charset charset, char delimiter, int bufferSize)
+            throws IOException {
+        DelimitedRowReader reader = new DelimitedRowReader(
+                new ByteArrayInputStream(text.getBytes(charset)), charset, delimiter, bufferSize, 1_000_000, 10_000);
+        List<String[]> rows = new ArrayList<>();
+        String[] row;
+        while ((row = reader.nextRow()) != null) {
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    @Test
+    void splitsQuotedCellsAndEscapedQuotes() throws IOException {
+        List<String[]> rows = readAll("name,quote\n\"Smith, J\",\"He said \"\"hi\"\"\"\n", StandardCharsets.UTF_8, ',', 64);
+
+        assertEquals(2, rows.size());
+        assertArrayEquals(new String[]{"name", "quote"}, rows.get(0));
+        assertArrayEquals(new String[]{"Smith, J", "He said \"hi\""}, rows.get(1));
+    }
+
+    @Test
+    void handlesAllLineBreaksEmptyLinesAndMissingFinalBreak() throws IOException {
+        List<String[]> rows = readAll("a\tb\r\n\rc\nd", StandardCharsets.UTF_8, '\t', 64);
+
+        assertEquals(4, rows.size());
+        assertArrayEquals(new String[]{"a", "b"}, rows.get(0));
+        assertArrayEquals(new String[]{""}, rows.get(1));
+        assertArrayEquals(new String[]{"c"}, rows.get(2));
+        assertArrayEquals(new String[]{"d"}, rows.get(3));
+    }
+
+    @Test
+    void decodesInTheConfiguredCharsetAndSkipsUtf8Bom() throws IOException {
+        assertArrayEquals(new String[]{"café", "naïve"},
+                readAll("café;naïve", Charset.forName("windows-1252"), ';', 64).get(0));
+        assertArrayEquals(new String[]{"漢字", "x"},
+                readAll("﻿漢字,x", StandardCharsets.UTF_8, ',', 64).get(0));
+    }
+
+    @Test
+    void linesLongerThanTheBufferGrowIt() throws IOException {
+        String longCell = "x".repeat(10_000);
+        List<String[]> rows = readAll(longCell + ",end\nnext", StandardCharsets.UTF_8, ',', 64);
+
+        assertArrayEquals(new String[]{longCell, "end"}, rows.get(0));
+        assertArrayEquals(new String[]{"next"}, rows.get(1));
+    }
+
+    @Test
+    void enforcesLineLengthInCharactersAndFieldCount() {
+        DelimitedRowReader tooLong = new DelimitedRowReader(
+                new ByteArrayInputStream(("ok\n" + "y".repeat(500)).getBytes(StandardCharsets.UTF_8)),
+                StandardCharsets.UTF_8, ',', 64, 100, 10);
+        IOException lengthError = assertThrows(IOException.class, () -> {
+            tooLong.nextRow();
+            tooLong.nextRow();
+        });
+        assertEquals("Line 2 exceeds maximum length: 100", lengthError.getMessage());
+
+        // 100 three-byte characters are 300 bytes but still within a 100 character limit
+        DelimitedRowReader multiByte = new DelimitedRowReader(
+                new ByteArrayInputStream("漢".repeat(100).getBytes(StandardCharsets.UTF_8)),
+                StandardCharsets.UTF_8, ',', 64, 100, 10);
+        assertDoesNotThrow(multiByte::nextRow);
+
+        DelimitedRowReader tooWide = new DelimitedRowReader(
+                new ByteArrayInputStream("a,b,c".getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8, ',', 64, 100, 2);
+        IOException fieldError = assertThrows(IOException.class, tooWide::nextRow);
+        assertEquals("Line 1 exceeds maximum field count: 2", fieldError.getMessage());
+    }
+
+    @Test
+    void rejectsCharsetsThatAreNotAsciiCompatible() {
+        assertThrows(IllegalArgumentException.class,
+                () -> DelimitedRowReader.requireAsciiCompatible(StandardCharsets.UTF_16));
+        assertEquals(StandardCharsets.ISO_8859_1, DelimitedRowReader.requireAsciiCompatible(StandardCharsets.ISO_8859_1));
+    }
+
+    // ========== Equivalence with the line-based parser ==========
+
+    /**
+     * For any input, the reader produces exactly the rows that BufferedReader.readLine plus the
+     * previous character-level parser produced, whatever the buffer size.
+     */
+    @Property(tries = 500)
+    @Label("Byte-level splitting matches the line-based parser")
+    void matchesLineBasedParser(@ForAll("delimitedText") String text,
+                                @ForAll boolean tabs,
+                                @ForAll @IntRange(min = 64, max = 200) int bufferSize) throws IOException {
+        char delimiter = tabs ? '\t' : ',';
+        List<String[]> expected = new ArrayList<>();
+        BufferedReader lines = new BufferedReader(new StringReader(text));
+        String line;
+        while ((line = lines.readLine()) != null) {
+            expected.add(parseLine(line, delimiter));
+        }
+
+        List<String[]> actual = readAll(text, StandardCharsets.UTF_8, delimiter, bufferSize);
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), actual.get(i), "Row " + i);
+        }
+    }
+
+    @Provide
+    Arbitrary<String> delimitedText() {
+        return Arbitraries.strings().withChars("ab,\t\"\r\n é漢").ofMaxLength(400);
+    }
+
+    /**
+     * The character-level parser DelimiterSeparatedToPdfService used before the byte-level reader.
+     */
+    private static String[] parseLine(String line, char delimiter) {
+        List<String> values = new ArrayList<>();
+        StringBuilder currentValue = new StringBuilder();
+        boolean inQuotes = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (inQuotes && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    currentValue.append('"');
+                    i++;
+                } else {
+                    inQuotes = !inQuotes;
+                }
+            } else if (c == delimiter && !inQuotes) {
+                values.add(currentValue.toString());
+                currentValue = new StringBuilder();
+            } else {
+                currentValue.append(c);
+            }
+        }
+        values.add(currentValue.toString());
+        return values.toArray(new String[0]);
+    }
+}
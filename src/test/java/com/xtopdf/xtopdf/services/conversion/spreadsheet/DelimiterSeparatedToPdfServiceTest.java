@@ -0,0 +1,168 @@
+package com.xtopdf.xtopdf.services.conversion.spreadsheet;
+
+import com.xtopdf.xtopdf.config.MetricsConfiguration.ConversionMetrics;
+import com.xtopdf.xtopdf.pdf.PdfBackendProvider;
+import com.xtopdf.xtopdf.pdf.PdfDocumentBuilder;
+import com.xtopdf.xtopdf.pdf.PdfOutputTarget;
+import com.xtopdf.xtopdf.pdf.impl.PdfBoxBackend;
+import com.xtopdf.xtopdf.services.scheduling.ConversionScheduler;
+import com.xtopdf.xtopdf.services.scheduling.HeapCostModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the parallel streaming path of DelimiterSeparatedToPdfService.
+ * Uses 500-line segments so a few thousand rows span several workers.
+ */
+class DelimiterSeparatedToPdfServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final PdfBackendProvider pdfBackend = new PdfBoxBackend();
+    private SheetRenderPool pool;
+    private DelimiterSeparatedToPdfService service;
+
+    @BeforeEach
+    void setUp() {
+        pool = new SheetRenderPool(null, 4);
+        service = new DelimiterSeparatedToPdfService(pdfBackend, "UTF-8", pool, 500);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    private static MockMultipartFile csv(String content) {
+        return new MockMultipartFile("file", "large.csv", "text/csv", content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void convertStreamingParallel_keepsRowOrderAcrossSegments() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 2_200; i++) {
+            content.append("r").append(i).append("x").append(',').append(i * 2);
+            if (i == 1_300) {
+                content.append(",wide");
+            }
+            content.append('\n');
+        }
+        File output = tempDir.resolve("parallel.pdf").toFile();
+
+        service.convertStreamingParallel(csv(content.toString()), PdfOutputTarget.file(output), ',');
+
+        try (PDDocument document = Loader.loadPDF(output)) {
+            String text = new PDFTextStripper().getText(document);
+            int previous = -1;
+            for (int i = 0; i < 2_200; i += 97) {
+                int position = text.indexOf("r" + i + "x");
+                assertTrue(position > previous, "Row " + i + " should follow the rows before it");
+                previous = position;
+            }
+            assertTrue(text.contains("wide"), "The widest row should keep its extra cell");
+        }
+    }
+
+    @Test
+    void largeCsvSubmittedThroughScheduler_rendersSegmentsOnWorkers() throws Exception {
+        // Lines of about 5 KB, so the file crosses the streaming threshold in 2,000 rows
+        String cell = "c".repeat(1_000);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 2_000; i++) {
+            content.append("r").append(i).append("x");
+            for (int column = 0; column < 5; column++) {
+                content.append(',').append(cell);
+            }
+            content.append('\n');
+        }
+        MockMultipartFile file = csv(content.toString());
+        assertTrue(file.getSize() > 10_000_000, "The file should be streamed");
+
+        Set<String> builderThreads = ConcurrentHashMap.newKeySet();
+        PdfBackendProvider recordingBackend = new PdfBackendProvider() {
+            @Override
+            public PdfDocumentBuilder createBuilder() throws IOException {
+                builderThreads.add(Thread.currentThread().getName());
+                return pdfBackend.createBuilder();
+            }
+
+            @Override
+            public String getBackendName() {
+                return pdfBackend.getBackendName();
+            }
+        };
+        DelimiterSeparatedToPdfService scheduled = new DelimiterSeparatedToPdfService(recordingBackend, "UTF-8", pool, 500);
+        ConversionMetrics metrics = new ConversionMetrics(new SimpleMeterRegistry());
+        ConversionScheduler scheduler = new ConversionScheduler(metrics, new HeapCostModel(metrics, 4, 16, 0.2, List.of()),
+                4, 10, shippedFormatWeights(), 0);
+        File output = tempDir.resolve("scheduled.pdf").toFile();
+        try {
+            scheduler.submit(ConversionScheduler.formatOf(file.getOriginalFilename()), file.getSize(),
+                    ConversionScheduler.Priority.SYNC, () -> {
+                        scheduled.convertDelimiterSeparatedToPdf(file, output, ',');
+                        return null;
+                    }).get(60, TimeUnit.SECONDS);
+        } finally {
+            scheduler.shutdown();
+        }
+
+        assertTrue(builderThreads.stream().anyMatch(name -> name.startsWith("sheet-render-")),
+                "Segments should be rendered on the render workers, not streamed on the request thread: " + builderThreads);
+        try (PDDocument document = Loader.loadPDF(output)) {
+            String text = new PDFTextStripper().getText(document);
+            assertTrue(text.indexOf("r1999x") > text.indexOf("r0x"), "The last row should follow the first");
+        }
+    }
+
+    @Test
+    void convertStreamingParallel_reportsLimitsWithInputLineNumbers() {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 1_200; i++) {
+            content.append("a,b\n");
+        }
+        content.append(",".repeat(10_000)).append('\n');
+        content.append("a,b\n");
+
+        IOException ex = assertThrows(IOException.class, () -> service.convertStreamingParallel(
+                csv(content.toString()), PdfOutputTarget.file(tempDir.resolve("wide.pdf").toFile()), ','));
+
+        assertEquals("Line 1201 exceeds maximum field count: 10000", ex.getMessage());
+    }
+
+    @Test
+    void convertStreamingParallel_emptyFile_throwsIOException() {
+        IOException ex = assertThrows(IOException.class, () -> service.convertStreamingParallel(
+                csv(""), PdfOutputTarget.file(tempDir.resolve("empty.pdf").toFile()), ','));
+
+        assertEquals("File is empty", ex.getMessage());
+    }
+
+    private static List<String> shippedFormatWeights() throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = DelimiterSeparatedToPdfServiceTest.class.getResourceAsStream("/application.properties")) {
+            properties.load(in);
+        }
+        return List.of(properties.getProperty("xtopdf.scheduler.format-weights").split(","));
+    }
+}
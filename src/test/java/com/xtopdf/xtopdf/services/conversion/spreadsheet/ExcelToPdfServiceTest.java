@@ -1,30 +1,39 @@
 package com.xtopdf.xtopdf.services.conversion.spreadsheet;
 
+import com.xtopdf.xtopdf.config.MetricsConfiguration.ConversionMetrics;
 import com.xtopdf.xtopdf.pdf.PdfBackendProvider;
 import com.xtopdf.xtopdf.pdf.PdfDocumentBuilder;
 import com.xtopdf.xtopdf.pdf.impl.PdfBoxBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.FillPatternType;
 import org.apache.poi.ss.usermodel.Font;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFColor;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -1142,4 +1151,310 @@ class ExcelToPdfServiceTest {
             }
         }
     }
+
+    // ========== Row Streaming Tests ==========
+
+    @Nested
+    class RowStreamingTests {
+
+        @Test
+        void sheetChunkWriter_writesFullChunksWhileRowsArrive() throws Exception {
+            PdfDocumentBuilder builder = mock(PdfDocumentBuilder.class);
+            SheetChunkWriter writer = new SheetChunkWriter(builder, 2, 3);
+
+            for (int row = 0; row < 7; row++) {
+                writer.onRow(row, List.of("r" + row, "x"), null);
+                if (row == 2) {
+                    // The first chunk is written as soon as it is full, not at the end of the sheet
+                    verify(builder, times(1)).addTable(any(String[][].class));
+                }
+            }
+            assertTrue(writer.finish());
+
+            var tables = ArgumentCaptor.forClass(String[][].class);
+            verify(builder, times(3)).addTable(tables.capture());
+            assertEquals(3, tables.getAllValues().get(0).length);
+            assertEquals(3, tables.getAllValues().get(1).length);
+            assertEquals("r6", tables.getAllValues().get(2)[0][0]);
+        }
+
+        @Test
+        void sheetChunkWriter_keepsSparseRowPositionsAndWidensForWideRows() throws Exception {
+            PdfDocumentBuilder builder = mock(PdfDocumentBuilder.class);
+            SheetChunkWriter writer = new SheetChunkWriter(builder, 2, 10);
+
+            writer.onRow(0, List.of("a", "b"), null);
+            writer.onRow(3, List.of("c", "d", "e"), null);
+            assertTrue(writer.finish());
+
+            var table = ArgumentCaptor.forClass(String[][].class);
+            verify(builder).addTable(table.capture());
+            String[][] rows = table.getValue();
+            assertEquals(4, rows.length);
+            assertArrayEquals(new String[]{"a", "b", ""}, rows[0]);
+            assertArrayEquals(new String[]{"", "", ""}, rows[1]);
+            assertArrayEquals(new String[]{"c", "d", "e"}, rows[3]);
+        }
+
+        @Test
+        void sheetChunkWriter_longGapKeepsRowPositions() throws Exception {
+            PdfDocumentBuilder builder = mock(PdfDocumentBuilder.class);
+            SheetChunkWriter writer = new SheetChunkWriter(builder, 1, 1000);
+
+            writer.onRow(0, List.of("first"), null);
+            writer.onRow(5_000, List.of("last"), null);
+            assertTrue(writer.finish());
+
+            var tables = ArgumentCaptor.forClass(String[][].class);
+            verify(builder, times(6)).addTable(tables.capture());
+            assertTrue(tables.getAllValues().stream().allMatch(t -> t.length <= 1000), "No chunk exceeds the chunk size");
+            assertEquals(5_001, tables.getAllValues().stream().mapToInt(t -> t.length).sum());
+            assertEquals("first", tables.getAllValues().get(0)[0][0]);
+            String[][] last = tables.getAllValues().get(5);
+            assertEquals("last", last[last.length - 1][0]);
+        }
+
+        @Test
+        void sheetChunkWriter_leadingRowsWithoutCells_areWrittenInChunksOnceWidthIsKnown() throws Exception {
+            PdfDocumentBuilder builder = mock(PdfDocumentBuilder.class);
+            SheetChunkWriter writer = new SheetChunkWriter(builder, 2, 3);
+
+            for (int row = 0; row < 10; row++) {
+                writer.onRow(row, List.of(), null);
+            }
+            verify(builder, never()).addTable(any(String[][].class));
+            writer.onRow(10, List.of("a", "b"), null);
+            assertTrue(writer.finish());
+
+            var tables = ArgumentCaptor.forClass(String[][].class);
+            verify(builder, times(4)).addTable(tables.capture());
+            assertTrue(tables.getAllValues().stream().allMatch(t -> t.length <= 3), "No chunk exceeds the chunk size");
+            assertArrayEquals(new String[]{"", ""}, tables.getAllValues().get(0)[0]);
+            assertArrayEquals(new String[]{"a", "b"}, tables.getAllValues().get(3)[1]);
+        }
+
+        @Test
+        void sheetChunkWriter_rowsWithoutCells_reportEmptySheet() throws Exception {
+            PdfDocumentBuilder builder = mock(PdfDocumentBuilder.class);
+            SheetChunkWriter writer = new SheetChunkWriter(builder, 4, 10);
+
+            writer.onRow(0, List.of(), null);
+            writer.onRow(1, List.of(), null);
+
+            assertFalse(writer.finish());
+            verify(builder, never()).addTable(any(String[][].class));
+        }
+
+        @Test
+        void declaredColumnCount_readsDimensionWithoutConsumingTheStream() throws Exception {
+            String xml = "<?xml version=\"1.0\"?><worksheet xmlns=\"x\"><dimension ref=\"A1:K500\"/><sheetData/></worksheet>";
+            var in = new BufferedInputStream(new ByteArrayInputStream(xml.getBytes()));
+
+            assertEquals(11, SheetSaxHandler.declaredColumnCount(in));
+            assertEquals(xml, new String(in.readAllBytes()));
+        }
+
+        @Test
+        void declaredColumnCount_missingOrImplausibleDimension_returnsZero() throws Exception {
+            String noDimension = "<worksheet><sheetData/></worksheet>";
+            String everyColumn = "<worksheet><dimension ref=\"A1:XFD1\"/><sheetData/></worksheet>";
+
+            assertEquals(0, SheetSaxHandler.declaredColumnCount(
+                    new BufferedInputStream(new ByteArrayInputStream(noDimension.getBytes()))));
+            assertEquals(0, SheetSaxHandler.declaredColumnCount(
+                    new BufferedInputStream(new ByteArrayInputStream(everyColumn.getBytes()))));
+        }
+
+        @Test
+        void convertXlsxStreaming_moreRowsThanOneChunk_allRowsAppear() throws Exception {
+            byte[] xlsxData;
+            try (XSSFWorkbook workbook = new XSSFWorkbook();
+                 ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+                Sheet sheet = workbook.createSheet("Large");
+                int rows = ExcelToPdfService.CHUNK_SIZE * 2 + 5;
+                for (int i = 0; i < rows; i++) {
+                    Row row = sheet.createRow(i);
+                    row.createCell(0).setCellValue("Row" + i);
+                    row.createCell(1).setCellValue(i);
+                }
+                workbook.write(baos);
+                xlsxData = baos.toByteArray();
+            }
+
+            MockMultipartFile xlsxFile = new MockMultipartFile(
+                "file", "large.xlsx", MediaType.APPLICATION_OCTET_STREAM_VALUE, xlsxData
+            );
+            File outputFile = tempDir.resolve("large-output.pdf").toFile();
+
+            new ExcelToPdfService(new PdfBoxBackend()).convertXlsxStreaming(xlsxFile, outputFile);
+
+            try (PDDocument document = Loader.loadPDF(outputFile)) {
+                String text = new PDFTextStripper().getText(document);
+                assertTrue(text.contains("Row0"), "PDF should contain the first row");
+                assertTrue(text.contains("Row" + ExcelToPdfService.CHUNK_SIZE), "PDF should contain the first row of the second chunk");
+                assertTrue(text.contains("Row" + (ExcelToPdfService.CHUNK_SIZE * 2 + 4)), "PDF should contain the last row");
+            }
+        }
+
+        @Test
+        void xlsxStyleResolver_resolvesBoldFillAndNumberFormats() throws Exception {
+            try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+                var boldStyle = workbook.createCellStyle();
+                Font boldFont = workbook.createFont();
+                boldFont.setBold(true);
+                boldStyle.setFont(boldFont);
+                boldStyle.setFillForegroundColor(new XSSFColor(new byte[]{(byte) 255, (byte) 255, 0}, null));
+                boldStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+                var percentStyle = workbook.createCellStyle();
+                percentStyle.setDataFormat(workbook.createDataFormat().getFormat("0.00%"));
+
+                XlsxStyleResolver resolver = new XlsxStyleResolver(workbook.getStylesSource());
+
+                CellFormatting bold = resolver.format(String.valueOf(boldStyle.getIndex()), "s", "0");
+                assertTrue(bold.bold());
+                assertTrue(bold.hasBackground());
+                assertEquals(0, bold.backgroundB());
+                assertNull(bold.formattedValue());
+                // Cells sharing a style share the resolved formatting
+                assertSame(bold, resolver.format(String.valueOf(boldStyle.getIndex()), "s", "1"));
+
+                assertEquals("50.00%", resolver.format(String.valueOf(percentStyle.getIndex()), null, "0.5").formattedValue());
+                assertSame(CellFormatting.PLAIN, resolver.format(null, null, "1"));
+                assertSame(CellFormatting.PLAIN, resolver.format("0", null, "1"));
+            }
+        }
+
+        @Test
+        void convertXlsxStreaming_styledCells_keepTheirFormatting() throws Exception {
+            byte[] xlsxData;
+            try (XSSFWorkbook workbook = new XSSFWorkbook();
+                 ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+                var headerStyle = workbook.createCellStyle();
+                Font boldFont = workbook.createFont();
+                boldFont.setBold(true);
+                headerStyle.setFont(boldFont);
+                var moneyStyle = workbook.createCellStyle();
+                moneyStyle.setDataFormat(workbook.createDataFormat().getFormat("#,##0.00"));
+
+                Sheet sheet = workbook.createSheet("Styled");
+                Row header = sheet.createRow(0);
+                header.createCell(0).setCellValue("Amount");
+                header.getCell(0).setCellStyle(headerStyle);
+                Row data = sheet.createRow(1);
+                data.createCell(0).setCellValue(1234.5);
+                data.getCell(0).setCellStyle(moneyStyle);
+                workbook.write(baos);
+                xlsxData = baos.toByteArray();
+            }
+
+            PdfBackendProvider backend = mock(PdfBackendProvider.class);
+            PdfDocumentBuilder builder = mock(PdfDocumentBuilder.class);
+            when(backend.createBuilder()).thenReturn(builder);
+            MockMultipartFile xlsxFile = new MockMultipartFile(
+                "file", "styled.xlsx", MediaType.APPLICATION_OCTET_STREAM_VALUE, xlsxData
+            );
+
+            new ExcelToPdfService(backend).convertXlsxStreaming(xlsxFile, tempDir.resolve("styled.pdf").toFile());
+
+            ArgumentCaptor<CellFormatting[][]> formatting = ArgumentCaptor.forClass(CellFormatting[][].class);
+            verify(builder).addTable(any(String[][].class), isNull(), formatting.capture());
+            assertTrue(formatting.getValue()[0][0].bold());
+            assertEquals("1,234.50", formatting.getValue()[1][0].formattedValue());
+        }
+    }
+
+    // ========== Parallel Sheet Rendering ==========
+
+    @Nested
+    class ParallelSheetRenderingTests {
+
+        private PdfBackendProvider pdfBackend;
+        private SheetRenderPool pool;
+
+        @BeforeEach
+        void setUp() {
+            pdfBackend = new PdfBoxBackend();
+            pool = new SheetRenderPool(null, 4);
+        }
+
+        @AfterEach
+        void tearDown() {
+            pool.shutdown();
+        }
+
+        private MockMultipartFile workbookWithSheets(int sheets) throws IOException {
+            try (XSSFWorkbook workbook = new XSSFWorkbook();
+                 ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+                for (int s = 0; s < sheets; s++) {
+                    Sheet sheet = workbook.createSheet("Sheet" + s);
+                    // Early sheets are the largest, so later sheets tend to finish first
+                    int rows = (sheets - s) * 40;
+                    for (int r = 0; r < rows; r++) {
+                        Row row = sheet.createRow(r);
+                        row.createCell(0).setCellValue("S" + s + "R" + r);
+                        row.createCell(1).setCellValue(r);
+                    }
+                }
+                workbook.write(baos);
+                return new MockMultipartFile("file", "sheets.xlsx",
+                        MediaType.APPLICATION_OCTET_STREAM_VALUE, baos.toByteArray());
+            }
+        }
+
+        @Test
+        void convertExcelToPdf_parallelSheets_matchSequentialPagesAndOrder() throws Exception {
+            MockMultipartFile xlsxFile = workbookWithSheets(6);
+            File sequentialPdf = tempDir.resolve("sequential.pdf").toFile();
+            File parallelPdf = tempDir.resolve("parallel.pdf").toFile();
+
+            new ExcelToPdfService(pdfBackend).convertExcelToPdf(xlsxFile, sequentialPdf, false);
+            new ExcelToPdfService(pdfBackend, pool).convertExcelToPdf(xlsxFile, parallelPdf, false);
+
+            try (PDDocument sequential = Loader.loadPDF(sequentialPdf);
+                 PDDocument parallel = Loader.loadPDF(parallelPdf)) {
+                assertEquals(sequential.getNumberOfPages(), parallel.getNumberOfPages(),
+                        "Parallel rendering should produce the same pages");
+                String sequentialText = new PDFTextStripper().getText(sequential);
+                String parallelText = new PDFTextStripper().getText(parallel);
+                assertEquals(sequentialText, parallelText, "Parallel rendering should keep sheet order");
+
+                int previous = -1;
+                for (int s = 0; s < 6; s++) {
+                    int header = parallelText.indexOf("Sheet: Sheet" + s);
+                    assertTrue(header > previous, "Sheet" + s + " should follow the previous sheet");
+                    previous = header;
+                }
+            }
+        }
+
+        @Test
+        void convertExcelToPdf_parallelSheets_recordsOneTimingPerSheet() throws Exception {
+            SimpleMeterRegistry registry = new SimpleMeterRegistry();
+            SheetRenderPool timedPool = new SheetRenderPool(new ConversionMetrics(registry), 2);
+            try {
+                new ExcelToPdfService(pdfBackend, timedPool)
+                        .convertExcelToPdf(workbookWithSheets(3), tempDir.resolve("timed.pdf").toFile(), false);
+            } finally {
+                timedPool.shutdown();
+            }
+
+            assertEquals(3, registry.get("conversion.sheet.render.duration").tag("format", "xlsx").timer().count());
+        }
+
+        @Test
+        void convertExcelToPdf_sheetFailsToRender_throwsAndClosesParts() throws Exception {
+            PdfDocumentBuilder failingPart = mock(PdfDocumentBuilder.class);
+            doThrow(new IOException("render failed")).when(failingPart).addParagraph(anyString());
+            PdfBackendProvider backend = mock(PdfBackendProvider.class);
+            when(backend.createBuilder()).thenAnswer(invocation -> pdfBackend.createBuilder()).thenReturn(failingPart);
+
+            ExcelToPdfService service = new ExcelToPdfService(backend, pool);
+            IOException ex = assertThrows(IOException.class, () ->
+                    service.convertExcelToPdf(workbookWithSheets(2), tempDir.resolve("failed.pdf").toFile(), false));
+
+            assertEquals("render failed", ex.getMessage());
+            verify(failingPart).close();
+            assertFalse(tempDir.resolve("failed.pdf").toFile().exists(), "No PDF should be written");
+        }
+    }
 }
@@ -0,0 +1,93 @@
+package com.xtopdf.xtopdf.services.conversion.spreadsheet;
+
+import com.xtopdf.xtopdf.config.MetricsConfiguration.ConversionMetrics;
+import com.xtopdf.xtopdf.pdf.PdfBackendProvider;
+import com.xtopdf.xtopdf.pdf.PdfDocumentBuilder;
+import com.xtopdf.xtopdf.services.scheduling.ConversionScheduler;
+import com.xtopdf.xtopdf.services.scheduling.ConversionScheduler.Priority;
+import com.xtopdf.xtopdf.services.scheduling.HeapCostModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SheetRenderPoolTest {
+
+    private final SheetRenderPool pool = new SheetRenderPool(null, 4);
+    private ConversionScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    private ConversionScheduler scheduler(List<String> weights) {
+        ConversionMetrics metrics = new ConversionMetrics(new SimpleMeterRegistry());
+        scheduler = new ConversionScheduler(metrics, new HeapCostModel(metrics, 4, 16, 0.2, List.of()),
+                8, 10, weights, 0);
+        return scheduler;
+    }
+
+    @Test
+    void sheetsRenderingAtOnceStayWithinTheConversionsPermits() throws Exception {
+        scheduler(List.of("xlsx=3"));
+        AtomicInteger rendering = new AtomicInteger();
+        AtomicInteger mostAtOnce = new AtomicInteger();
+
+        scheduler.submit("xlsx", Priority.SYNC, () -> {
+            try (SheetRenderPool.Session sheets = pool.open("xlsx", mock(PdfDocumentBuilder.class), backend())) {
+                for (int i = 0; i < 12; i++) {
+                    sheets.render("Sheet" + i, builder -> {
+                        mostAtOnce.accumulateAndGet(rendering.incrementAndGet(), Math::max);
+                        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(20));
+                        rendering.decrementAndGet();
+                    });
+                }
+                sheets.finish();
+            }
+            return null;
+        }).get(10, TimeUnit.SECONDS);
+
+        // The converting thread holds one of the three permits
+        assertThat(mostAtOnce.get()).isEqualTo(2);
+    }
+
+    @Test
+    void conversionWithOnePermitRendersOnItsOwnThread() throws Exception {
+        scheduler(List.of());
+        Set<Thread> renderers = ConcurrentHashMap.newKeySet();
+
+        Thread converting = scheduler.submit("ods", Priority.SYNC, () -> {
+            assertThat(pool.isParallel()).isFalse();
+            try (SheetRenderPool.Session sheets = pool.open("ods", mock(PdfDocumentBuilder.class), backend())) {
+                for (int i = 0; i < 4; i++) {
+                    sheets.render("Sheet" + i, builder -> renderers.add(Thread.currentThread()));
+                }
+                sheets.finish();
+            }
+            return Thread.currentThread();
+        }).get(10, TimeUnit.SECONDS);
+
+        assertThat(renderers).containsExactly(converting);
+        assertThat(pool.isParallel()).as("outside the scheduler the whole pool is used").isTrue();
+    }
+
+    private static PdfBackendProvider backend() throws Exception {
+        PdfBackendProvider backend = mock(PdfBackendProvider.class);
+        when(backend.createBuilder()).thenAnswer(invocation -> mock(PdfDocumentBuilder.class));
+        return backend;
+    }
+}
@@ -0,0 +1,152 @@
+package com.xtopdf.xtopdf.services.dxf;
+
+import com.xtopdf.xtopdf.entities.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Tests for DxfEntityBounds.
+ */
+class DxfEntityBoundsTest {
+
+    private static final double EPSILON = 1e-9;
+
+    private final DxfEntityBounds bounds = new DxfEntityBounds(Map.of());
+
+    @Test
+    void arcCoversOnlyTheQuadrantsItSweeps() {
+        ArcEntity arc = new ArcEntity();
+        arc.setCenterX(10);
+        arc.setCenterY(10);
+        arc.setRadius(2);
+        arc.setStartAngle(0);
+        arc.setEndAngle(90);
+
+        assertExtents(bounds.of(arc), 10, 10, 12, 12);
+    }
+
+    @Test
+    void arcAcrossZeroDegreesCoversTheRightmostPoint() {
+        ArcEntity arc = new ArcEntity();
+        arc.setRadius(1);
+        arc.setStartAngle(-30);
+        arc.setEndAngle(30);
+
+        DxfExtents extents = bounds.of(arc);
+
+        assertThat(extents.maxX()).isCloseTo(1, within(EPSILON));
+        assertThat(extents.minX()).isCloseTo(Math.cos(Math.toRadians(30)), within(EPSILON));
+        assertThat(extents.maxY()).isCloseTo(0.5, within(EPSILON));
+    }
+
+    @Test
+    void arcDrawnClockwiseIsGivenTheWholeCircle() {
+        ArcEntity arc = new ArcEntity();
+        arc.setRadius(1);
+        arc.setStartAngle(90);
+        arc.setEndAngle(0);
+
+        assertExtents(bounds.of(arc), -1, -1, 1, 1);
+    }
+
+    @Test
+    void rotatedEllipseCoversItsAxes() {
+        EllipseEntity ellipse = new EllipseEntity();
+        ellipse.setCenterX(0);
+        ellipse.setCenterY(0);
+        ellipse.setMajorAxisX(0);
+        ellipse.setMajorAxisY(4);
+        ellipse.setRatio(0.5);
+
+        DxfExtents extents = bounds.of(ellipse);
+
+        // Major axis vertical: 2 wide and 4 tall each side, plus the unrotated ellipse the renderer draws
+        assertThat(extents.maxY()).isCloseTo(4, within(EPSILON));
+        assertThat(extents.maxX()).isCloseTo(4, within(EPSILON));
+    }
+
+    @Test
+    void textIsEstimatedFromItsHeightAndLength() {
+        TextEntity text = new TextEntity();
+        text.setX(100);
+        text.setY(200);
+        text.setHeight(10);
+        text.setText("ABCDE");
+
+        assertExtents(bounds.of(text), 100, 200, 100 + 5 * 10 * DxfEntityBounds.TEXT_WIDTH_PER_HEIGHT, 210);
+        assertThat(bounds.scalesWithDrawing(text)).isFalse();
+    }
+
+    @Test
+    void polylineWithoutASegmentHasNoBounds() {
+        PolylineEntity polyline = new PolylineEntity();
+        polyline.addVertex(1, 1);
+
+        assertThat(bounds.of(polyline)).isNull();
+    }
+
+    @Test
+    void insertIsMovedScaledAndRotatedAboutTheBasePoint() {
+        BlockEntity block = new BlockEntity("Pin");
+        block.setBaseX(10);
+        block.setBaseY(10);
+        LineEntity line = new LineEntity();
+        line.setX1(10);
+        line.setY1(10);
+        line.setX2(20);
+        line.setY2(10);
+        block.addEntity(line);
+        DxfEntityBounds withBlocks = new DxfEntityBounds(Map.of("Pin", block));
+
+        InsertEntity insert = new InsertEntity("Pin", 100, 100);
+        insert.setScaleX(2);
+        insert.setScaleY(2);
+        insert.setRotation(90);
+
+        // Rotated: straight up from the insertion point. Drawn: straight right.
+        assertExtents(withBlocks.of(insert), 100, 100, 120, 120);
+        assertThat(withBlocks.scalesWithDrawing(insert)).isTrue();
+    }
+
+    @Test
+    void nestedInsertsAreMeasuredThroughEveryBlock() {
+        BlockEntity inner = new BlockEntity("Inner");
+        CircleEntity circle = new CircleEntity();
+        circle.setRadius(1);
+        inner.addEntity(circle);
+        BlockEntity outer = new BlockEntity("Outer");
+        outer.addEntity(new InsertEntity("Inner", 5, 0));
+        TextEntity label = new TextEntity();
+        label.setText("");
+        label.setHeight(2);
+        outer.addEntity(label);
+        DxfEntityBounds withBlocks = new DxfEntityBounds(Map.of("Inner", inner, "Outer", outer));
+
+        InsertEntity insert = new InsertEntity("Outer", 100, 0);
+
+        assertExtents(withBlocks.of(insert), 100, -1, 106, 2);
+        assertThat(withBlocks.scalesWithDrawing(insert)).isFalse();
+    }
+
+    @Test
+    void insertOfUnknownOrSelfReferencingBlockHasNoBounds() {
+        BlockEntity loop = new BlockEntity("Loop");
+        loop.addEntity(new InsertEntity("Loop", 1, 1));
+        DxfEntityBounds withBlocks = new DxfEntityBounds(Map.of("Loop", loop));
+
+        assertThat(withBlocks.of(new InsertEntity("Missing", 0, 0))).isNull();
+        assertThat(withBlocks.of(new InsertEntity("Loop", 0, 0))).isNull();
+    }
+
+    private static void assertExtents(DxfExtents extents, double minX, double minY, double maxX, double maxY) {
+        assertThat(extents).isNotNull();
+        assertThat(extents.minX()).isCloseTo(minX, within(EPSILON));
+        assertThat(extents.minY()).isCloseTo(minY, within(EPSILON));
+        assertThat(extents.maxX()).isCloseTo(maxX, within(EPSILON));
+        assertThat(extents.maxY()).isCloseTo(maxY, within(EPSILON));
+    }
+}
@@ -0,0 +1,150 @@
+package com.xtopdf.xtopdf.services.dxf;
+
+import com.xtopdf.xtopdf.pdf.PdfDocumentBuilder;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for DxfPdfRenderer.
+ */
+class DxfPdfRendererTest {
+
+    private final PdfDocumentBuilder builder = mock(PdfDocumentBuilder.class);
+    private final DxfPdfRenderer renderer = new DxfPdfRenderer(builder);
+
+    @Test
+    void consecutiveStrokesInTheSameStyleArePaintedOnce() throws IOException {
+        for (int i = 0; i < 100; i++) {
+            renderer.saveState();
+            renderer.setStrokeColor(0, 0, 0);
+            renderer.moveTo(i, 0);
+            renderer.lineTo(i, 10);
+            renderer.stroke();
+            renderer.restoreState();
+        }
+        renderer.flush();
+
+        verify(builder, times(100)).appendPolyline(any(float[].class), anyInt(), eq(2));
+        verify(builder, times(1)).stroke();
+        verify(builder, times(1)).setStrokeColor(0, 0, 0);
+        verify(builder, never()).saveState();
+        verify(builder, never()).restoreState();
+    }
+
+    @Test
+    void changeOfColorPaintsTheStrokesSoFar() throws IOException {
+        renderer.moveTo(0, 0);
+        renderer.lineTo(1, 1);
+        renderer.stroke();
+        renderer.saveState();
+        renderer.setStrokeColor(1, 0, 0);
+        renderer.moveTo(2, 2);
+        renderer.lineTo(3, 3);
+        renderer.stroke();
+        renderer.restoreState();
+        renderer.flush();
+
+        InOrder inOrder = inOrder(builder);
+        inOrder.verify(builder).setStrokeColor(0, 0, 0);
+        inOrder.verify(builder).stroke();
+        inOrder.verify(builder).setStrokeColor(255, 0, 0);
+        inOrder.verify(builder).stroke();
+    }
+
+    @Test
+    void fillPaintsPendingStrokesFirst() throws IOException {
+        renderer.moveTo(0, 0);
+        renderer.lineTo(10, 0);
+        renderer.stroke();
+        renderer.moveTo(0, 0);
+        renderer.lineTo(3, 3);
+        renderer.lineTo(3, -3);
+        renderer.fill();
+
+        InOrder inOrder = inOrder(builder);
+        inOrder.verify(builder).stroke();
+        inOrder.verify(builder).appendPolyline(any(float[].class), eq(0), eq(3));
+        inOrder.verify(builder).closePath();
+        inOrder.verify(builder).fillAndStroke();
+    }
+
+    @Test
+    void moveToStartsANewSubpath() throws IOException {
+        renderer.moveTo(-2, 0);
+        renderer.lineTo(2, 0);
+        renderer.moveTo(0, -2);
+        renderer.lineTo(0, 2);
+        renderer.stroke();
+        renderer.flush();
+
+        ArgumentCaptor<float[]> coordinates = ArgumentCaptor.forClass(float[].class);
+        ArgumentCaptor<Integer> offsets = ArgumentCaptor.forClass(Integer.class);
+        verify(builder, times(2)).appendPolyline(coordinates.capture(), offsets.capture(), eq(2));
+        assertThat(offsets.getAllValues()).containsExactly(0, 4);
+        assertThat(Arrays.copyOf(coordinates.getValue(), 8)).containsExactly(-2f, 0f, 2f, 0f, 0f, -2f, 0f, 2f);
+    }
+
+    @Test
+    void arcIsDrawnWithOneCurvePerQuarterTurn() throws IOException {
+        renderer.arc(-10, -10, 10, 10, 0, 180);
+        renderer.stroke();
+        renderer.flush();
+
+        ArgumentCaptor<Float> x = ArgumentCaptor.forClass(Float.class);
+        ArgumentCaptor<Float> y = ArgumentCaptor.forClass(Float.class);
+        verify(builder, times(2)).curveTo(anyFloat(), anyFloat(), anyFloat(), anyFloat(), x.capture(), y.capture());
+        assertThat(x.getAllValues().get(1)).isCloseTo(-10f, within(1e-4f));
+        assertThat(y.getAllValues().get(1)).isCloseTo(0f, within(1e-4f));
+    }
+
+    @Test
+    void textUsesTheFillColor() throws IOException {
+        renderer.setFillColor(0, 0, 1);
+        renderer.addText(5, 5, "label", 8);
+        renderer.addText(5, 15, "label", 8);
+
+        InOrder inOrder = inOrder(builder);
+        inOrder.verify(builder).setFillColor(0, 0, 255);
+        inOrder.verify(builder, times(2)).addText(eq("label"), eq(5f), anyFloat());
+        verify(builder, times(1)).setFillColor(anyInt(), anyInt(), anyInt());
+    }
+
+    @Test
+    void newPageWritesTheStateAgain() throws IOException {
+        renderer.setLineDash(3, 3);
+        renderer.moveTo(0, 0);
+        renderer.lineTo(1, 0);
+        renderer.stroke();
+        renderer.newPage();
+        renderer.moveTo(0, 0);
+        renderer.lineTo(1, 0);
+        renderer.stroke();
+        renderer.flush();
+
+        InOrder inOrder = inOrder(builder);
+        inOrder.verify(builder).setLineDash(3, 3);
+        inOrder.verify(builder).stroke();
+        inOrder.verify(builder).newPage();
+        inOrder.verify(builder).setLineDash(3, 3);
+        inOrder.verify(builder).stroke();
+    }
+
+    @Test
+    void pathWithoutSegmentsIsNotPainted() throws IOException {
+        renderer.moveTo(1, 1);
+        renderer.stroke();
+        renderer.flush();
+
+        verify(builder, never()).appendPolyline(any(float[].class), anyInt(), anyInt());
+        verify(builder, never()).stroke();
+    }
+}
@@ -0,0 +1,97 @@
+package com.xtopdf.xtopdf.services.dxf;
+
+import com.xtopdf.xtopdf.entities.DxfEntity;
+import com.xtopdf.xtopdf.entities.InsertEntity;
+import com.xtopdf.xtopdf.entities.LineEntity;
+import net.jqwik.api.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for DxfSpatialIndex.
+ */
+class DxfSpatialIndexTest {
+
+    @Test
+    void emptyIndexFindsNothing() {
+        DxfSpatialIndex index = DxfSpatialIndex.build(List.of(), new DxfEntityBounds(Map.of()));
+
+        assertThat(index.search(-1e9, -1e9, 1e9, 1e9).isEmpty()).isTrue();
+        assertThat(index.extents()).isNull();
+    }
+
+    @Test
+    void entitiesWithoutBoundsAreListedApart() {
+        List<DxfEntity> entities = List.of(line(0, 0, 10, 10), new InsertEntity("Missing", 5, 5), line(20, 20, 30, 40));
+        DxfSpatialIndex index = DxfSpatialIndex.build(entities, new DxfEntityBounds(Map.of()));
+
+        assertThat(index.unbounded().stream().toArray()).containsExactly(1);
+        assertThat(index.search(-1e9, -1e9, 1e9, 1e9).stream().toArray()).containsExactly(0, 2);
+        assertThat(index.extents()).isEqualTo(new DxfExtents(0, 0, 30, 40));
+        assertThat(index.scalesWithDrawing(2)).isTrue();
+    }
+
+    @Test
+    void windowEdgesCount() {
+        DxfSpatialIndex index = DxfSpatialIndex.build(List.of(line(0, 0, 10, 10)), new DxfEntityBounds(Map.of()));
+
+        assertThat(index.search(10, 10, 20, 20).get(0)).isTrue();
+        assertThat(index.search(10.001, 0, 20, 20).get(0)).isFalse();
+    }
+
+    /**
+     * Whatever the packing, a search finds exactly the boxes a linear scan finds.
+     */
+    @Property(tries = 50)
+    @Label("search matches a linear scan")
+    void searchMatchesLinearScan(@ForAll("drawings") List<double[]> lines, @ForAll("windows") double[] window) {
+        List<DxfEntity> entities = new ArrayList<>();
+        for (double[] l : lines) {
+            entities.add(line(l[0], l[1], l[2], l[3]));
+        }
+        DxfSpatialIndex index = DxfSpatialIndex.build(entities, new DxfEntityBounds(Map.of()));
+
+        BitSet expected = new BitSet();
+        for (int i = 0; i < lines.size(); i++) {
+            double[] l = lines.get(i);
+            if (Math.min(l[0], l[2]) <= window[2] && Math.max(l[0], l[2]) >= window[0]
+                    && Math.min(l[1], l[3]) <= window[3] && Math.max(l[1], l[3]) >= window[1]) {
+                expected.set(i);
+            }
+        }
+
+        assertThat(index.search(window[0], window[1], window[2], window[3])).isEqualTo(expected);
+    }
+
+    @Provide
+    Arbitrary<List<double[]>> drawings() {
+        Arbitrary<Double> coordinate = Arbitraries.doubles().between(-1000, 1000);
+        Arbitrary<Double> length = Arbitraries.doubles().between(-50, 50);
+        return Combinators.combine(coordinate, coordinate, length, length)
+                .as((x, y, dx, dy) -> new double[]{x, y, x + dx, y + dy})
+                .list().ofMaxSize(2000);
+    }
+
+    @Provide
+    Arbitrary<double[]> windows() {
+        Arbitrary<Double> coordinate = Arbitraries.doubles().between(-1100, 1100);
+        Arbitrary<Double> size = Arbitraries.doubles().between(0, 600);
+        return Combinators.combine(coordinate, coordinate, size, size)
+                .as((x, y, w, h) -> new double[]{x, y, x + w, y + h});
+    }
+
+    private static LineEntity line(double x1, double y1, double x2, double y2) {
+        LineEntity line = new LineEntity();
+        line.setX1(x1);
+        line.setY1(y1);
+        line.setX2(x2);
+        line.setY2(y2);
+        return line;
+    }
+}
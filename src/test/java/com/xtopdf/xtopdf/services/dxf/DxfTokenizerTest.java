@@ -0,0 +1,223 @@
+package com.xtopdf.xtopdf.services.dxf;
+
+import com.xtopdf.xtopdf.utils.BinaryDxfWriter;
+import net.jqwik.api.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for DxfTokenizer, the byte-level group code/value reader.
+ */
+class DxfTokenizerTest {
+
+    @Test
+    void readsPairsWithAnyLineEndingAndTrimsThem() throws IOException {
+        DxfTokenizer tokenizer = tokenizer("  0 \r\nLINE\r 8\n layer one \r\n10\n1.5");
+
+        assertTrue(tokenizer.next());
+        assertEquals(0, tokenizer.groupCode());
+        assertTrue(tokenizer.valueIs(ascii("LINE")));
+        assertTrue(tokenizer.next());
+        assertEquals(8, tokenizer.groupCode());
+        assertEquals("layer one", tokenizer.stringValue());
+        assertTrue(tokenizer.next());
+        assertEquals(10, tokenizer.groupCode());
+        assertEquals(1.5, tokenizer.doubleValue());
+        assertFalse(tokenizer.next());
+    }
+
+    @Test
+    void skipsLinesThatAreNotGroupCodes() throws IOException {
+        DxfTokenizer tokenizer = tokenizer("junk\n99999999999\n0\nCIRCLE\n");
+
+        assertTrue(tokenizer.next());
+        assertEquals(0, tokenizer.groupCode());
+        assertEquals("CIRCLE", tokenizer.stringValue());
+        assertFalse(tokenizer.next());
+    }
+
+    @Test
+    void groupCodeWithoutValueEndsTheInput() throws IOException {
+        DxfTokenizer tokenizer = tokenizer("0\nLINE\n10\n");
+
+        assertTrue(tokenizer.next());
+        assertFalse(tokenizer.next());
+    }
+
+    @Test
+    void valueIsComparesWholeValues() throws IOException {
+        DxfTokenizer tokenizer = tokenizer("0\nLINES\n");
+
+        assertTrue(tokenizer.next());
+        assertFalse(tokenizer.valueIs(ascii("LINE")));
+        assertTrue(tokenizer.valueIs(ascii("LINES")));
+    }
+
+    @Test
+    void linesLongerThanTheReadBufferAreReadWhole() throws IOException {
+        String text = "x".repeat(200_000);
+        DxfTokenizer tokenizer = tokenizer("1\n" + text + "\n2\nname\n");
+
+        assertTrue(tokenizer.next());
+        assertEquals(text, tokenizer.stringValue());
+        assertTrue(tokenizer.next());
+        assertEquals("name", tokenizer.stringValue());
+    }
+
+    @Test
+    void decodesTextAsUtf8() throws IOException {
+        DxfTokenizer tokenizer = tokenizer("1\nÜberschrift ñ 漢字\n");
+
+        assertTrue(tokenizer.next());
+        assertEquals("Überschrift ñ 漢字", tokenizer.stringValue());
+    }
+
+    @Test
+    void invalidAndNonFiniteNumbersAreNaN() throws IOException {
+        for (String value : List.of("abc", "-", ".", "1e", "1.2.3", "Infinity", "NaN", "1e400", "0x")) {
+            DxfTokenizer tokenizer = tokenizer("10\n" + value + "\n");
+            tokenizer.next();
+            assertTrue(Double.isNaN(tokenizer.doubleValue()), value);
+        }
+    }
+
+    @Test
+    void acceptsTheSyntaxDoubleParseDoubleAccepts() throws IOException {
+        for (String value : List.of("0", "-0.0", "+3.25", ".5", "5.", "007", "1E-3", "1.5e+2", "1d", "2f",
+                "123456789012345678901", "0.1234567890123456789", "1e-400", "0x1p3")) {
+            DxfTokenizer tokenizer = tokenizer("10\n" + value + "\n");
+            tokenizer.next();
+            assertEquals(Double.parseDouble(value), tokenizer.doubleValue(), value);
+        }
+    }
+
+    @Test
+    void readsBinaryFilesWithTwoByteGroupCodes() throws IOException {
+        byte[] dxf = new BinaryDxfWriter(false)
+                .text(0, "SECTION").text(2, "ENTITIES").text(0, "LINE")
+                .real(10, 1.5).real(20, -2).int16(62, -3).int32(90, 70000)
+                .chunk(310, new byte[]{(byte) 0xAB, 0, 0x1F}).text(1000, "ñ")
+                .text(0, "EOF").toByteArray();
+        DxfTokenizer tokenizer = new DxfTokenizer(new ByteArrayInputStream(dxf));
+
+        assertTrue(tokenizer.next());
+        assertTrue(tokenizer.isBinary());
+        assertTrue(tokenizer.valueIs(ascii("SECTION")));
+        assertTrue(tokenizer.next());
+        assertEquals("ENTITIES", tokenizer.stringValue());
+        assertTrue(tokenizer.next());
+        assertTrue(tokenizer.valueIs(ascii("LINE")));
+        assertTrue(tokenizer.next());
+        assertEquals(10, tokenizer.groupCode());
+        assertEquals(1.5, tokenizer.doubleValue());
+        assertEquals("1.5", tokenizer.stringValue());
+        assertTrue(tokenizer.next());
+        assertEquals(-2.0, tokenizer.doubleValue());
+        assertTrue(tokenizer.next());
+        assertEquals(62, tokenizer.groupCode());
+        assertEquals(-3.0, tokenizer.doubleValue());
+        assertEquals("-3", tokenizer.stringValue());
+        assertTrue(tokenizer.next());
+        assertEquals(70000.0, tokenizer.doubleValue());
+        assertTrue(tokenizer.next());
+        assertEquals(310, tokenizer.groupCode());
+        assertEquals("AB001F", tokenizer.stringValue());
+        assertTrue(Double.isNaN(tokenizer.doubleValue()));
+        assertTrue(tokenizer.next());
+        assertEquals(1000, tokenizer.groupCode());
+        assertEquals("ñ", tokenizer.stringValue());
+        assertTrue(tokenizer.next());
+        assertTrue(tokenizer.valueIs(ascii("EOF")));
+        assertFalse(tokenizer.next());
+    }
+
+    @Test
+    void readsBinaryFilesWithOneByteGroupCodes() throws IOException {
+        byte[] dxf = new BinaryDxfWriter(true)
+                .text(0, "SECTION").real(10, 4.25).int16(1070, 7).text(0, "EOF").toByteArray();
+        DxfTokenizer tokenizer = new DxfTokenizer(new ByteArrayInputStream(dxf));
+
+        assertTrue(tokenizer.next());
+        assertEquals("SECTION", tokenizer.stringValue());
+        assertTrue(tokenizer.next());
+        assertEquals(4.25, tokenizer.doubleValue());
+        assertTrue(tokenizer.next());
+        assertEquals(1070, tokenizer.groupCode());
+        assertEquals(7.0, tokenizer.doubleValue());
+        assertTrue(tokenizer.next());
+        assertEquals("EOF", tokenizer.stringValue());
+        assertFalse(tokenizer.next());
+    }
+
+    @Test
+    void truncatedBinaryValueEndsTheInput() throws IOException {
+        byte[] dxf = new BinaryDxfWriter(false).text(0, "LINE").real(10, 1).toByteArray();
+        DxfTokenizer tokenizer = new DxfTokenizer(new ByteArrayInputStream(Arrays.copyOf(dxf, dxf.length - 3)));
+
+        assertTrue(tokenizer.next());
+        assertFalse(tokenizer.next());
+    }
+
+    @Test
+    void asciiFilesAreNotBinary() throws IOException {
+        DxfTokenizer tokenizer = tokenizer("0\nSECTION\n");
+
+        assertTrue(tokenizer.next());
+        assertFalse(tokenizer.isBinary());
+    }
+
+    /**
+     * The fast path produces the same double as Double.parseDouble for the ways DXF writers
+     * format coordinates.
+     */
+    @Property(tries = 300)
+    @Label("doubleValue matches Double.parseDouble")
+    void doubleValueMatchesParseDouble(@ForAll("coordinates") List<String> values) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (String value : values) {
+            content.append("10\r\n").append(value).append("\r\n");
+        }
+        DxfTokenizer tokenizer = tokenizer(content.toString());
+
+        List<Double> parsed = new ArrayList<>();
+        while (tokenizer.next()) {
+            parsed.add(tokenizer.doubleValue());
+        }
+
+        assertEquals(values.size(), parsed.size());
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals(Double.parseDouble(values.get(i)), parsed.get(i), values.get(i));
+        }
+    }
+
+    @Provide
+    Arbitrary<List<String>> coordinates() {
+        Arbitrary<Double> doubles = Arbitraries.oneOf(
+                Arbitraries.doubles().between(-1e6, 1e6),
+                Arbitraries.doubles().between(-1e-3, 1e-3),
+                Arbitraries.doubles().between(-1e300, 1e300));
+        Arbitrary<String> formatted = Arbitraries.oneOf(
+                doubles.map(String::valueOf),
+                doubles.map(d -> String.format(Locale.ROOT, "%.6f", d)),
+                doubles.map(d -> String.format(Locale.ROOT, "%.15g", d)),
+                Arbitraries.integers().map(String::valueOf));
+        return formatted.list().ofMaxSize(200);
+    }
+
+    private static DxfTokenizer tokenizer(String content) {
+        return new DxfTokenizer(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,103 @@
+package com.xtopdf.xtopdf.services.jobs;
+
+import com.xtopdf.xtopdf.dto.ConversionJob;
+import com.xtopdf.xtopdf.dto.ConversionJob.JobStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FileJobStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void jobsSurviveReopening() throws IOException {
+        ConversionJob completed = ConversionJob.pending("job-1", "report.docx", "report.pdf", "https://example.com/hook")
+                .withProcessing()
+                .withCompleted();
+        ConversionJob failed = ConversionJob.pending("job-2", "sheet.xlsx", "sheet.pdf", null).withFailed("Conversion failed");
+
+        FileJobStore store = new FileJobStore(directory.toString());
+        store.save(ConversionJob.pending("job-1", "report.docx", "report.pdf", "https://example.com/hook"));
+        store.save(completed);
+        store.save(failed);
+        store.close();
+
+        FileJobStore reopened = new FileJobStore(directory.toString());
+        assertThat(reopened.find("job-1")).contains(completed);
+        assertThat(reopened.find("job-2")).contains(failed);
+        assertThat(reopened.findAll()).hasSize(2);
+        reopened.close();
+    }
+
+    @Test
+    void deletedJobsStayDeletedAndLoseTheirFiles() throws IOException {
+        FileJobStore store = new FileJobStore(directory.toString());
+        store.save(ConversionJob.pending("job-1", "a.txt", "a.pdf", null));
+        Files.writeString(store.inputPath("job-1"), "input");
+        Files.writeString(store.resultPath("job-1"), "%PDF");
+
+        store.delete("job-1");
+        store.close();
+
+        FileJobStore reopened = new FileJobStore(directory.toString());
+        assertThat(reopened.find("job-1")).isEmpty();
+        assertThat(reopened.inputPath("job-1")).doesNotExist();
+        assertThat(reopened.resultPath("job-1")).doesNotExist();
+        reopened.close();
+    }
+
+    @Test
+    void tornTailIsDiscardedOnReplay() throws IOException {
+        FileJobStore store = new FileJobStore(directory.toString());
+        store.save(ConversionJob.pending("job-1", "a.txt", "a.pdf", null));
+        store.close();
+        // Simulate a crash in the middle of appending the next record
+        Files.write(directory.resolve("jobs.journal"), new byte[] {0x58, 0x4A, 0x42, 0x31, 0, 0, 0, 40, 1, 2},
+                StandardOpenOption.APPEND);
+
+        FileJobStore reopened = new FileJobStore(directory.toString());
+        assertThat(reopened.find("job-1")).map(ConversionJob::status).contains(JobStatus.PENDING);
+        reopened.save(ConversionJob.pending("job-2", "b.txt", "b.pdf", null));
+        reopened.close();
+
+        FileJobStore again = new FileJobStore(directory.toString());
+        assertThat(again.findAll()).extracting(ConversionJob::id).containsExactlyInAnyOrder("job-1", "job-2");
+        again.close();
+    }
+
+    @Test
+    void repeatedUpdatesAreCompacted() throws IOException {
+        FileJobStore store = new FileJobStore(directory.toString());
+        ConversionJob job = ConversionJob.pending("job-1", "a.txt", "a.pdf", null);
+        for (int i = 0; i < 2_500; i++) {
+            store.save(i % 2 == 0 ? job.withProcessing() : job);
+        }
+        store.close();
+
+        // Compaction keeps the journal far below one record per update
+        assertThat(Files.size(directory.resolve("jobs.journal"))).isLessThan(1_000L * 100);
+        FileJobStore reopened = new FileJobStore(directory.toString());
+        assertThat(reopened.find("job-1")).contains(job);
+        reopened.close();
+    }
+
+    @Test
+    void payloadPathsRejectIdsThatEscapeTheDirectory() throws IOException {
+        FileJobStore store = new FileJobStore(directory.toString());
+
+        assertThatThrownBy(() -> store.inputPath("../outside"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> store.resultPath("a/b"))
+                .isInstanceOf(IllegalArgumentException.class);
+        store.close();
+    }
+}
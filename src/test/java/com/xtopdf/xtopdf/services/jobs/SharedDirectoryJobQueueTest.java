@@ -0,0 +1,141 @@
+package com.xtopdf.xtopdf.services.jobs;
+
+import com.xtopdf.xtopdf.config.MetricsConfiguration.ConversionMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SharedDirectoryJobQueueTest {
+
+    private static final Duration LEASE = Duration.ofSeconds(60);
+
+    @TempDir
+    Path directory;
+
+    private final MutableClock clock = new MutableClock();
+    private SimpleMeterRegistry registry;
+    private SharedDirectoryJobQueue nodeA;
+    private SharedDirectoryJobQueue nodeB;
+
+    /**
+     * Clock that tests can move forward, shared by both nodes.
+     */
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2026-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        nodeA = node("node-a");
+        nodeB = node("node-b");
+    }
+
+    private SharedDirectoryJobQueue node(String nodeId) {
+        return new SharedDirectoryJobQueue(directory, nodeId, LEASE, new ConversionMetrics(registry), clock);
+    }
+
+    @Test
+    void onlyOneNodeWinsAClaim() {
+        nodeA.publish("job-1");
+
+        assertThat(nodeB.claimable()).containsExactly(new JobQueue.QueuedJob("job-1", "node-a"));
+        assertThat(nodeA.tryClaim("job-1")).isTrue();
+        assertThat(nodeB.tryClaim("job-1")).isFalse();
+        assertThat(nodeB.claimable()).isEmpty();
+        assertThat(nodeA.claimable()).isEmpty();
+    }
+
+    @Test
+    void idleNodeStealsJobsPublishedByAnotherNode() {
+        nodeA.publish("job-1");
+        nodeA.publish("job-2");
+        nodeA.tryClaim("job-1");
+
+        assertThat(nodeB.claimable()).extracting(JobQueue.QueuedJob::jobId).containsExactly("job-2");
+        assertThat(nodeB.tryClaim("job-2")).isTrue();
+        assertThat(nodeA.tryClaim("job-2")).isFalse();
+    }
+
+    @Test
+    void expiredLeaseIsTakenOverByAnotherNode() {
+        nodeA.publish("job-1");
+        nodeA.tryClaim("job-1");
+
+        clock.advance(LEASE.plusSeconds(1));
+
+        assertThat(nodeB.claimable()).extracting(JobQueue.QueuedJob::jobId).containsExactly("job-1");
+        assertThat(nodeB.tryClaim("job-1")).isTrue();
+        assertThat(registry.counter("conversion.jobs.leases.expired.total").count()).isEqualTo(1.0);
+
+        // The old holder notices it lost the lease and does not take the job back
+        nodeA.renewLeases();
+        assertThat(nodeA.claimable()).isEmpty();
+        assertThat(nodeA.tryClaim("job-1")).isFalse();
+    }
+
+    @Test
+    void renewedLeaseOutlivesItsOriginalExpiry() {
+        nodeA.publish("job-1");
+        nodeA.tryClaim("job-1");
+
+        clock.advance(Duration.ofSeconds(30));
+        nodeA.renewLeases();
+        clock.advance(Duration.ofSeconds(45));
+
+        assertThat(nodeB.claimable()).isEmpty();
+        assertThat(nodeB.tryClaim("job-1")).isFalse();
+    }
+
+    @Test
+    void releasedJobsCanBeClaimedAndCompletedJobsCannot() {
+        nodeA.publish("job-1");
+        nodeA.tryClaim("job-1");
+        nodeA.release("job-1");
+
+        assertThat(nodeB.tryClaim("job-1")).isTrue();
+        nodeB.complete("job-1");
+
+        assertThat(nodeA.claimable()).isEmpty();
+        assertThat(nodeA.tryClaim("job-1")).isFalse();
+    }
+
+    @Test
+    void leasesLeftByAnEarlierProcessWithTheSameNodeIdAreReclaimed() {
+        nodeA.publish("job-1");
+        nodeA.tryClaim("job-1");
+
+        SharedDirectoryJobQueue restarted = node("node-a");
+
+        assertThat(restarted.claimable()).extracting(JobQueue.QueuedJob::jobId).containsExactly("job-1");
+        assertThat(restarted.tryClaim("job-1")).isTrue();
+    }
+}
@@ -0,0 +1,82 @@
+package com.xtopdf.xtopdf.services.jobs;
+
+import com.xtopdf.xtopdf.dto.ConversionJob;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SharedDirectoryJobStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void jobsSavedByOneReplicaAreVisibleToAnother() {
+        SharedDirectoryJobStore replicaA = new SharedDirectoryJobStore(directory.toString());
+        SharedDirectoryJobStore replicaB = new SharedDirectoryJobStore(directory.toString());
+        ConversionJob pending = ConversionJob.pending("job-1", "report.docx", "report.pdf", "https://example.com/hook");
+
+        replicaA.save(pending);
+        assertThat(replicaB.find("job-1")).contains(pending);
+
+        ConversionJob completed = pending.withProcessing().withCompleted();
+        replicaB.save(completed);
+        assertThat(replicaA.find("job-1")).contains(completed);
+        assertThat(replicaA.findAll()).containsExactly(completed);
+    }
+
+    @Test
+    void resultsWrittenByOneReplicaAreServedByAnother() throws IOException {
+        SharedDirectoryJobStore replicaA = new SharedDirectoryJobStore(directory.toString());
+        SharedDirectoryJobStore replicaB = new SharedDirectoryJobStore(directory.toString());
+
+        Files.writeString(replicaA.resultPath("job-1"), "%PDF");
+
+        assertThat(replicaB.resultPath("job-1")).hasContent("%PDF");
+    }
+
+    @Test
+    void deleteRemovesTheRecordAndItsFiles() throws IOException {
+        SharedDirectoryJobStore store = new SharedDirectoryJobStore(directory.toString());
+        store.save(ConversionJob.pending("job-1", "a.txt", "a.pdf", null));
+        Files.writeString(store.inputPath("job-1"), "input");
+        Files.writeString(store.resultPath("job-1"), "%PDF");
+
+        store.delete("job-1");
+
+        assertThat(new SharedDirectoryJobStore(directory.toString()).find("job-1")).isEmpty();
+        assertThat(store.inputPath("job-1")).doesNotExist();
+        assertThat(store.resultPath("job-1")).doesNotExist();
+    }
+
+    @Test
+    void unreadableRecordsAreSkipped() throws IOException {
+        SharedDirectoryJobStore store = new SharedDirectoryJobStore(directory.toString());
+        store.save(ConversionJob.pending("job-1", "a.txt", "a.pdf", null));
+        Files.writeString(directory.resolve("records").resolve("job-2.job"), "garbage");
+
+        assertThat(store.find("job-2")).isEmpty();
+        assertThat(store.findAll()).extracting(ConversionJob::id).containsExactly("job-1");
+    }
+
+    @Test
+    void idsThatEscapeTheDirectoryAreNeverLookedUp() throws IOException {
+        SharedDirectoryJobStore store = new SharedDirectoryJobStore(directory.toString());
+        Path outside = Files.writeString(directory.resolve("outside.job"), "not a record");
+
+        assertThat(store.find("../outside")).isEmpty();
+        store.delete("../outside");
+        store.delete("a/b");
+
+        assertThat(outside).exists();
+        assertThatThrownBy(() -> store.save(ConversionJob.pending("../outside", "a.txt", "a.pdf", null)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> store.resultPath("a/b")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
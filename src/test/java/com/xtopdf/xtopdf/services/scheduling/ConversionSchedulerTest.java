@@ -0,0 +1,276 @@
+package com.xtopdf.xtopdf.services.scheduling;
+
+import com.xtopdf.xtopdf.config.MetricsConfiguration.ConversionMetrics;
+import com.xtopdf.xtopdf.exceptions.ConversionRejectedException;
+import com.xtopdf.xtopdf.services.scheduling.ConversionScheduler.Priority;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.Reference;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConversionSchedulerTest {
+
+    private static final long MB = 1024 * 1024;
+
+    private SimpleMeterRegistry registry;
+    private HeapCostModel heapCostModel;
+    private ConversionScheduler scheduler;
+
+    private ConversionScheduler scheduler(int permits, int queueCapacity, List<String> weights) {
+        return scheduler(permits, queueCapacity, weights, 0);
+    }
+
+    private ConversionScheduler scheduler(int permits, int queueCapacity, List<String> weights, long budgetMb) {
+        registry = new SimpleMeterRegistry();
+        ConversionMetrics metrics = new ConversionMetrics(registry);
+        heapCostModel = new HeapCostModel(metrics, 4, 16, 0.2, List.of("xls=12"));
+        scheduler = new ConversionScheduler(metrics, heapCostModel, permits, queueCapacity, weights, budgetMb);
+        return scheduler;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void submit_runsTaskAndReturnsResult() throws Exception {
+        scheduler(2, 10, List.of());
+
+        Future<String> result = scheduler.submit("txt", Priority.SYNC, () -> "done");
+
+        assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("done");
+        awaitPermitsReleased();
+    }
+
+    @Test
+    void weightOf_usesConfiguredWeightsCappedAtPermits() {
+        scheduler(4, 10, List.of("svg=6", "XLSX = 2"));
+
+        assertThat(scheduler.weightOf("svg")).isEqualTo(4);
+        assertThat(scheduler.weightOf(".xlsx")).isEqualTo(2);
+        assertThat(scheduler.weightOf("txt")).isEqualTo(1);
+        assertThat(ConversionScheduler.formatOf("Drawing.SVG")).isEqualTo("svg");
+        assertThat(ConversionScheduler.formatOf("README")).isEmpty();
+    }
+
+    @Test
+    void invalidWeight_isRejected() {
+        assertThatThrownBy(() -> scheduler(2, 10, List.of("svg")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void heavyFormat_holdsMultiplePermits() throws Exception {
+        scheduler(2, 10, List.of("svg=2"));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch svgStarted = new CountDownLatch(1);
+
+        Future<?> svg = scheduler.submit("svg", Priority.SYNC, () -> {
+            svgStarted.countDown();
+            release.await();
+            return null;
+        });
+        assertThat(svgStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<String> txt = scheduler.submit("txt", Priority.SYNC, () -> "txt");
+
+        assertThat(scheduler.permitsInUse()).isEqualTo(2);
+        assertThat(scheduler.queuedCount()).isEqualTo(1);
+        assertThat(txt.isDone()).isFalse();
+
+        release.countDown();
+        svg.get(5, TimeUnit.SECONDS);
+        assertThat(txt.get(5, TimeUnit.SECONDS)).isEqualTo("txt");
+    }
+
+    @Test
+    void queuedTasks_startInPriorityOrder() throws Exception {
+        scheduler(1, 10, List.of());
+        CountDownLatch release = new CountDownLatch(1);
+        List<Priority> order = new CopyOnWriteArrayList<>();
+
+        scheduler.submit("txt", Priority.SYNC, () -> {
+            release.await();
+            return null;
+        });
+        Future<?> batch = scheduler.submit("txt", Priority.BATCH, () -> order.add(Priority.BATCH));
+        Future<?> async = scheduler.submit("txt", Priority.ASYNC, () -> order.add(Priority.ASYNC));
+        Future<?> sync = scheduler.submit("txt", Priority.SYNC, () -> order.add(Priority.SYNC));
+        assertThat(scheduler.queuedCount(Priority.BATCH)).isEqualTo(1);
+        assertThat(registry.get("conversion.scheduler.queue.depth").tag("priority", "async").gauge().value())
+                .isEqualTo(1.0);
+
+        release.countDown();
+        batch.get(5, TimeUnit.SECONDS);
+        async.get(5, TimeUnit.SECONDS);
+        sync.get(5, TimeUnit.SECONDS);
+
+        assertThat(order).containsExactly(Priority.SYNC, Priority.ASYNC, Priority.BATCH);
+    }
+
+    @Test
+    void fullQueue_rejectsFastAndCountsRejection() throws Exception {
+        scheduler(1, 1, List.of());
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.submit("txt", Priority.SYNC, () -> {
+            release.await();
+            return null;
+        });
+        Future<String> queued = scheduler.submit("txt", Priority.SYNC, () -> "queued");
+
+        assertThatThrownBy(() -> scheduler.submit("txt", Priority.SYNC, () -> "rejected"))
+                .isInstanceOf(ConversionRejectedException.class);
+        assertThat(registry.get("conversion.scheduler.rejected.total").tag("priority", "sync").counter().count())
+                .isEqualTo(1.0);
+        assertThat(scheduler.queuedCount()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("queued");
+    }
+
+    @Test
+    void fullQueueOfBatchTasks_admitsSyncByDisplacingNewestBatch() throws Exception {
+        scheduler(1, 3, List.of());
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.submit("txt", Priority.SYNC, () -> {
+            release.await();
+            return null;
+        });
+        List<Future<String>> batches = new CopyOnWriteArrayList<>();
+        List<ConversionRejectedException> displaced = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            String name = "batch-" + i;
+            batches.add(scheduler.submit("txt", 0, Priority.BATCH, () -> name, displaced::add));
+        }
+
+        Future<String> sync = scheduler.submit("txt", Priority.SYNC, () -> "sync");
+
+        assertThat(scheduler.queuedCount()).isEqualTo(3);
+        assertThat(scheduler.queuedCount(Priority.BATCH)).isEqualTo(2);
+        assertThat(displaced).hasSize(1);
+        assertThatThrownBy(() -> batches.get(2).get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(ConversionRejectedException.class);
+        assertThat(registry.get("conversion.scheduler.rejected.total").tag("priority", "batch").counter().count())
+                .isEqualTo(1.0);
+
+        release.countDown();
+        assertThat(sync.get(5, TimeUnit.SECONDS)).isEqualTo("sync");
+        assertThat(batches.get(0).get(5, TimeUnit.SECONDS)).isEqualTo("batch-0");
+        assertThat(batches.get(1).get(5, TimeUnit.SECONDS)).isEqualTo("batch-1");
+    }
+
+    @Test
+    void cancellingQueuedTask_removesItFromQueue() throws Exception {
+        scheduler(1, 10, List.of());
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.submit("txt", Priority.SYNC, () -> {
+            release.await();
+            return null;
+        });
+        Future<String> queued = scheduler.submit("txt", Priority.ASYNC, () -> "never");
+
+        queued.cancel(true);
+
+        assertThat(scheduler.queuedCount()).isZero();
+        release.countDown();
+        awaitPermitsReleased();
+    }
+
+    @Test
+    void nestedSubmit_runsWithoutWaitingForPermits() throws Exception {
+        scheduler(1, 0, List.of());
+
+        Future<String> outer = scheduler.submit("docx", Priority.BATCH, () ->
+                scheduler.submit("docx", Priority.SYNC, () -> "inner").get(5, TimeUnit.SECONDS));
+
+        assertThat(outer.get(5, TimeUnit.SECONDS)).isEqualTo("inner");
+        awaitPermitsReleased();
+    }
+
+    @Test
+    void permitsHeld_isTheRunningConversionsWeightAndPassesToNestedWork() throws Exception {
+        scheduler(4, 10, List.of("xlsx=3"));
+
+        Future<List<Integer>> outer = scheduler.submit("xlsx", Priority.BATCH, () -> List.of(
+                ConversionScheduler.permitsHeld(),
+                scheduler.submit("txt", Priority.SYNC, ConversionScheduler::permitsHeld).get(5, TimeUnit.SECONDS)));
+
+        assertThat(outer.get(5, TimeUnit.SECONDS)).containsExactly(3, 3);
+        assertThat(ConversionScheduler.permitsHeld()).isZero();
+        awaitPermitsReleased();
+    }
+
+    @Test
+    void memoryBudget_queuesConversionUntilHeapIsReturned() throws Exception {
+        scheduler(4, 10, List.of(), 64);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch smallStarted = new CountDownLatch(1);
+
+        Future<?> small = scheduler.submit("txt", 0, Priority.SYNC, () -> {
+            smallStarted.countDown();
+            release.await();
+            return null;
+        });
+        assertThat(smallStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        // 16 MB baseline + 12 x 10 MB exceeds the 64 MB budget: capped at the budget, so it must run alone
+        Future<String> large = scheduler.submit("xls", 10 * MB, Priority.SYNC, () -> "large");
+
+        assertThat(scheduler.reservedBytes()).isEqualTo(16 * MB);
+        assertThat(scheduler.permitsInUse()).isEqualTo(1);
+        assertThat(scheduler.queuedCount()).isEqualTo(1);
+        assertThat(registry.get("conversion.memory.reserved.bytes").gauge().value()).isEqualTo(16.0 * MB);
+
+        release.countDown();
+        small.get(5, TimeUnit.SECONDS);
+        assertThat(large.get(5, TimeUnit.SECONDS)).isEqualTo("large");
+        awaitPermitsReleased();
+        assertThat(scheduler.reservedBytes()).isZero();
+        assertThat(registry.get("conversion.memory.reservation.bytes").tag("format", "xls").summary().max())
+                .isEqualTo(64.0 * MB);
+    }
+
+    @Test
+    void conversionRunningAlone_feedsMeasuredHeapIntoModel() throws Exception {
+        scheduler(2, 10, List.of());
+        double before = heapCostModel.multiplier("bin");
+        // The probe needs a collection before the conversion to measure from
+        System.gc();
+        Thread.sleep(100);
+
+        Future<Integer> result = scheduler.submit("bin", MB, Priority.SYNC, () -> {
+            byte[] working = new byte[(int) (64 * MB)];
+            working[working.length - 1] = 1;
+            System.gc();
+            Thread.sleep(100);
+            Reference.reachabilityFence(working);
+            return working.length;
+        });
+        result.get(5, TimeUnit.SECONDS);
+        awaitPermitsReleased();
+
+        assertThat(heapCostModel.multiplier("bin")).isGreaterThan(before);
+        assertThat(registry.get("conversion.memory.actual_to_predicted").tag("format", "bin").summary().count())
+                .isEqualTo(1);
+    }
+
+    private void awaitPermitsReleased() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (scheduler.permitsInUse() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(scheduler.permitsInUse()).isZero();
+    }
+}
@@ -0,0 +1,92 @@
+package com.xtopdf.xtopdf.services.scheduling;
+
+import com.xtopdf.xtopdf.config.MetricsConfiguration.ConversionMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class HeapCostModelTest {
+
+    private static final long MB = 1024 * 1024;
+
+    private SimpleMeterRegistry registry;
+    private HeapCostModel model;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        model = new HeapCostModel(new ConversionMetrics(registry), 4, 16, 0.5, List.of("xls=12", ".XLSX=8"));
+    }
+
+    @Test
+    void estimate_isBaselinePlusMultiplierTimesInput() {
+        assertThat(model.estimate("xls", 10 * MB)).isEqualTo(16 * MB + 120 * MB);
+        assertThat(model.estimate("xlsx", MB)).isEqualTo(16 * MB + 8 * MB);
+        assertThat(model.estimate("txt", MB)).isEqualTo(16 * MB + 4 * MB);
+        assertThat(model.estimate("txt", 0)).isEqualTo(16 * MB);
+    }
+
+    @Test
+    void record_movesMultiplierTowardsObservedCost() {
+        // Observed 20 x 1 MB input: multiplier 12 moves halfway to 20
+        model.record("xls", MB, model.estimate("xls", MB), 20 * MB);
+
+        assertThat(model.multiplier("xls")).isCloseTo(16.0, within(0.001));
+        assertThat(registry.get("conversion.memory.actual_to_predicted").tag("format", "xls").summary().mean())
+                .isCloseTo(20.0 / 28.0, within(0.001));
+    }
+
+    @Test
+    void record_unconfiguredFormatStartsFromDefault() {
+        model.record("svg", MB, model.estimate("svg", MB), 2 * MB);
+
+        assertThat(model.multiplier("svg")).isCloseTo(3.0, within(0.001));
+    }
+
+    @Test
+    void record_smallInputsOnlyReportRatio() {
+        model.record("xls", 1024, model.estimate("xls", 1024), 64 * MB);
+
+        assertThat(model.multiplier("xls")).isEqualTo(12.0);
+        assertThat(registry.get("conversion.memory.actual_to_predicted").tag("format", "xls").summary().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void record_observationsWithoutGrowthLeaveMultiplierAlone() {
+        for (int i = 0; i < 50; i++) {
+            model.record("xls", 4 * MB, model.estimate("xls", 4 * MB), 0);
+        }
+
+        assertThat(model.multiplier("xls")).isEqualTo(12.0);
+        assertThat(registry.find("conversion.memory.actual_to_predicted").tag("format", "xls").summary()).isNull();
+    }
+
+    @Test
+    void record_clampsLearnedMultiplier() {
+        for (int i = 0; i < 20; i++) {
+            model.record("txt", MB, model.estimate("txt", MB), 1);
+        }
+
+        assertThat(model.multiplier("txt"))
+                .isGreaterThanOrEqualTo(HeapCostModel.MIN_MULTIPLIER)
+                .isCloseTo(HeapCostModel.MIN_MULTIPLIER, within(0.001));
+    }
+
+    @Test
+    void invalidConfiguration_isRejected() {
+        ConversionMetrics metrics = new ConversionMetrics(registry);
+        assertThatThrownBy(() -> new HeapCostModel(metrics, 4, 16, 0.5, List.of("xls")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new HeapCostModel(metrics, 4, 16, 0.5, List.of("xls=0")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new HeapCostModel(metrics, 4, 16, 0, List.of()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,69 @@
+package com.xtopdf.xtopdf.services.scheduling;
+
+import com.xtopdf.xtopdf.config.MetricsConfiguration.ConversionMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class HeapUsageProbeTest {
+
+    private static final long MB = 1024 * 1024;
+
+    private static volatile Object sink;
+
+    @Test
+    void conversionsThatChurnGarbageKeepTheirMultiplierNearTheirWorkingSet() throws Exception {
+        HeapCostModel model = new HeapCostModel(new ConversionMetrics(new SimpleMeterRegistry()), 4, 16, 0.2,
+                List.of("xlsx=8"));
+        List<Long> observations = new ArrayList<>();
+        try (HeapUsageProbe probe = new HeapUsageProbe()) {
+            for (int run = 0; run < 12; run++) {
+                // The service idles between conversions
+                collect();
+                probe.start();
+
+                // Holds 8 MB for a 1 MB input while 256 MB of garbage dies young around it
+                List<byte[]> workingSet = new ArrayList<>();
+                for (int i = 0; i < 4096; i++) {
+                    sink = new byte[64 * 1024];
+                    if (i % 32 == 0) {
+                        workingSet.add(new byte[64 * 1024]);
+                    }
+                }
+                collect();
+                Reference.reachabilityFence(workingSet);
+
+                OptionalLong observed = probe.retained();
+                observed.ifPresent(bytes -> {
+                    observations.add(bytes);
+                    model.record("xlsx", MB, model.estimate("xlsx", MB), bytes);
+                });
+            }
+        }
+
+        assertThat(observations).isNotEmpty().allSatisfy(bytes -> assertThat(bytes).isGreaterThan(4 * MB));
+        assertThat(model.multiplier("xlsx")).isCloseTo(8.0, within(3.0));
+    }
+
+    @Test
+    void conversionWithoutACollectionGivesNoSample() {
+        try (HeapUsageProbe probe = new HeapUsageProbe()) {
+            probe.start();
+
+            assertThat(probe.retained()).isEmpty();
+        }
+    }
+
+    private static void collect() throws InterruptedException {
+        System.gc();
+        // Collection notifications are delivered on another thread
+        Thread.sleep(100);
+    }
+}
@@ -0,0 +1,96 @@
+package com.xtopdf.xtopdf.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Builds binary DXF files for tests, with R12 (one-byte) or R13+ (two-byte) group codes.
+ */
+public class BinaryDxfWriter {
+
+    private static final byte[] SENTINEL = "AutoCAD Binary DXF\r\n\u001a\0".getBytes(StandardCharsets.US_ASCII);
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final boolean oneByteGroupCodes;
+
+    public BinaryDxfWriter(boolean oneByteGroupCodes) {
+        this.oneByteGroupCodes = oneByteGroupCodes;
+        out.writeBytes(SENTINEL);
+    }
+
+    /**
+     * Converts the group code/value pairs of an ASCII DXF file that only uses string,
+     * coordinate/real (10-59), 16-bit (60-79) and 32-bit (90-99) group codes.
+     */
+    public static byte[] fromAscii(String ascii, boolean oneByteGroupCodes) {
+        BinaryDxfWriter writer = new BinaryDxfWriter(oneByteGroupCodes);
+        String[] lines = ascii.split("\r?\n");
+        for (int i = 0; i + 1 < lines.length; i += 2) {
+            int code = Integer.parseInt(lines[i].trim());
+            String value = lines[i + 1].trim();
+            if (code >= 10 && code <= 59) {
+                writer.real(code, Double.parseDouble(value));
+            } else if (code >= 60 && code <= 79) {
+                writer.int16(code, Integer.parseInt(value));
+            } else if (code >= 90 && code <= 99) {
+                writer.int32(code, Integer.parseInt(value));
+            } else {
+                writer.text(code, value);
+            }
+        }
+        return writer.toByteArray();
+    }
+
+    public BinaryDxfWriter text(int code, String value) {
+        groupCode(code);
+        out.writeBytes(value.getBytes(StandardCharsets.UTF_8));
+        out.write(0);
+        return this;
+    }
+
+    public BinaryDxfWriter real(int code, double value) {
+        groupCode(code);
+        out.writeBytes(littleEndian(Double.BYTES).putDouble(value).array());
+        return this;
+    }
+
+    public BinaryDxfWriter int16(int code, int value) {
+        groupCode(code);
+        out.writeBytes(littleEndian(Short.BYTES).putShort((short) value).array());
+        return this;
+    }
+
+    public BinaryDxfWriter int32(int code, int value) {
+        groupCode(code);
+        out.writeBytes(littleEndian(Integer.BYTES).putInt(value).array());
+        return this;
+    }
+
+    public BinaryDxfWriter chunk(int code, byte[] value) {
+        groupCode(code);
+        out.write(value.length);
+        out.writeBytes(value);
+        return this;
+    }
+
+    public byte[] toByteArray() {
+        return out.toByteArray();
+    }
+
+    private void groupCode(int code) {
+        if (oneByteGroupCodes && code >= 0 && code < 255) {
+            out.write(code);
+            return;
+        }
+        if (oneByteGroupCodes) {
+            out.write(255);
+        }
+        out.writeBytes(littleEndian(Short.BYTES).putShort((short) code).array());
+    }
+
+    private static ByteBuffer littleEndian(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}